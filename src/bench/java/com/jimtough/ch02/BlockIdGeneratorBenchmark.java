@@ -0,0 +1,72 @@
+package com.jimtough.ch02;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of {@link BlockIdGenerator#nextId()} as the number of threads grows. A block size of
+ * 1 is the same as one shared atomic update per ID.
+ * 
+ * @author JTOUGH
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BlockIdGeneratorBenchmark {
+
+	@Param({ "1", "64", "1024" })
+	public int blockSize;
+
+	private BlockIdGenerator generator;
+
+	@Setup
+	public void setUp() {
+		generator = new BlockIdGenerator(blockSize);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public long nextId_1Thread() {
+		return generator.nextId();
+	}
+
+	@Benchmark
+	@Threads(2)
+	public long nextId_2Threads() {
+		return generator.nextId();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public long nextId_4Threads() {
+		return generator.nextId();
+	}
+
+	@Benchmark
+	@Threads(8)
+	public long nextId_8Threads() {
+		return generator.nextId();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public long nextId_MaxThreads() {
+		return generator.nextId();
+	}
+
+}
@@ -0,0 +1,67 @@
+package com.jimtough.ch02;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jimtough.ch02.MySingleton.CounterMode;
+
+/**
+ * Measures {@link MySingleton#incrementAndGet()} and the tally in each {@link CounterMode},
+ * with and without contention between threads
+ * 
+ * @author JTOUGH
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MySingletonBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Counters {
+		final MySingleton strict = new MySingleton(CounterMode.STRICT);
+		final MySingleton striped = new MySingleton(CounterMode.STRIPED);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public int incrementAndGet_1Thread() {
+		return MySingleton.getInstance().incrementAndGet();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public int incrementAndGet_4Threads() {
+		return MySingleton.getInstance().incrementAndGet();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public int incrementAndGet_MaxThreads() {
+		return MySingleton.getInstance().incrementAndGet();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public void incrementStrict_MaxThreads(Counters counters) {
+		counters.strict.increment();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public void incrementStriped_MaxThreads(Counters counters) {
+		counters.striped.increment();
+	}
+
+}
@@ -0,0 +1,127 @@
+package com.jimtough.ch04;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the boxed varargs {@link GenericClass#sum(Float...)} with the primitive sums, on
+ * arrays of 10^3 to 10^8 elements. Each kind of input is in its own state class, so that only
+ * the data needed by the running benchmark is allocated. The boxed array of 10^8 elements
+ * needs about 2GB of heap.
+ * 
+ * @author JTOUGH
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class GenericClassBenchmark {
+
+	@Param({ "1000", "100000", "10000000", "100000000" })
+	public int size;
+
+	private final GenericClass genericClass = new GenericClass();
+
+	static float[] randomFloats(int n) {
+		Random random = new Random(42);
+		float[] a = new float[n];
+		for (int i = 0; i < n; i++) {
+			a[i] = random.nextFloat();
+		}
+		return a;
+	}
+
+	@State(Scope.Benchmark)
+	public static class BoxedValues {
+		Float[] values;
+		@Setup
+		public void setUp(GenericClassBenchmark benchmark) {
+			float[] a = randomFloats(benchmark.size);
+			values = new Float[a.length];
+			for (int i = 0; i < a.length; i++) {
+				values[i] = a[i];
+			}
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class FloatValues {
+		float[] values;
+		@Setup
+		public void setUp(GenericClassBenchmark benchmark) {
+			values = randomFloats(benchmark.size);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class DoubleValues {
+		double[] values;
+		@Setup
+		public void setUp(GenericClassBenchmark benchmark) {
+			float[] a = randomFloats(benchmark.size);
+			values = new double[a.length];
+			for (int i = 0; i < a.length; i++) {
+				values[i] = a[i];
+			}
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class DirectFloatBuffer {
+		FloatBuffer values;
+		@Setup
+		public void setUp(GenericClassBenchmark benchmark) {
+			values = ByteBuffer.allocateDirect(benchmark.size * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+			values.put(randomFloats(benchmark.size));
+			values.flip();
+		}
+	}
+
+	@Benchmark
+	public double sumBoxedVarargs(BoxedValues boxed) {
+		return genericClass.sum(boxed.values);
+	}
+
+	@Benchmark
+	public double sumFloatArray(FloatValues floats) {
+		return genericClass.sum(floats.values, 0, floats.values.length);
+	}
+
+	@Benchmark
+	public double compensatedSumFloatArray(FloatValues floats) {
+		return genericClass.compensatedSum(floats.values, 0, floats.values.length);
+	}
+
+	@Benchmark
+	public double sumDoubleArray(DoubleValues doubles) {
+		return genericClass.sum(doubles.values);
+	}
+
+	@Benchmark
+	public double compensatedSumDoubleArray(DoubleValues doubles) {
+		return genericClass.compensatedSum(doubles.values);
+	}
+
+	@Benchmark
+	public double sumDirectFloatBuffer(DirectFloatBuffer buffer) {
+		return genericClass.sum(buffer.values);
+	}
+
+}
@@ -0,0 +1,106 @@
+package com.jimtough.ch04;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the multi-accumulator loops of {@link NumericKernels} with the equivalent
+ * single-accumulator loops, which are limited by the latency of one floating point add per element.
+ * 
+ * @author JTOUGH
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NumericKernelsBenchmark {
+
+	@Param({ "1000", "100000", "10000000" })
+	public int size;
+
+	private float[] floats;
+	private float[] otherFloats;
+	private double[] doubles;
+
+	@Setup
+	public void setUp() {
+		floats = GenericClassBenchmark.randomFloats(size);
+		otherFloats = GenericClassBenchmark.randomFloats(size);
+		doubles = new double[size];
+		for (int i = 0; i < size; i++) {
+			doubles[i] = floats[i];
+		}
+	}
+
+	//--------------------------------------------------------------------
+
+	@Benchmark
+	public double sumFloatsScalar() {
+		double sum = 0D;
+		for (int i = 0; i < floats.length; i++) {
+			sum += floats[i];
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double sumFloatsKernel() {
+		return NumericKernels.sum(floats, 0, floats.length);
+	}
+
+	@Benchmark
+	public double sumDoublesScalar() {
+		double sum = 0D;
+		for (int i = 0; i < doubles.length; i++) {
+			sum += doubles[i];
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double sumDoublesKernel() {
+		return NumericKernels.sum(doubles, 0, doubles.length);
+	}
+
+	@Benchmark
+	public double dotFloatsScalar() {
+		double sum = 0D;
+		for (int i = 0; i < floats.length; i++) {
+			sum += (double)floats[i] * otherFloats[i];
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double dotFloatsKernel() {
+		return NumericKernels.dot(floats, otherFloats, 0, floats.length);
+	}
+
+	@Benchmark
+	public double maxDoublesScalar() {
+		double max = doubles[0];
+		for (int i = 1; i < doubles.length; i++) {
+			max = Math.max(max, doubles[i]);
+		}
+		return max;
+	}
+
+	@Benchmark
+	public double maxDoublesKernel() {
+		return NumericKernels.max(doubles, 0, doubles.length);
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.jimtough.ch04;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the sequential {@link NumericKernels} sum and max with the fork/join versions in
+ * {@link ParallelNumericKernels} on the common pool, over a range of array sizes, to show where
+ * the parallel versions start to pay for themselves. Arrays no larger than
+ * {@link ParallelNumericKernels#MIN_FORK_SIZE} are never forked, so below that size the two
+ * should be the same. The crossover depends on the number of cores.
+ * 
+ * @author JTOUGH
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelNumericKernelsBenchmark {
+
+	@Param({ "10000", "100000", "1000000", "10000000", "50000000" })
+	public int size;
+
+	private final ForkJoinPool pool = ForkJoinPool.commonPool();
+	private double[] doubles;
+
+	@Setup
+	public void setUp() {
+		float[] a = GenericClassBenchmark.randomFloats(size);
+		doubles = new double[size];
+		for (int i = 0; i < size; i++) {
+			doubles[i] = a[i];
+		}
+	}
+
+	//--------------------------------------------------------------------
+
+	@Benchmark
+	public double sumSequential() {
+		return NumericKernels.sum(doubles, 0, doubles.length);
+	}
+
+	@Benchmark
+	public double sumParallel() {
+		return ParallelNumericKernels.sum(pool, doubles);
+	}
+
+	@Benchmark
+	public double maxSequential() {
+		return NumericKernels.max(doubles, 0, doubles.length);
+	}
+
+	@Benchmark
+	public double maxParallel() {
+		return ParallelNumericKernels.max(pool, doubles);
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.jimtough.ch07;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the {@code Scanner}-based reads of {@link IntReader} with the hand-rolled ones
+ * 
+ * @author JTOUGH
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IntReaderBenchmark {
+
+	@Param({ "10   999  888     777", "These are not the values you are looking for..." })
+	public String input;
+
+	private IntReader intReader;
+	private IntList out;
+
+	@Setup
+	public void setUp() {
+		intReader = new IntReader();
+		out = new IntList();
+	}
+
+	@Benchmark
+	public Integer readFirstInteger() {
+		return intReader.readFirstInteger(input);
+	}
+
+	@Benchmark
+	public long scanFirstInt() {
+		return intReader.scanFirstInt(input);
+	}
+
+	@Benchmark
+	public int readAllInts() {
+		out.clear();
+		return intReader.readAllInts(input, out);
+	}
+
+}
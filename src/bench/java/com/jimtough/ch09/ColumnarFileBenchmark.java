@@ -0,0 +1,149 @@
+package com.jimtough.ch09;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writes the records of {@code DataStreamTest} (a byte, a short, an int, a long, a float and a
+ * double each) to a {@code DataOutputStream}, both without and with buffering, and with
+ * {@link ColumnarFileWriter}, and sums the long of every record, read back with a
+ * {@code DataInputStream} and with {@link ColumnarFileReader}
+ *
+ * @author JTOUGH
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ColumnarFileBenchmark {
+
+	private static final int RECORDS = 100_000;
+
+	private static final RecordSchema SCHEMA = RecordSchema.builder()
+			.column("byte", ColumnType.BYTE)
+			.column("short", ColumnType.SHORT)
+			.column("int", ColumnType.INT)
+			.column("long", ColumnType.LONG)
+			.column("float", ColumnType.FLOAT)
+			.column("double", ColumnType.DOUBLE)
+			.build();
+
+	private Path dataStreamPath;
+	private Path columnarPath;
+	private Path targetPath;
+
+	@Setup
+	public void setUp() throws Exception {
+		dataStreamPath = Files.createTempFile("ColumnarFileBenchmark", ".dat");
+		columnarPath = Files.createTempFile("ColumnarFileBenchmark", ".col");
+		targetPath = Files.createTempFile("ColumnarFileBenchmark", ".tmp");
+		try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dataStreamPath.toFile())))) {
+			writeRecords(dos);
+		}
+		writeColumnar(columnarPath);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		Files.delete(dataStreamPath);
+		Files.delete(columnarPath);
+		Files.delete(targetPath);
+	}
+
+	private static void writeRecords(DataOutputStream dos) throws IOException {
+		for (int i = 0; i < RECORDS; i++) {
+			dos.writeByte(i);
+			dos.writeShort(i);
+			dos.writeInt(i);
+			dos.writeLong(i);
+			dos.writeFloat(i);
+			dos.writeDouble(i);
+		}
+	}
+
+	private static void writeColumnar(Path path) throws IOException {
+		try (ColumnarFileWriter writer = new ColumnarFileWriter(path, SCHEMA)) {
+			for (int i = 0; i < RECORDS; i++) {
+				writer.putByte(0, (byte)i)
+						.putShort(1, (short)i)
+						.putInt(2, i)
+						.putLong(3, i)
+						.putFloat(4, i)
+						.putDouble(5, i);
+				writer.endRecord();
+			}
+		}
+	}
+
+	@Benchmark
+	public void dataStreamWriteUnbuffered() throws Exception {
+		try (DataOutputStream dos = new DataOutputStream(new FileOutputStream(targetPath.toFile()))) {
+			writeRecords(dos);
+		}
+	}
+
+	@Benchmark
+	public void dataStreamWriteBuffered() throws Exception {
+		try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(targetPath.toFile())))) {
+			writeRecords(dos);
+		}
+	}
+
+	@Benchmark
+	public void columnarWrite() throws Exception {
+		writeColumnar(targetPath);
+	}
+
+	@Benchmark
+	public long dataStreamSumLongs() throws Exception {
+		long sum = 0;
+		try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(dataStreamPath.toFile())))) {
+			for (int i = 0; i < RECORDS; i++) {
+				dis.readByte();
+				dis.readShort();
+				dis.readInt();
+				sum += dis.readLong();
+				dis.readFloat();
+				dis.readDouble();
+			}
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long columnarSumLongs() throws Exception {
+		long sum = 0;
+		final ColumnarFileReader reader = new ColumnarFileReader(columnarPath);
+		for (int b = 0; b < reader.getBlockCount(); b++) {
+			final LongBuffer longs = reader.getBlock(b).getLongColumn(3);
+			for (int i = 0; i < longs.limit(); i++) {
+				sum += longs.get(i);
+			}
+		}
+		return sum;
+	}
+
+}
@@ -0,0 +1,123 @@
+package com.jimtough.ch09;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads the long of every record of a file of {@code DataStreamTest} records with a
+ * {@code DataInputStream}, and with {@link FixedWidthRecordReader} both in a loop and with a
+ * parallel scan, and reads the int of randomly chosen records
+ *
+ * @author JTOUGH
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FixedWidthRecordReaderBenchmark {
+
+	private static final int RECORDS = 1_000_000;
+	private static final int RANDOM_READS = 1000;
+
+	private static final RecordSchema SCHEMA = RecordSchema.builder()
+			.column("byte", ColumnType.BYTE)
+			.column("short", ColumnType.SHORT)
+			.column("int", ColumnType.INT)
+			.column("long", ColumnType.LONG)
+			.column("float", ColumnType.FLOAT)
+			.column("double", ColumnType.DOUBLE)
+			.build();
+
+	private Path dataPath;
+	private FixedWidthRecordReader reader;
+	private long[] randomRecords;
+
+	@Setup
+	public void setUp() throws Exception {
+		dataPath = Files.createTempFile("FixedWidthRecordReaderBenchmark", ".dat");
+		try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dataPath.toFile())))) {
+			for (int i = 0; i < RECORDS; i++) {
+				dos.writeByte(i);
+				dos.writeShort(i);
+				dos.writeInt(i);
+				dos.writeLong(i);
+				dos.writeFloat(i);
+				dos.writeDouble(i);
+			}
+		}
+		reader = new FixedWidthRecordReader(dataPath, SCHEMA);
+		randomRecords = new Random(42).longs(RANDOM_READS, 0, RECORDS).toArray();
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		reader = null;
+		Files.delete(dataPath);
+	}
+
+	@Benchmark
+	public long dataStreamSumLongs() throws Exception {
+		long sum = 0;
+		try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(dataPath.toFile())))) {
+			for (int i = 0; i < RECORDS; i++) {
+				dis.readByte();
+				dis.readShort();
+				dis.readInt();
+				sum += dis.readLong();
+				dis.readFloat();
+				dis.readDouble();
+			}
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long readerSumLongs() {
+		long sum = 0;
+		for (long record = 0; record < RECORDS; record++) {
+			sum += reader.getLong(record, 3);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long readerScanSumLongs() {
+		return reader.scan(ForkJoinPool.commonPool(),
+				() -> new long[1],
+				(acc, r, record) -> acc[0] += r.getLong(record, 3),
+				(a, b) -> { a[0] += b[0]; return a; })[0];
+	}
+
+	@Benchmark
+	public long readerRandomInts() {
+		long sum = 0;
+		for (long record : randomRecords) {
+			sum += reader.getInt(record, 2);
+		}
+		return sum;
+	}
+
+}
@@ -0,0 +1,106 @@
+package com.jimtough.ch09;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a {@code LinkedHashMap<String,String>} of a million entries, as {@code
+ * ObjectOutputStreamTest} does with four, with an {@code ObjectOutputStream} and with
+ * {@link MapEncoder}, and reads it back with an {@code ObjectInputStream} and with
+ * {@link MapDecoder}. The size of each encoding is logged once, when the map is set up.
+ *
+ * @author JTOUGH
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapCodecBenchmark {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MapCodecBenchmark.class);
+
+	private static final int ENTRIES = 1_000_000;
+	private static final String[] COLOURS = { "red", "orange", "yellow", "green", "blue", "indigo", "violet", "purple" };
+
+	private Map<String, String> map;
+	private byte[] serialized;
+	private byte[] encoded;
+
+	@Setup
+	public void setUp() throws Exception {
+		map = new LinkedHashMap<>();
+		for (int i = 0; i < ENTRIES; i++) {
+			map.put("fruit" + i, COLOURS[i % COLOURS.length]);
+		}
+		serialized = objectOutputStreamWrite();
+		encoded = mapEncoderWrite();
+		LOGGER.info("ObjectOutputStream: {} bytes | MapEncoder: {} bytes", serialized.length, encoded.length);
+	}
+
+	@Benchmark
+	public byte[] objectOutputStreamWrite() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+			oos.writeObject(map);
+		}
+		return bytes.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] mapEncoderWrite() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (MapEncoder encoder = new MapEncoder(bytes, MapEntryType.STRING, MapEntryType.STRING)) {
+			encoder.putAll(map);
+		}
+		return bytes.toByteArray();
+	}
+
+	@Benchmark
+	public Object objectInputStreamRead() throws Exception {
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+			return ois.readObject();
+		}
+	}
+
+	@Benchmark
+	public Map<String, String> mapDecoderRead() throws Exception {
+		try (MapDecoder decoder = new MapDecoder(new ByteArrayInputStream(encoded))) {
+			return decoder.readStringMap();
+		}
+	}
+
+	@Benchmark
+	public long mapDecoderStream() throws Exception {
+		// Look at every entry without creating the map
+		long redFruits = 0;
+		try (MapDecoder decoder = new MapDecoder(new ByteArrayInputStream(encoded))) {
+			while (decoder.next()) {
+				if ("red".equals(decoder.getStringValue())) {
+					redFruits++;
+				}
+			}
+		}
+		return redFruits;
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.jimtough.ch09;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Scanner;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@code Scanner}-based word count from {@code ScannerToTokenizeTextFileTest}, and
+ * the same count with {@link WordFrequencyEngine}, and by interning each word from the decoded
+ * characters with a {@link TokenPool}
+ * 
+ * @author JTOUGH
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScannerTokenizerBenchmark {
+
+	static final Path BIG_SAMPLE_TEXT_FILE_PATH = Paths.get("src/test/resources/The Call of the Wild.txt");
+
+	private static final ForkJoinPool SINGLE_THREAD_POOL = new ForkJoinPool(1);
+
+	@Benchmark
+	public TreeMap<String,AtomicInteger> scannerTokenizesTextFile() throws Exception {
+		TreeMap<String,AtomicInteger> tokenToCountMap = new TreeMap<>();
+		try (
+				FileReader fr = new FileReader(BIG_SAMPLE_TEXT_FILE_PATH.toString());
+				BufferedReader br = new BufferedReader(fr);
+				Scanner scanner = new Scanner(br);) {
+			scanner.useDelimiter("\\W");
+			while (scanner.hasNext()) {
+				String token = scanner.next();
+				if (!token.isEmpty()) {
+					tokenToCountMap.computeIfAbsent(token.toLowerCase(), k -> new AtomicInteger()).incrementAndGet();
+				}
+			}
+		}
+		return tokenToCountMap;
+	}
+
+	@Benchmark
+	public WordCounts wordFrequencyEngine() throws Exception {
+		return new WordFrequencyEngine().count(BIG_SAMPLE_TEXT_FILE_PATH);
+	}
+
+	@Benchmark
+	public WordCounts wordFrequencyEngineSingleThread() throws Exception {
+		return new WordFrequencyEngine(SINGLE_THREAD_POOL).count(BIG_SAMPLE_TEXT_FILE_PATH);
+	}
+
+	@Benchmark
+	public long[] tokenPoolCountsWords() throws Exception {
+		final char[] chars = new String(Files.readAllBytes(BIG_SAMPLE_TEXT_FILE_PATH), StandardCharsets.UTF_8).toCharArray();
+		return Ch09Utils.countWords(new TokenPool(), chars);
+	}
+
+}
@@ -0,0 +1,104 @@
+package com.jimtough.ch09;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Copies the novel a character at a time, as {@code FileReaderTest} does, both without and with
+ * buffering, and with {@link TextCopier}, both as it is and converted to UTF-16
+ * 
+ * @author JTOUGH
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TextCopierBenchmark {
+
+	private Path targetPath;
+	private TextCopier copier;
+
+	@Setup
+	public void setUp() throws Exception {
+		targetPath = Files.createTempFile("TextCopierBenchmark", ".txt");
+		copier = new TextCopier();
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		Files.delete(targetPath);
+	}
+
+	@Benchmark
+	public void perCharCopyUnbuffered() throws Exception {
+		try (
+				FileReader fr = new FileReader(ScannerTokenizerBenchmark.BIG_SAMPLE_TEXT_FILE_PATH.toString());
+				FileWriter fw = new FileWriter(targetPath.toString());) {
+			int ch = 0;
+			while ((ch = fr.read()) != -1) {
+				fw.write(ch);
+			}
+		}
+	}
+
+	@Benchmark
+	public void perCharCopyBuffered() throws Exception {
+		try (
+				FileReader fr = new FileReader(ScannerTokenizerBenchmark.BIG_SAMPLE_TEXT_FILE_PATH.toString());
+				BufferedReader br = new BufferedReader(fr);
+				FileWriter fw = new FileWriter(targetPath.toString());
+				BufferedWriter bw = new BufferedWriter(fw);) {
+			int ch = 0;
+			while ((ch = br.read()) != -1) {
+				bw.write(ch);
+			}
+		}
+	}
+
+	@Benchmark
+	public long textCopierCopy() throws Exception {
+		return copier.copy(ScannerTokenizerBenchmark.BIG_SAMPLE_TEXT_FILE_PATH, targetPath);
+	}
+
+	@Benchmark
+	public void perCharTranscodeToUtf16() throws Exception {
+		try (
+				Reader r = new BufferedReader(new InputStreamReader(Files.newInputStream(ScannerTokenizerBenchmark.BIG_SAMPLE_TEXT_FILE_PATH), StandardCharsets.UTF_8));
+				Writer w = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(targetPath), StandardCharsets.UTF_16));) {
+			int ch = 0;
+			while ((ch = r.read()) != -1) {
+				w.write(ch);
+			}
+		}
+	}
+
+	@Benchmark
+	public long textCopierTranscodeToUtf16() throws Exception {
+		return copier.transcode(ScannerTokenizerBenchmark.BIG_SAMPLE_TEXT_FILE_PATH, StandardCharsets.UTF_8, targetPath, StandardCharsets.UTF_16);
+	}
+
+}
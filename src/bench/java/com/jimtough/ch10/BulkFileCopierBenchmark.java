@@ -0,0 +1,118 @@
+package com.jimtough.ch10;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Copies a tree of 2000 small files and a few large ones: one at a time with {@code Files.copy()},
+ * as {@code FilesTest.testCopyAndMove} does for a single file, and with {@link BulkFileCopier} on
+ * one and on four threads
+ * 
+ * @author JTOUGH
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BulkFileCopierBenchmark {
+
+	private Path sourceDir;
+	private Path targetDir;
+	private BulkFileCopier singleThreadCopier;
+	private BulkFileCopier fourThreadCopier;
+
+	@Setup
+	public void setUp() throws Exception {
+		sourceDir = Files.createTempDirectory("BulkFileCopierBenchmark-source");
+		targetDir = Files.createTempDirectory("BulkFileCopierBenchmark-target");
+		Random random = new Random(42);
+		for (int d = 0; d < 20; d++) {
+			Path dir = Files.createDirectory(sourceDir.resolve("dir" + d));
+			for (int f = 0; f < 100; f++) {
+				byte[] bytes = new byte[random.nextInt(8 * 1024)];
+				random.nextBytes(bytes);
+				Files.write(dir.resolve("file" + f), bytes);
+			}
+		}
+		for (int f = 0; f < 8; f++) {
+			byte[] bytes = new byte[4 * 1024 * 1024];
+			random.nextBytes(bytes);
+			Files.write(sourceDir.resolve("large" + f), bytes);
+		}
+		singleThreadCopier = new BulkFileCopier(1);
+		fourThreadCopier = new BulkFileCopier(4);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		singleThreadCopier.close();
+		fourThreadCopier.close();
+		deleteTree(sourceDir);
+		deleteTree(targetDir);
+	}
+
+	private static void deleteTree(Path root) throws IOException {
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	@Benchmark
+	public long filesCopyOneAtATime() throws Exception {
+		long files = 0;
+		try (Stream<Path> sources = Files.walk(sourceDir)) {
+			for (Path source : (Iterable<Path>)sources::iterator) {
+				Path target = targetDir.resolve(sourceDir.relativize(source).toString());
+				if (Files.isDirectory(source)) {
+					Files.createDirectories(target);
+				} else {
+					Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+					files++;
+				}
+			}
+		}
+		return files;
+	}
+
+	@Benchmark
+	public CopyStats bulkFileCopierSingleThread() throws Exception {
+		return singleThreadCopier.copyTree(sourceDir, targetDir);
+	}
+
+	@Benchmark
+	public CopyStats bulkFileCopierFourThreads() throws Exception {
+		return fourThreadCopier.copyTree(sourceDir, targetDir);
+	}
+
+}
@@ -0,0 +1,70 @@
+package com.jimtough.ch11;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Numbers and rewrites every line of the novel, in file order: with a sequential numbering pass
+ * followed by a parallel stream, as in {@code ParallelStreamsTest.testReduce_A}, and with the two
+ * ways of using {@link LinePipeline}
+ * 
+ * @author JTOUGH
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LinePipelineBenchmark {
+
+	private final LinePipeline linePipeline = new LinePipeline();
+
+	@Benchmark
+	public List<String> sequentialNumberingThenParallel() throws Exception {
+		final AtomicInteger lineNumber = new AtomicInteger(0);
+		List<String> numberedLines;
+		try (Stream<String> lines = Files.lines(ParallelStreamsBenchmark.BIG_SAMPLE_TEXT_FILE_PATH)) {
+			numberedLines = lines
+					.map(s -> lineNumber.incrementAndGet() + " => [" + s + "]")
+					.collect(Collectors.toList());
+		}
+		return numberedLines.parallelStream()
+				.map(ParallelStreamsBenchmark::doBunchOfStringReplacements)
+				.collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public List<String> indexedLinesParallelStream() throws Exception {
+		return LinePipeline.lines(ParallelStreamsBenchmark.BIG_SAMPLE_TEXT_FILE_PATH, StandardCharsets.UTF_8)
+				.parallel()
+				.map(line -> ParallelStreamsBenchmark.doBunchOfStringReplacements(line.getLineNumber() + " => [" + line.getText() + "]"))
+				.collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public List<String> linePipelineProcess() throws Exception {
+		List<String> results = new ArrayList<>();
+		linePipeline.process(ParallelStreamsBenchmark.BIG_SAMPLE_TEXT_FILE_PATH, StandardCharsets.UTF_8,
+				line -> ParallelStreamsBenchmark.doBunchOfStringReplacements(line.getLineNumber() + " => [" + line.getText() + "]"),
+				results::add);
+		return results;
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.jimtough.ch11;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Collects a parallel stream into a list: with the synchronized accumulator and combiner of
+ * {@code ParallelStreamsTest.testCollect_A}, with {@code ArrayList::addAll}, with
+ * {@code Collectors.toList()}, and with the lock-free collectors of {@link ParallelCollectors}.
+ * Also collects an {@code int} of each element into an array, boxed and unboxed.
+ * 
+ * @author JTOUGH
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelCollectBenchmark {
+
+	@Param({ "1000000" })
+	public int size;
+
+	private List<Integer> elements;
+
+	private final BiConsumer<List<Integer>, Integer> synchronizedAccumulator = new BiConsumer<List<Integer>, Integer>() {
+		@Override public synchronized void accept(List<Integer> t, Integer u) {
+			t.add(u);
+		}
+	};
+	private final BiConsumer<List<Integer>, List<Integer>> synchronizedCombiner = new BiConsumer<List<Integer>, List<Integer>>() {
+		@Override public synchronized void accept(List<Integer> t, List<Integer> u) {
+			t.addAll(u);
+		}
+	};
+
+	@Setup
+	public void setUp() {
+		elements = IntStream.range(0, size).boxed().collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public List<Integer> synchronizedCollect() {
+		return elements.parallelStream().collect(ArrayList::new, synchronizedAccumulator, synchronizedCombiner);
+	}
+
+	@Benchmark
+	public List<Integer> arrayListAddAll() {
+		return elements.parallelStream().collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+	}
+
+	@Benchmark
+	public List<Integer> collectorsToList() {
+		return elements.parallelStream().collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public List<Integer> toChunkedList() {
+		return elements.parallelStream().collect(ParallelCollectors.toChunkedList());
+	}
+
+	@Benchmark
+	public List<Integer> toUnorderedList() {
+		return elements.parallelStream().collect(ParallelCollectors.toUnorderedList());
+	}
+
+	@Benchmark
+	public Integer[] toArrayByIndex() {
+		return elements.parallelStream().collect(ParallelCollectors.toArrayByIndex(size, Integer::intValue, Integer[]::new));
+	}
+
+	@Benchmark
+	public List<Integer> boxedIntsToList() {
+		return elements.parallelStream().map(i -> i * 3).collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public int[] toIntArray() {
+		return elements.parallelStream().collect(ParallelCollectors.toIntArray(i -> i * 3));
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.jimtough.ch11;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Joins every line of the novel with a line separator in a parallel stream: with the
+ * {@code reduce()} of {@code ParallelStreamsTest.testReduce_A}, with {@code Collectors.joining()},
+ * and with {@link ParallelCollectors}, both to a string and straight to a file
+ * 
+ * @author JTOUGH
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelJoiningBenchmark {
+
+	private static final String SEPARATOR = System.lineSeparator();
+
+	private List<String> textFileLines;
+	private Path outputPath;
+	private FileChannel outputChannel;
+
+	@Setup
+	public void setUp() throws Exception {
+		textFileLines = Files.readAllLines(ParallelStreamsBenchmark.BIG_SAMPLE_TEXT_FILE_PATH);
+		outputPath = Files.createTempFile("ParallelJoiningBenchmark", ".txt");
+		outputChannel = FileChannel.open(outputPath, StandardOpenOption.WRITE);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		outputChannel.close();
+		Files.delete(outputPath);
+	}
+
+	@Benchmark
+	public String reduceWithConcatenation() {
+		return textFileLines.parallelStream()
+				.reduce((s1, s2) -> s1 + SEPARATOR + s2)
+				.get();
+	}
+
+	@Benchmark
+	public String collectorsJoining() {
+		return textFileLines.parallelStream()
+				.collect(Collectors.joining(SEPARATOR));
+	}
+
+	@Benchmark
+	public String parallelCollectorsJoining() {
+		return textFileLines.parallelStream()
+				.collect(ParallelCollectors.joining(SEPARATOR));
+	}
+
+	@Benchmark
+	public long joinedTextToFileChannel() throws IOException {
+		outputChannel.position(0);
+		return textFileLines.parallelStream()
+				.collect(ParallelCollectors.toJoinedText(SEPARATOR))
+				.writeTo(outputChannel, StandardCharsets.UTF_8);
+	}
+
+	// Measures the cost of walking the chunks, without any I/O
+	@Benchmark
+	public long joinedTextToWriter() throws IOException {
+		CountingWriter writer = new CountingWriter();
+		textFileLines.parallelStream()
+				.collect(ParallelCollectors.toJoinedText(SEPARATOR))
+				.writeTo(writer);
+		return writer.count;
+	}
+
+	private static class CountingWriter extends Writer {
+		long count;
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			count += len;
+		}
+		@Override
+		public void write(String str) {
+			count += str.length();
+		}
+		@Override
+		public void flush() {}
+		@Override
+		public void close() {}
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.jimtough.ch11;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sequential versus parallel versions of the stream pipelines in {@code ParallelStreamsTest}
+ * 
+ * @author JTOUGH
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelStreamsBenchmark {
+
+	static final Path BIG_SAMPLE_TEXT_FILE_PATH = Paths.get("src/test/resources/The Call of the Wild.txt");
+	static final long PRIME_COUNT_UPPER_BOUND = 100_000;
+
+	private List<String> textFileLines;
+
+	@Setup
+	public void setUp() throws Exception {
+		textFileLines = Files.readAllLines(BIG_SAMPLE_TEXT_FILE_PATH);
+	}
+
+	// Same trial division as ParallelStreamsTest
+	static boolean isPrimeNumber(long n) {
+		for (long x=2; x <= n/2; x++) {
+			if (n % x == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Same replacements as ParallelStreamsTest
+	static String doBunchOfStringReplacements(String s) {
+		return s.replaceAll(" s[a-z]{3,} ", " shiz ")
+				.replaceAll("Buck", "Butt")
+				.replaceAll(" the ", " teh ")
+				.replaceAll(" he ", " she ")
+				.replaceAll(" his ", " her ")
+				.replaceAll(" him ", " her ")
+				.replaceAll(" himself ", " herself ")
+				.replaceAll(" man ", " woman ")
+				.replaceAll(" men ", " women ");
+	}
+
+	@Benchmark
+	public long countPrimesSequential() {
+		return LongStream.rangeClosed(2, PRIME_COUNT_UPPER_BOUND)
+				.filter(ParallelStreamsBenchmark::isPrimeNumber)
+				.count();
+	}
+
+	@Benchmark
+	public long countPrimesParallel() {
+		return LongStream.rangeClosed(2, PRIME_COUNT_UPPER_BOUND)
+				.parallel()
+				.filter(ParallelStreamsBenchmark::isPrimeNumber)
+				.count();
+	}
+
+	@Benchmark
+	public List<String> stringReplacementsSequential() {
+		return textFileLines.stream()
+				.map(ParallelStreamsBenchmark::doBunchOfStringReplacements)
+				.collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public List<String> stringReplacementsParallel() {
+		return textFileLines.parallelStream()
+				.map(ParallelStreamsBenchmark::doBunchOfStringReplacements)
+				.collect(Collectors.toList());
+	}
+
+}
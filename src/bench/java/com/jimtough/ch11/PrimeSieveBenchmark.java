@@ -0,0 +1,63 @@
+package com.jimtough.ch11;
+
+import java.util.PrimitiveIterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Counts primes with {@link PrimeSieve}, up to 10^10, and with the parallel stream of trial
+ * divisions in {@code ParallelStreamsTest}. Trial division up to n/2 is only run up to 10^5,
+ * the bound used by the test; it would take days at 10^10.
+ * 
+ * @author JTOUGH
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrimeSieveBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class SieveBound {
+		@Param({ "100000", "10000000", "1000000000", "10000000000" })
+		public long bound;
+		final PrimeSieve primeSieve = new PrimeSieve();
+	}
+
+	@Benchmark
+	public long countPrimesTrialDivisionParallelStream() {
+		return LongStream.rangeClosed(2, ParallelStreamsBenchmark.PRIME_COUNT_UPPER_BOUND)
+				.parallel()
+				.filter(ParallelStreamsBenchmark::isPrimeNumber)
+				.count();
+	}
+
+	@Benchmark
+	public long countPrimesSieve(SieveBound state) {
+		return state.primeSieve.countPrimes(0, state.bound + 1);
+	}
+
+	// Sequential, one segment at a time
+	@Benchmark
+	public long sumPrimesIterator(SieveBound state) {
+		long sum = 0;
+		PrimitiveIterator.OfLong primes = state.primeSieve.primes(0, state.bound + 1);
+		while (primes.hasNext()) {
+			sum += primes.nextLong();
+		}
+		return sum;
+	}
+
+}
@@ -0,0 +1,77 @@
+package com.jimtough.ch11;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Counts the primes below {@value ParallelStreamsBenchmark#PRIME_COUNT_UPPER_BOUND} with the
+ * trial division of {@code ParallelStreamsTest}, split into one leaf per thread in the same way as
+ * {@code ForkJoinTest.RecursiveSumOfN}, and with {@link RangeReducer}. Trial division is much more
+ * expensive for a large prime than for a small one, so the leaf with the top of the range takes
+ * far longer than the others when the range is split evenly by thread.
+ * 
+ * @author JTOUGH
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RangeReducerBenchmark {
+
+	private static final long N = ParallelStreamsBenchmark.PRIME_COUNT_UPPER_BOUND;
+	private static final int NUM_THREADS = ForkJoinPool.getCommonPoolParallelism();
+
+	private final ForkJoinPool pool = ForkJoinPool.commonPool();
+	private final RangeReducer rangeReducer = new RangeReducer(pool, 64);
+
+	// Same splitting as RecursiveSumOfN, counting primes in [from, to]
+	private static class RecursiveCountOfPrimes extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+		private final long from, to;
+		RecursiveCountOfPrimes(long from, long to) {
+			this.from = from;
+			this.to = to;
+		}
+		@Override
+		protected Long compute() {
+			if ((to - from) <= N/NUM_THREADS) {
+				long count = 0;
+				for (long x=from; x<=to; x++) {
+					if (ParallelStreamsBenchmark.isPrimeNumber(x)) {
+						count++;
+					}
+				}
+				return count;
+			}
+			long mid = (from + to) / 2;
+			RecursiveCountOfPrimes firstHalf = new RecursiveCountOfPrimes(from, mid);
+			firstHalf.fork();
+			long resultOfSecondHalf = new RecursiveCountOfPrimes(mid+1, to).compute();
+			return firstHalf.join() + resultOfSecondHalf;
+		}
+	}
+
+	@Benchmark
+	public long countPrimesOneLeafPerThread() {
+		return pool.invoke(new RecursiveCountOfPrimes(2, N));
+	}
+
+	@Benchmark
+	public long countPrimesRangeReducer() {
+		return rangeReducer.count(2, N + 1, ParallelStreamsBenchmark::isPrimeNumber);
+	}
+
+}
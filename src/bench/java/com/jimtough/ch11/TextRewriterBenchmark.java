@@ -0,0 +1,78 @@
+package com.jimtough.ch11;
+
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rewrites every line of the novel with the chain of {@code replaceAll()} calls in
+ * {@code ParallelStreamsTest}, and with a {@link TextRewriter} built from the same rules, both to
+ * a new {@code String} per line and into a single reused {@code StringBuilder}
+ * 
+ * @author JTOUGH
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TextRewriterBenchmark {
+
+	private final TextRewriter rewriter = TextRewriter.builder()
+			.replaceWordMatching("s[a-z]{3,}", "shiz")
+			.replaceLiteral("Buck", "Butt")
+			.replaceWord("the", "teh")
+			.replaceWord("he", "she")
+			.replaceWord("his", "her")
+			.replaceWord("him", "her")
+			.replaceWord("himself", "herself")
+			.replaceWord("man", "woman")
+			.replaceWord("men", "women")
+			.build();
+	private final StringBuilder sb = new StringBuilder();
+
+	private List<String> textFileLines;
+
+	@Setup
+	public void setUp() throws Exception {
+		textFileLines = Files.readAllLines(ParallelStreamsBenchmark.BIG_SAMPLE_TEXT_FILE_PATH);
+	}
+
+	@Benchmark
+	public List<String> chainedReplaceAll() {
+		return textFileLines.stream()
+				.map(ParallelStreamsBenchmark::doBunchOfStringReplacements)
+				.collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public List<String> rewriterToStrings() {
+		return textFileLines.stream()
+				.map(rewriter::rewrite)
+				.collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public long rewriterToReusedStringBuilder() {
+		long totalLength = 0;
+		for (String line : textFileLines) {
+			sb.setLength(0);
+			totalLength += rewriter.rewrite(line, sb).length();
+		}
+		return totalLength;
+	}
+
+}
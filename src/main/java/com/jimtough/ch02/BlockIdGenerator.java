@@ -0,0 +1,75 @@
+package com.jimtough.ch02;
+
+/**
+ * <p>Hands out unique 64-bit IDs from the {@link MySingleton} ID sequence. Each thread reserves a
+ * block of IDs at a time with {@link MySingleton#reserveIds(int)}, and then issues IDs from that
+ * block without any synchronization until the block is used up. With the default block size,
+ * only one in 1024 calls to {@link #nextId()} touches shared state.</p>
+ *
+ * <p>Ordering guarantees:</p>
+ * <ul>
+ * <li>Every ID is unique across all threads and all {@code BlockIdGenerator} instances in the JVM,
+ * because every block comes from the same singleton sequence.</li>
+ * <li>IDs issued to one thread are strictly increasing.</li>
+ * <li>IDs issued to different threads are not ordered. An ID issued later on one thread can be
+ * smaller than an ID issued earlier on another thread.</li>
+ * <li>The sequence has gaps. IDs still unused in a block when its thread dies (or when the
+ * generator is discarded) are never issued.</li>
+ * </ul>
+ *
+ * @author JTOUGH
+ */
+public class BlockIdGenerator {
+
+	public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+	// The block of IDs reserved by one thread
+	private static class Block {
+		long next;
+		long limit;
+	}
+
+	private final MySingleton singleton;
+	private final int blockSize;
+	private final ThreadLocal<Block> blocks = ThreadLocal.withInitial(Block::new);
+
+	public BlockIdGenerator() {
+		this(DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * @param blockSize Number of IDs reserved by a thread at a time. Must be positive.
+	 *                  Larger blocks mean less contention, but larger gaps in the sequence.
+	 * @throws IllegalArgumentException
+	 */
+	public BlockIdGenerator(int blockSize) {
+		this(MySingleton.getInstance(), blockSize);
+	}
+
+	// Tests in this package can draw IDs from their own MySingleton instance
+	BlockIdGenerator(MySingleton singleton, int blockSize) {
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+		}
+		this.singleton = singleton;
+		this.blockSize = blockSize;
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * @return A positive ID that has never been returned before, to any thread
+	 * @throws IllegalStateException if the ID sequence is exhausted
+	 */
+	public long nextId() {
+		Block block = blocks.get();
+		if (block.next == block.limit) {
+			block.next = singleton.reserveIds(blockSize);
+			block.limit = block.next + blockSize;
+		}
+		return block.next++;
+	}
+
+}
@@ -0,0 +1,228 @@
+package com.jimtough.ch02;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>A 64-bit ID sequence whose state survives a restart of the JVM. The state lives in a small
+ * memory-mapped file, so recovering it at startup is a matter of reading a few bytes.</p>
+ *
+ * <p>The file does not hold the last ID issued, which would mean writing it for every ID. It holds
+ * a <i>high-water mark</i>: an ID that is greater than or equal to every ID ever issued. IDs are
+ * issued from memory until they catch up with the high-water mark, at which point the mark is moved
+ * {@code reserveAhead} IDs further on and persisted <b>before</b> any ID beyond the old mark is
+ * handed out. At startup the sequence resumes just past the recovered high-water mark, so no ID is
+ * ever issued twice, at the cost of skipping up to {@code reserveAhead} IDs per restart.</p>
+ *
+ * <p>The high-water mark is written to two alternating slots, each with a check value, so that a
+ * write torn by a crash leaves the previous slot intact.</p>
+ *
+ * <p>A write to the mapped file survives a crash of the JVM as soon as it is made, because it is
+ * already in the operating system's page cache. Surviving a crash of the operating system (or a
+ * power failure) requires the page to be flushed to the device with {@link MappedByteBuffer#force()}:</p>
+ * <ul>
+ * <li>With an fsync interval of zero, every move of the high-water mark is forced before it is
+ * used. No ID is ever reissued, even after a power failure.</li>
+ * <li>With a positive fsync interval, a background thread forces the file at that interval instead.
+ * IDs are never reissued after a JVM crash, but IDs issued within the last interval may be
+ * reissued after an operating system crash.</li>
+ * </ul>
+ *
+ * <p>The file is locked while the sequence is open, so that two JVMs can't share it.</p>
+ *
+ * @author JTOUGH
+ */
+public class DurableSequence implements Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DurableSequence.class);
+
+	// File layout: magic, version, then two slots of (high-water mark, check value)
+	private static final int MAGIC = 0x4D534951; // "MSIQ"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 8;
+	private static final int SLOT_SIZE = 16;
+	private static final int FILE_SIZE = HEADER_SIZE + 2 * SLOT_SIZE;
+	// Mixed into the high-water mark to produce the check value of a slot
+	private static final long CHECK_MIX = 0x9E3779B97F4A7C15L;
+
+	private final Path path;
+	private final long reserveAhead;
+	private final FileChannel channel;
+	private final FileLock fileLock;
+	private final MappedByteBuffer mapped;
+	private final ScheduledExecutorService forcer;
+
+	// Next ID that has not been issued yet
+	private final AtomicLong next;
+	// Every ID up to and including this one may be issued. Only moved while holding the monitor.
+	private volatile long highWaterMark;
+	private int nextSlot;
+
+	/**
+	 * Open (or create) the sequence file and recover the high-water mark
+	 * @param path Non-null path of the sequence file
+	 * @param reserveAhead Number of IDs to reserve each time the high-water mark is moved. Must be positive.
+	 * @param fsyncIntervalMillis Zero to force every move of the high-water mark to the device before
+	 *                            it is used, or the interval between forces by a background thread
+	 * @throws IOException if the file can't be opened, is locked by another process, or is corrupt
+	 * @throws IllegalArgumentException
+	 */
+	public DurableSequence(Path path, long reserveAhead, long fsyncIntervalMillis) throws IOException {
+		if (reserveAhead <= 0) {
+			throw new IllegalArgumentException("reserveAhead must be positive: " + reserveAhead);
+		}
+		if (fsyncIntervalMillis < 0) {
+			throw new IllegalArgumentException("fsyncIntervalMillis cannot be negative: " + fsyncIntervalMillis);
+		}
+		this.path = path;
+		this.reserveAhead = reserveAhead;
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			try {
+				this.fileLock = channel.tryLock();
+			} catch (OverlappingFileLockException ofle) {
+				throw new IOException("Sequence file is already open in this JVM: " + path);
+			}
+			if (fileLock == null) {
+				throw new IOException("Sequence file is in use by another process: " + path);
+			}
+			final boolean isNewFile = channel.size() == 0;
+			this.mapped = channel.map(MapMode.READ_WRITE, 0, FILE_SIZE);
+			if (isNewFile) {
+				mapped.putInt(0, MAGIC);
+				mapped.putInt(4, VERSION);
+				writeSlot(0, 0L);
+				writeSlot(1, 0L);
+				mapped.force();
+			}
+			this.highWaterMark = recover();
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		this.next = new AtomicLong(highWaterMark + 1);
+		LOGGER.debug("Recovered high-water mark {} from [{}]", highWaterMark, path);
+
+		if (fsyncIntervalMillis > 0) {
+			this.forcer = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "DurableSequence-fsync");
+				t.setDaemon(true);
+				return t;
+			});
+			forcer.scheduleWithFixedDelay(mapped::force, fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+		} else {
+			this.forcer = null;
+		}
+	}
+
+	// Returns the larger of the two valid slots
+	private long recover() throws IOException {
+		if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+			throw new IOException("Not a sequence file, or unsupported version: " + path);
+		}
+		long best = -1;
+		for (int slot = 0; slot < 2; slot++) {
+			long hwm = mapped.getLong(HEADER_SIZE + slot * SLOT_SIZE);
+			long check = mapped.getLong(HEADER_SIZE + slot * SLOT_SIZE + 8);
+			if (check == (hwm ^ CHECK_MIX) && hwm > best) {
+				best = hwm;
+				// Overwrite the other (older or torn) slot next time
+				nextSlot = 1 - slot;
+			}
+		}
+		if (best < 0) {
+			throw new IOException("Both slots of the sequence file are corrupt: " + path);
+		}
+		return best;
+	}
+
+	private void writeSlot(int slot, long hwm) {
+		mapped.putLong(HEADER_SIZE + slot * SLOT_SIZE, hwm);
+		mapped.putLong(HEADER_SIZE + slot * SLOT_SIZE + 8, hwm ^ CHECK_MIX);
+	}
+
+	/**
+	 * Reserve a block of consecutive IDs. The high-water mark covering the whole block is
+	 * persisted before this method returns.
+	 * @param count Number of IDs to reserve. Must be positive.
+	 * @return First ID of the block. The block is {@code [first, first + count)}.
+	 * @throws IllegalArgumentException
+	 * @throws IllegalStateException if the sequence is exhausted or has been closed
+	 */
+	public long reserve(int count) {
+		if (count <= 0) {
+			throw new IllegalArgumentException("count must be positive: " + count);
+		}
+		// Checked here as well as when the mark is moved, or IDs below the mark could still be
+		// handed out after closing
+		if (!channel.isOpen()) {
+			throw new IllegalStateException("Sequence has been closed: " + path);
+		}
+		long first = next.getAndAdd(count);
+		if (first <= 0 || first > Long.MAX_VALUE - count) {
+			throw new IllegalStateException("ID sequence is exhausted");
+		}
+		long last = first + count - 1;
+		if (last > highWaterMark) {
+			moveHighWaterMark(last);
+		}
+		return first;
+	}
+
+	private synchronized void moveHighWaterMark(long atLeast) {
+		if (!channel.isOpen()) {
+			throw new IllegalStateException("Sequence has been closed: " + path);
+		}
+		if (atLeast <= highWaterMark) {
+			// Another thread got here first and reserved far enough ahead
+			return;
+		}
+		long newHighWaterMark = atLeast > Long.MAX_VALUE - reserveAhead ? Long.MAX_VALUE : atLeast + reserveAhead;
+		writeSlot(nextSlot, newHighWaterMark);
+		nextSlot = 1 - nextSlot;
+		if (forcer == null) {
+			mapped.force();
+		}
+		highWaterMark = newHighWaterMark;
+	}
+
+	/**
+	 * @return Greatest ID that can be issued before the high-water mark has to be moved again
+	 */
+	public long getHighWaterMark() {
+		return highWaterMark;
+	}
+
+	/**
+	 * Force the file to the device and release it. IDs reserved before closing remain valid, but
+	 * no more can be reserved.
+	 * @throws IOException
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (!channel.isOpen()) {
+			return;
+		}
+		if (forcer != null) {
+			forcer.shutdown();
+		}
+		mapped.force();
+		fileLock.release();
+		channel.close();
+	}
+
+}
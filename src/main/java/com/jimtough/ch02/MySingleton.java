@@ -1,6 +1,11 @@
 package com.jimtough.ch02;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,15 +14,67 @@ import org.slf4j.LoggerFactory;
  * <p>Implements a singleton using the "initialization on demand holder" idiom, per the example
  * on Page 39 of the book. It exploits the fact that the JVM does not load inner classes until
  * they are referenced.</p>
- * 
- * <p>This singleton contains a counter, but doesn't do much else.</p>
- * 
+ *
+ * <p>This singleton contains two counters, but doesn't do much else.
+ * {@link #incrementAndGet()} is a strict sequence: every caller gets a unique value, one greater
+ * than the last. {@link #increment()} is a tally that is only read in total, with {@link #sum()}
+ * or {@link #sumThenReset()}. How the tally is stored depends on the {@link CounterMode}, which is
+ * chosen once when the singleton is constructed, from the {@value #COUNTER_MODE_PROPERTY} system
+ * property. An unrecognized value is logged and {@code STRICT} is used instead.</p>
+ *
+ * <p>There is also a 64-bit ID sequence that is handed out in blocks by {@link #reserveIds(int)},
+ * so that {@link BlockIdGenerator} can issue IDs without touching shared state for every one.
+ * The ID sequence starts again from 1 in every JVM, unless the {@value #DURABLE_FILE_PROPERTY}
+ * system property names a file for a {@link DurableSequence}, in which case the sequence carries on
+ * where it left off and never reissues an ID after a crash. In durable mode
+ * {@link #incrementAndGet()} draws on the same durable sequence, so its values are never reissued
+ * either, but they are no longer consecutive. The sequence is closed by a shutdown hook.</p>
+ *
  * @author JTOUGH
  */
 public class MySingleton {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(MySingleton.class);
-	
+
+	/**
+	 * Name of the system property that selects the {@link CounterMode} of the singleton.
+	 * Defaults to {@code STRICT}.
+	 */
+	public static final String COUNTER_MODE_PROPERTY = "com.jimtough.ch02.MySingleton.counterMode";
+
+	/**
+	 * Name of the system property that holds the path of the file backing a durable ID sequence.
+	 * Not set by default, which means the ID sequence is held in memory only.
+	 */
+	public static final String DURABLE_FILE_PROPERTY = "com.jimtough.ch02.MySingleton.durableFile";
+
+	/**
+	 * Name of the system property that holds the fsync interval (in milliseconds) of the durable
+	 * ID sequence. Defaults to zero. See {@link DurableSequence} for what the interval means.
+	 */
+	public static final String DURABLE_FSYNC_INTERVAL_PROPERTY = "com.jimtough.ch02.MySingleton.durableFsyncIntervalMillis";
+
+	// Number of IDs skipped at most on each restart in durable mode
+	static final long DURABLE_RESERVE_AHEAD = 65536;
+
+	/**
+	 * How the tally updated by {@link MySingleton#increment()} is stored
+	 */
+	public enum CounterMode {
+		/**
+		 * A single {@code AtomicLong}. Every increment is a CAS on the same memory location, so
+		 * {@link MySingleton#sum()} is always exact, but threads retry each other's CAS under
+		 * heavy contention.
+		 */
+		STRICT,
+		/**
+		 * A {@code LongAdder}, which spreads increments over a set of cells (roughly one per
+		 * core) when it detects contention. Increments scale with the number of threads, but
+		 * {@link MySingleton#sum()} is only exact when no increments are in progress.
+		 */
+		STRIPED
+	}
+
 	/**
 	 * The static inner class that holds the singleton reference
 	 */
@@ -26,29 +83,163 @@ public class MySingleton {
 		static {
 			HOLDER_LOGGER.debug("Static inner 'holder' class has been loaded");
 		}
-		public static final MySingleton THE_SINGLETON = new MySingleton();
+		public static final MySingleton THE_SINGLETON = newInstanceFromSystemProperties();
 	}
-	
+
+	// Package-private so that tests can construct instances from the system properties too
+	static MySingleton newInstanceFromSystemProperties() {
+		String counterModeName = System.getProperty(COUNTER_MODE_PROPERTY, CounterMode.STRICT.name());
+		CounterMode counterMode;
+		try {
+			counterMode = CounterMode.valueOf(counterModeName);
+		} catch (IllegalArgumentException iae) {
+			// Don't let a typo in a system property break the holder class for good
+			LOGGER.warn("Unrecognized {} [{}] - using {}", COUNTER_MODE_PROPERTY, counterModeName, CounterMode.STRICT);
+			counterMode = CounterMode.STRICT;
+		}
+		String durableFile = System.getProperty(DURABLE_FILE_PROPERTY);
+		if (durableFile == null) {
+			return new MySingleton(counterMode, null);
+		}
+		long fsyncIntervalMillis = Long.parseLong(System.getProperty(DURABLE_FSYNC_INTERVAL_PROPERTY, "0"));
+		DurableSequence durableIds;
+		try {
+			durableIds = new DurableSequence(Paths.get(durableFile), DURABLE_RESERVE_AHEAD, fsyncIntervalMillis);
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		// The singleton lives as long as the JVM, so release the file when the JVM exits
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				durableIds.close();
+			} catch (IOException ioe) {
+				LOGGER.warn("Failed to close durable ID sequence [{}]", durableFile, ioe);
+			}
+		}, "MySingleton-close"));
+		return new MySingleton(counterMode, durableIds);
+	}
+
+	// Not used in durable mode
 	private final AtomicInteger counter = new AtomicInteger(0);
-	
-	private MySingleton() {} // prevent instantiation from outside this class
+	// Next ID that has not been reserved yet. IDs start at 1. Not used in durable mode.
+	private final AtomicLong idSequence = new AtomicLong(1);
+	// Null unless the ID sequence is durable
+	private final DurableSequence durableIds;
+	private final CounterMode counterMode;
+	// Exactly one of these is non-null, depending on the counter mode
+	private final AtomicLong strictTally;
+	private final LongAdder stripedTally;
+
+	// Prevent instantiation from outside this package. Tests in this package need their own
+	// instances to exercise each counter mode.
+	MySingleton(CounterMode counterMode) {
+		this(counterMode, null);
+	}
+
+	MySingleton(CounterMode counterMode, DurableSequence durableIds) {
+		this.counterMode = counterMode;
+		this.durableIds = durableIds;
+		this.strictTally = counterMode == CounterMode.STRICT ? new AtomicLong() : null;
+		this.stripedTally = counterMode == CounterMode.STRIPED ? new LongAdder() : null;
+		LOGGER.debug("Counter mode: {}", counterMode);
+	}
 
 	/**
 	 * Gets a reference to the one and only instance of this class
 	 * @return Non-null reference to the singleton
 	 */
 	public static MySingleton getInstance() {
-		LOGGER.debug("getInstance() | INVOKED");
 		return SingletonHolder.THE_SINGLETON;
 	}
 
 	/**
 	 * This method isn't part of the singleton pattern. My singleton class needs to do something! This is it. :)
-	 * @return New counter value after incrementing the current value by 1
+	 * @return New counter value after incrementing the current value by 1. In durable mode, the next
+	 *         ID of the durable sequence instead, which is greater than any value returned before.
+	 * @throws IllegalStateException in durable mode, if the ID sequence has gone past the range of
+	 *         an {@code int} or has been closed
 	 */
 	public int incrementAndGet() {
-		LOGGER.debug("incrementAndGet() | INVOKED");
+		if (durableIds != null) {
+			long id = durableIds.reserve(1);
+			if (id > Integer.MAX_VALUE) {
+				throw new IllegalStateException("Durable ID sequence is past the range of an int: " + id);
+			}
+			return (int)id;
+		}
 		return counter.incrementAndGet();
 	}
-	
+
+	/**
+	 * @return Non-null mode that the tally was constructed with
+	 */
+	public CounterMode getCounterMode() {
+		return counterMode;
+	}
+
+	/**
+	 * @return true if the ID sequence is backed by a {@link DurableSequence}
+	 */
+	public boolean isDurable() {
+		return durableIds != null;
+	}
+
+	/**
+	 * Add 1 to the tally. Unlike {@link #incrementAndGet()} this does not return a value, which
+	 * is what allows the {@code STRIPED} mode to avoid contention.
+	 */
+	public void increment() {
+		if (stripedTally != null) {
+			stripedTally.increment();
+		} else {
+			strictTally.incrementAndGet();
+		}
+	}
+
+	/**
+	 * @return Current value of the tally. In {@code STRIPED} mode, increments made by other
+	 *         threads while the sum is being calculated may or may not be included.
+	 */
+	public long sum() {
+		if (stripedTally != null) {
+			return stripedTally.sum();
+		}
+		return strictTally.get();
+	}
+
+	/**
+	 * Reset the tally to zero
+	 * @return Value of the tally before it was reset. In {@code STRIPED} mode, this is exact only
+	 *         when no other thread is incrementing at the same time; a concurrent increment may
+	 *         be lost or carried over into the next period.
+	 */
+	public long sumThenReset() {
+		if (stripedTally != null) {
+			return stripedTally.sumThenReset();
+		}
+		return strictTally.getAndSet(0);
+	}
+
+	/**
+	 * Reserve a block of consecutive IDs from the 64-bit ID sequence, with a single atomic update.
+	 * No other caller will ever be given an ID from the same block.
+	 * @param count Number of IDs to reserve. Must be positive.
+	 * @return First ID of the block. The block is {@code [first, first + count)}.
+	 * @throws IllegalArgumentException
+	 * @throws IllegalStateException if the sequence is exhausted
+	 */
+	public long reserveIds(int count) {
+		if (durableIds != null) {
+			return durableIds.reserve(count);
+		}
+		if (count <= 0) {
+			throw new IllegalArgumentException("count must be positive: " + count);
+		}
+		long first = idSequence.getAndAdd(count);
+		if (first <= 0 || first > Long.MAX_VALUE - count) {
+			throw new IllegalStateException("ID sequence is exhausted");
+		}
+		return first;
+	}
+
 }
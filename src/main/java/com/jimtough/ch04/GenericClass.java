@@ -1,16 +1,23 @@
 package com.jimtough.ch04;
 
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Implementation of {@code GenericInterface}
+ * Implementation of {@code GenericInterface}. The primitive reductions are delegated to the
+ * multi-accumulator loops in {@link NumericKernels}, and the parallel ones to
+ * {@link ParallelNumericKernels} on the common pool.
  * 
  * @author JTOUGH
  */
 class GenericClass implements GenericInterface<String, Float> {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(GenericClass.class);
+	// Number of floats copied out of a direct buffer at a time. Small enough to stay in the L1 cache.
+	static final int BUFFER_BLOCK_SIZE = 2048;
 	
 	@Override
 	public double sum(Float... n) {
@@ -33,5 +40,144 @@ class GenericClass implements GenericInterface<String, Float> {
 		}
 		return v1;
 	}
+
+	@Override
+	public double sum(float[] a, int from, int to) {
+		return NumericKernels.sum(a, from, to);
+	}
+
+	@Override
+	public double sum(double[] a) {
+		return NumericKernels.sum(a, 0, a.length);
+	}
+
+	@Override
+	public double sum(FloatBuffer buf) {
+		if (buf.hasArray()) {
+			return sum(buf.array(), buf.arrayOffset() + buf.position(), buf.arrayOffset() + buf.limit());
+		}
+		// A direct buffer has no array to hand to the kernel, so copy it out a block at a time
+		FloatBuffer src = buf.duplicate();
+		float[] block = new float[Math.min(src.remaining(), BUFFER_BLOCK_SIZE)];
+		double sum = 0D;
+		while (src.hasRemaining()) {
+			int n = Math.min(src.remaining(), block.length);
+			src.get(block, 0, n);
+			sum += NumericKernels.sum(block, 0, n);
+		}
+		return sum;
+	}
+
+	@Override
+	public double compensatedSum(float[] a, int from, int to) {
+		NumericKernels.checkRange(a.length, from, to);
+		double sum = 0D;
+		// Running compensation for the low-order bits lost from 'sum'
+		double c = 0D;
+		for (int i = from; i < to; i++) {
+			double y = a[i] - c;
+			double t = sum + y;
+			c = (t - sum) - y;
+			sum = t;
+		}
+		return sum;
+	}
+
+	@Override
+	public double compensatedSum(double[] a) {
+		double sum = 0D;
+		double c = 0D;
+		for (double d : a) {
+			double y = d - c;
+			double t = sum + y;
+			c = (t - sum) - y;
+			sum = t;
+		}
+		return sum;
+	}
+
+	@Override
+	public double compensatedSum(FloatBuffer buf) {
+		if (buf.hasArray()) {
+			return compensatedSum(buf.array(), buf.arrayOffset() + buf.position(), buf.arrayOffset() + buf.limit());
+		}
+		double sum = 0D;
+		double c = 0D;
+		for (int i = buf.position(); i < buf.limit(); i++) {
+			double y = buf.get(i) - c;
+			double t = sum + y;
+			c = (t - sum) - y;
+			sum = t;
+		}
+		return sum;
+	}
+
+	@Override
+	public float min(float[] a, int from, int to) {
+		return NumericKernels.min(a, from, to);
+	}
+
+	@Override
+	public double min(double[] a) {
+		return NumericKernels.min(a, 0, a.length);
+	}
+
+	@Override
+	public float max(float[] a, int from, int to) {
+		return NumericKernels.max(a, from, to);
+	}
+
+	@Override
+	public double max(double[] a) {
+		return NumericKernels.max(a, 0, a.length);
+	}
+
+	@Override
+	public double sumOfSquares(float[] a, int from, int to) {
+		return NumericKernels.sumOfSquares(a, from, to);
+	}
+
+	@Override
+	public double sumOfSquares(double[] a) {
+		return NumericKernels.sumOfSquares(a, 0, a.length);
+	}
+
+	@Override
+	public double dot(float[] a, float[] b) {
+		checkSameLength(a.length, b.length);
+		return NumericKernels.dot(a, b, 0, a.length);
+	}
+
+	@Override
+	public double dot(double[] a, double[] b) {
+		checkSameLength(a.length, b.length);
+		return NumericKernels.dot(a, b, 0, a.length);
+	}
+
+	@Override
+	public double parallelSum(float[] a) {
+		return ParallelNumericKernels.sum(ForkJoinPool.commonPool(), a);
+	}
+
+	@Override
+	public double parallelSum(double[] a) {
+		return ParallelNumericKernels.sum(ForkJoinPool.commonPool(), a);
+	}
+
+	@Override
+	public float parallelMax(float[] a) {
+		return ParallelNumericKernels.max(ForkJoinPool.commonPool(), a);
+	}
+
+	@Override
+	public double parallelMax(double[] a) {
+		return ParallelNumericKernels.max(ForkJoinPool.commonPool(), a);
+	}
+
+	private static void checkSameLength(int lengthA, int lengthB) {
+		if (lengthA != lengthB) {
+			throw new IllegalArgumentException("Arrays must be the same length: " + lengthA + " != " + lengthB);
+		}
+	}
 	
 }
@@ -1,5 +1,7 @@
 package com.jimtough.ch04;
 
+import java.nio.FloatBuffer;
+
 /**
  * Example of an interface that includes generic types
  * 
@@ -23,5 +25,58 @@ interface GenericInterface<T, N extends Number> {
 	// A generic method whose generic type is unrelated to the generic types
 	// for this interface
 	<V extends Number> V max(V v1, V v2);
+
+	// Primitive specializations of sum(), which avoid boxing every value and
+	// allocating a varargs array. The values from index 'from' (inclusive) to
+	// 'to' (exclusive) are summed in a double accumulator.
+	double sum(float[] a, int from, int to);
+
+	double sum(double[] a);
+
+	// Sums the values between the position and limit of the buffer, without
+	// changing its position
+	double sum(FloatBuffer buf);
+
+	// Same as the primitive sum() methods, but using Kahan (compensated)
+	// summation, which keeps the rounding error independent of the number of
+	// values at the cost of a few more operations per value
+	double compensatedSum(float[] a, int from, int to);
+
+	double compensatedSum(double[] a);
+
+	double compensatedSum(FloatBuffer buf);
+
+	// Primitive reductions over the values from index 'from' (inclusive) to
+	// 'to' (exclusive). The min and max of an empty range is undefined, so a
+	// NoSuchElementException is thrown for one.
+	float min(float[] a, int from, int to);
+
+	double min(double[] a);
+
+	float max(float[] a, int from, int to);
+
+	double max(double[] a);
+
+	double sumOfSquares(float[] a, int from, int to);
+
+	double sumOfSquares(double[] a);
+
+	// The arrays must be the same length
+	double dot(float[] a, float[] b);
+
+	double dot(double[] a, double[] b);
+
+	// Parallel versions of the primitive sum() and max() for large arrays,
+	// which split the array into fork/join tasks on the common pool. The
+	// values are always added in the same order, however many threads there
+	// are, so parallelSum() gives the same result every time for the same
+	// array. It can differ from sum() in the last few bits.
+	double parallelSum(float[] a);
+
+	double parallelSum(double[] a);
+
+	float parallelMax(float[] a);
+
+	double parallelMax(double[] a);
 	
 }
@@ -0,0 +1,229 @@
+package com.jimtough.ch04;
+
+import java.util.NoSuchElementException;
+
+/**
+ * <p>Reduction loops over primitive arrays that back the primitive methods of
+ * {@link GenericInterface}.</p>
+ *
+ * <p>A loop with a single accumulator ({@code sum += a[i]}) can't start an addition until the
+ * previous one has finished, so it runs at the latency of one floating point add per element.
+ * Floating point addition is not associative, so the JIT is not allowed to reorder that loop into
+ * independent lanes by itself. Every loop in this class is instead unrolled by {@value #LANES} into
+ * independent accumulators, which are only combined at the end. The additions within one
+ * iteration have no dependency on each other, so the CPU can pipeline them, and the loop body is a
+ * simple straight-line pattern that C2's superword optimization can pack into vector instructions
+ * where the platform supports it.</p>
+ *
+ * <p>Because the additions are done in a different order, the results of {@code sum()},
+ * {@code dot()} and {@code sumOfSquares()} can differ from those of a single-accumulator loop in
+ * the last few bits. The results of {@code min()} and {@code max()} are exact. All methods work on
+ * the elements from index {@code from} (inclusive) to {@code to} (exclusive).</p>
+ *
+ * @author JTOUGH
+ */
+final class NumericKernels {
+
+	// Number of independent accumulators in each loop
+	static final int LANES = 4;
+
+	private NumericKernels() {}
+
+	//--------------------------------------------------------------------
+
+	static double sum(float[] a, int from, int to) {
+		checkRange(a.length, from, to);
+		double s0 = 0D, s1 = 0D, s2 = 0D, s3 = 0D;
+		final int end = from + ((to - from) & ~(LANES - 1));
+		int i = from;
+		for (; i < end; i += LANES) {
+			s0 += a[i];
+			s1 += a[i + 1];
+			s2 += a[i + 2];
+			s3 += a[i + 3];
+		}
+		for (; i < to; i++) {
+			s0 += a[i];
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	static double sum(double[] a, int from, int to) {
+		checkRange(a.length, from, to);
+		double s0 = 0D, s1 = 0D, s2 = 0D, s3 = 0D;
+		final int end = from + ((to - from) & ~(LANES - 1));
+		int i = from;
+		for (; i < end; i += LANES) {
+			s0 += a[i];
+			s1 += a[i + 1];
+			s2 += a[i + 2];
+			s3 += a[i + 3];
+		}
+		for (; i < to; i++) {
+			s0 += a[i];
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	static double sumOfSquares(float[] a, int from, int to) {
+		checkRange(a.length, from, to);
+		double s0 = 0D, s1 = 0D, s2 = 0D, s3 = 0D;
+		final int end = from + ((to - from) & ~(LANES - 1));
+		int i = from;
+		for (; i < end; i += LANES) {
+			double x0 = a[i], x1 = a[i + 1], x2 = a[i + 2], x3 = a[i + 3];
+			s0 += x0 * x0;
+			s1 += x1 * x1;
+			s2 += x2 * x2;
+			s3 += x3 * x3;
+		}
+		for (; i < to; i++) {
+			double x = a[i];
+			s0 += x * x;
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	static double sumOfSquares(double[] a, int from, int to) {
+		checkRange(a.length, from, to);
+		double s0 = 0D, s1 = 0D, s2 = 0D, s3 = 0D;
+		final int end = from + ((to - from) & ~(LANES - 1));
+		int i = from;
+		for (; i < end; i += LANES) {
+			s0 += a[i] * a[i];
+			s1 += a[i + 1] * a[i + 1];
+			s2 += a[i + 2] * a[i + 2];
+			s3 += a[i + 3] * a[i + 3];
+		}
+		for (; i < to; i++) {
+			s0 += a[i] * a[i];
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	// The ranges [from, to) of both arrays are multiplied element by element
+	static double dot(float[] a, float[] b, int from, int to) {
+		checkRange(a.length, from, to);
+		checkRange(b.length, from, to);
+		double s0 = 0D, s1 = 0D, s2 = 0D, s3 = 0D;
+		final int end = from + ((to - from) & ~(LANES - 1));
+		int i = from;
+		for (; i < end; i += LANES) {
+			s0 += (double)a[i] * b[i];
+			s1 += (double)a[i + 1] * b[i + 1];
+			s2 += (double)a[i + 2] * b[i + 2];
+			s3 += (double)a[i + 3] * b[i + 3];
+		}
+		for (; i < to; i++) {
+			s0 += (double)a[i] * b[i];
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	static double dot(double[] a, double[] b, int from, int to) {
+		checkRange(a.length, from, to);
+		checkRange(b.length, from, to);
+		double s0 = 0D, s1 = 0D, s2 = 0D, s3 = 0D;
+		final int end = from + ((to - from) & ~(LANES - 1));
+		int i = from;
+		for (; i < end; i += LANES) {
+			s0 += a[i] * b[i];
+			s1 += a[i + 1] * b[i + 1];
+			s2 += a[i + 2] * b[i + 2];
+			s3 += a[i + 3] * b[i + 3];
+		}
+		for (; i < to; i++) {
+			s0 += a[i] * b[i];
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	//--------------------------------------------------------------------
+
+	// Math.min() and Math.max() return NaN if either argument is NaN, and order -0.0 before 0.0,
+	// so the lanes can be combined in any order and still give the same result as a scalar loop
+
+	static float min(float[] a, int from, int to) {
+		checkNonEmptyRange(a.length, from, to);
+		float m0 = a[from], m1 = m0, m2 = m0, m3 = m0;
+		final int end = from + ((to - from) & ~(LANES - 1));
+		int i = from;
+		for (; i < end; i += LANES) {
+			m0 = Math.min(m0, a[i]);
+			m1 = Math.min(m1, a[i + 1]);
+			m2 = Math.min(m2, a[i + 2]);
+			m3 = Math.min(m3, a[i + 3]);
+		}
+		for (; i < to; i++) {
+			m0 = Math.min(m0, a[i]);
+		}
+		return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+	}
+
+	static double min(double[] a, int from, int to) {
+		checkNonEmptyRange(a.length, from, to);
+		double m0 = a[from], m1 = m0, m2 = m0, m3 = m0;
+		final int end = from + ((to - from) & ~(LANES - 1));
+		int i = from;
+		for (; i < end; i += LANES) {
+			m0 = Math.min(m0, a[i]);
+			m1 = Math.min(m1, a[i + 1]);
+			m2 = Math.min(m2, a[i + 2]);
+			m3 = Math.min(m3, a[i + 3]);
+		}
+		for (; i < to; i++) {
+			m0 = Math.min(m0, a[i]);
+		}
+		return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+	}
+
+	static float max(float[] a, int from, int to) {
+		checkNonEmptyRange(a.length, from, to);
+		float m0 = a[from], m1 = m0, m2 = m0, m3 = m0;
+		final int end = from + ((to - from) & ~(LANES - 1));
+		int i = from;
+		for (; i < end; i += LANES) {
+			m0 = Math.max(m0, a[i]);
+			m1 = Math.max(m1, a[i + 1]);
+			m2 = Math.max(m2, a[i + 2]);
+			m3 = Math.max(m3, a[i + 3]);
+		}
+		for (; i < to; i++) {
+			m0 = Math.max(m0, a[i]);
+		}
+		return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+	}
+
+	static double max(double[] a, int from, int to) {
+		checkNonEmptyRange(a.length, from, to);
+		double m0 = a[from], m1 = m0, m2 = m0, m3 = m0;
+		final int end = from + ((to - from) & ~(LANES - 1));
+		int i = from;
+		for (; i < end; i += LANES) {
+			m0 = Math.max(m0, a[i]);
+			m1 = Math.max(m1, a[i + 1]);
+			m2 = Math.max(m2, a[i + 2]);
+			m3 = Math.max(m3, a[i + 3]);
+		}
+		for (; i < to; i++) {
+			m0 = Math.max(m0, a[i]);
+		}
+		return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+	}
+
+	//--------------------------------------------------------------------
+
+	static void checkRange(int length, int from, int to) {
+		if (from < 0 || to > length || from > to) {
+			throw new IndexOutOfBoundsException("from: " + from + " | to: " + to + " | length: " + length);
+		}
+	}
+
+	private static void checkNonEmptyRange(int length, int from, int to) {
+		checkRange(length, from, to);
+		if (from == to) {
+			throw new NoSuchElementException("Cannot find the min or max of an empty range");
+		}
+	}
+
+}
@@ -0,0 +1,137 @@
+package com.jimtough.ch04;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * <p>Fork/join versions of the {@link NumericKernels} sum and max, for arrays large enough to be
+ * worth spreading over several threads. A {@link RecursiveTask} halves its range until the range is
+ * no larger than the fork threshold, in the same way as the {@code RecursiveSumOfN} task in the
+ * chapter 11 {@code ForkJoinTest}.</p>
+ *
+ * <p>Floating point addition is not associative, so a parallel sum that combined its partial sums
+ * in whatever order the threads finished would give a slightly different result from run to run.
+ * Here the array is always reduced by the same tree: it is split into blocks of
+ * {@value #BLOCK_SIZE} elements, each block is summed by a {@code NumericKernels} loop, and the
+ * block sums are combined pairwise, splitting each range at the same block boundary whether or not
+ * that split is forked. The fork threshold only decides which parts of the tree run on other
+ * threads, so {@code sum()} returns exactly the same value for the same array whatever the number
+ * of threads. That value can differ in the last few bits from {@code NumericKernels.sum()}.</p>
+ *
+ * <p>The fork threshold adapts to the array and the pool: the array is split into about
+ * {@value #TASKS_PER_THREAD} tasks per thread, so that a stalled worker's share can be stolen, but
+ * never into tasks of fewer than {@value #MIN_FORK_SIZE} elements, below which the cost of forking
+ * outweighs the work. Arrays no larger than that are reduced on the calling thread, without
+ * touching the pool.</p>
+ *
+ * @author JTOUGH
+ */
+final class ParallelNumericKernels {
+
+	// Number of elements reduced by one kernel loop. A multiple of NumericKernels.LANES.
+	static final int BLOCK_SIZE = 4096;
+	// Smallest range that is ever forked
+	static final int MIN_FORK_SIZE = 64 * 1024;
+	static final int TASKS_PER_THREAD = 4;
+
+	private ParallelNumericKernels() {}
+
+	/**
+	 * @param length Number of elements in the array
+	 * @param parallelism Number of threads in the pool
+	 * @return Ranges larger than this are forked. {@code Integer.MAX_VALUE} if nothing should be forked.
+	 */
+	static int forkThreshold(int length, int parallelism) {
+		if (parallelism <= 1 || length <= MIN_FORK_SIZE) {
+			return Integer.MAX_VALUE;
+		}
+		return Math.max(MIN_FORK_SIZE, length / (parallelism * TASKS_PER_THREAD));
+	}
+
+	//--------------------------------------------------------------------
+
+	static double sum(ForkJoinPool pool, float[] a) {
+		return reduce(pool, a.length, (from, to) -> NumericKernels.sum(a, from, to), Double::sum);
+	}
+
+	static double sum(ForkJoinPool pool, double[] a) {
+		return reduce(pool, a.length, (from, to) -> NumericKernels.sum(a, from, to), Double::sum);
+	}
+
+	// The max of an empty array is undefined, so a NoSuchElementException is thrown for one
+	static float max(ForkJoinPool pool, float[] a) {
+		// Widening a float to a double is exact, so nothing is lost by reducing in doubles
+		return (float)reduce(pool, a.length, (from, to) -> NumericKernels.max(a, from, to), Math::max);
+	}
+
+	static double max(ForkJoinPool pool, double[] a) {
+		return reduce(pool, a.length, (from, to) -> NumericKernels.max(a, from, to), Math::max);
+	}
+
+	//--------------------------------------------------------------------
+
+	// Reduces the range [from, to) of an array that is no larger than one block
+	@FunctionalInterface
+	private interface BlockReducer {
+		double reduce(int from, int to);
+	}
+
+	private static double reduce(ForkJoinPool pool, int length, BlockReducer leaf, DoubleBinaryOperator combine) {
+		ReduceTask task = new ReduceTask(leaf, combine, forkThreshold(length, pool.getParallelism()), 0, length);
+		if (task.threshold >= length) {
+			return task.reduceInline(0, length);
+		}
+		return pool.invoke(task);
+	}
+
+	/**
+	 * @return Index that splits [from, to) at the block boundary nearest the middle. Only called
+	 *         for ranges of more than one block, so the result is always strictly between the two.
+	 */
+	static int split(int from, int to) {
+		int blocks = (to - from + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		return from + (blocks / 2) * BLOCK_SIZE;
+	}
+
+	private static class ReduceTask extends RecursiveTask<Double> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final BlockReducer leaf;
+		private final DoubleBinaryOperator combine;
+		private final int threshold;
+		private final int from, to;
+
+		ReduceTask(BlockReducer leaf, DoubleBinaryOperator combine, int threshold, int from, int to) {
+			this.leaf = leaf;
+			this.combine = combine;
+			this.threshold = threshold;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Double compute() {
+			if (to - from <= threshold) {
+				return reduceInline(from, to);
+			}
+			int mid = split(from, to);
+			ReduceTask left = new ReduceTask(leaf, combine, threshold, from, mid);
+			left.fork();
+			double right = new ReduceTask(leaf, combine, threshold, mid, to).compute();
+			// Always left before right, whichever finished first
+			return combine.applyAsDouble(left.join(), right);
+		}
+
+		// Walks the same tree as compute(), without forking
+		double reduceInline(int lo, int hi) {
+			if (hi - lo <= BLOCK_SIZE) {
+				return leaf.reduce(lo, hi);
+			}
+			int mid = split(lo, hi);
+			return combine.applyAsDouble(reduceInline(lo, mid), reduceInline(mid, hi));
+		}
+	}
+
+}
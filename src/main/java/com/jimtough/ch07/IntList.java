@@ -0,0 +1,138 @@
+package com.jimtough.ch07;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * <p>A growable buffer of primitive {@code int} values. It is the output type for the bulk
+ * {@code readAllInts()} methods of {@link IntReader}, so that extracting a large quantity of
+ * numbers does not box every one of them into an {@code Integer}.</p>
+ *
+ * <p>Instances can be reused by calling {@link #clear()}, which keeps the backing array.
+ * Not thread-safe.</p>
+ *
+ * @author JTOUGH
+ */
+public class IntList implements IntConsumer {
+
+	private static final int DEFAULT_INITIAL_CAPACITY = 16;
+	// Some VMs reserve a few header words in an array
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+	private int[] values;
+	private int size;
+
+	public IntList() {
+		this(DEFAULT_INITIAL_CAPACITY);
+	}
+
+	/**
+	 * @param initialCapacity Must not be negative
+	 * @throws IllegalArgumentException
+	 */
+	public IntList(int initialCapacity) {
+		if (initialCapacity < 0) {
+			throw new IllegalArgumentException("initialCapacity cannot be negative: " + initialCapacity);
+		}
+		this.values = new int[initialCapacity];
+	}
+
+	/**
+	 * Append a value to the end of the list, growing the backing array if necessary
+	 * @param value Value to append
+	 */
+	public void add(int value) {
+		if (size == values.length) {
+			grow(size + 1);
+		}
+		values[size++] = value;
+	}
+
+	/**
+	 * Same as {@link #add(int)}, so that the list can be the target of an {@code IntStream}
+	 * or any other producer of {@code int} values
+	 */
+	@Override
+	public void accept(int value) {
+		add(value);
+	}
+
+	/**
+	 * Append all values from the other list to the end of this list
+	 * @param other Non-null
+	 */
+	public void addAll(IntList other) {
+		ensureCapacity(size + other.size);
+		System.arraycopy(other.values, 0, values, size, other.size);
+		size += other.size;
+	}
+
+	/**
+	 * @param index Must be less than {@link #size()}
+	 * @return The value at the specified index
+	 * @throws IndexOutOfBoundsException
+	 */
+	public int get(int index) {
+		if (index >= size) {
+			throw new IndexOutOfBoundsException("index: " + index + " | size: " + size);
+		}
+		return values[index];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Remove all values, but keep the backing array for reuse
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Make sure the backing array can hold at least this many values without growing again
+	 * @param minCapacity Minimum capacity
+	 */
+	public void ensureCapacity(int minCapacity) {
+		if (minCapacity > values.length) {
+			grow(minCapacity);
+		}
+	}
+
+	/**
+	 * @return Non-null copy of the values in this list
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(values, size);
+	}
+
+	/**
+	 * @return Sequential stream over the values in this list
+	 */
+	public IntStream stream() {
+		return Arrays.stream(values, 0, size);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+
+	private void grow(int minCapacity) {
+		if (minCapacity < 0 || minCapacity > MAX_ARRAY_SIZE) {
+			throw new OutOfMemoryError("Required capacity is too large: " + minCapacity);
+		}
+		int newCapacity = values.length + (values.length >> 1) + 1;
+		if (newCapacity < minCapacity || newCapacity > MAX_ARRAY_SIZE) {
+			newCapacity = Math.max(minCapacity, Math.min(newCapacity, MAX_ARRAY_SIZE));
+		}
+		values = Arrays.copyOf(values, newCapacity);
+	}
+
+}
@@ -1,20 +1,84 @@
 package com.jimtough.ch07;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.InputMismatchException;
 import java.util.NoSuchElementException;
+import java.util.OptionalInt;
 import java.util.Scanner;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 /**
- * Reads and parses integers from a string
+ * <p>Reads and parses integers from a string</p>
+ * 
+ * <p>The {@code readFirstXxx()} methods delegate to a {@link Scanner}. The {@code scanFirstInt()}
+ * methods are a hand-rolled equivalent that work directly on a {@link CharSequence}, a {@code char[]}
+ * slice or a {@link ByteBuffer} without allocating anything and without using exceptions to report
+ * a miss. They follow the same rules as {@link Scanner#nextInt()}: leading whitespace is skipped, the
+ * first whitespace-delimited token must be an optionally signed integer, and a value that does not
+ * fit in an {@code int} is not a match. Unlike the {@code Scanner}, they are not locale sensitive, so
+ * group separators such as {@code "1,000"} are not accepted.</p>
+ * 
+ * <p>The result of a {@code scanFirstInt()} call is a {@code long}. When the input contains a
+ * parseable integer the result is that value, otherwise it is one of the {@code NO_INT_XXX}
+ * sentinels, all of which lie outside the range of an {@code int}. Use {@link #isInt(long)} to
+ * tell them apart.</p>
+ * 
+ * <p>The {@code readAllInts()} methods apply the same rules to every whitespace-delimited token
+ * of the input in a single pass, appending each token that is an integer to an {@link IntList}
+ * and skipping the rest. This is the equivalent of a {@code Scanner} loop that calls
+ * {@code nextInt()} when {@code hasNextInt()} is true and {@code next()} otherwise.</p>
+ * 
+ * <p>Nothing is logged. The outcome of every call is recorded in an {@link IntReaderMetrics}
+ * instance instead, which can be read with {@link #getMetrics()} or published over JMX.</p>
  * 
  * @author JTOUGH
  */
 public class IntReader {
-	
-	private static final Logger LOGGER = LoggerFactory.getLogger(IntReader.class);
+
+	// Files are mapped into memory one window at a time, so that files larger than 2GB can be read
+	static final int DEFAULT_MAPPED_WINDOW_SIZE = 64 * 1024 * 1024;
+
+	/** Result of a {@code scanFirstInt()} call when the input is empty or contains only whitespace */
+	public static final long NO_INT_EMPTY = Long.MIN_VALUE;
+	/** Result of a {@code scanFirstInt()} call when the first token is not an integer */
+	public static final long NO_INT_MISMATCH = Long.MIN_VALUE + 1;
+	/** Result of a {@code scanFirstInt()} call when the first token is an integer that does not fit in an {@code int} */
+	public static final long NO_INT_OVERFLOW = Long.MIN_VALUE + 2;
+
+	private final IntReaderMetrics metrics;
+
+	/**
+	 * Record the outcome of each call in a new {@code IntReaderMetrics}, with timing disabled
+	 */
+	public IntReader() {
+		this(new IntReaderMetrics());
+	}
+
+	/**
+	 * @param metrics Non-null counters that record the outcome of each call. They may be shared
+	 *                with other {@code IntReader} instances.
+	 * @throws IllegalArgumentException
+	 */
+	public IntReader(IntReaderMetrics metrics) {
+		if (metrics == null) {
+			throw new IllegalArgumentException("metrics cannot be null");
+		}
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return Non-null counters that record the outcome of each call
+	 */
+	public IntReaderMetrics getMetrics() {
+		return metrics;
+	}
 
 	/**
 	 * Read the first parseable integer value from the string and return the value
@@ -24,10 +88,19 @@ public class IntReader {
 	 * @throws NoSuchElementException
 	 */
 	public int readFirstInt(String s) {
+		final long startNanos = metrics.startTiming();
 		try (Scanner scanner = new Scanner(s)) {
 			int firstInt = scanner.nextInt();
-			LOGGER.debug("firstInt: {}", firstInt);
+			metrics.recordParsed();
 			return firstInt;
+		} catch (InputMismatchException ime) {
+			recordMismatch(s);
+			throw ime;
+		} catch (NoSuchElementException | NullPointerException e) {
+			metrics.recordEmptyInput();
+			throw e;
+		} finally {
+			metrics.stopTiming(startNanos);
 		}
 	}
 
@@ -37,19 +110,22 @@ public class IntReader {
 	 * @return Integer, or null if no parseable integer is found in the string
 	 */
 	public Integer readFirstInteger(String s) {
+		final long startNanos = metrics.startTiming();
 		try (Scanner scanner = new Scanner(s)) {
 			int firstInt = scanner.nextInt();
-			LOGGER.debug("firstInt: {}", firstInt);
+			metrics.recordParsed();
 			return Integer.valueOf(firstInt);
 		} catch (InputMismatchException ime) {
-			LOGGER.warn("{} caught - message: {}", ime.getClass().getSimpleName(), ime.getMessage());
+			recordMismatch(s);
 			return null;
-		} catch (NoSuchElementException nsee) {
-			LOGGER.warn("{} caught - message: {}", nsee.getClass().getSimpleName(), nsee.getMessage());
+		} catch (NoSuchElementException | NullPointerException e) {
+			metrics.recordEmptyInput();
 			return null;
 		} catch (RuntimeException re) {
-			LOGGER.warn("{} caught - message: {}", re.getClass().getSimpleName(), re.getMessage());
+			metrics.recordMismatch();
 			return null;
+		} finally {
+			metrics.stopTiming(startNanos);
 		}
 	}
 
@@ -59,20 +135,473 @@ public class IntReader {
 	 * @return Integer, or null if no parseable integer is found in the string
 	 */
 	public Integer readFirstIntegerWithMulticatch(String s) {
+		final long startNanos = metrics.startTiming();
 		try (Scanner scanner = new Scanner(s)) {
 			int firstInt = scanner.nextInt();
-			LOGGER.debug("firstInt: {}", firstInt);
+			metrics.recordParsed();
 			return Integer.valueOf(firstInt);
 		} catch (InputMismatchException ime) {
-			LOGGER.warn("InputMismatchException caught - message: {}", ime.getMessage());
+			recordMismatch(s);
 			return null;
 		} catch (NoSuchElementException | NullPointerException e) {
-			LOGGER.warn("{} caught - probably due to null/empty string", e.getClass().getSimpleName());
+			// probably due to null/empty string
+			metrics.recordEmptyInput();
 			return null;
 		} catch (RuntimeException re) {
-			LOGGER.warn("{} caught - message: {}", re.getClass().getSimpleName(), re.getMessage());
+			metrics.recordMismatch();
 			return null;
+		} finally {
+			metrics.stopTiming(startNanos);
+		}
+	}
+
+	// The Scanner reports a token that is an integer too large for an int as a mismatch. Count it
+	// as an overflow instead, as scanFirstInt() does.
+	private void recordMismatch(String s) {
+		if (scanFirst(s, 0, s.length()) == NO_INT_OVERFLOW) {
+			metrics.recordOverflow();
+		} else {
+			metrics.recordMismatch();
+		}
+	}
+
+	//--------------------------------------------------------------------
+
+	/**
+	 * Tells a parsed value apart from the {@code NO_INT_XXX} sentinels
+	 * @param result Value returned by one of the {@code scanFirstInt()} methods
+	 * @return true if {@code result} is a parsed {@code int} value
+	 */
+	public static boolean isInt(long result) {
+		return result == (int)result;
+	}
+
+	/**
+	 * Scan for the first integer value in the character sequence, without allocating
+	 * @param s Non-null
+	 * @return The parsed value, or one of the {@code NO_INT_XXX} sentinels
+	 */
+	public long scanFirstInt(CharSequence s) {
+		return scanFirstInt(s, 0, s.length());
+	}
+
+	/**
+	 * Scan for the first integer value in a range of the character sequence, without allocating
+	 * @param s Non-null
+	 * @param from Index of the first character to examine (inclusive)
+	 * @param to Index of the last character to examine (exclusive)
+	 * @return The parsed value, or one of the {@code NO_INT_XXX} sentinels
+	 */
+	public long scanFirstInt(CharSequence s, int from, int to) {
+		final long startNanos = metrics.startTiming();
+		long result = scanFirst(s, from, to);
+		metrics.recordResult(result);
+		metrics.stopTiming(startNanos);
+		return result;
+	}
+
+	/**
+	 * Scan for the first integer value in a slice of the array, without allocating
+	 * @param a Non-null
+	 * @param from Index of the first character to examine (inclusive)
+	 * @param to Index of the last character to examine (exclusive)
+	 * @return The parsed value, or one of the {@code NO_INT_XXX} sentinels
+	 */
+	public long scanFirstInt(char[] a, int from, int to) {
+		final long startNanos = metrics.startTiming();
+		long result = scanFirst(a, from, to);
+		metrics.recordResult(result);
+		metrics.stopTiming(startNanos);
+		return result;
+	}
+
+	/**
+	 * Scan for the first integer value between the position and limit of the buffer, without
+	 * allocating. Each byte is treated as one ISO-8859-1 (or ASCII) character. The position of
+	 * the buffer is not changed.
+	 * @param buf Non-null
+	 * @return The parsed value, or one of the {@code NO_INT_XXX} sentinels
+	 */
+	public long scanFirstInt(ByteBuffer buf) {
+		final long startNanos = metrics.startTiming();
+		long result = scanFirst(buf, buf.position(), buf.limit());
+		metrics.recordResult(result);
+		metrics.stopTiming(startNanos);
+		return result;
+	}
+
+	/**
+	 * Read the first parseable integer value from the character sequence, without using the
+	 * {@code Scanner} or exceptions
+	 * @param s Non-null
+	 * @return The parsed value, or an empty {@code OptionalInt} if no parseable integer is found
+	 */
+	public OptionalInt parseFirstInt(CharSequence s) {
+		long result = scanFirstInt(s);
+		return isInt(result) ? OptionalInt.of((int)result) : OptionalInt.empty();
+	}
+
+	//--------------------------------------------------------------------
+
+	/**
+	 * Read every integer value from the character sequence
+	 * @param s Non-null
+	 * @param out Non-null list that the values are appended to
+	 * @return Number of values appended to {@code out}
+	 */
+	public int readAllInts(CharSequence s, IntList out) {
+		return readAllInts(s, 0, s.length(), out);
+	}
+
+	/**
+	 * Read every integer value from a range of the character sequence
+	 * @param s Non-null
+	 * @param from Index of the first character to examine (inclusive)
+	 * @param to Index of the last character to examine (exclusive)
+	 * @param out Non-null list that the values are appended to
+	 * @return Number of values appended to {@code out}
+	 */
+	public int readAllInts(CharSequence s, int from, int to, IntList out) {
+		final long startNanos = metrics.startTiming();
+		int count = 0, mismatches = 0, overflows = 0;
+		int i = from;
+		while (i < to) {
+			while (i < to && isWhitespace(s.charAt(i))) {
+				i++;
+			}
+			if (i == to) {
+				break;
+			}
+			int start = i++;
+			while (i < to && !isWhitespace(s.charAt(i))) {
+				i++;
+			}
+			long result = parseToken(s, start, i);
+			if (isInt(result)) {
+				out.add((int)result);
+				count++;
+			} else if (result == NO_INT_OVERFLOW) {
+				overflows++;
+			} else {
+				mismatches++;
+			}
 		}
+		metrics.recordTokens(count, mismatches, overflows);
+		metrics.stopTiming(startNanos);
+		return count;
 	}
-	
+
+	/**
+	 * Read every integer value from a slice of the array
+	 * @param a Non-null
+	 * @param from Index of the first character to examine (inclusive)
+	 * @param to Index of the last character to examine (exclusive)
+	 * @param out Non-null list that the values are appended to
+	 * @return Number of values appended to {@code out}
+	 */
+	public int readAllInts(char[] a, int from, int to, IntList out) {
+		final long startNanos = metrics.startTiming();
+		int count = 0, mismatches = 0, overflows = 0;
+		int i = from;
+		while (i < to) {
+			while (i < to && isWhitespace(a[i])) {
+				i++;
+			}
+			if (i == to) {
+				break;
+			}
+			int start = i++;
+			while (i < to && !isWhitespace(a[i])) {
+				i++;
+			}
+			long result = parseToken(a, start, i);
+			if (isInt(result)) {
+				out.add((int)result);
+				count++;
+			} else if (result == NO_INT_OVERFLOW) {
+				overflows++;
+			} else {
+				mismatches++;
+			}
+		}
+		metrics.recordTokens(count, mismatches, overflows);
+		metrics.stopTiming(startNanos);
+		return count;
+	}
+
+	/**
+	 * Read every integer value between the position and limit of the buffer. Each byte is treated
+	 * as one ISO-8859-1 (or ASCII) character. The position of the buffer is not changed.
+	 * @param buf Non-null
+	 * @param out Non-null list that the values are appended to
+	 * @return Number of values appended to {@code out}
+	 */
+	public int readAllInts(ByteBuffer buf, IntList out) {
+		final long startNanos = metrics.startTiming();
+		int count = forEachInt(buf, buf.position(), buf.limit(), out);
+		metrics.stopTiming(startNanos);
+		return count;
+	}
+
+	/**
+	 * Pass every integer value in a range of the buffer to the action, ignoring the position and
+	 * limit of the buffer
+	 * @param buf Non-null
+	 * @param from Index of the first byte to examine (inclusive)
+	 * @param to Index of the last byte to examine (exclusive)
+	 * @param action Non-null action that receives the values, in the order they appear
+	 * @return Number of values passed to {@code action}
+	 */
+	int forEachInt(ByteBuffer buf, int from, int to, IntConsumer action) {
+		int count = 0, mismatches = 0, overflows = 0;
+		int i = from;
+		while (i < to) {
+			while (i < to && isWhitespace(buf.get(i))) {
+				i++;
+			}
+			if (i == to) {
+				break;
+			}
+			int start = i++;
+			while (i < to && !isWhitespace(buf.get(i))) {
+				i++;
+			}
+			long result = parseToken(buf, start, i);
+			if (isInt(result)) {
+				action.accept((int)result);
+				count++;
+			} else if (result == NO_INT_OVERFLOW) {
+				overflows++;
+			} else {
+				mismatches++;
+			}
+		}
+		metrics.recordTokens(count, mismatches, overflows);
+		return count;
+	}
+
+	/**
+	 * Read every integer value from the character sequence
+	 * @param s Non-null
+	 * @return Sequential stream of the values, in the order they appear in {@code s}
+	 */
+	public IntStream readAllIntsAsStream(CharSequence s) {
+		IntList out = new IntList();
+		readAllInts(s, out);
+		return out.stream();
+	}
+
+	/**
+	 * Read every integer value from a text file, which is memory-mapped rather than read through
+	 * a {@code Reader}. The file must use a single-byte or ASCII-compatible encoding (US-ASCII,
+	 * ISO-8859-1, UTF-8...).
+	 * @param path Non-null path to an existing file
+	 * @return Non-null list of the values, in the order they appear in the file
+	 * @throws IOException
+	 */
+	public IntList readAllInts(Path path) throws IOException {
+		IntList out = new IntList();
+		readAllInts(path, out, DEFAULT_MAPPED_WINDOW_SIZE);
+		return out;
+	}
+
+	void readAllInts(Path path, IntList out, int windowSize) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			forEachInt(channel, 0, channel.size(), windowSize, out);
+		}
+	}
+
+	/**
+	 * Pass every integer value in a range of the file to the action. The range must start and end
+	 * on token boundaries. The range is memory-mapped one window at a time, and each window ends on
+	 * the last whitespace byte inside it so that no token is split across two windows. A token
+	 * longer than a whole window is split, but that is far from any real input.
+	 * @param channel Non-null open channel, which may be shared with other threads
+	 * @param from Offset of the first byte to examine (inclusive)
+	 * @param to Offset of the last byte to examine (exclusive)
+	 * @param windowSize Maximum number of bytes mapped at once
+	 * @param action Non-null action that receives the values, in the order they appear
+	 * @return Number of values passed to {@code action}
+	 * @throws IOException
+	 */
+	long forEachInt(FileChannel channel, long from, long to, int windowSize, IntConsumer action) throws IOException {
+		final long startNanos = metrics.startTiming();
+		long count = 0;
+		long windowStart = from;
+		while (windowStart < to) {
+			final int length = (int)Math.min(windowSize, to - windowStart);
+			MappedByteBuffer window = channel.map(MapMode.READ_ONLY, windowStart, length);
+			int end = length;
+			if (windowStart + length < to) {
+				while (end > 0 && !isWhitespace(window.get(end - 1))) {
+					end--;
+				}
+				if (end == 0) {
+					end = length;
+				}
+			}
+			count += forEachInt(window, 0, end, action);
+			windowStart += end;
+		}
+		metrics.stopTiming(startNanos);
+		return count;
+	}
+
+	//--------------------------------------------------------------------
+
+	private static long scanFirst(CharSequence s, int from, int to) {
+		int start = from;
+		while (start < to && isWhitespace(s.charAt(start))) {
+			start++;
+		}
+		if (start == to) {
+			return NO_INT_EMPTY;
+		}
+		int end = start + 1;
+		while (end < to && !isWhitespace(s.charAt(end))) {
+			end++;
+		}
+		return parseToken(s, start, end);
+	}
+
+	private static long scanFirst(char[] a, int from, int to) {
+		int start = from;
+		while (start < to && isWhitespace(a[start])) {
+			start++;
+		}
+		if (start == to) {
+			return NO_INT_EMPTY;
+		}
+		int end = start + 1;
+		while (end < to && !isWhitespace(a[end])) {
+			end++;
+		}
+		return parseToken(a, start, end);
+	}
+
+	private static long scanFirst(ByteBuffer buf, int from, int to) {
+		int start = from;
+		while (start < to && isWhitespace(buf.get(start))) {
+			start++;
+		}
+		if (start == to) {
+			return NO_INT_EMPTY;
+		}
+		int end = start + 1;
+		while (end < to && !isWhitespace(buf.get(end))) {
+			end++;
+		}
+		return parseToken(buf, start, end);
+	}
+
+	// Same set of characters as the '\p{javaWhitespace}+' default delimiter of the Scanner
+	static boolean isWhitespace(char c) {
+		return Character.isWhitespace(c);
+	}
+
+	static boolean isWhitespace(byte b) {
+		return (b >= 0x09 && b <= 0x0D) || (b >= 0x1C && b <= 0x20);
+	}
+
+	// Returns the value of the digit, or -1 if the character is not a decimal digit
+	private static int digit(char c) {
+		int d = c - '0';
+		if (d >= 0 && d <= 9) {
+			return d;
+		}
+		return c < 0x80 ? -1 : Character.digit(c, 10);
+	}
+
+	private static int digit(byte b) {
+		int d = b - '0';
+		return (d >= 0 && d <= 9) ? d : -1;
+	}
+
+	// The digits are accumulated as a negative number, the same way Integer.parseInt() does it,
+	// so that Integer.MIN_VALUE can be represented without overflowing along the way.
+	// A token that is not a sign followed by digits is a mismatch, even if it is also too long.
+	static long parseToken(CharSequence s, int start, int end) {
+		char first = s.charAt(start);
+		boolean negative = first == '-';
+		int i = (negative || first == '+') ? start + 1 : start;
+		if (i == end) {
+			return NO_INT_MISMATCH;
+		}
+		final int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+		final int multmin = limit / 10;
+		int result = 0;
+		boolean overflow = false;
+		for (; i < end; i++) {
+			int d = digit(s.charAt(i));
+			if (d < 0) {
+				return NO_INT_MISMATCH;
+			}
+			if (result < multmin || result * 10 < limit + d) {
+				overflow = true;
+			} else {
+				result = result * 10 - d;
+			}
+		}
+		if (overflow) {
+			return NO_INT_OVERFLOW;
+		}
+		return negative ? result : -result;
+	}
+
+	static long parseToken(char[] a, int start, int end) {
+		char first = a[start];
+		boolean negative = first == '-';
+		int i = (negative || first == '+') ? start + 1 : start;
+		if (i == end) {
+			return NO_INT_MISMATCH;
+		}
+		final int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+		final int multmin = limit / 10;
+		int result = 0;
+		boolean overflow = false;
+		for (; i < end; i++) {
+			int d = digit(a[i]);
+			if (d < 0) {
+				return NO_INT_MISMATCH;
+			}
+			if (result < multmin || result * 10 < limit + d) {
+				overflow = true;
+			} else {
+				result = result * 10 - d;
+			}
+		}
+		if (overflow) {
+			return NO_INT_OVERFLOW;
+		}
+		return negative ? result : -result;
+	}
+
+	static long parseToken(ByteBuffer buf, int start, int end) {
+		byte first = buf.get(start);
+		boolean negative = first == '-';
+		int i = (negative || first == '+') ? start + 1 : start;
+		if (i == end) {
+			return NO_INT_MISMATCH;
+		}
+		final int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+		final int multmin = limit / 10;
+		int result = 0;
+		boolean overflow = false;
+		for (; i < end; i++) {
+			int d = digit(buf.get(i));
+			if (d < 0) {
+				return NO_INT_MISMATCH;
+			}
+			if (result < multmin || result * 10 < limit + d) {
+				overflow = true;
+			} else {
+				result = result * 10 - d;
+			}
+		}
+		if (overflow) {
+			return NO_INT_OVERFLOW;
+		}
+		return negative ? result : -result;
+	}
+
 }
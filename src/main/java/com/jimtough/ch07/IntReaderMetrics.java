@@ -0,0 +1,199 @@
+package com.jimtough.ch07;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * <p>Counters that record the outcome of every {@link IntReader} call, in place of logging each
+ * call. The counters are {@link LongAdder} instances, so recording never blocks and scales with
+ * the number of threads sharing one {@code IntReader}.</p>
+ *
+ * <p>Use {@link #snapshot()} to read all counters at once, or {@link #registerMBean(String)} to
+ * publish them over JMX. Timing adds two {@link System#nanoTime()} calls to every read, which can
+ * cost more than parsing a short string, so it is disabled unless requested in the constructor.</p>
+ *
+ * @author JTOUGH
+ */
+public class IntReaderMetrics implements IntReaderMetricsMXBean {
+
+	private final boolean timed;
+	private final LongAdder parsed = new LongAdder();
+	private final LongAdder mismatches = new LongAdder();
+	private final LongAdder emptyInputs = new LongAdder();
+	private final LongAdder overflows = new LongAdder();
+	private final LongAdder nanos = new LongAdder();
+
+	/**
+	 * Counters only, with timing disabled
+	 */
+	public IntReaderMetrics() {
+		this(false);
+	}
+
+	/**
+	 * @param timed Set true to also record the time spent in each read
+	 */
+	public IntReaderMetrics(boolean timed) {
+		this.timed = timed;
+	}
+
+	public boolean isTimed() {
+		return timed;
+	}
+
+	//--------------------------------------------------------------------
+
+	long startTiming() {
+		return timed ? System.nanoTime() : 0L;
+	}
+
+	void stopTiming(long startNanos) {
+		if (timed) {
+			nanos.add(System.nanoTime() - startNanos);
+		}
+	}
+
+	void recordParsed() {
+		parsed.increment();
+	}
+
+	void recordMismatch() {
+		mismatches.increment();
+	}
+
+	void recordEmptyInput() {
+		emptyInputs.increment();
+	}
+
+	void recordOverflow() {
+		overflows.increment();
+	}
+
+	// Record the outcome of a single-value read
+	void recordResult(long result) {
+		if (IntReader.isInt(result)) {
+			parsed.increment();
+		} else if (result == IntReader.NO_INT_EMPTY) {
+			emptyInputs.increment();
+		} else if (result == IntReader.NO_INT_OVERFLOW) {
+			overflows.increment();
+		} else {
+			mismatches.increment();
+		}
+	}
+
+	// Record the tallies of a bulk read in one go, rather than once per token
+	void recordTokens(long parsedCount, long mismatchCount, long overflowCount) {
+		if (parsedCount != 0) {
+			parsed.add(parsedCount);
+		}
+		if (mismatchCount != 0) {
+			mismatches.add(mismatchCount);
+		}
+		if (overflowCount != 0) {
+			overflows.add(overflowCount);
+		}
+	}
+
+	//--------------------------------------------------------------------
+
+	@Override
+	public long getParsedCount() {
+		return parsed.sum();
+	}
+
+	@Override
+	public long getMismatchCount() {
+		return mismatches.sum();
+	}
+
+	@Override
+	public long getEmptyInputCount() {
+		return emptyInputs.sum();
+	}
+
+	@Override
+	public long getOverflowCount() {
+		return overflows.sum();
+	}
+
+	@Override
+	public long getTotalNanos() {
+		return nanos.sum();
+	}
+
+	/**
+	 * Read all counters. Reads that are in progress on other threads may be partially included.
+	 * @return Non-null immutable copy of the current counter values
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot(parsed.sum(), mismatches.sum(), emptyInputs.sum(), overflows.sum(), nanos.sum());
+	}
+
+	/**
+	 * Publish the counters on the platform MBean server
+	 * @param name Value of the {@code name} key of the MBean object name. Must be unique among
+	 *             the registered {@code IntReaderMetrics} instances.
+	 * @return Non-null object name that the MBean was registered under. Pass it to
+	 *         {@code MBeanServer.unregisterMBean()} when the counters are no longer needed.
+	 * @throws JMException
+	 */
+	public ObjectName registerMBean(String name) throws JMException {
+		ObjectName objectName = new ObjectName(
+				getClass().getPackage().getName() + ":type=" + getClass().getSimpleName() + ",name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		return objectName;
+	}
+
+	//--------------------------------------------------------------------
+
+	/**
+	 * Immutable copy of the counter values at one point in time
+	 */
+	public static final class Snapshot {
+
+		private final long parsedCount;
+		private final long mismatchCount;
+		private final long emptyInputCount;
+		private final long overflowCount;
+		private final long totalNanos;
+
+		Snapshot(long parsedCount, long mismatchCount, long emptyInputCount, long overflowCount, long totalNanos) {
+			this.parsedCount = parsedCount;
+			this.mismatchCount = mismatchCount;
+			this.emptyInputCount = emptyInputCount;
+			this.overflowCount = overflowCount;
+			this.totalNanos = totalNanos;
+		}
+
+		public long getParsedCount() {
+			return parsedCount;
+		}
+
+		public long getMismatchCount() {
+			return mismatchCount;
+		}
+
+		public long getEmptyInputCount() {
+			return emptyInputCount;
+		}
+
+		public long getOverflowCount() {
+			return overflowCount;
+		}
+
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		@Override
+		public String toString() {
+			return "parsed: " + parsedCount + " | mismatches: " + mismatchCount + " | emptyInputs: " + emptyInputCount
+					+ " | overflows: " + overflowCount + " | totalNanos: " + totalNanos;
+		}
+	}
+
+}
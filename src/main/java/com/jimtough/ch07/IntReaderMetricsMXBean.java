@@ -0,0 +1,26 @@
+package com.jimtough.ch07;
+
+/**
+ * Management interface for {@link IntReaderMetrics}, so that parse health can be monitored
+ * over JMX (from JConsole, VisualVM...)
+ *
+ * @author JTOUGH
+ */
+public interface IntReaderMetricsMXBean {
+
+	// Number of integer values successfully parsed
+	long getParsedCount();
+
+	// Number of tokens that were not integers
+	long getMismatchCount();
+
+	// Number of single-value reads of an empty (or whitespace-only) input
+	long getEmptyInputCount();
+
+	// Number of integer tokens whose value does not fit in an int
+	long getOverflowCount();
+
+	// Total time spent parsing, or zero if timing is disabled
+	long getTotalNanos();
+
+}
@@ -0,0 +1,251 @@
+package com.jimtough.ch07;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <p>Reads integers from a large text file on several threads at once, using the same parsing
+ * rules as {@link IntReader#readAllInts(Path)}.</p>
+ *
+ * <p>The file is split into byte ranges by a {@link RecursiveTask} that halves its range until it
+ * is no larger than the chunk size, in the same way as the {@code RecursiveSumOfN} task in the
+ * chapter 11 {@code ForkJoinTest}. Each split point is moved forward to just past the next
+ * whitespace byte, so that no token is ever cut in two. Each chunk is memory-mapped and parsed
+ * independently.</p>
+ *
+ * <p>{@link #readAllInts(Path)} returns the values in their original order, because the chunk
+ * results are always joined left-to-right. Only the lists of the chunks are joined by the tasks,
+ * and their values are copied into the result once, at the end. {@link #summarizeInts(Path)} returns only the
+ * order-free aggregates (count, sum, min, max) and never holds more than one chunk's worth of
+ * state per task.</p>
+ *
+ * @author JTOUGH
+ */
+public class ParallelIntReader {
+
+	static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+	// Number of bytes read at a time while looking for the whitespace that ends a token
+	private static final int REALIGN_BUFFER_SIZE = 256;
+
+	private final IntReader intReader;
+	private final ForkJoinPool pool;
+	private final int chunkSize;
+
+	/**
+	 * Use the common fork/join pool and the default chunk size
+	 */
+	public ParallelIntReader() {
+		this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * @param pool Non-null pool that the parsing tasks are submitted to
+	 * @param chunkSize Target number of bytes in each chunk. Must be positive.
+	 * @throws IllegalArgumentException
+	 */
+	public ParallelIntReader(ForkJoinPool pool, int chunkSize) {
+		this(pool, chunkSize, new IntReaderMetrics());
+	}
+
+	/**
+	 * @param pool Non-null pool that the parsing tasks are submitted to
+	 * @param chunkSize Target number of bytes in each chunk. Must be positive.
+	 * @param metrics Non-null counters that record the outcome of the parsing by every task
+	 * @throws IllegalArgumentException
+	 */
+	public ParallelIntReader(ForkJoinPool pool, int chunkSize, IntReaderMetrics metrics) {
+		if (pool == null) {
+			throw new IllegalArgumentException("pool cannot be null");
+		}
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+		}
+		this.intReader = new IntReader(metrics);
+		this.pool = pool;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * @return Non-null counters that record the outcome of the parsing by every task
+	 */
+	public IntReaderMetrics getMetrics() {
+		return intReader.getMetrics();
+	}
+
+	/**
+	 * Read every integer value from a text file, in parallel
+	 * @param path Non-null path to an existing file
+	 * @return Non-null list of the values, in the order they appear in the file
+	 * @throws IOException
+	 */
+	public IntList readAllInts(Path path) throws IOException {
+		final List<IntList> chunks;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			chunks = invoke(new ReadAllIntsTask(channel, 0, channel.size()));
+		}
+		// Copy every value once, into a list that is already the right size
+		long total = 0;
+		for (IntList chunk : chunks) {
+			total += chunk.size();
+		}
+		if (total > Integer.MAX_VALUE) {
+			throw new IOException("Too many integers for one list: " + total);
+		}
+		IntList result = new IntList((int)total);
+		for (IntList chunk : chunks) {
+			result.addAll(chunk);
+		}
+		return result;
+	}
+
+	/**
+	 * Compute the count, sum, min and max of every integer value in a text file, in parallel
+	 * @param path Non-null path to an existing file
+	 * @return Non-null statistics. The count is zero if the file contains no integers.
+	 * @throws IOException
+	 */
+	public IntSummaryStatistics summarizeInts(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return invoke(new SummarizeIntsTask(channel, 0, channel.size()));
+		}
+	}
+
+	private <T> T invoke(RecursiveTask<T> task) throws IOException {
+		try {
+			return pool.invoke(task);
+		} catch (UncheckedIOException uioe) {
+			throw uioe.getCause();
+		}
+	}
+
+	//--------------------------------------------------------------------
+
+	/**
+	 * Find the offset of the first token that starts at or after {@code offset}, by skipping
+	 * forward to just past the next whitespace byte
+	 * @return An offset in the range ({@code offset}, {@code to}]
+	 */
+	static long realign(FileChannel channel, long offset, long to) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(REALIGN_BUFFER_SIZE);
+		long position = offset;
+		while (position < to) {
+			buf.clear();
+			int n = channel.read(buf, position);
+			if (n <= 0) {
+				break;
+			}
+			for (int i = 0; i < n && position + i < to; i++) {
+				if (IntReader.isWhitespace(buf.get(i))) {
+					return position + i + 1;
+				}
+			}
+			position += n;
+		}
+		return to;
+	}
+
+	private abstract class ChunkTask<T> extends RecursiveTask<T> {
+
+		private static final long serialVersionUID = 1L;
+
+		final FileChannel channel;
+		final long from, to;
+
+		ChunkTask(FileChannel channel, long from, long to) {
+			this.channel = channel;
+			this.from = from;
+			this.to = to;
+		}
+
+		abstract ChunkTask<T> newSubtask(long from, long to);
+		abstract T computeLeaf() throws IOException;
+		abstract T combine(T left, T right);
+
+		@Override
+		protected T compute() {
+			try {
+				if (to - from > chunkSize) {
+					long mid = realign(channel, from + (to - from) / 2, to);
+					if (mid < to) {
+						// Range is too large. Need to fork into two smaller tasks.
+						ChunkTask<T> firstHalf = newSubtask(from, mid);
+						firstHalf.fork();
+						ChunkTask<T> secondHalf = newSubtask(mid, to);
+						T resultOfSecondHalf = secondHalf.compute();
+						return combine(firstHalf.join(), resultOfSecondHalf);
+					}
+				}
+				return computeLeaf();
+			} catch (IOException ioe) {
+				throw new UncheckedIOException(ioe);
+			}
+		}
+	}
+
+	// The values of each chunk, in a list per chunk, in the order of the chunks
+	private class ReadAllIntsTask extends ChunkTask<List<IntList>> {
+
+		private static final long serialVersionUID = 1L;
+
+		ReadAllIntsTask(FileChannel channel, long from, long to) {
+			super(channel, from, to);
+		}
+
+		@Override
+		ChunkTask<List<IntList>> newSubtask(long from, long to) {
+			return new ReadAllIntsTask(channel, from, to);
+		}
+
+		@Override
+		List<IntList> computeLeaf() throws IOException {
+			IntList out = new IntList();
+			intReader.forEachInt(channel, from, to, IntReader.DEFAULT_MAPPED_WINDOW_SIZE, out);
+			List<IntList> chunks = new ArrayList<>();
+			chunks.add(out);
+			return chunks;
+		}
+
+		@Override
+		List<IntList> combine(List<IntList> left, List<IntList> right) {
+			left.addAll(right);
+			return left;
+		}
+	}
+
+	private class SummarizeIntsTask extends ChunkTask<IntSummaryStatistics> {
+
+		private static final long serialVersionUID = 1L;
+
+		SummarizeIntsTask(FileChannel channel, long from, long to) {
+			super(channel, from, to);
+		}
+
+		@Override
+		ChunkTask<IntSummaryStatistics> newSubtask(long from, long to) {
+			return new SummarizeIntsTask(channel, from, to);
+		}
+
+		@Override
+		IntSummaryStatistics computeLeaf() throws IOException {
+			IntSummaryStatistics stats = new IntSummaryStatistics();
+			intReader.forEachInt(channel, from, to, IntReader.DEFAULT_MAPPED_WINDOW_SIZE, stats);
+			return stats;
+		}
+
+		@Override
+		IntSummaryStatistics combine(IntSummaryStatistics left, IntSummaryStatistics right) {
+			left.combine(right);
+			return left;
+		}
+	}
+
+}
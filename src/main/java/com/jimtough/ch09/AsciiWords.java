@@ -0,0 +1,59 @@
+package com.jimtough.ch09;
+
+/**
+ * <p>The definition of a word that is shared by the tokenizers in this package: a run of the
+ * characters that the regular expression {@code \w} matches, which are the ASCII letters, digits
+ * and underscore, converted to lower case. Splitting a text with {@code Scanner.useDelimiter("\\W")},
+ * dropping the empty tokens, and calling {@code toLowerCase()} on the rest gives exactly the same
+ * words.</p>
+ *
+ * <p>In UTF-8, or in any single-byte charset that is a superset of ASCII, no byte of a non-ASCII
+ * character is in the ASCII range, and every non-ASCII character is a delimiter for {@code \W}.
+ * So the words can be found in the encoded bytes directly, one table lookup per byte, without
+ * decoding the text first.</p>
+ *
+ * @author JTOUGH
+ */
+final class AsciiWords {
+
+	// The lower case form of each byte that is part of a word, or 0 for a delimiter
+	private static final byte[] LOWER_CASE_WORD_BYTES = new byte[256];
+	static {
+		for (int c = '0'; c <= '9'; c++) {
+			LOWER_CASE_WORD_BYTES[c] = (byte)c;
+		}
+		for (int c = 'a'; c <= 'z'; c++) {
+			LOWER_CASE_WORD_BYTES[c] = (byte)c;
+			LOWER_CASE_WORD_BYTES[c - 'a' + 'A'] = (byte)c;
+		}
+		LOWER_CASE_WORD_BYTES['_'] = '_';
+	}
+
+	private AsciiWords() {}
+
+	/**
+	 * @return Lower case form of the byte if it is part of a word, otherwise 0
+	 */
+	static byte toLowerCaseWordByte(byte b) {
+		return LOWER_CASE_WORD_BYTES[b & 0xff];
+	}
+
+	/**
+	 * @return Lower case form of the character if it is part of a word, otherwise 0
+	 */
+	static char toLowerCaseWordChar(char c) {
+		return c < 128 ? (char)LOWER_CASE_WORD_BYTES[c] : 0;
+	}
+
+	/**
+	 * @return Hash of the lower case bytes of a word
+	 */
+	static int hash(byte[] word, int from, int to) {
+		int h = SliceTable.HASH_SEED;
+		for (int i = from; i < to; i++) {
+			h = SliceTable.hash(h, word[i]);
+		}
+		return h;
+	}
+
+}
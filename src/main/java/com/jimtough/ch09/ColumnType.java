@@ -0,0 +1,30 @@
+package com.jimtough.ch09;
+
+/**
+ * The primitive types that a column of a {@link RecordSchema} can hold
+ *
+ * @author JTOUGH
+ */
+public enum ColumnType {
+
+	BYTE(Byte.BYTES),
+	SHORT(Short.BYTES),
+	INT(Integer.BYTES),
+	LONG(Long.BYTES),
+	FLOAT(Float.BYTES),
+	DOUBLE(Double.BYTES);
+
+	private final int size;
+
+	private ColumnType(int size) {
+		this.size = size;
+	}
+
+	/**
+	 * @return Number of bytes in one value
+	 */
+	public int getSize() {
+		return size;
+	}
+
+}
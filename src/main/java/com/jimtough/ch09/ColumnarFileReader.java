@@ -0,0 +1,301 @@
+package com.jimtough.ch09;
+
+import static com.jimtough.ch09.ColumnarFileWriter.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Reads a file written by {@link ColumnarFileWriter}. The file is memory-mapped, and each
+ * column of each {@link Block} is available as a read-only view of the mapped bytes, such as an
+ * {@code IntBuffer} for an {@code INT} column. Nothing is copied or decoded: a column can be read
+ * with a bulk {@code get()} into an array, or a value at a time with {@code get(int)}, and the
+ * columns that aren't read are never paged in.</p>
+ *
+ * <p>The file is mapped in segments of consecutive columns and blocks, each of at most
+ * {@value #MAX_SEGMENT_BYTES} bytes, so files larger than 2GB can be read too.</p>
+ *
+ * <p>The file is closed once it has been mapped, and the mapping lasts until the reader and all
+ * of the views are garbage collected. Thread-safe, but each view has a position of its own and
+ * should be used by one thread at a time.</p>
+ *
+ * @author JTOUGH
+ */
+public final class ColumnarFileReader {
+
+	static final int MAX_SEGMENT_BYTES = 1024 * 1024 * 1024;
+
+	private static final ColumnType[] TYPES = ColumnType.values();
+
+	private final RecordSchema schema;
+	private final List<Block> blocks;
+	private final long recordCount;
+
+	/**
+	 * Map a file
+	 * @param path Non-null path of the file
+	 * @throws IllegalArgumentException
+	 * @throws IOException If the file can't be read, or isn't a complete columnar file
+	 */
+	public ColumnarFileReader(Path path) throws IOException {
+		this(path, MAX_SEGMENT_BYTES);
+	}
+
+	// Allows tests to map a file in many small segments
+	ColumnarFileReader(Path path, int maxSegmentBytes) throws IOException {
+		if (path == null) {
+			throw new IllegalArgumentException("path cannot be null");
+		}
+		if (maxSegmentBytes < 1) {
+			throw new IllegalArgumentException("maxSegmentBytes must be at least 1");
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			long position = 0;
+			ByteBuffer buf = read(channel, position, Integer.BYTES + 2 * Short.BYTES);
+			if (buf.getInt() != MAGIC) {
+				throw new IOException("Not a columnar record file: " + path);
+			}
+			final short version = buf.getShort();
+			if (version != VERSION) {
+				throw new IOException("Unsupported version " + version + ": " + path);
+			}
+			final int columnCount = buf.getShort() & 0xffff;
+			position += buf.capacity();
+			final RecordSchema.Builder builder = RecordSchema.builder();
+			for (int i = 0; i < columnCount; i++) {
+				buf = read(channel, position, 1 + Short.BYTES);
+				final int type = buf.get() & 0xff;
+				if (type >= TYPES.length) {
+					throw new IOException("Unknown type " + type + " of column " + i + ": " + path);
+				}
+				final int nameLength = buf.getShort() & 0xffff;
+				position += buf.capacity();
+				final byte[] name = new byte[nameLength];
+				read(channel, position, nameLength).get(name);
+				position += nameLength;
+				try {
+					builder.column(new String(name, StandardCharsets.UTF_8), TYPES[type]);
+				} catch (IllegalArgumentException | IllegalStateException e) {
+					throw new IOException("Invalid schema: " + path, e);
+				}
+			}
+			try {
+				this.schema = builder.build();
+			} catch (IllegalStateException e) {
+				throw new IOException("Invalid schema: " + path, e);
+			}
+			position = align(position);
+
+			// Find the blocks, and where each of their columns is
+			final List<Integer> blockRecordCounts = new ArrayList<>();
+			final List<long[]> columnOffsets = new ArrayList<>();
+			long records = 0;
+			while (position < size) {
+				buf = read(channel, position, BLOCK_HEADER_BYTES);
+				final int blockRecords = buf.getInt();
+				if (blockRecords < 1) {
+					throw new IOException("Invalid block at " + position + ": " + path);
+				}
+				position += BLOCK_HEADER_BYTES;
+				final long[] offsets = new long[columnCount];
+				for (int i = 0; i < columnCount; i++) {
+					offsets[i] = position;
+					position += align((long)blockRecords * schema.getType(i).getSize());
+				}
+				if (position > size) {
+					throw new IOException("Truncated block at " + offsets[0] + ": " + path);
+				}
+				blockRecordCounts.add(blockRecords);
+				columnOffsets.add(offsets);
+				records += blockRecords;
+			}
+			this.recordCount = records;
+			this.blocks = map(channel, blockRecordCounts, columnOffsets, maxSegmentBytes);
+		}
+	}
+
+	// Read exactly the given number of bytes, or throw if the file ends first
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		final ByteBuffer buf = ByteBuffer.allocate(length).order(BYTE_ORDER);
+		while (buf.hasRemaining()) {
+			if (channel.read(buf, position + buf.position()) < 0) {
+				throw new IOException("Unexpected end of file at " + (position + buf.position()));
+			}
+		}
+		buf.flip();
+		return buf;
+	}
+
+	// Map runs of consecutive columns together, and slice each column out of its segment
+	private List<Block> map(FileChannel channel, List<Integer> blockRecordCounts, List<long[]> columnOffsets,
+			int maxSegmentBytes) throws IOException {
+		final int columnCount = schema.getColumnCount();
+		final List<Block> result = new ArrayList<>(blockRecordCounts.size());
+		MappedByteBuffer segment = null;
+		long segmentStart = 0;
+		for (int b = 0; b < blockRecordCounts.size(); b++) {
+			final int blockRecords = blockRecordCounts.get(b);
+			final long[] offsets = columnOffsets.get(b);
+			final ByteBuffer[] columns = new ByteBuffer[columnCount];
+			for (int i = 0; i < columnCount; i++) {
+				// At most Integer.MAX_VALUE, because the writer's buffer for the column held it
+				final int length = blockRecords * schema.getType(i).getSize();
+				if (segment == null || offsets[i] + length > segmentStart + segment.capacity()) {
+					segmentStart = offsets[i];
+					final long end = lastColumnEnd(blockRecordCounts, columnOffsets, b, i, segmentStart + maxSegmentBytes);
+					segment = channel.map(MapMode.READ_ONLY, segmentStart, end - segmentStart);
+				}
+				final ByteBuffer column = segment.duplicate();
+				column.position((int)(offsets[i] - segmentStart));
+				column.limit(column.position() + length);
+				columns[i] = column.slice().asReadOnlyBuffer().order(BYTE_ORDER);
+			}
+			result.add(new Block(schema, blockRecords, columns));
+		}
+		return result;
+	}
+
+	// The end of the last column, from the given one on, that ends no later than the given limit,
+	// or of the given column if even that one doesn't
+	private long lastColumnEnd(List<Integer> blockRecordCounts, List<long[]> columnOffsets, int block, int column, long limit) {
+		final int columnCount = schema.getColumnCount();
+		long end = columnOffsets.get(block)[column] + (long)blockRecordCounts.get(block) * schema.getType(column).getSize();
+		for (int b = block, i = column + 1; b < blockRecordCounts.size(); b++, i = 0) {
+			for (; i < columnCount; i++) {
+				final long next = columnOffsets.get(b)[i] + (long)blockRecordCounts.get(b) * schema.getType(i).getSize();
+				if (next > limit) {
+					return end;
+				}
+				end = next;
+			}
+		}
+		return end;
+	}
+
+	//--------------------------------------------------------------------
+
+	public RecordSchema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * @return Number of records in all of the blocks
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	public int getBlockCount() {
+		return blocks.size();
+	}
+
+	/**
+	 * @throws IndexOutOfBoundsException
+	 */
+	public Block getBlock(int index) {
+		return blocks.get(index);
+	}
+
+	@Override
+	public String toString() {
+		return "ColumnarFileReader [schema=" + schema + ", blocks=" + blocks.size() + ", records=" + recordCount + "]";
+	}
+
+	//--------------------------------------------------------------------
+
+	/**
+	 * The records of one block, a column at a time. Each call to one of the {@code get...Column()}
+	 * methods returns a new read-only view of the column, with its position at the first record
+	 * of the block and its limit after the last.
+	 */
+	public static final class Block {
+
+		private final RecordSchema schema;
+		private final int recordCount;
+		private final ByteBuffer[] columns;
+
+		Block(RecordSchema schema, int recordCount, ByteBuffer[] columns) {
+			this.schema = schema;
+			this.recordCount = recordCount;
+			this.columns = columns;
+		}
+
+		public int getRecordCount() {
+			return recordCount;
+		}
+
+		/**
+		 * @throws IllegalArgumentException If the column is not a {@code BYTE} column
+		 */
+		public ByteBuffer getByteColumn(int column) {
+			return column(column, ColumnType.BYTE);
+		}
+
+		/**
+		 * @throws IllegalArgumentException If the column is not a {@code SHORT} column
+		 */
+		public ShortBuffer getShortColumn(int column) {
+			return column(column, ColumnType.SHORT).asShortBuffer();
+		}
+
+		/**
+		 * @throws IllegalArgumentException If the column is not an {@code INT} column
+		 */
+		public IntBuffer getIntColumn(int column) {
+			return column(column, ColumnType.INT).asIntBuffer();
+		}
+
+		/**
+		 * @throws IllegalArgumentException If the column is not a {@code LONG} column
+		 */
+		public LongBuffer getLongColumn(int column) {
+			return column(column, ColumnType.LONG).asLongBuffer();
+		}
+
+		/**
+		 * @throws IllegalArgumentException If the column is not a {@code FLOAT} column
+		 */
+		public FloatBuffer getFloatColumn(int column) {
+			return column(column, ColumnType.FLOAT).asFloatBuffer();
+		}
+
+		/**
+		 * @throws IllegalArgumentException If the column is not a {@code DOUBLE} column
+		 */
+		public DoubleBuffer getDoubleColumn(int column) {
+			return column(column, ColumnType.DOUBLE).asDoubleBuffer();
+		}
+
+		private ByteBuffer column(int column, ColumnType type) {
+			if (column < 0 || column >= columns.length) {
+				throw new IllegalArgumentException("No such column: " + column);
+			}
+			if (schema.getType(column) != type) {
+				throw new IllegalArgumentException("Column " + schema.getName(column) + " is " + schema.getType(column) + ", not " + type);
+			}
+			// A duplicate has big-endian order, whatever the order of the original
+			return columns[column].duplicate().order(BYTE_ORDER);
+		}
+
+		@Override
+		public String toString() {
+			return "Block [records=" + recordCount + "]";
+		}
+
+	}
+
+}
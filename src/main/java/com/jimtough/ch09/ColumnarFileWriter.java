@@ -0,0 +1,303 @@
+package com.jimtough.ch09;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>Writes records of primitive values to a file in a column-grouped format, to be read back with
+ * {@link ColumnarFileReader}. Writing a record a value at a time to an unbuffered
+ * {@code DataOutputStream}, as {@code DataStreamTest} does, makes a system call for every value,
+ * and reading it back means a method call per value, in record order, even to read one column.</p>
+ *
+ * <p>Here each column has a large direct buffer of its own. A record's values are put into the
+ * buffers of their columns, and once a block of records is complete, the header of the block and
+ * all of its column buffers are written with a single gathering write to a {@link FileChannel}.
+ * The values of a column are then contiguous within each block, so that a reader can map the
+ * block and see a column as an {@code IntBuffer}, a {@code DoubleBuffer}, and so on.</p>
+ *
+ * <p>The file is laid out as follows, in little-endian byte order, with every column and block
+ * starting on an 8-byte boundary so that the column views are aligned:</p>
+ * <ul>
+ * <li>header: the magic number {@value #MAGIC}, the version {@value #VERSION} as a short, and
+ *     the number of columns as an unsigned short, then for each column its {@link ColumnType} ordinal as a
+ *     byte, the length of its UTF-8 name as an unsigned short, and the name; padded with zeros to
+ *     a multiple of 8 bytes</li>
+ * <li>any number of blocks: the number of records in the block as an int, and an int that is
+ *     always 0, then for each column the values of all of the block's records, padded with zeros
+ *     to a multiple of 8 bytes</li>
+ * </ul>
+ *
+ * <p>Every value of a record must be put before {@link #endRecord()} is called, and the last
+ * partial block is written by {@link #close()}. Not thread-safe.</p>
+ *
+ * @author JTOUGH
+ */
+public final class ColumnarFileWriter implements Closeable {
+
+	static final int MAGIC = 0x4a434f4c;
+	static final short VERSION = 1;
+	static final int BLOCK_HEADER_BYTES = 8;
+	static final int ALIGNMENT = 8;
+	static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+	static final int DEFAULT_BLOCK_RECORDS = 64 * 1024;
+
+	private final RecordSchema schema;
+	private final int blockRecords;
+	private final FileChannel channel;
+	private final ByteBuffer blockHeader;
+	// Per column
+	private final ColumnType[] types;
+	private final ByteBuffer[] columns;
+	// The block header followed by the columns, for the gathering write
+	private final ByteBuffer[] block;
+	private int recordsInBlock;
+	private long recordCount;
+	private boolean closed;
+
+	/**
+	 * Create a file with blocks of {@value #DEFAULT_BLOCK_RECORDS} records, replacing it if it
+	 * exists
+	 * @throws IllegalArgumentException
+	 * @throws IOException
+	 */
+	public ColumnarFileWriter(Path path, RecordSchema schema) throws IOException {
+		this(path, schema, DEFAULT_BLOCK_RECORDS);
+	}
+
+	/**
+	 * Create a file, replacing it if it exists
+	 * @param path Non-null path of the file
+	 * @param schema Non-null schema of the records
+	 * @param blockRecords Number of records in each block. The buffers of the columns hold this
+	 *        many values each.
+	 * @throws IllegalArgumentException
+	 * @throws IOException
+	 */
+	public ColumnarFileWriter(Path path, RecordSchema schema, int blockRecords) throws IOException {
+		if (path == null) {
+			throw new IllegalArgumentException("path cannot be null");
+		}
+		if (schema == null) {
+			throw new IllegalArgumentException("schema cannot be null");
+		}
+		if (blockRecords < 1) {
+			throw new IllegalArgumentException("blockRecords must be at least 1");
+		}
+		final int columnCount = schema.getColumnCount();
+		this.schema = schema;
+		this.blockRecords = blockRecords;
+		this.blockHeader = ByteBuffer.allocate(BLOCK_HEADER_BYTES).order(BYTE_ORDER);
+		this.types = new ColumnType[columnCount];
+		this.columns = new ByteBuffer[columnCount];
+		this.block = new ByteBuffer[1 + columnCount];
+		this.block[0] = blockHeader;
+		for (int i = 0; i < columnCount; i++) {
+			types[i] = schema.getType(i);
+			final long capacity = align((long)blockRecords * types[i].getSize());
+			if (capacity > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("blockRecords is too large: " + blockRecords);
+			}
+			columns[i] = ByteBuffer.allocateDirect((int)capacity).order(BYTE_ORDER);
+			block[1 + i] = columns[i];
+		}
+		// Before the file is replaced, in case the header is too long
+		final ByteBuffer header = header(schema);
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		try {
+			writeFully(header);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private static ByteBuffer header(RecordSchema schema) {
+		final int columnCount = schema.getColumnCount();
+		final byte[][] names = new byte[columnCount][];
+		// A schema with as many columns as it can have, and names as long as they can be, has a
+		// header too long for an array
+		long length = Integer.BYTES + 2 * Short.BYTES;
+		for (int i = 0; i < columnCount; i++) {
+			names[i] = schema.getName(i).getBytes(StandardCharsets.UTF_8);
+			length += 1 + Short.BYTES + names[i].length;
+		}
+		if (align(length) > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("The column names are too long to fit in the header: " + length + " bytes");
+		}
+		final ByteBuffer header = ByteBuffer.allocate((int)align(length)).order(BYTE_ORDER);
+		header.putInt(MAGIC).putShort(VERSION).putShort((short)columnCount);
+		for (int i = 0; i < columnCount; i++) {
+			header.put((byte)schema.getType(i).ordinal()).putShort((short)names[i].length).put(names[i]);
+		}
+		// The rest of the buffer is already zero
+		header.clear();
+		return header;
+	}
+
+	static long align(long length) {
+		return (length + ALIGNMENT - 1) & -ALIGNMENT;
+	}
+
+	//--------------------------------------------------------------------
+
+	/**
+	 * @throws IllegalArgumentException If the column is not a {@code BYTE} column
+	 * @throws IllegalStateException If the column already has a value in this record
+	 */
+	public ColumnarFileWriter putByte(int column, byte value) {
+		column(column, ColumnType.BYTE).put(value);
+		return this;
+	}
+
+	/**
+	 * @throws IllegalArgumentException If the column is not a {@code SHORT} column
+	 * @throws IllegalStateException If the column already has a value in this record
+	 */
+	public ColumnarFileWriter putShort(int column, short value) {
+		column(column, ColumnType.SHORT).putShort(value);
+		return this;
+	}
+
+	/**
+	 * @throws IllegalArgumentException If the column is not an {@code INT} column
+	 * @throws IllegalStateException If the column already has a value in this record
+	 */
+	public ColumnarFileWriter putInt(int column, int value) {
+		column(column, ColumnType.INT).putInt(value);
+		return this;
+	}
+
+	/**
+	 * @throws IllegalArgumentException If the column is not a {@code LONG} column
+	 * @throws IllegalStateException If the column already has a value in this record
+	 */
+	public ColumnarFileWriter putLong(int column, long value) {
+		column(column, ColumnType.LONG).putLong(value);
+		return this;
+	}
+
+	/**
+	 * @throws IllegalArgumentException If the column is not a {@code FLOAT} column
+	 * @throws IllegalStateException If the column already has a value in this record
+	 */
+	public ColumnarFileWriter putFloat(int column, float value) {
+		column(column, ColumnType.FLOAT).putFloat(value);
+		return this;
+	}
+
+	/**
+	 * @throws IllegalArgumentException If the column is not a {@code DOUBLE} column
+	 * @throws IllegalStateException If the column already has a value in this record
+	 */
+	public ColumnarFileWriter putDouble(int column, double value) {
+		column(column, ColumnType.DOUBLE).putDouble(value);
+		return this;
+	}
+
+	private ByteBuffer column(int column, ColumnType type) {
+		if (closed) {
+			throw new IllegalStateException("Writer is closed");
+		}
+		if (column < 0 || column >= types.length) {
+			throw new IllegalArgumentException("No such column: " + column);
+		}
+		if (types[column] != type) {
+			throw new IllegalArgumentException("Column " + schema.getName(column) + " is " + types[column] + ", not " + type);
+		}
+		final ByteBuffer buffer = columns[column];
+		if (buffer.position() != recordsInBlock * type.getSize()) {
+			throw new IllegalStateException("Column " + schema.getName(column) + " already has a value in this record");
+		}
+		return buffer;
+	}
+
+	/**
+	 * Finish the current record, writing out the block if it is full
+	 * @throws IllegalStateException If any column has no value in this record
+	 * @throws IOException
+	 */
+	public void endRecord() throws IOException {
+		if (closed) {
+			throw new IllegalStateException("Writer is closed");
+		}
+		for (int i = 0; i < columns.length; i++) {
+			if (columns[i].position() != (recordsInBlock + 1) * types[i].getSize()) {
+				throw new IllegalStateException("Column " + schema.getName(i) + " has no value in this record");
+			}
+		}
+		recordsInBlock++;
+		recordCount++;
+		if (recordsInBlock == blockRecords) {
+			writeBlock();
+		}
+	}
+
+	private void writeBlock() throws IOException {
+		blockHeader.clear();
+		blockHeader.putInt(recordsInBlock).putInt(0).flip();
+		for (ByteBuffer column : columns) {
+			// Zero the padding, which may hold values from an earlier block
+			final int limit = (int)align(column.position());
+			while (column.position() < limit) {
+				column.put((byte)0);
+			}
+			column.flip();
+		}
+		writeFully(block);
+		for (ByteBuffer column : columns) {
+			column.clear();
+		}
+		recordsInBlock = 0;
+	}
+
+	private void writeFully(ByteBuffer... buffers) throws IOException {
+		long remaining = 0;
+		for (ByteBuffer buffer : buffers) {
+			remaining += buffer.remaining();
+		}
+		while (remaining > 0) {
+			remaining -= channel.write(buffers);
+		}
+	}
+
+	/**
+	 * @return Number of records ended so far
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	public RecordSchema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * Write out the records of the last block, and close the file. Values put since the last
+	 * {@link #endRecord()} are discarded.
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (recordsInBlock > 0) {
+				for (int i = 0; i < columns.length; i++) {
+					columns[i].position(recordsInBlock * types[i].getSize());
+				}
+				writeBlock();
+			}
+		} finally {
+			channel.close();
+		}
+	}
+
+}
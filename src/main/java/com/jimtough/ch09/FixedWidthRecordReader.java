@@ -0,0 +1,301 @@
+package com.jimtough.ch09;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * <p>Reads any field of any record of a file of fixed-width records, such as the file written by
+ * {@code DataStreamTest}, in which every record is the same sequence of primitive values written
+ * with a {@code DataOutputStream}. Reading such a file with a {@code DataInputStream} means
+ * calling every {@code readXxx()} of every record before it, in order, just to get to a record.
+ * Here the file is memory-mapped, and a field is read straight from where it is in the file with
+ * {@code getInt(record, field)} and so on, in constant time.</p>
+ *
+ * <p>The fields of a record are the columns of a {@link RecordSchema}, in order and without any
+ * padding, so a record of the {@code DataStreamTest} file is 27 bytes. The values are big-endian
+ * by default, as {@code DataOutputStream} writes them.</p>
+ *
+ * <p>The file is mapped in segments of whole records, each of at most
+ * {@value #MAX_SEGMENT_BYTES} bytes, so files larger than 2GB can be read too, and no record is
+ * ever split across two segments. {@link #scan(ForkJoinPool, Supplier, RecordConsumer,
+ * BinaryOperator)} visits every record in parallel, splitting the records into ranges that are
+ * scanned by different threads.</p>
+ *
+ * <p>The file is closed once it has been mapped, and the mapping lasts until the reader is
+ * garbage collected. Thread-safe.</p>
+ *
+ * @author JTOUGH
+ */
+public final class FixedWidthRecordReader {
+
+	static final int MAX_SEGMENT_BYTES = 1024 * 1024 * 1024;
+	// A scan never splits the records into ranges smaller than this
+	static final int MIN_SCAN_RECORDS = 4 * 1024;
+	// Ranges per thread, so that threads that finish early can take on some of the remaining work
+	static final int SCAN_RANGES_PER_THREAD = 4;
+
+	/**
+	 * Visits one record of a scan
+	 */
+	@FunctionalInterface
+	public interface RecordConsumer<A> {
+
+		/**
+		 * @param accumulator The accumulator of the range that the record is in
+		 * @param reader The reader being scanned, to get the fields of the record from
+		 * @param record Index of the record
+		 */
+		void accept(A accumulator, FixedWidthRecordReader reader, long record);
+
+	}
+
+	//--------------------------------------------------------------------
+
+	private final RecordSchema schema;
+	private final ByteOrder order;
+	// Per field
+	private final ColumnType[] types;
+	private final int[] offsets;
+	private final int recordWidth;
+	private final long recordCount;
+	private final long recordsPerSegment;
+	private final MappedByteBuffer[] segments;
+
+	/**
+	 * Map a file of big-endian records
+	 * @throws IllegalArgumentException
+	 * @throws IOException
+	 */
+	public FixedWidthRecordReader(Path path, RecordSchema schema) throws IOException {
+		this(path, schema, ByteOrder.BIG_ENDIAN);
+	}
+
+	/**
+	 * Map a file
+	 * @param path Non-null path of the file
+	 * @param schema Non-null schema, whose columns are the fields of each record in order
+	 * @param order Non-null byte order of the values
+	 * @throws IllegalArgumentException
+	 * @throws IOException If the file can't be read, or isn't a whole number of records
+	 */
+	public FixedWidthRecordReader(Path path, RecordSchema schema, ByteOrder order) throws IOException {
+		this(path, schema, order, MAX_SEGMENT_BYTES);
+	}
+
+	// Allows tests to map a file in many small segments
+	FixedWidthRecordReader(Path path, RecordSchema schema, ByteOrder order, int maxSegmentBytes) throws IOException {
+		if (path == null) {
+			throw new IllegalArgumentException("path cannot be null");
+		}
+		if (schema == null) {
+			throw new IllegalArgumentException("schema cannot be null");
+		}
+		if (order == null) {
+			throw new IllegalArgumentException("order cannot be null");
+		}
+		final int fieldCount = schema.getColumnCount();
+		this.schema = schema;
+		this.order = order;
+		this.types = new ColumnType[fieldCount];
+		this.offsets = new int[fieldCount];
+		int width = 0;
+		for (int i = 0; i < fieldCount; i++) {
+			types[i] = schema.getType(i);
+			offsets[i] = width;
+			width += types[i].getSize();
+		}
+		this.recordWidth = width;
+		// At least one record per segment, whatever the maximum
+		this.recordsPerSegment = Math.max(1, maxSegmentBytes / width);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			if (size % width != 0) {
+				throw new IOException("Size " + size + " is not a whole number of " + width + "-byte records: " + path);
+			}
+			this.recordCount = size / width;
+			final long segmentCount = (recordCount + recordsPerSegment - 1) / recordsPerSegment;
+			if (segmentCount > Integer.MAX_VALUE) {
+				throw new IOException("Too many segments: " + path);
+			}
+			this.segments = new MappedByteBuffer[(int)segmentCount];
+			for (int s = 0; s < segments.length; s++) {
+				final long from = s * recordsPerSegment * width;
+				final long length = Math.min(recordsPerSegment * width, size - from);
+				segments[s] = channel.map(MapMode.READ_ONLY, from, length);
+				segments[s].order(order);
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------
+
+	public RecordSchema getSchema() {
+		return schema;
+	}
+
+	public ByteOrder getOrder() {
+		return order;
+	}
+
+	/**
+	 * @return Number of bytes in each record
+	 */
+	public int getRecordWidth() {
+		return recordWidth;
+	}
+
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * @throws IndexOutOfBoundsException If there is no such record
+	 * @throws IllegalArgumentException If the field is not a {@code BYTE} field
+	 */
+	public byte getByte(long record, int field) {
+		return segment(record).get(offset(record, field, ColumnType.BYTE));
+	}
+
+	/**
+	 * @throws IndexOutOfBoundsException If there is no such record
+	 * @throws IllegalArgumentException If the field is not a {@code SHORT} field
+	 */
+	public short getShort(long record, int field) {
+		return segment(record).getShort(offset(record, field, ColumnType.SHORT));
+	}
+
+	/**
+	 * @throws IndexOutOfBoundsException If there is no such record
+	 * @throws IllegalArgumentException If the field is not an {@code INT} field
+	 */
+	public int getInt(long record, int field) {
+		return segment(record).getInt(offset(record, field, ColumnType.INT));
+	}
+
+	/**
+	 * @throws IndexOutOfBoundsException If there is no such record
+	 * @throws IllegalArgumentException If the field is not a {@code LONG} field
+	 */
+	public long getLong(long record, int field) {
+		return segment(record).getLong(offset(record, field, ColumnType.LONG));
+	}
+
+	/**
+	 * @throws IndexOutOfBoundsException If there is no such record
+	 * @throws IllegalArgumentException If the field is not a {@code FLOAT} field
+	 */
+	public float getFloat(long record, int field) {
+		return segment(record).getFloat(offset(record, field, ColumnType.FLOAT));
+	}
+
+	/**
+	 * @throws IndexOutOfBoundsException If there is no such record
+	 * @throws IllegalArgumentException If the field is not a {@code DOUBLE} field
+	 */
+	public double getDouble(long record, int field) {
+		return segment(record).getDouble(offset(record, field, ColumnType.DOUBLE));
+	}
+
+	private MappedByteBuffer segment(long record) {
+		if (record < 0 || record >= recordCount) {
+			throw new IndexOutOfBoundsException("record: " + record + " | recordCount: " + recordCount);
+		}
+		return segments[(int)(record / recordsPerSegment)];
+	}
+
+	// Offset of the field within the segment of the record
+	private int offset(long record, int field, ColumnType type) {
+		if (field < 0 || field >= types.length) {
+			throw new IllegalArgumentException("No such field: " + field);
+		}
+		if (types[field] != type) {
+			throw new IllegalArgumentException("Field " + schema.getName(field) + " is " + types[field] + ", not " + type);
+		}
+		return (int)(record % recordsPerSegment) * recordWidth + offsets[field];
+	}
+
+	//--------------------------------------------------------------------
+
+	/**
+	 * Visit every record, in parallel. The records are split into ranges, each of which is
+	 * visited in order by one thread, with an accumulator of its own, and the accumulators are
+	 * then combined in the order of their ranges.
+	 * @param pool Non-null pool to scan on
+	 * @param supplier Non-null supplier of a new accumulator for each range
+	 * @param consumer Non-null consumer of each record
+	 * @param combiner Non-null function that combines the accumulators of two consecutive ranges,
+	 *        and may return either of them
+	 * @return The combined accumulator, or a new one if there are no records
+	 * @throws IllegalArgumentException
+	 */
+	public <A> A scan(ForkJoinPool pool, Supplier<A> supplier, RecordConsumer<A> consumer, BinaryOperator<A> combiner) {
+		if (pool == null) {
+			throw new IllegalArgumentException("pool cannot be null");
+		}
+		if (supplier == null) {
+			throw new IllegalArgumentException("supplier cannot be null");
+		}
+		if (consumer == null) {
+			throw new IllegalArgumentException("consumer cannot be null");
+		}
+		if (combiner == null) {
+			throw new IllegalArgumentException("combiner cannot be null");
+		}
+		final long ranges = (long)pool.getParallelism() * SCAN_RANGES_PER_THREAD;
+		final long rangeRecords = Math.max(MIN_SCAN_RECORDS, (recordCount + ranges - 1) / ranges);
+		return pool.invoke(new ScanTask<>(supplier, consumer, combiner, rangeRecords, 0, recordCount));
+	}
+
+	private final class ScanTask<A> extends RecursiveTask<A> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Supplier<A> supplier;
+		private final RecordConsumer<A> consumer;
+		private final BinaryOperator<A> combiner;
+		private final long rangeRecords;
+		private final long from;
+		private final long to;
+
+		ScanTask(Supplier<A> supplier, RecordConsumer<A> consumer, BinaryOperator<A> combiner, long rangeRecords, long from, long to) {
+			this.supplier = supplier;
+			this.consumer = consumer;
+			this.combiner = combiner;
+			this.rangeRecords = rangeRecords;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected A compute() {
+			if (to - from <= rangeRecords) {
+				final A accumulator = supplier.get();
+				for (long record = from; record < to; record++) {
+					consumer.accept(accumulator, FixedWidthRecordReader.this, record);
+				}
+				return accumulator;
+			}
+			final long middle = from + (to - from) / 2;
+			final ScanTask<A> right = new ScanTask<>(supplier, consumer, combiner, rangeRecords, middle, to);
+			right.fork();
+			final A left = new ScanTask<>(supplier, consumer, combiner, rangeRecords, from, middle).compute();
+			return combiner.apply(left, right.join());
+		}
+
+	}
+
+	@Override
+	public String toString() {
+		return "FixedWidthRecordReader [schema=" + schema + ", records=" + recordCount + "]";
+	}
+
+}
@@ -0,0 +1,285 @@
+package com.jimtough.ch09;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Finds the most frequent items in a stream of any length, such as the tokens of a text, with a
+ * fixed number of counters, using the Space-Saving algorithm of Metwally, Agrawal and El Abbadi.
+ * The memory used depends only on the capacity, not on the number of distinct items, and each item
+ * is counted in O(log capacity) time.</p>
+ *
+ * <p>An item that already has a counter has it incremented. Otherwise, while there are free
+ * counters, the item gets a new one. Once every counter is taken, the item takes over the counter
+ * with the lowest count {@code min}, whose count becomes {@code min + 1}, and {@code min} is
+ * recorded as the possible error of the new item's count. This gives the following guarantees,
+ * where {@code N} is the number of items counted:</p>
+ * <ul>
+ * <li>the count of an item is never less than the number of times it occurred, and never more
+ *     than that plus its error</li>
+ * <li>the error of any count is at most {@link #getMaxError()}, which is at most
+ *     {@code N / capacity}</li>
+ * <li>every item that occurred more than {@link #getMaxError()} times has a counter</li>
+ * </ul>
+ *
+ * <p>Not thread-safe.</p>
+ *
+ * @author JTOUGH
+ */
+public final class HeavyHitters<T> {
+
+	/**
+	 * The estimated number of times that an item occurred
+	 */
+	public static final class Estimate<T> {
+
+		private final T item;
+		private final long count;
+		private final long error;
+
+		Estimate(T item, long count, long error) {
+			this.item = item;
+			this.count = count;
+			this.error = error;
+		}
+
+		public T getItem() {
+			return item;
+		}
+
+		/**
+		 * @return Upper bound on the number of times the item occurred
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * @return Maximum amount by which {@link #getCount()} may overestimate
+		 */
+		public long getError() {
+			return error;
+		}
+
+		/**
+		 * @return Lower bound on the number of times the item occurred
+		 */
+		public long getGuaranteedCount() {
+			return count - error;
+		}
+
+		@Override
+		public String toString() {
+			return item + "=" + count + (error == 0 ? "" : " (-" + error + ")");
+		}
+
+	}
+
+	//--------------------------------------------------------------------
+
+	private final int capacity;
+	private final Map<T, Integer> counterByItem;
+	// Per counter
+	private final Object[] items;
+	private final long[] counts;
+	private final long[] errors;
+	// Position of each counter in the heap
+	private final int[] positions;
+	// Min-heap of counters, ordered by count
+	private final int[] heap;
+	private int size;
+	private long total;
+	// Whether any counter has been taken over by another item, after which counts may be wrong
+	private boolean takenOver;
+
+	/**
+	 * @param capacity Number of counters, which must be at least 1. To find the top {@code k}
+	 *        items reliably, use several times {@code k}.
+	 * @throws IllegalArgumentException
+	 */
+	public HeavyHitters(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1");
+		}
+		this.capacity = capacity;
+		this.counterByItem = new HashMap<>(2 * capacity);
+		this.items = new Object[capacity];
+		this.counts = new long[capacity];
+		this.errors = new long[capacity];
+		this.positions = new int[capacity];
+		this.heap = new int[capacity];
+	}
+
+	/**
+	 * Count one occurrence of an item
+	 * @param item Non-null item
+	 * @throws IllegalArgumentException
+	 */
+	public void add(T item) {
+		if (item == null) {
+			throw new IllegalArgumentException("item cannot be null");
+		}
+		total++;
+		Integer counter = counterByItem.get(item);
+		if (counter != null) {
+			counts[counter]++;
+			siftDown(positions[counter]);
+		} else if (size < capacity) {
+			// Its count of 1 can't be less than any other, so the new counter goes at the bottom
+			final int newCounter = size++;
+			items[newCounter] = item;
+			counts[newCounter] = 1;
+			heap[newCounter] = newCounter;
+			positions[newCounter] = newCounter;
+			counterByItem.put(item, newCounter);
+			siftUp(newCounter);
+		} else {
+			takenOver = true;
+			final int minCounter = heap[0];
+			counterByItem.remove(items[minCounter]);
+			items[minCounter] = item;
+			errors[minCounter] = counts[minCounter];
+			counts[minCounter]++;
+			counterByItem.put(item, minCounter);
+			siftDown(0);
+		}
+	}
+
+	private void siftUp(int position) {
+		final int counter = heap[position];
+		while (position > 0) {
+			final int parent = (position - 1) >>> 1;
+			if (counts[heap[parent]] <= counts[counter]) {
+				break;
+			}
+			move(heap[parent], position);
+			position = parent;
+		}
+		move(counter, position);
+	}
+
+	private void siftDown(int position) {
+		final int counter = heap[position];
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+				child++;
+			}
+			if (counts[counter] <= counts[heap[child]]) {
+				break;
+			}
+			move(heap[child], position);
+			position = child;
+		}
+		move(counter, position);
+	}
+
+	private void move(int counter, int position) {
+		heap[position] = counter;
+		positions[counter] = position;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Estimate<T> estimate(int counter) {
+		return new Estimate<>((T)items[counter], counts[counter], errors[counter]);
+	}
+
+	//--------------------------------------------------------------------
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return Number of items counted
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * @return Upper bound on the error of every count, and on the number of times that any item
+	 *         without a counter occurred. 0 until a new item arrives after every counter has
+	 *         been taken, because the counts up to then are exact.
+	 */
+	public long getMaxError() {
+		return takenOver ? counts[heap[0]] : 0;
+	}
+
+	/**
+	 * @param item Non-null item
+	 * @return Non-null estimate for the item. An item without a counter gets a count of
+	 *         {@link #getMaxError()}, with the same error.
+	 * @throws IllegalArgumentException
+	 */
+	public Estimate<T> get(T item) {
+		if (item == null) {
+			throw new IllegalArgumentException("item cannot be null");
+		}
+		Integer counter = counterByItem.get(item);
+		if (counter == null) {
+			final long maxError = getMaxError();
+			return new Estimate<>(item, maxError, maxError);
+		}
+		return estimate(counter);
+	}
+
+	/**
+	 * @param k Maximum number of items to return
+	 * @return Non-null unmodifiable list of the {@code k} items with the highest counts, highest
+	 *         first
+	 * @throws IllegalArgumentException
+	 */
+	public List<Estimate<T>> top(int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("k cannot be negative");
+		}
+		List<Estimate<T>> estimates = new ArrayList<>(size);
+		for (int counter = 0; counter < size; counter++) {
+			estimates.add(estimate(counter));
+		}
+		Collections.sort(estimates, (a, b) -> {
+			final int diff = Long.compare(b.getCount(), a.getCount());
+			return diff != 0 ? diff : Long.compare(b.getGuaranteedCount(), a.getGuaranteedCount());
+		});
+		return Collections.unmodifiableList(new ArrayList<>(estimates.subList(0, Math.min(k, size))));
+	}
+
+	/**
+	 * Whether the items returned by {@link #top(int)} are certain to be the {@code k} most
+	 * frequent items, which is the case when the guaranteed count of each of them is at least the
+	 * count of the next item. The order among them may still differ from their true order.
+	 * @param k Number of items
+	 * @return True if the top {@code k} items are certain
+	 * @throws IllegalArgumentException
+	 */
+	public boolean isTopGuaranteed(int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("k cannot be negative");
+		}
+		List<Estimate<T>> top = top(k == Integer.MAX_VALUE ? k : k + 1);
+		if (top.size() <= k) {
+			// Certain only if no counter has ever been taken over
+			return !takenOver;
+		}
+		final long nextCount = top.get(k).getCount();
+		for (int i = 0; i < k; i++) {
+			if (top.get(i).getGuaranteedCount() < nextCount) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "HeavyHitters [capacity=" + capacity + ", total=" + total + ", maxError=" + getMaxError() + "]";
+	}
+
+}
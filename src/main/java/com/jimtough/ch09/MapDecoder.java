@@ -0,0 +1,306 @@
+package com.jimtough.ch09;
+
+import static com.jimtough.ch09.MapEncoder.*;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Reads back the entries of a map written by {@link MapEncoder}, one at a time. Each call to
+ * {@link #next()} moves on to the next entry, whose key and value are then available from
+ * {@link #getStringKey()}, {@link #getIntValue()} and so on, so a map of any size can be read
+ * without creating it, and {@code int} and {@code long} keys and values without boxing them.
+ * {@link #readStringMap()} creates the map, for a map of strings that fits in memory.</p>
+ *
+ * <p>The stream is read through a buffer of its own, so it needn't be buffered already. Not
+ * thread-safe.</p>
+ *
+ * @author JTOUGH
+ */
+public final class MapDecoder implements Closeable {
+
+	private static final MapEntryType[] TYPES = MapEntryType.values();
+	private static final int INITIAL_DICTIONARY_SIZE = 256;
+
+	private final InputStream in;
+	private final MapEntryType keyType;
+	private final MapEntryType valueType;
+	private final int dictionarySize;
+	private String[] dictionary = new String[INITIAL_DICTIONARY_SIZE];
+	private int dictionaryUsed;
+
+	private byte[] buf = new byte[BLOCK_BYTES];
+	private int position;
+	private int limit;
+	// Entries left in the current block
+	private long blockEntries;
+	private boolean ended;
+	private boolean hasEntry;
+
+	// The current entry. An int is held in the long.
+	private String stringKey;
+	private long numberKey;
+	private String stringValue;
+	private long numberValue;
+
+	/**
+	 * Read the header of a map
+	 * @param in Non-null stream to read from, which is closed by {@link #close()}
+	 * @throws IllegalArgumentException
+	 * @throws IOException If the stream can't be read, or doesn't start with a map
+	 */
+	public MapDecoder(InputStream in) throws IOException {
+		if (in == null) {
+			throw new IllegalArgumentException("in cannot be null");
+		}
+		this.in = in;
+		int magic = 0;
+		for (int i = 0; i < Integer.BYTES; i++) {
+			magic = (magic << 8) | (readByte() & 0xff);
+		}
+		if (magic != MAGIC) {
+			throw new IOException("Not an encoded map");
+		}
+		final byte version = readByte();
+		if (version != VERSION) {
+			throw new IOException("Unsupported version " + version);
+		}
+		this.keyType = readType();
+		this.valueType = readType();
+		final long size = readVarint();
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Invalid dictionary size " + size);
+		}
+		this.dictionarySize = (int)size;
+	}
+
+	private MapEntryType readType() throws IOException {
+		final int type = readByte() & 0xff;
+		if (type >= TYPES.length) {
+			throw new IOException("Unknown type " + type);
+		}
+		return TYPES[type];
+	}
+
+	/**
+	 * Read all of the remaining entries of a map of strings
+	 * @return Non-null map, in the order the entries were written
+	 * @throws IllegalArgumentException If the keys and values are not strings
+	 * @throws IOException
+	 */
+	public Map<String, String> readStringMap() throws IOException {
+		if (keyType != MapEntryType.STRING || valueType != MapEntryType.STRING) {
+			throw new IllegalArgumentException("Not a map of strings: " + keyType + " to " + valueType);
+		}
+		final Map<String, String> map = new LinkedHashMap<>();
+		while (next()) {
+			map.put(stringKey, stringValue);
+		}
+		return map;
+	}
+
+	//--------------------------------------------------------------------
+
+	/**
+	 * Move on to the next entry
+	 * @return True if there is one, false at the end of the map
+	 * @throws IOException If the stream can't be read, or ends before the end of the map
+	 */
+	public boolean next() throws IOException {
+		hasEntry = false;
+		if (ended) {
+			return false;
+		}
+		while (blockEntries == 0) {
+			blockEntries = readVarint();
+			if (blockEntries == 0) {
+				ended = true;
+				return false;
+			}
+		}
+		switch (keyType) {
+			case STRING:
+				final long length = readVarint();
+				stringKey = length == 0 ? null : readString(length - 1);
+				break;
+			default:
+				numberKey = readZigZag();
+		}
+		switch (valueType) {
+			case STRING:
+				stringValue = readStringValue();
+				break;
+			default:
+				numberValue = readZigZag();
+		}
+		blockEntries--;
+		hasEntry = true;
+		return true;
+	}
+
+	private String readStringValue() throws IOException {
+		final long tag = readVarint();
+		if (tag == NULL_VALUE) {
+			return null;
+		}
+		if (tag == NEW_VALUE) {
+			final String value = readString(readVarint());
+			// The same strings are added as the encoder added
+			if (dictionaryUsed < dictionarySize) {
+				if (dictionaryUsed == dictionary.length) {
+					dictionary = Arrays.copyOf(dictionary, Math.min(2 * dictionary.length, dictionarySize));
+				}
+				dictionary[dictionaryUsed++] = value;
+			}
+			return value;
+		}
+		final long index = tag - DICTIONARY_VALUE;
+		if (index < 0 || index >= dictionaryUsed) {
+			throw new IOException("Invalid dictionary index " + index);
+		}
+		return dictionary[(int)index];
+	}
+
+	public MapEntryType getKeyType() {
+		return keyType;
+	}
+
+	public MapEntryType getValueType() {
+		return valueType;
+	}
+
+	/**
+	 * @return Key of the current entry, which may be null
+	 * @throws IllegalArgumentException If the keys are not strings
+	 * @throws IllegalStateException If there is no current entry
+	 */
+	public String getStringKey() {
+		check(keyType, MapEntryType.STRING);
+		return stringKey;
+	}
+
+	/**
+	 * @throws IllegalArgumentException If the keys are not {@code int}s
+	 * @throws IllegalStateException If there is no current entry
+	 */
+	public int getIntKey() {
+		check(keyType, MapEntryType.INT);
+		return (int)numberKey;
+	}
+
+	/**
+	 * @throws IllegalArgumentException If the keys are not {@code int}s or {@code long}s
+	 * @throws IllegalStateException If there is no current entry
+	 */
+	public long getLongKey() {
+		if (keyType != MapEntryType.INT) {
+			check(keyType, MapEntryType.LONG);
+		}
+		return numberKey;
+	}
+
+	/**
+	 * @return Value of the current entry, which may be null
+	 * @throws IllegalArgumentException If the values are not strings
+	 * @throws IllegalStateException If there is no current entry
+	 */
+	public String getStringValue() {
+		check(valueType, MapEntryType.STRING);
+		return stringValue;
+	}
+
+	/**
+	 * @throws IllegalArgumentException If the values are not {@code int}s
+	 * @throws IllegalStateException If there is no current entry
+	 */
+	public int getIntValue() {
+		check(valueType, MapEntryType.INT);
+		return (int)numberValue;
+	}
+
+	/**
+	 * @throws IllegalArgumentException If the values are not {@code int}s or {@code long}s
+	 * @throws IllegalStateException If there is no current entry
+	 */
+	public long getLongValue() {
+		if (valueType != MapEntryType.INT) {
+			check(valueType, MapEntryType.LONG);
+		}
+		return numberValue;
+	}
+
+	private void check(MapEntryType actual, MapEntryType expected) {
+		if (actual != expected) {
+			throw new IllegalArgumentException("Type is " + actual + ", not " + expected);
+		}
+		if (!hasEntry) {
+			throw new IllegalStateException("There is no current entry");
+		}
+	}
+
+	//--------------------------------------------------------------------
+
+	// Make sure that the given number of bytes are in the buffer
+	private void fill(int bytes) throws IOException {
+		if (limit - position >= bytes) {
+			return;
+		}
+		System.arraycopy(buf, position, buf, 0, limit - position);
+		limit -= position;
+		position = 0;
+		if (bytes > buf.length) {
+			buf = Arrays.copyOf(buf, Math.max(2 * buf.length, bytes));
+		}
+		while (limit < bytes) {
+			final int read = in.read(buf, limit, buf.length - limit);
+			if (read < 0) {
+				throw new EOFException("Unexpected end of stream");
+			}
+			limit += read;
+		}
+	}
+
+	private byte readByte() throws IOException {
+		fill(1);
+		return buf[position++];
+	}
+
+	private long readVarint() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < Long.SIZE; shift += 7) {
+			final byte b = readByte();
+			value |= (long)(b & 0x7f) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IOException("Invalid variable-length integer");
+	}
+
+	private long readZigZag() throws IOException {
+		final long value = readVarint();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private String readString(long length) throws IOException {
+		if (length > Integer.MAX_VALUE - 8) {
+			throw new IOException("Invalid string length " + length);
+		}
+		fill((int)length);
+		final String s = new String(buf, position, (int)length, StandardCharsets.UTF_8);
+		position += (int)length;
+		return s;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+}
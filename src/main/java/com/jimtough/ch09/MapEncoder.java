@@ -0,0 +1,359 @@
+package com.jimtough.ch09;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Writes the entries of a map to a stream, one at a time, in a compact format that
+ * {@link MapDecoder} reads back. Writing a {@code LinkedHashMap<String,String>} with an
+ * {@code ObjectOutputStream}, as {@code ObjectOutputStreamTest} does, writes descriptors of the
+ * classes and the map has to be complete before it is written, and reading it back creates the
+ * whole map at once. Here the entries are written as they come, and read back as they come.</p>
+ *
+ * <p>The keys and values are each of one {@link MapEntryType}, so that a map with {@code int} or
+ * {@code long} keys or values can be written without boxing them. Numbers are written as
+ * variable-length zig-zag integers, so that small ones take a byte or two. Strings are written as
+ * their length followed by their UTF-8 bytes. Each distinct value string is added to a dictionary,
+ * up to a maximum number of strings, and a value that is already in the dictionary is written as
+ * its index in it. The keys of a map are all different, so they are never added.</p>
+ *
+ * <p>The stream starts with the magic number {@value #MAGIC}, the version, the key and value
+ * types, and the maximum size of the dictionary, followed by blocks of entries. Each block starts
+ * with the number of entries in it, and a block of 0 entries ends the map.</p>
+ *
+ * <p>Call {@link #key(String)} or one of the other {@code key()} methods, then one of the
+ * {@code value()} methods, for each entry. Not thread-safe.</p>
+ *
+ * @author JTOUGH
+ */
+public final class MapEncoder implements Closeable, Flushable {
+
+	static final int MAGIC = 0x4a4d4150;
+	static final byte VERSION = 1;
+	// The entries are written out once there are this many bytes of them
+	static final int BLOCK_BYTES = 64 * 1024;
+	static final int DEFAULT_DICTIONARY_SIZE = 64 * 1024;
+	// How a string value starts: null, a new string, or an index into the dictionary + this
+	static final int NULL_VALUE = 0;
+	static final int NEW_VALUE = 1;
+	static final int DICTIONARY_VALUE = 2;
+
+	private final OutputStream out;
+	private final MapEntryType keyType;
+	private final MapEntryType valueType;
+	private final int dictionarySize;
+	private final Map<String, Integer> dictionary;
+
+	private byte[] buf = new byte[BLOCK_BYTES + 16];
+	private int length;
+	// Where the entry that is being written starts in the buffer
+	private int entryStart;
+	private int blockEntries;
+	private long entryCount;
+	private boolean keyWritten;
+	private boolean closed;
+
+	/**
+	 * Write the header of a map
+	 * @param out Non-null stream to write to, which is closed by {@link #close()}
+	 * @param keyType Non-null type of the keys
+	 * @param valueType Non-null type of the values
+	 * @throws IllegalArgumentException
+	 * @throws IOException
+	 */
+	public MapEncoder(OutputStream out, MapEntryType keyType, MapEntryType valueType) throws IOException {
+		this(out, keyType, valueType, DEFAULT_DICTIONARY_SIZE);
+	}
+
+	// Allows tests to fill the dictionary
+	MapEncoder(OutputStream out, MapEntryType keyType, MapEntryType valueType, int dictionarySize) throws IOException {
+		if (out == null) {
+			throw new IllegalArgumentException("out cannot be null");
+		}
+		if (keyType == null) {
+			throw new IllegalArgumentException("keyType cannot be null");
+		}
+		if (valueType == null) {
+			throw new IllegalArgumentException("valueType cannot be null");
+		}
+		if (dictionarySize < 0) {
+			throw new IllegalArgumentException("dictionarySize cannot be negative");
+		}
+		this.out = out;
+		this.keyType = keyType;
+		this.valueType = valueType;
+		this.dictionarySize = dictionarySize;
+		this.dictionary = new HashMap<>();
+		writeByte(MAGIC >>> 24);
+		writeByte(MAGIC >>> 16);
+		writeByte(MAGIC >>> 8);
+		writeByte(MAGIC);
+		writeByte(VERSION);
+		writeByte(keyType.ordinal());
+		writeByte(valueType.ordinal());
+		writeVarint(dictionarySize);
+		out.write(buf, 0, length);
+		length = 0;
+	}
+
+	/**
+	 * Write all of the entries of a map of strings, in the order of its iterator
+	 * @param map Non-null map
+	 * @return This encoder
+	 * @throws IllegalArgumentException If the keys and values are not strings
+	 * @throws IOException
+	 */
+	public MapEncoder putAll(Map<String, String> map) throws IOException {
+		if (map == null) {
+			throw new IllegalArgumentException("map cannot be null");
+		}
+		for (Map.Entry<String, String> entry : map.entrySet()) {
+			key(entry.getKey()).value(entry.getValue());
+		}
+		return this;
+	}
+
+	//--------------------------------------------------------------------
+
+	/**
+	 * @throws IllegalArgumentException If the keys are not strings
+	 * @throws IllegalStateException If the last key has no value yet
+	 */
+	public MapEncoder key(String key) {
+		checkKey(MapEntryType.STRING);
+		if (key == null) {
+			writeVarint(0);
+		} else {
+			writeString(key, 1);
+		}
+		return this;
+	}
+
+	/**
+	 * @throws IllegalArgumentException If the keys are not {@code int}s or {@code long}s
+	 * @throws IllegalStateException If the last key has no value yet
+	 */
+	public MapEncoder key(int key) {
+		if (keyType == MapEntryType.LONG) {
+			return key((long)key);
+		}
+		checkKey(MapEntryType.INT);
+		writeVarint(((key << 1) ^ (key >> 31)) & 0xffffffffL);
+		return this;
+	}
+
+	/**
+	 * @throws IllegalArgumentException If the keys are not {@code long}s
+	 * @throws IllegalStateException If the last key has no value yet
+	 */
+	public MapEncoder key(long key) {
+		checkKey(MapEntryType.LONG);
+		writeVarint((key << 1) ^ (key >> 63));
+		return this;
+	}
+
+	/**
+	 * @throws IllegalArgumentException If the values are not strings
+	 * @throws IllegalStateException If there is no key for the value
+	 * @throws IOException
+	 */
+	public MapEncoder value(String value) throws IOException {
+		checkValue(MapEntryType.STRING);
+		if (value == null) {
+			writeVarint(NULL_VALUE);
+		} else {
+			final Integer index = dictionary.get(value);
+			if (index != null) {
+				writeVarint(DICTIONARY_VALUE + (long)index);
+			} else {
+				writeVarint(NEW_VALUE);
+				writeString(value, 0);
+				if (dictionary.size() < dictionarySize) {
+					dictionary.put(value, dictionary.size());
+				}
+			}
+		}
+		return endEntry();
+	}
+
+	/**
+	 * @throws IllegalArgumentException If the values are not {@code int}s or {@code long}s
+	 * @throws IllegalStateException If there is no key for the value
+	 * @throws IOException
+	 */
+	public MapEncoder value(int value) throws IOException {
+		if (valueType == MapEntryType.LONG) {
+			return value((long)value);
+		}
+		checkValue(MapEntryType.INT);
+		writeVarint(((value << 1) ^ (value >> 31)) & 0xffffffffL);
+		return endEntry();
+	}
+
+	/**
+	 * @throws IllegalArgumentException If the values are not {@code long}s
+	 * @throws IllegalStateException If there is no key for the value
+	 * @throws IOException
+	 */
+	public MapEncoder value(long value) throws IOException {
+		checkValue(MapEntryType.LONG);
+		writeVarint((value << 1) ^ (value >> 63));
+		return endEntry();
+	}
+
+	private void checkKey(MapEntryType type) {
+		checkOpen();
+		if (keyType != type) {
+			throw new IllegalArgumentException("Keys are " + keyType + ", not " + type);
+		}
+		if (keyWritten) {
+			throw new IllegalStateException("The last key has no value yet");
+		}
+		keyWritten = true;
+	}
+
+	private void checkValue(MapEntryType type) {
+		checkOpen();
+		if (valueType != type) {
+			throw new IllegalArgumentException("Values are " + valueType + ", not " + type);
+		}
+		if (!keyWritten) {
+			throw new IllegalStateException("There is no key for the value");
+		}
+	}
+
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("Encoder is closed");
+		}
+	}
+
+	private MapEncoder endEntry() throws IOException {
+		keyWritten = false;
+		blockEntries++;
+		entryCount++;
+		entryStart = length;
+		if (length >= BLOCK_BYTES) {
+			writeBlock();
+		}
+		return this;
+	}
+
+	//--------------------------------------------------------------------
+
+	private void ensureCapacity(int bytes) {
+		if (length + bytes > buf.length) {
+			buf = Arrays.copyOf(buf, Math.max(2 * buf.length, length + bytes));
+		}
+	}
+
+	private void writeByte(int b) {
+		ensureCapacity(1);
+		buf[length++] = (byte)b;
+	}
+
+	// Unsigned, 7 bits at a time, lowest first, with the top bit set on all but the last byte
+	private void writeVarint(long value) {
+		ensureCapacity(10);
+		while ((value & ~0x7fL) != 0) {
+			buf[length++] = (byte)((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		buf[length++] = (byte)value;
+	}
+
+	// The UTF-8 length of the string plus lengthOffset, then the UTF-8 bytes
+	private void writeString(String s, int lengthOffset) {
+		final int n = s.length();
+		int ascii = 0;
+		while (ascii < n && s.charAt(ascii) < 0x80) {
+			ascii++;
+		}
+		if (ascii == n) {
+			// The UTF-8 bytes are the characters themselves
+			writeVarint(n + (long)lengthOffset);
+			ensureCapacity(n);
+			for (int i = 0; i < n; i++) {
+				buf[length++] = (byte)s.charAt(i);
+			}
+		} else {
+			final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			writeVarint(bytes.length + (long)lengthOffset);
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, buf, length, bytes.length);
+			length += bytes.length;
+		}
+	}
+
+	// Write out the complete entries in the buffer, keeping the one being written, if any
+	private void writeBlock() throws IOException {
+		if (blockEntries == 0) {
+			return;
+		}
+		final byte[] header = new byte[5];
+		int headerLength = 0;
+		int count = blockEntries;
+		while ((count & ~0x7f) != 0) {
+			header[headerLength++] = (byte)((count & 0x7f) | 0x80);
+			count >>>= 7;
+		}
+		header[headerLength++] = (byte)count;
+		out.write(header, 0, headerLength);
+		out.write(buf, 0, entryStart);
+		System.arraycopy(buf, entryStart, buf, 0, length - entryStart);
+		length -= entryStart;
+		entryStart = 0;
+		blockEntries = 0;
+	}
+
+	/**
+	 * @return Number of entries written so far
+	 */
+	public long getEntryCount() {
+		return entryCount;
+	}
+
+	public MapEntryType getKeyType() {
+		return keyType;
+	}
+
+	public MapEntryType getValueType() {
+		return valueType;
+	}
+
+	/**
+	 * Write out the entries so far, and flush the stream
+	 * @throws IOException
+	 */
+	@Override
+	public void flush() throws IOException {
+		checkOpen();
+		writeBlock();
+		out.flush();
+	}
+
+	/**
+	 * Write out the entries so far and the end of the map, and close the stream. A key without a
+	 * value is discarded.
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try (OutputStream o = out) {
+			writeBlock();
+			// The end of the map
+			o.write(0);
+		}
+	}
+
+}
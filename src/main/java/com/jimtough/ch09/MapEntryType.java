@@ -0,0 +1,17 @@
+package com.jimtough.ch09;
+
+/**
+ * The types that the keys and values of a map written by {@link MapEncoder} can have
+ *
+ * @author JTOUGH
+ */
+public enum MapEntryType {
+
+	/** A {@code String}, which may be null */
+	STRING,
+	/** An {@code int}, written in as few bytes as its magnitude needs */
+	INT,
+	/** A {@code long}, written in as few bytes as its magnitude needs */
+	LONG;
+
+}
@@ -0,0 +1,142 @@
+package com.jimtough.ch09;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The names and types of the columns of a record, in order. Create one with {@link #builder()}.
+ * Immutable.
+ *
+ * @author JTOUGH
+ */
+public final class RecordSchema {
+
+	// The length of a name, and the number of columns, are stored in unsigned shorts
+	static final int MAX_NAME_BYTES = 0xffff;
+	static final int MAX_COLUMNS = 0xffff;
+
+	private final List<String> names;
+	private final List<ColumnType> types;
+	private final Map<String, Integer> indexByName;
+
+	private RecordSchema(List<String> names, List<ColumnType> types) {
+		this.names = Collections.unmodifiableList(new ArrayList<>(names));
+		this.types = Collections.unmodifiableList(new ArrayList<>(types));
+		this.indexByName = new HashMap<>();
+		for (int i = 0; i < names.size(); i++) {
+			indexByName.put(names.get(i), i);
+		}
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public static final class Builder {
+
+		private final List<String> names = new ArrayList<>();
+		private final List<ColumnType> types = new ArrayList<>();
+		private final Set<String> nameSet = new HashSet<>();
+
+		private Builder() {}
+
+		/**
+		 * Add a column after the ones added so far
+		 * @param name Non-empty name, which is different from the name of every other column
+		 * @param type Non-null type
+		 * @return This builder
+		 * @throws IllegalArgumentException
+		 * @throws IllegalStateException If the schema already has {@value RecordSchema#MAX_COLUMNS} columns
+		 */
+		public Builder column(String name, ColumnType type) {
+			if (name == null || name.isEmpty()) {
+				throw new IllegalArgumentException("name cannot be null or empty");
+			}
+			if (name.getBytes(StandardCharsets.UTF_8).length > MAX_NAME_BYTES) {
+				throw new IllegalArgumentException("name is too long: " + name);
+			}
+			if (type == null) {
+				throw new IllegalArgumentException("type cannot be null");
+			}
+			if (names.size() == MAX_COLUMNS) {
+				throw new IllegalStateException("A schema can't have more than " + MAX_COLUMNS + " columns");
+			}
+			if (!nameSet.add(name)) {
+				throw new IllegalArgumentException("Duplicate column name: " + name);
+			}
+			names.add(name);
+			types.add(type);
+			return this;
+		}
+
+		/**
+		 * @return Non-null schema
+		 * @throws IllegalStateException If no column has been added
+		 */
+		public RecordSchema build() {
+			if (names.isEmpty()) {
+				throw new IllegalStateException("A schema needs at least one column");
+			}
+			return new RecordSchema(names, types);
+		}
+
+	}
+
+	//--------------------------------------------------------------------
+
+	public int getColumnCount() {
+		return names.size();
+	}
+
+	public String getName(int column) {
+		return names.get(column);
+	}
+
+	public ColumnType getType(int column) {
+		return types.get(column);
+	}
+
+	/**
+	 * @return Index of the column with the given name, or -1 if there is none
+	 */
+	public int indexOf(String name) {
+		Integer index = indexByName.get(name);
+		return index == null ? -1 : index;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof RecordSchema)) {
+			return false;
+		}
+		RecordSchema other = (RecordSchema)obj;
+		return names.equals(other.names) && types.equals(other.types);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * names.hashCode() + types.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("RecordSchema [");
+		for (int i = 0; i < names.size(); i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(names.get(i)).append(' ').append(types.get(i));
+		}
+		return sb.append(']').toString();
+	}
+
+}
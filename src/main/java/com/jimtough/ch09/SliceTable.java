@@ -0,0 +1,115 @@
+package com.jimtough.ch09;
+
+import java.util.Arrays;
+
+/**
+ * <p>The slots of an open-addressing hash table whose keys are slices of an array, which is shared
+ * by {@link WordCounts} and {@link TokenPool}. Each key is given an ID from 0 in the order it is
+ * added, and the table keeps the hash of each key. The keys themselves, and anything else that is
+ * kept per key, are held by the owner in arrays indexed by ID, so that the owner can compare keys
+ * in whatever form it holds them.</p>
+ *
+ * <p>A key is looked up by probing from {@link #firstSlot(int)} with {@link #nextSlot(int)} until
+ * the ID in the slot is the key's, or the slot is empty, which is where the key is added with
+ * {@link #add(int, int)}.</p>
+ *
+ * <p>Keys are hashed with 32-bit FNV-1a, one {@link #hash(int, int)} step per element from
+ * {@link #HASH_SEED}. Not thread-safe while keys are being added.</p>
+ *
+ * @author JTOUGH
+ */
+final class SliceTable {
+
+	static final int HASH_SEED = 0x811c9dc5;
+
+	// ID of each key + 1, or 0 for an empty slot. Never more than half full, so a probe for a
+	// missing key soon finds an empty slot.
+	private int[] slots;
+	// Per ID
+	private int[] hashes;
+	private int size;
+
+	/**
+	 * @param initialKeys Number of keys there is room for before the table grows. Must be a
+	 *                    power of two.
+	 */
+	SliceTable(int initialKeys) {
+		this.slots = new int[2 * initialKeys];
+		this.hashes = new int[initialKeys];
+	}
+
+	/**
+	 * @return Hash of a key after one more element
+	 */
+	static int hash(int hash, int element) {
+		return (hash ^ element) * 0x01000193;
+	}
+
+	// Spread the bits of the hash, because the slot is taken from the low bits only
+	private static int mix(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * @return Slot to probe first for a key with this hash
+	 */
+	int firstSlot(int hash) {
+		return mix(hash) & (slots.length - 1);
+	}
+
+	/**
+	 * @return Slot to probe after this one
+	 */
+	int nextSlot(int slot) {
+		return (slot + 1) & (slots.length - 1);
+	}
+
+	/**
+	 * @return ID of the key in the slot, or -1 if the slot is empty
+	 */
+	int id(int slot) {
+		return slots[slot] - 1;
+	}
+
+	int hashOf(int id) {
+		return hashes[id];
+	}
+
+	/**
+	 * Add a key that is not in the table
+	 * @param slot Empty slot that the probe for the key ended at
+	 * @return ID of the key, which is the number of keys added before it
+	 */
+	int add(int slot, int hash) {
+		if (size == hashes.length) {
+			hashes = Arrays.copyOf(hashes, 2 * size);
+		}
+		final int id = size++;
+		hashes[id] = hash;
+		slots[slot] = id + 1;
+		if (2 * size > slots.length) {
+			rehash();
+		}
+		return id;
+	}
+
+	private void rehash() {
+		slots = new int[2 * slots.length];
+		final int mask = slots.length - 1;
+		for (int id = 0; id < size; id++) {
+			int slot = mix(hashes[id]) & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = id + 1;
+		}
+	}
+
+	/**
+	 * @return Number of keys
+	 */
+	int size() {
+		return size;
+	}
+
+}
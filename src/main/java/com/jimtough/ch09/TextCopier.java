@@ -0,0 +1,252 @@
+package com.jimtough.ch09;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>Copies text files, converting them from one charset to another where needed. Copying a file
+ * a character at a time, with {@code read()} and {@code write(int)} on a {@code FileReader} and a
+ * {@code FileWriter} as {@code FileReaderTest} does, makes a method call or two per character and,
+ * without a buffer, a system call as well.</p>
+ *
+ * <p>When both files have the same charset, nothing needs to be decoded, and the bytes are copied
+ * with {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which lets the operating
+ * system copy them without bringing them into the JVM at all. Otherwise the bytes are decoded and
+ * encoded a buffer at a time with a {@link CharsetDecoder} and a {@link CharsetEncoder}, through
+ * buffers that are allocated once and reused for every copy.</p>
+ *
+ * <p>Input that is not valid in the source charset, or characters that can't be encoded in the
+ * target charset, cause a {@code CharacterCodingException} instead of being replaced silently.
+ * When the charsets are the same the bytes are copied as they are, valid or not.</p>
+ *
+ * <p>Copying a file onto itself does nothing, as it does with {@code Files.copy()}, rather than
+ * truncating the file before reading it.</p>
+ *
+ * <p>An instance is not thread-safe, because of the reused buffers.</p>
+ *
+ * @author JTOUGH
+ */
+public final class TextCopier {
+
+	static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	// Big enough for any one character in any charset, with a byte order mark
+	static final int MIN_BUFFER_SIZE = 16;
+
+	private final ByteBuffer bytesIn;
+	private final CharBuffer chars;
+	private final ByteBuffer bytesOut;
+
+	private CharsetDecoder decoder;
+	private CharsetEncoder encoder;
+
+	/**
+	 * Create an instance with buffers of {@value #DEFAULT_BUFFER_SIZE} bytes and characters
+	 */
+	public TextCopier() {
+		this(DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param bufferSize Size of each buffer, in bytes or characters
+	 * @throws IllegalArgumentException
+	 */
+	public TextCopier(int bufferSize) {
+		if (bufferSize < MIN_BUFFER_SIZE) {
+			throw new IllegalArgumentException("bufferSize must be at least " + MIN_BUFFER_SIZE);
+		}
+		this.bytesIn = ByteBuffer.allocateDirect(bufferSize);
+		this.chars = CharBuffer.allocate(bufferSize);
+		this.bytesOut = ByteBuffer.allocateDirect(bufferSize);
+	}
+
+	/**
+	 * Copy a file as it is, replacing the target if it exists
+	 * @param source Non-null path of the file to copy
+	 * @param target Non-null path of the copy
+	 * @return Number of bytes copied, which is zero if the source and target are the same file
+	 * @throws IllegalArgumentException
+	 * @throws IOException
+	 */
+	public long copy(Path source, Path target) throws IOException {
+		checkPaths(source, target);
+		if (isSameFile(source, target)) {
+			return 0;
+		}
+		try (
+				FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);) {
+			final long size = in.size();
+			long position = 0;
+			while (position < size) {
+				final long transferred = in.transferTo(position, size - position, out);
+				if (transferred == 0) {
+					// The file has been truncated since its size was read
+					break;
+				}
+				position += transferred;
+			}
+			return position;
+		}
+	}
+
+	/**
+	 * Copy a text file, converting it to another charset, and replacing the target if it exists
+	 * @param source Non-null path of the file to copy
+	 * @param sourceCharset Non-null charset of the file to copy
+	 * @param target Non-null path of the copy
+	 * @param targetCharset Non-null charset of the copy
+	 * @return Number of bytes written to the copy, which is zero if the source and target are the
+	 *         same file and the charsets are the same
+	 * @throws IllegalArgumentException
+	 * @throws IOException If the source and target are the same file but the charsets are not the
+	 *         same, as well as for the usual reasons
+	 */
+	public long transcode(Path source, Charset sourceCharset, Path target, Charset targetCharset) throws IOException {
+		checkPaths(source, target);
+		checkCharsets(sourceCharset, targetCharset);
+		if (sourceCharset.equals(targetCharset)) {
+			return copy(source, target);
+		}
+		if (isSameFile(source, target)) {
+			// Opening the target would truncate the source before a byte of it had been read
+			throw new IOException("Cannot transcode a file onto itself: " + source);
+		}
+		try (
+				FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);) {
+			return transcode(in, sourceCharset, out, targetCharset);
+		}
+	}
+
+	/**
+	 * Read text from one channel and write it to another in another charset, until the end of the
+	 * input. Neither channel is closed.
+	 * @param in Non-null channel to read from
+	 * @param sourceCharset Non-null charset of the input
+	 * @param out Non-null channel to write to
+	 * @param targetCharset Non-null charset of the output
+	 * @return Number of bytes written
+	 * @throws IllegalArgumentException
+	 * @throws IOException
+	 */
+	public long transcode(ReadableByteChannel in, Charset sourceCharset, WritableByteChannel out, Charset targetCharset) throws IOException {
+		if (in == null) {
+			throw new IllegalArgumentException("in cannot be null");
+		}
+		if (out == null) {
+			throw new IllegalArgumentException("out cannot be null");
+		}
+		checkCharsets(sourceCharset, targetCharset);
+		final CharsetDecoder decoder = decoderFor(sourceCharset);
+		final CharsetEncoder encoder = encoderFor(targetCharset);
+		bytesIn.clear();
+		chars.clear();
+		bytesOut.clear();
+		long written = 0;
+		boolean endOfInput = false;
+		while (!endOfInput) {
+			endOfInput = in.read(bytesIn) < 0;
+			bytesIn.flip();
+			CoderResult result;
+			do {
+				result = decoder.decode(bytesIn, chars, endOfInput);
+				if (result.isError()) {
+					result.throwException();
+				}
+				// Make room for more characters, whether the decoder filled the buffer or not
+				written += encode(encoder, out, false);
+			} while (result.isOverflow());
+			bytesIn.compact();
+		}
+		while (decoder.flush(chars).isOverflow()) {
+			written += encode(encoder, out, false);
+		}
+		written += encode(encoder, out, true);
+		while (encoder.flush(bytesOut).isOverflow()) {
+			written += drain(out);
+		}
+		written += drain(out);
+		return written;
+	}
+
+	// Encode the characters in the buffer, writing out the bytes whenever their buffer fills up
+	private long encode(CharsetEncoder encoder, WritableByteChannel out, boolean endOfInput) throws IOException {
+		long written = 0;
+		chars.flip();
+		CoderResult result;
+		while ((result = encoder.encode(chars, bytesOut, endOfInput)).isOverflow()) {
+			written += drain(out);
+		}
+		if (result.isError()) {
+			result.throwException();
+		}
+		chars.compact();
+		return written;
+	}
+
+	private long drain(WritableByteChannel out) throws IOException {
+		bytesOut.flip();
+		final int written = bytesOut.remaining();
+		while (bytesOut.hasRemaining()) {
+			out.write(bytesOut);
+		}
+		bytesOut.clear();
+		return written;
+	}
+
+	private CharsetDecoder decoderFor(Charset charset) {
+		if (decoder == null || !decoder.charset().equals(charset)) {
+			decoder = charset.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPORT)
+					.onUnmappableCharacter(CodingErrorAction.REPORT);
+		}
+		return decoder.reset();
+	}
+
+	private CharsetEncoder encoderFor(Charset charset) {
+		if (encoder == null || !encoder.charset().equals(charset)) {
+			encoder = charset.newEncoder()
+					.onMalformedInput(CodingErrorAction.REPORT)
+					.onUnmappableCharacter(CodingErrorAction.REPORT);
+		}
+		return encoder.reset();
+	}
+
+	//--------------------------------------------------------------------
+
+	private static void checkPaths(Path source, Path target) {
+		if (source == null) {
+			throw new IllegalArgumentException("source cannot be null");
+		}
+		if (target == null) {
+			throw new IllegalArgumentException("target cannot be null");
+		}
+	}
+
+	// Files.isSameFile() throws if the paths differ and either file doesn't exist
+	private static boolean isSameFile(Path source, Path target) throws IOException {
+		return source.equals(target) || (Files.exists(target) && Files.isSameFile(source, target));
+	}
+
+	private static void checkCharsets(Charset sourceCharset, Charset targetCharset) {
+		if (sourceCharset == null) {
+			throw new IllegalArgumentException("sourceCharset cannot be null");
+		}
+		if (targetCharset == null) {
+			throw new IllegalArgumentException("targetCharset cannot be null");
+		}
+	}
+
+}
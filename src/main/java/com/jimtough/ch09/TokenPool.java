@@ -0,0 +1,199 @@
+package com.jimtough.ch09;
+
+import java.util.Arrays;
+
+/**
+ * <p>Gives each distinct token a canonical lower case {@code String} and an {@code int} ID,
+ * straight from the characters or bytes of the text the token was found in. A tokenizer that
+ * calls {@code token.toLowerCase()} creates two new strings for every token it reads, most of them
+ * duplicates of a string it has already created. This pool hashes and compares the lower case
+ * form of the token in place, in the tokenizer's own buffer, so a string is only created the first
+ * time a token is seen, and the number of strings created is the size of the vocabulary.</p>
+ *
+ * <p>The IDs are assigned from 0 in the order the tokens are first seen, so they can index an
+ * array of per-token counts, and {@link #get(int)} looks up the token of an ID.</p>
+ *
+ * <p>A character is converted to lower case with {@link Character#toLowerCase(char)}, which is
+ * the same as {@code toLowerCase()} for every token made of ASCII characters, such as the words of
+ * {@link AsciiWords}. A byte is treated as an ISO-8859-1 character. Not thread-safe.</p>
+ *
+ * @author JTOUGH
+ */
+public final class TokenPool {
+
+	private static final int INITIAL_TOKENS = 256;
+
+	// Assigns the IDs, and finds the ID of a token's characters
+	private final SliceTable table = new SliceTable(INITIAL_TOKENS);
+	// Per ID
+	private int[] offsets = new int[INITIAL_TOKENS];
+	private int[] lengths = new int[INITIAL_TOKENS];
+	private String[] tokens = new String[INITIAL_TOKENS];
+	// The lower case characters of every token, one after the other
+	private char[] tokenChars = new char[INITIAL_TOKENS * 8];
+	private int tokenCharsUsed;
+
+	/**
+	 * Intern the lower case form of the characters from index {@code from} (inclusive) to
+	 * {@code to} (exclusive)
+	 * @return ID of the token
+	 * @throws IndexOutOfBoundsException
+	 */
+	public int intern(char[] chars, int from, int to) {
+		checkRange(chars.length, from, to);
+		int hash = SliceTable.HASH_SEED;
+		for (int i = from; i < to; i++) {
+			hash = SliceTable.hash(hash, toLowerCase(chars[i]));
+		}
+		int slot = table.firstSlot(hash);
+		int index;
+		while ((index = table.id(slot)) >= 0) {
+			if (table.hashOf(index) == hash && equals(index, chars, from, to)) {
+				return index;
+			}
+			slot = table.nextSlot(slot);
+		}
+		final int offset = reserve(to - from);
+		for (int i = from; i < to; i++) {
+			tokenChars[offset + i - from] = toLowerCase(chars[i]);
+		}
+		return insert(slot, hash, offset, to - from);
+	}
+
+	/**
+	 * Intern the lower case form of the bytes from index {@code from} (inclusive) to {@code to}
+	 * (exclusive), each of which is an ISO-8859-1 character. A token gets the same ID whether it
+	 * is interned from bytes or from characters.
+	 * @return ID of the token
+	 * @throws IndexOutOfBoundsException
+	 */
+	public int intern(byte[] bytes, int from, int to) {
+		checkRange(bytes.length, from, to);
+		int hash = SliceTable.HASH_SEED;
+		for (int i = from; i < to; i++) {
+			hash = SliceTable.hash(hash, toLowerCase((char)(bytes[i] & 0xff)));
+		}
+		int slot = table.firstSlot(hash);
+		int index;
+		while ((index = table.id(slot)) >= 0) {
+			if (table.hashOf(index) == hash && equals(index, bytes, from, to)) {
+				return index;
+			}
+			slot = table.nextSlot(slot);
+		}
+		final int offset = reserve(to - from);
+		for (int i = from; i < to; i++) {
+			tokenChars[offset + i - from] = toLowerCase((char)(bytes[i] & 0xff));
+		}
+		return insert(slot, hash, offset, to - from);
+	}
+
+	/**
+	 * Intern the lower case form of a token that is already a string
+	 * @param token Non-null token
+	 * @return ID of the token
+	 * @throws IllegalArgumentException
+	 */
+	public int intern(CharSequence token) {
+		if (token == null) {
+			throw new IllegalArgumentException("token cannot be null");
+		}
+		final char[] chars = token.toString().toCharArray();
+		return intern(chars, 0, chars.length);
+	}
+
+	/**
+	 * @param id ID returned by one of the {@code intern()} methods
+	 * @return Non-null canonical lower case token. The same instance is returned every time.
+	 * @throws IndexOutOfBoundsException
+	 */
+	public String get(int id) {
+		if (id < 0 || id >= size()) {
+			throw new IndexOutOfBoundsException("id: " + id + " | size: " + size());
+		}
+		String token = tokens[id];
+		if (token == null) {
+			// Created on first use, so that counting tokens by ID never creates a string
+			token = new String(tokenChars, offsets[id], lengths[id]);
+			tokens[id] = token;
+		}
+		return token;
+	}
+
+	/**
+	 * @return Number of distinct tokens, which is also the next ID to be assigned
+	 */
+	public int size() {
+		return table.size();
+	}
+
+	//--------------------------------------------------------------------
+
+	private static char toLowerCase(char c) {
+		if (c < 128) {
+			return c >= 'A' && c <= 'Z' ? (char)(c + ('a' - 'A')) : c;
+		}
+		return Character.toLowerCase(c);
+	}
+
+	private boolean equals(int index, char[] chars, int from, int to) {
+		if (lengths[index] != to - from) {
+			return false;
+		}
+		final int offset = offsets[index] - from;
+		for (int i = from; i < to; i++) {
+			if (tokenChars[offset + i] != toLowerCase(chars[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean equals(int index, byte[] bytes, int from, int to) {
+		if (lengths[index] != to - from) {
+			return false;
+		}
+		final int offset = offsets[index] - from;
+		for (int i = from; i < to; i++) {
+			if (tokenChars[offset + i] != toLowerCase((char)(bytes[i] & 0xff))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Make room for a new token's characters, and return where they go
+	private int reserve(int length) {
+		if (tokenCharsUsed + length > tokenChars.length) {
+			tokenChars = Arrays.copyOf(tokenChars, Math.max(2 * tokenChars.length, tokenCharsUsed + length));
+		}
+		final int offset = tokenCharsUsed;
+		tokenCharsUsed += length;
+		return offset;
+	}
+
+	private int insert(int slot, int hash, int offset, int length) {
+		final int id = table.add(slot, hash);
+		if (id == offsets.length) {
+			final int capacity = 2 * id;
+			offsets = Arrays.copyOf(offsets, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+			tokens = Arrays.copyOf(tokens, capacity);
+		}
+		offsets[id] = offset;
+		lengths[id] = length;
+		return id;
+	}
+
+	private static void checkRange(int length, int from, int to) {
+		if (from < 0 || to > length || from > to) {
+			throw new IndexOutOfBoundsException("from: " + from + " | to: " + to + " | length: " + length);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "TokenPool [size=" + size() + "]";
+	}
+
+}
@@ -0,0 +1,226 @@
+package com.jimtough.ch09;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * <p>The number of times that each word occurs in a text, as counted by
+ * {@link WordFrequencyEngine}. Words are as defined by {@link AsciiWords}, so they are always in
+ * lower case.</p>
+ *
+ * <p>This is an open-addressing hash table that is keyed by the bytes of each word. The bytes of
+ * all the words are held one after the other in a single array, and a word that is already in the
+ * table is found by comparing bytes, so counting a word that has been seen before allocates
+ * nothing. A {@code String} is only created for a word when it is asked for.</p>
+ *
+ * <p>An instance is not thread-safe while it is being counted into, but can be read from any
+ * number of threads once it has been returned by {@link WordFrequencyEngine}.</p>
+ *
+ * @author JTOUGH
+ */
+public final class WordCounts {
+
+	private static final int INITIAL_WORDS = 256;
+
+	// Gives each word an index into the arrays below, and finds the index of a word's bytes
+	private final SliceTable table = new SliceTable(INITIAL_WORDS);
+	// Per word, in the order the words were first seen
+	private int[] offsets = new int[INITIAL_WORDS];
+	private int[] lengths = new int[INITIAL_WORDS];
+	private long[] counts = new long[INITIAL_WORDS];
+	// The bytes of every word, one after the other
+	private byte[] wordBytes = new byte[INITIAL_WORDS * 8];
+	private int wordBytesUsed;
+	private long total;
+
+	WordCounts() {}
+
+	/**
+	 * Add to the count of a word
+	 * @param word Lower case bytes of the word, which are copied if the word is new
+	 */
+	void add(byte[] word, int from, int to, long count) {
+		final int hash = AsciiWords.hash(word, from, to);
+		int slot = table.firstSlot(hash);
+		int index;
+		while ((index = table.id(slot)) >= 0) {
+			if (table.hashOf(index) == hash && equals(index, word, from, to)) {
+				counts[index] += count;
+				total += count;
+				return;
+			}
+			slot = table.nextSlot(slot);
+		}
+		insert(slot, hash, word, from, to, count);
+	}
+
+	/**
+	 * Add all the counts of another instance to this one
+	 */
+	void addAll(WordCounts other) {
+		for (int i = 0; i < other.size(); i++) {
+			add(other.wordBytes, other.offsets[i], other.offsets[i] + other.lengths[i], other.counts[i]);
+		}
+	}
+
+	private void insert(int slot, int hash, byte[] word, int from, int to, long count) {
+		final int length = to - from;
+		final int index = table.add(slot, hash);
+		if (index == offsets.length) {
+			final int capacity = 2 * index;
+			offsets = Arrays.copyOf(offsets, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+			counts = Arrays.copyOf(counts, capacity);
+		}
+		if (wordBytesUsed + length > wordBytes.length) {
+			wordBytes = Arrays.copyOf(wordBytes, Math.max(2 * wordBytes.length, wordBytesUsed + length));
+		}
+		System.arraycopy(word, from, wordBytes, wordBytesUsed, length);
+		offsets[index] = wordBytesUsed;
+		lengths[index] = length;
+		counts[index] = count;
+		wordBytesUsed += length;
+		total += count;
+	}
+
+	private boolean equals(int index, byte[] word, int from, int to) {
+		if (lengths[index] != to - from) {
+			return false;
+		}
+		final int offset = offsets[index];
+		for (int i = from; i < to; i++) {
+			if (wordBytes[offset + i - from] != word[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String word(int index) {
+		return new String(wordBytes, offsets[index], lengths[index], StandardCharsets.ISO_8859_1);
+	}
+
+	// Words are ASCII, so comparing their bytes orders them the same way as comparing the strings
+	private int compareWords(int a, int b) {
+		final int lengthA = lengths[a];
+		final int lengthB = lengths[b];
+		final int offsetA = offsets[a];
+		final int offsetB = offsets[b];
+		for (int i = 0; i < Math.min(lengthA, lengthB); i++) {
+			int diff = wordBytes[offsetA + i] - wordBytes[offsetB + i];
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return lengthA - lengthB;
+	}
+
+	// Higher count first, and then in alphabetical order
+	private int compareByCount(int a, int b) {
+		int diff = Long.compare(counts[b], counts[a]);
+		return diff != 0 ? diff : compareWords(a, b);
+	}
+
+	//--------------------------------------------------------------------
+
+	/**
+	 * @return Number of distinct words
+	 */
+	public int size() {
+		return table.size();
+	}
+
+	/**
+	 * @return Number of words in the text, which is the sum of all the counts
+	 */
+	public long total() {
+		return total;
+	}
+
+	/**
+	 * @param word Non-null word
+	 * @return Number of times the word occurs, which is 0 for anything that is not a lower case
+	 *         word
+	 * @throws IllegalArgumentException
+	 */
+	public long get(String word) {
+		if (word == null) {
+			throw new IllegalArgumentException("word cannot be null");
+		}
+		final byte[] bytes = new byte[word.length()];
+		for (int i = 0; i < bytes.length; i++) {
+			final char c = word.charAt(i);
+			if (c == 0 || AsciiWords.toLowerCaseWordChar(c) != c) {
+				return 0;
+			}
+			bytes[i] = (byte)c;
+		}
+		final int hash = AsciiWords.hash(bytes, 0, bytes.length);
+		int slot = table.firstSlot(hash);
+		int index;
+		while ((index = table.id(slot)) >= 0) {
+			if (table.hashOf(index) == hash && equals(index, bytes, 0, bytes.length)) {
+				return counts[index];
+			}
+			slot = table.nextSlot(slot);
+		}
+		return 0;
+	}
+
+	/**
+	 * @return Non-null new map of every word to its count, in alphabetical order
+	 */
+	public SortedMap<String,Long> toSortedMap() {
+		SortedMap<String,Long> map = new TreeMap<>();
+		for (int i = 0; i < size(); i++) {
+			map.put(word(i), counts[i]);
+		}
+		return map;
+	}
+
+	/**
+	 * The most frequent words, which are found with a heap of {@code k} words, so that only those
+	 * words are ever turned into strings and sorted
+	 * @param k Maximum number of words to return
+	 * @return Non-null unmodifiable list of at most {@code k} words and their counts, with the
+	 *         highest count first. Words with the same count are in alphabetical order.
+	 * @throws IllegalArgumentException
+	 */
+	public List<Map.Entry<String,Long>> top(int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("k cannot be negative");
+		}
+		// The head of the heap is the least frequent of the words kept so far
+		final int size = size();
+		PriorityQueue<Integer> heap = new PriorityQueue<>(Math.max(1, Math.min(k, size)), (a, b) -> compareByCount(b, a));
+		for (int i = 0; i < size && k > 0; i++) {
+			if (heap.size() < k) {
+				heap.add(i);
+			} else if (compareByCount(i, heap.peek()) < 0) {
+				heap.poll();
+				heap.add(i);
+			}
+		}
+		List<Map.Entry<String,Long>> top = new ArrayList<>(heap.size());
+		while (!heap.isEmpty()) {
+			final int index = heap.poll();
+			top.add(new AbstractMap.SimpleImmutableEntry<>(word(index), counts[index]));
+		}
+		Collections.reverse(top);
+		return Collections.unmodifiableList(top);
+	}
+
+	@Override
+	public String toString() {
+		return "WordCounts [size=" + size() + ", total=" + total + "]";
+	}
+
+}
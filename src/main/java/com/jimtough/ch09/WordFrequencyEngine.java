@@ -0,0 +1,217 @@
+package com.jimtough.ch09;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <p>Counts the words in a text file, giving the same counts as tokenizing it with
+ * {@code Scanner.useDelimiter("\\W")} and counting {@code token.toLowerCase()} in a map, as
+ * {@code ScannerToTokenizeTextFileTest} does. The file must be encoded in UTF-8 or in a single-byte
+ * superset of ASCII (see {@link AsciiWords}).</p>
+ *
+ * <p>The file is memory-mapped, and the words are found in its bytes with a table lookup per
+ * byte, without decoding the text or creating a string per word. The file is split in half until
+ * the pieces are no larger than a chunk, and the chunks are counted in parallel, each into a
+ * {@link WordCounts} table of its own. The tables of the two halves of a split are merged when they
+ * are joined, the smaller into the larger. A chunk counts every word that starts in it, reading
+ * past its end to finish the last one, so the words that cross the boundary between two chunks are
+ * counted exactly once.</p>
+ *
+ * <p>A chunk is mapped in one piece, so files larger than 2GB are handled as any number of
+ * chunks, each of at most {@value #DEFAULT_MAX_CHUNK_BYTES} bytes.</p>
+ *
+ * @author JTOUGH
+ */
+public final class WordFrequencyEngine {
+
+	static final int DEFAULT_MAX_CHUNK_BYTES = 64 * 1024 * 1024;
+	// A smaller file is counted in a single chunk
+	static final int MIN_CHUNK_BYTES = 64 * 1024;
+	// Chunks per thread, so that threads that finish early can take on some of the remaining work
+	static final int CHUNKS_PER_THREAD = 4;
+	// Number of bytes that are mapped at a time after the end of a chunk, to finish its last word
+	static final int OVERHANG_BYTES = 4 * 1024;
+
+	private final ForkJoinPool pool;
+	private final int maxChunkBytes;
+	private final int minChunkBytes;
+
+	/**
+	 * Create an instance that counts on the common pool
+	 */
+	public WordFrequencyEngine() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param pool Non-null pool to count on
+	 * @throws IllegalArgumentException
+	 */
+	public WordFrequencyEngine(ForkJoinPool pool) {
+		this(pool, MIN_CHUNK_BYTES, DEFAULT_MAX_CHUNK_BYTES);
+	}
+
+	// Allows tests to use chunks that are small enough to put many word boundaries on chunk
+	// boundaries
+	WordFrequencyEngine(ForkJoinPool pool, int minChunkBytes, int maxChunkBytes) {
+		if (pool == null) {
+			throw new IllegalArgumentException("pool cannot be null");
+		}
+		if (minChunkBytes < 1 || maxChunkBytes < minChunkBytes) {
+			throw new IllegalArgumentException("Invalid chunk sizes: " + minChunkBytes + ", " + maxChunkBytes);
+		}
+		this.pool = pool;
+		this.minChunkBytes = minChunkBytes;
+		this.maxChunkBytes = maxChunkBytes;
+	}
+
+	/**
+	 * Count the words in a file
+	 * @param path Non-null path of the file
+	 * @return Non-null counts
+	 * @throws IllegalArgumentException
+	 * @throws IOException
+	 */
+	public WordCounts count(Path path) throws IOException {
+		if (path == null) {
+			throw new IllegalArgumentException("path cannot be null");
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			final long chunkBytes = chunkBytes(size, pool.getParallelism());
+			try {
+				return pool.invoke(new ChunkTask(channel, size, chunkBytes, 0, size));
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		}
+	}
+
+	long chunkBytes(long size, int parallelism) {
+		final long chunks = Math.max(1, Math.min(size / minChunkBytes, (long)parallelism * CHUNKS_PER_THREAD));
+		final long chunkBytes = (size + chunks - 1) / chunks;
+		return Math.max(1, Math.min(chunkBytes, maxChunkBytes));
+	}
+
+	//--------------------------------------------------------------------
+
+	// Counts the words that start in [from, to)
+	private static class ChunkTask extends RecursiveTask<WordCounts> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final FileChannel channel;
+		private final long size;
+		private final long chunkBytes;
+		private final long from;
+		private final long to;
+
+		private byte[] word = new byte[64];
+		private int length;
+
+		ChunkTask(FileChannel channel, long size, long chunkBytes, long from, long to) {
+			this.channel = channel;
+			this.size = size;
+			this.chunkBytes = chunkBytes;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected WordCounts compute() {
+			if (to - from > chunkBytes) {
+				// Range is too large. Need to fork into two smaller tasks.
+				final long mid = from + (to - from) / 2;
+				ChunkTask firstHalf = new ChunkTask(channel, size, chunkBytes, from, mid);
+				firstHalf.fork();
+				WordCounts secondHalf = new ChunkTask(channel, size, chunkBytes, mid, to).compute();
+				return merge(firstHalf.join(), secondHalf);
+			}
+			WordCounts counts = new WordCounts();
+			try {
+				countChunk(counts);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return counts;
+		}
+
+		// Merge the smaller table into the larger one
+		private static WordCounts merge(WordCounts a, WordCounts b) {
+			if (a.size() < b.size()) {
+				b.addAll(a);
+				return b;
+			}
+			a.addAll(b);
+			return a;
+		}
+
+		private void countChunk(WordCounts counts) throws IOException {
+			// A word that is already under way at the start of the chunk belongs to the chunk before
+			boolean skipping = from > 0 && isWordByteAt(from - 1);
+			MappedByteBuffer buf = channel.map(MapMode.READ_ONLY, from, to - from);
+			final int limit = buf.limit();
+			for (int i = 0; i < limit; i++) {
+				final byte b = AsciiWords.toLowerCaseWordByte(buf.get(i));
+				if (b != 0) {
+					if (!skipping) {
+						append(b);
+					}
+				} else {
+					skipping = false;
+					if (length > 0) {
+						counts.add(word, 0, length, 1);
+						length = 0;
+					}
+				}
+			}
+			// Finish the last word, if it runs on past the end of the chunk
+			long position = to;
+			while (length > 0 && position < size) {
+				buf = channel.map(MapMode.READ_ONLY, position, Math.min(OVERHANG_BYTES, size - position));
+				for (int i = 0; i < buf.limit() && length > 0; i++) {
+					final byte b = AsciiWords.toLowerCaseWordByte(buf.get(i));
+					if (b != 0) {
+						append(b);
+					} else {
+						counts.add(word, 0, length, 1);
+						length = 0;
+					}
+				}
+				position += buf.limit();
+			}
+			if (length > 0) {
+				counts.add(word, 0, length, 1);
+				length = 0;
+			}
+		}
+
+		private void append(byte b) {
+			if (length == word.length) {
+				word = Arrays.copyOf(word, 2 * length);
+			}
+			word[length++] = b;
+		}
+
+		private boolean isWordByteAt(long position) throws IOException {
+			ByteBuffer one = ByteBuffer.allocate(1);
+			while (one.hasRemaining()) {
+				if (channel.read(one, position) < 0) {
+					throw new IOException("Unexpected end of file at " + position);
+				}
+			}
+			return AsciiWords.toLowerCaseWordByte(one.get(0)) != 0;
+		}
+
+	}
+
+}
@@ -0,0 +1,417 @@
+package com.jimtough.ch10;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * <p>Copies many files at once, such as a whole directory tree, on a fixed number of worker
+ * threads. Copying each file with {@code Files.copy()} one after the other leaves the storage idle
+ * while each file is opened and closed, and can't keep more than one request in flight.</p>
+ *
+ * <p>Files that are at least as large as the buffer size are copied one per task with
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, which lets
+ * the operating system copy them without bringing them into the JVM. Smaller files are grouped
+ * into batches, so that there is one task per batch rather than per file, and each one is read
+ * whole into a direct buffer and written out again. There is one direct buffer per worker thread,
+ * reused for every small file that thread copies.</p>
+ *
+ * <p>The number of threads should suit the storage: a few for a single disk, more for an SSD or
+ * a network file system. {@link #BulkFileCopier(Path)} picks a number from the type of the file
+ * store being copied to. A network file system gets {@value #NETWORK_THREADS_PER_PROCESSOR}
+ * threads per processor, because each request spends most of its time waiting for a round trip.
+ * The JDK can't tell a disk from an SSD, so local storage gets one thread per processor, from
+ * {@value #MIN_LOCAL_THREADS} to {@value #MAX_LOCAL_THREADS}. The number of tasks waiting for a
+ * thread is bounded too, so that a {@code Files.walk()} stream of any length is only read as fast
+ * as the files can be copied.</p>
+ *
+ * <p>Target files are replaced if they exist, and target directories are created as needed.
+ * Copying a directory onto itself does nothing, as {@code Files.copy()} does for a file.
+ * Symbolic links are copied as links. File attributes are not copied. If any file can't be
+ * copied, no more tasks are started, and the first exception is thrown once the running tasks
+ * have finished.</p>
+ *
+ * <p>An instance can copy any number of times, from one thread at a time, and must be closed to
+ * stop its threads.</p>
+ *
+ * @author JTOUGH
+ */
+public final class BulkFileCopier implements AutoCloseable {
+
+	static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+	// Maximum number of small files copied by one task
+	static final int MAX_BATCH_FILES = 64;
+	// Maximum number of tasks waiting for a thread, per thread
+	static final int QUEUED_TASKS_PER_THREAD = 2;
+	static final int NETWORK_THREADS_PER_PROCESSOR = 4;
+	static final int MIN_LOCAL_THREADS = 2;
+	static final int MAX_LOCAL_THREADS = 8;
+	// Types of FileStore that are reached over a network
+	private static final Set<String> NETWORK_FILE_STORE_TYPES = new HashSet<>(Arrays.asList(
+			"nfs", "nfs4", "cifs", "smb", "smbfs", "smb2", "afpfs", "webdav", "davfs", "fuse.sshfs", "9p"));
+
+	private final int threads;
+	private final int bufferSize;
+	private final ExecutorService executor;
+	private final BlockingQueue<ByteBuffer> buffers;
+
+	/**
+	 * Create a copier with a number of threads that suits the storage that files will be copied to
+	 * @param target Non-null path on the file store that files will be copied to. It needn't exist,
+	 *        as long as one of its parent directories does.
+	 * @throws IllegalArgumentException
+	 * @throws IOException
+	 */
+	public BulkFileCopier(Path target) throws IOException {
+		this(threadsFor(target), DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param threads Number of worker threads
+	 * @throws IllegalArgumentException
+	 */
+	public BulkFileCopier(int threads) {
+		this(threads, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param threads Number of worker threads
+	 * @param bufferSize Size of the direct buffer of each thread. Smaller files are copied through
+	 *        it, and larger ones with {@code transferTo()}.
+	 * @throws IllegalArgumentException
+	 */
+	public BulkFileCopier(int threads, int bufferSize) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be at least 1");
+		}
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("bufferSize must be at least 1");
+		}
+		this.threads = threads;
+		this.bufferSize = bufferSize;
+		this.executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "BulkFileCopier");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.buffers = new ArrayBlockingQueue<>(threads);
+		for (int i = 0; i < threads; i++) {
+			buffers.add(ByteBuffer.allocateDirect(bufferSize));
+		}
+	}
+
+	private static int threadsFor(Path target) throws IOException {
+		if (target == null) {
+			throw new IllegalArgumentException("target cannot be null");
+		}
+		Path existing = target.toAbsolutePath();
+		while (!Files.exists(existing) && existing.getParent() != null) {
+			existing = existing.getParent();
+		}
+		return threadsFor(Files.getFileStore(existing).type(), Runtime.getRuntime().availableProcessors());
+	}
+
+	static int threadsFor(String fileStoreType, int processors) {
+		if (NETWORK_FILE_STORE_TYPES.contains(fileStoreType.toLowerCase(Locale.ROOT))) {
+			return NETWORK_THREADS_PER_PROCESSOR * processors;
+		}
+		return Math.min(Math.max(MIN_LOCAL_THREADS, processors), MAX_LOCAL_THREADS);
+	}
+
+	/**
+	 * @return Number of worker threads
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Copy a directory and everything in it
+	 * @param sourceRoot Non-null directory to copy
+	 * @param targetRoot Non-null directory to copy to, which is created if it doesn't exist
+	 * @return Non-null statistics
+	 * @throws IllegalArgumentException
+	 * @throws IOException
+	 */
+	public CopyStats copyTree(Path sourceRoot, Path targetRoot) throws IOException {
+		checkRoots(sourceRoot, targetRoot);
+		try (Stream<Path> sources = Files.walk(sourceRoot)) {
+			return copy(sources, sourceRoot, targetRoot);
+		}
+	}
+
+	/**
+	 * Same as {@link #copy(Stream, Path, Path)}, for a collection of paths
+	 * @throws IllegalArgumentException
+	 * @throws IOException
+	 */
+	public CopyStats copy(Collection<? extends Path> sources, Path sourceRoot, Path targetRoot) throws IOException {
+		if (sources == null) {
+			throw new IllegalArgumentException("sources cannot be null");
+		}
+		return copy(sources.stream().map(p -> (Path)p), sourceRoot, targetRoot);
+	}
+
+	/**
+	 * Copy files and directories from under one directory to the same relative paths under
+	 * another. A directory in the stream is created, but not copied with what is in it.
+	 * @param sources Non-null stream of paths to copy, each of which is {@code sourceRoot} or under
+	 *        it. The stream is not closed.
+	 * @param sourceRoot Non-null directory that the paths are relative to
+	 * @param targetRoot Non-null directory to copy to
+	 * @return Non-null statistics
+	 * @throws IllegalArgumentException
+	 * @throws IOException
+	 */
+	public CopyStats copy(Stream<Path> sources, Path sourceRoot, Path targetRoot) throws IOException {
+		if (sources == null) {
+			throw new IllegalArgumentException("sources cannot be null");
+		}
+		checkRoots(sourceRoot, targetRoot);
+		final long startNanos = System.nanoTime();
+		if (isSameFile(sourceRoot, targetRoot)) {
+			// Every file would be truncated by opening it as its own target
+			return new CopyStats(0, 0, 0, System.nanoTime() - startNanos);
+		}
+		final Job job = new Job();
+		final Set<Path> createdDirectories = new HashSet<>();
+		List<Path[]> batch = new ArrayList<>();
+		long batchBytes = 0;
+		long directories = 0;
+		try {
+			for (Iterator<Path> it = sources.iterator(); it.hasNext() && job.failure.get() == null;) {
+				final Path source = it.next();
+				if (!source.startsWith(sourceRoot)) {
+					throw new IllegalArgumentException("Not under " + sourceRoot + ": " + source);
+				}
+				final Path target = targetRoot.resolve(sourceRoot.relativize(source).toString());
+				final BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+				if (attributes.isDirectory()) {
+					if (createdDirectories.add(target)) {
+						Files.createDirectories(target);
+					}
+					directories++;
+					continue;
+				}
+				final Path parent = target.getParent();
+				if (parent != null && createdDirectories.add(parent)) {
+					Files.createDirectories(parent);
+				}
+				if (attributes.isRegularFile() && attributes.size() < bufferSize) {
+					batch.add(new Path[] { source, target });
+					batchBytes += attributes.size();
+					if (batch.size() == MAX_BATCH_FILES || batchBytes >= (long)bufferSize * MAX_BATCH_FILES / 4) {
+						submitBatch(job, batch);
+						batch = new ArrayList<>();
+						batchBytes = 0;
+					}
+				} else if (attributes.isRegularFile()) {
+					job.submit(() -> transfer(job, source, target));
+				} else {
+					job.submit(() -> copyOther(job, source, target));
+				}
+			}
+			if (!batch.isEmpty() && job.failure.get() == null) {
+				submitBatch(job, batch);
+			}
+		} catch (UncheckedIOException e) {
+			// From a Files.walk() stream
+			job.fail(e.getCause());
+		} catch (IOException e) {
+			job.fail(e);
+		} finally {
+			job.awaitTasks();
+		}
+		job.throwFailure();
+		return new CopyStats(job.files.sum(), directories, job.bytes.sum(), System.nanoTime() - startNanos);
+	}
+
+	private void submitBatch(Job job, List<Path[]> batch) throws InterruptedIOException {
+		job.submit(() -> {
+			ByteBuffer buffer = takeBuffer();
+			try {
+				for (Path[] sourceAndTarget : batch) {
+					if (job.failure.get() != null) {
+						return;
+					}
+					copyThroughBuffer(job, sourceAndTarget[0], sourceAndTarget[1], buffer);
+				}
+			} finally {
+				buffers.add(buffer);
+			}
+		});
+	}
+
+	private ByteBuffer takeBuffer() throws InterruptedIOException {
+		try {
+			// Never waits, because there is a buffer for every thread
+			return buffers.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a buffer");
+		}
+	}
+
+	private static void copyThroughBuffer(Job job, Path source, Path target, ByteBuffer buffer) throws IOException {
+		long copied = 0;
+		try (
+				FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);) {
+			buffer.clear();
+			// The file normally fits in the buffer, unless it has grown since its size was read
+			while (in.read(buffer) >= 0) {
+				if (!buffer.hasRemaining()) {
+					copied += write(buffer, out);
+				}
+			}
+			copied += write(buffer, out);
+		}
+		job.files.increment();
+		job.bytes.add(copied);
+	}
+
+	private static int write(ByteBuffer buffer, FileChannel out) throws IOException {
+		buffer.flip();
+		final int length = buffer.remaining();
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+		buffer.clear();
+		return length;
+	}
+
+	private static void transfer(Job job, Path source, Path target) throws IOException {
+		long position = 0;
+		try (
+				FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);) {
+			final long size = in.size();
+			while (position < size) {
+				final long transferred = in.transferTo(position, size - position, out);
+				if (transferred == 0) {
+					// The file has been truncated since its size was read
+					break;
+				}
+				position += transferred;
+			}
+		}
+		job.files.increment();
+		job.bytes.add(position);
+	}
+
+	// Symbolic links, and anything else that isn't a regular file or a directory
+	private static void copyOther(Job job, Path source, Path target) throws IOException {
+		Files.copy(source, target, LinkOption.NOFOLLOW_LINKS, StandardCopyOption.REPLACE_EXISTING);
+		job.files.increment();
+	}
+
+	/**
+	 * Stop the worker threads. Any copy that is under way is finished first.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+
+	// Files.isSameFile() throws if the paths differ and either file doesn't exist
+	private static boolean isSameFile(Path source, Path target) throws IOException {
+		return source.equals(target) || (Files.exists(target) && Files.isSameFile(source, target));
+	}
+
+	private static void checkRoots(Path sourceRoot, Path targetRoot) {
+		if (sourceRoot == null) {
+			throw new IllegalArgumentException("sourceRoot cannot be null");
+		}
+		if (targetRoot == null) {
+			throw new IllegalArgumentException("targetRoot cannot be null");
+		}
+	}
+
+	//--------------------------------------------------------------------
+
+	@FunctionalInterface
+	private interface CopyTask {
+		void run() throws IOException;
+	}
+
+	/**
+	 * The state of one call to {@code copy()}: the tasks it has in flight, its counts, and the
+	 * first failure of any of its tasks
+	 */
+	private final class Job {
+
+		private final int maxTasks = threads * (1 + QUEUED_TASKS_PER_THREAD);
+		private final Semaphore tasks = new Semaphore(maxTasks);
+		private final AtomicReference<IOException> failure = new AtomicReference<>();
+		private final LongAdder files = new LongAdder();
+		private final LongAdder bytes = new LongAdder();
+
+		void submit(CopyTask task) throws InterruptedIOException {
+			try {
+				tasks.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting to submit a copy");
+			}
+			try {
+				executor.execute(() -> {
+					try {
+						task.run();
+					} catch (IOException e) {
+						fail(e);
+					} catch (RuntimeException e) {
+						fail(new IOException(e));
+					} finally {
+						tasks.release();
+					}
+				});
+			} catch (RuntimeException e) {
+				tasks.release();
+				throw e;
+			}
+		}
+
+		void fail(IOException e) {
+			if (!failure.compareAndSet(null, e)) {
+				failure.get().addSuppressed(e);
+			}
+		}
+
+		void awaitTasks() {
+			tasks.acquireUninterruptibly(maxTasks);
+		}
+
+		void throwFailure() throws IOException {
+			final IOException e = failure.get();
+			if (e != null) {
+				throw e;
+			}
+		}
+
+	}
+
+}
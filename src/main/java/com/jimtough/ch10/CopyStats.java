@@ -0,0 +1,63 @@
+package com.jimtough.ch10;
+
+/**
+ * What a {@link BulkFileCopier} copied, and how fast
+ *
+ * @author JTOUGH
+ */
+public final class CopyStats {
+
+	private static final double NANOS_PER_SECOND = 1_000_000_000D;
+
+	private final long files;
+	private final long directories;
+	private final long bytes;
+	private final long elapsedNanos;
+
+	CopyStats(long files, long directories, long bytes, long elapsedNanos) {
+		this.files = files;
+		this.directories = directories;
+		this.bytes = bytes;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * @return Number of files copied, including symbolic links
+	 */
+	public long getFiles() {
+		return files;
+	}
+
+	/**
+	 * @return Number of directories created or found to exist already
+	 */
+	public long getDirectories() {
+		return directories;
+	}
+
+	/**
+	 * @return Number of bytes copied
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	public double getBytesPerSecond() {
+		return elapsedNanos == 0 ? 0 : bytes * NANOS_PER_SECOND / elapsedNanos;
+	}
+
+	public double getFilesPerSecond() {
+		return elapsedNanos == 0 ? 0 : files * NANOS_PER_SECOND / elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("CopyStats [files=%d, directories=%d, bytes=%d, elapsed=%.3fs, %.1f MB/s, %.0f files/s]",
+				files, directories, bytes, elapsedNanos / NANOS_PER_SECOND, getBytesPerSecond() / (1024 * 1024), getFilesPerSecond());
+	}
+
+}
@@ -0,0 +1,201 @@
+package com.jimtough.ch11;
+
+import java.util.Arrays;
+
+/**
+ * <p>An Aho&ndash;Corasick automaton that finds any of a fixed set of literal strings in a single
+ * pass over the text, however many strings there are.</p>
+ *
+ * <p>The automaton is a complete DFA: the failure links are folded into the transition table when
+ * it is built, so each character of the text costs exactly one table lookup. Characters are first
+ * mapped to a small alphabet of the characters that appear in the patterns (plus one class for
+ * every other character), which keeps the table small.</p>
+ *
+ * <p>Instances are immutable, and can be shared between threads.</p>
+ *
+ * @author JTOUGH
+ */
+final class AhoCorasick {
+
+	private final int[] patternLengths;
+	// Class of each ASCII character, and of each non-ASCII character that appears in a pattern
+	private final int[] asciiClasses = new int[128];
+	private final char[] otherChars;
+	private final int[] otherClasses;
+	private final int alphabetSize;
+	// Transition table, indexed by state * alphabetSize + class
+	private final int[] delta;
+	// Length of the prefix that each state stands for
+	private final int[] depth;
+	// Pattern that ends exactly at each state, or -1
+	private final int[] terminal;
+	// Longest pattern that is a suffix of each state's prefix, or -1
+	private final int[] output;
+
+	/**
+	 * @param patterns Non-empty strings to search for. If a string appears more than once, the
+	 *                 first occurrence is the one reported.
+	 * @throws IllegalArgumentException
+	 */
+	AhoCorasick(String[] patterns) {
+		// Build the alphabet
+		StringBuilder nonAscii = new StringBuilder();
+		int classes = 1;
+		int totalLength = 0;
+		for (String pattern : patterns) {
+			if (pattern == null || pattern.isEmpty()) {
+				throw new IllegalArgumentException("Patterns cannot be null or empty");
+			}
+			totalLength += pattern.length();
+			for (int i = 0; i < pattern.length(); i++) {
+				char c = pattern.charAt(i);
+				if (c < 128) {
+					if (asciiClasses[c] == 0) {
+						asciiClasses[c] = classes++;
+					}
+				} else if (nonAscii.indexOf(String.valueOf(c)) < 0) {
+					nonAscii.append(c);
+				}
+			}
+		}
+		this.otherChars = nonAscii.toString().toCharArray();
+		Arrays.sort(otherChars);
+		this.otherClasses = new int[otherChars.length];
+		for (int i = 0; i < otherChars.length; i++) {
+			otherClasses[i] = classes++;
+		}
+		this.alphabetSize = classes;
+
+		// Build the trie
+		final int maxStates = totalLength + 1;
+		int[] trieDelta = new int[maxStates * alphabetSize];
+		Arrays.fill(trieDelta, -1);
+		int[] trieDepth = new int[maxStates];
+		int[] trieTerminal = new int[maxStates];
+		Arrays.fill(trieTerminal, -1);
+		this.patternLengths = new int[patterns.length];
+		int states = 1;
+		for (int p = 0; p < patterns.length; p++) {
+			String pattern = patterns[p];
+			patternLengths[p] = pattern.length();
+			int state = 0;
+			for (int i = 0; i < pattern.length(); i++) {
+				int index = state * alphabetSize + classOf(pattern.charAt(i));
+				if (trieDelta[index] < 0) {
+					trieDelta[index] = states;
+					trieDepth[states] = trieDepth[state] + 1;
+					states++;
+				}
+				state = trieDelta[index];
+			}
+			if (trieTerminal[state] < 0) {
+				trieTerminal[state] = p;
+			}
+		}
+		this.delta = Arrays.copyOf(trieDelta, states * alphabetSize);
+		this.depth = Arrays.copyOf(trieDepth, states);
+		this.terminal = Arrays.copyOf(trieTerminal, states);
+
+		// Breadth-first, so that the failure state of every state is finished before the state itself
+		this.output = new int[states];
+		int[] fail = new int[states];
+		int[] queue = new int[states];
+		int head = 0, tail = 0;
+		output[0] = -1;
+		for (int c = 0; c < alphabetSize; c++) {
+			if (delta[c] < 0) {
+				delta[c] = 0;
+			} else {
+				queue[tail++] = delta[c];
+			}
+		}
+		while (head < tail) {
+			int state = queue[head++];
+			output[state] = terminal[state] >= 0 ? terminal[state] : output[fail[state]];
+			for (int c = 0; c < alphabetSize; c++) {
+				int index = state * alphabetSize + c;
+				int failTarget = delta[fail[state] * alphabetSize + c];
+				if (delta[index] < 0) {
+					delta[index] = failTarget;
+				} else {
+					fail[delta[index]] = failTarget;
+					queue[tail++] = delta[index];
+				}
+			}
+		}
+	}
+
+	private int classOf(char c) {
+		if (c < 128) {
+			return asciiClasses[c];
+		}
+		int i = Arrays.binarySearch(otherChars, c);
+		return i < 0 ? 0 : otherClasses[i];
+	}
+
+	//--------------------------------------------------------------------
+
+	/**
+	 * @return Index of the pattern that is exactly equal to the characters of {@code s} from
+	 *         {@code from} (inclusive) to {@code to} (exclusive), or -1 if there is none
+	 */
+	int matchWhole(CharSequence s, int from, int to) {
+		int state = 0;
+		for (int i = from; i < to; i++) {
+			state = delta[state * alphabetSize + classOf(s.charAt(i))];
+			// Any other depth means the automaton followed a failure link
+			if (depth[state] != i - from + 1) {
+				return -1;
+			}
+		}
+		return terminal[state];
+	}
+
+	/**
+	 * Append the characters of {@code s} from {@code from} (inclusive) to {@code to} (exclusive)
+	 * to {@code out}, replacing every match of a pattern. Matches do not overlap: when several
+	 * matches overlap, the one that starts first is replaced, and the longest of those that start
+	 * at the same place. This is the same rule as a POSIX regular expression alternation.
+	 * @param replacements Replacement for each pattern
+	 * @return Number of matches that were replaced
+	 */
+	int replaceAll(CharSequence s, int from, int to, String[] replacements, StringBuilder out) {
+		int replaced = 0;
+		int copied = from;
+		int state = 0;
+		// The best match found so far, which isn't replaced until no earlier or longer match can still turn up
+		int matchPattern = -1, matchStart = 0, matchEnd = 0;
+		int i = from;
+		while (true) {
+			if (i < to) {
+				state = delta[state * alphabetSize + classOf(s.charAt(i))];
+				i++;
+				int p = output[state];
+				if (p >= 0) {
+					int start = i - patternLengths[p];
+					if (matchPattern < 0 || start < matchStart || (start == matchStart && i > matchEnd)) {
+						matchPattern = p;
+						matchStart = start;
+						matchEnd = i;
+					}
+				}
+				// The prefix still being matched starts at i - depth[state]
+				if (matchPattern < 0 || i - depth[state] <= matchStart) {
+					continue;
+				}
+			} else if (matchPattern < 0) {
+				break;
+			}
+			out.append(s, copied, matchStart).append(replacements[matchPattern]);
+			replaced++;
+			// Carry on from the end of the match, which may be before i
+			copied = matchEnd;
+			i = matchEnd;
+			state = 0;
+			matchPattern = -1;
+		}
+		out.append(s, copied, to);
+		return replaced;
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.jimtough.ch11;
+
+/**
+ * <p>A sequence of elements stored in a linked list of arrays, which is the container of several of
+ * the {@link ParallelCollectors}. Adding an element never copies the ones already added, and
+ * appending one sequence to another is a matter of linking their arrays together, so combining the
+ * containers of a parallel stream costs nothing however large they are.</p>
+ *
+ * <p>Not thread-safe.</p>
+ *
+ * @author JTOUGH
+ */
+final class Chunks<T> {
+
+	private static final int FIRST_CHUNK_SIZE = 16;
+	private static final int MAX_CHUNK_SIZE = 4096;
+
+	static final class Chunk {
+		final Object[] elements;
+		int size;
+		Chunk next;
+		Chunk(int capacity) {
+			elements = new Object[capacity];
+		}
+	}
+
+	private Chunk head;
+	private Chunk tail;
+	private int size;
+
+	void add(T element) {
+		if (tail == null || tail.size == tail.elements.length) {
+			Chunk chunk = new Chunk(tail == null ? FIRST_CHUNK_SIZE : Math.min(2 * tail.elements.length, MAX_CHUNK_SIZE));
+			if (tail == null) {
+				head = chunk;
+			} else {
+				tail.next = chunk;
+			}
+			tail = chunk;
+		}
+		tail.elements[tail.size++] = element;
+		size++;
+	}
+
+	/**
+	 * Append the elements of another instance to this one, by linking its chunks. The other
+	 * instance must not be used afterwards.
+	 * @return This instance
+	 */
+	Chunks<T> addAll(Chunks<T> other) {
+		if (other.head == null) {
+			return this;
+		}
+		if (head == null) {
+			head = other.head;
+		} else {
+			tail.next = other.head;
+		}
+		tail = other.tail;
+		size += other.size;
+		return this;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return First chunk, or null if there are no elements. Follow {@code next} for the others.
+	 */
+	Chunk head() {
+		return head;
+	}
+
+	/**
+	 * Copy the elements into an array, which must have room for {@link #size()} of them from
+	 * {@code offset} onwards
+	 */
+	void copyTo(Object[] dst, int offset) {
+		for (Chunk chunk = head; chunk != null; chunk = chunk.next) {
+			System.arraycopy(chunk.elements, 0, dst, offset, chunk.size);
+			offset += chunk.size;
+		}
+	}
+
+}
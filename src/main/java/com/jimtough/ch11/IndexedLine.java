@@ -0,0 +1,44 @@
+package com.jimtough.ch11;
+
+/**
+ * A line of a text file, together with its position in the file
+ *
+ * @author JTOUGH
+ */
+public final class IndexedLine {
+
+	private final long index;
+	private final String text;
+
+	IndexedLine(long index, String text) {
+		this.index = index;
+		this.text = text;
+	}
+
+	/**
+	 * @return Zero-based index of the line in the file
+	 */
+	public long getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return One-based line number of the line in the file
+	 */
+	public long getLineNumber() {
+		return index + 1;
+	}
+
+	/**
+	 * @return Non-null text of the line, without the line terminator
+	 */
+	public String getText() {
+		return text;
+	}
+
+	@Override
+	public String toString() {
+		return getLineNumber() + ": " + text;
+	}
+
+}
@@ -0,0 +1,283 @@
+package com.jimtough.ch11;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * <p>A {@link Spliterator} over the lines of a text file that has been read or mapped into a
+ * {@link ByteBuffer}, which knows the index of every line it returns, however it has been split.</p>
+ *
+ * <p>The first time it is split, the buffer is cut into blocks of about {@link #MIN_SPLIT_BYTES}
+ * bytes that each start a line, the line breaks of every block are counted in parallel, and the
+ * index of the first line of each block is a prefix sum of the counts. Splits are only made at the
+ * start of a block, so the second half of a split knows the index of its first line without
+ * anything having to be read in order. Counting line breaks is a simple scan of the bytes, much
+ * cheaper than decoding them into strings, which is left to whichever thread ends up with each
+ * half. A spliterator that is never split never counts anything.</p>
+ *
+ * <p>Lines end with {@code '\n'} or {@code "\r\n"}. A final line break does not start an extra empty
+ * line. Only charsets in which the byte {@code '\n'} can't be part of another character are
+ * supported, which includes UTF-8 and every single-byte charset.</p>
+ *
+ * <p>Each spliterator reads the buffer through a view of its own, so any number of spliterators can
+ * share it.</p>
+ *
+ * @author JTOUGH
+ */
+final class IndexedLineSpliterator implements Spliterator<IndexedLine> {
+
+	// Smallest number of bytes in either half of a split
+	static final int MIN_SPLIT_BYTES = 8 * 1024;
+
+	private static final byte LF = '\n';
+	private static final byte CR = '\r';
+
+	private final ByteBuffer buf;
+	// The lines are copied out of this view, whose position is moved to the start of each line
+	private final ByteBuffer view;
+	private final Charset charset;
+	private int position;
+	private final int end;
+	private long nextIndex;
+	// Made by the first split, and shared by every spliterator split from this one
+	private Blocks blocks;
+	// Reused for the bytes of each line
+	private byte[] lineBytes = new byte[128];
+
+	/**
+	 * @param buf Non-null buffer holding the whole file, from index zero to its limit
+	 * @param charset Non-null charset of the file
+	 * @throws IllegalArgumentException if the charset is not supported
+	 */
+	IndexedLineSpliterator(ByteBuffer buf, Charset charset) {
+		this(buf, checkCharset(charset), 0, buf.limit(), 0L);
+	}
+
+	/**
+	 * @param buf Non-null buffer holding the whole file, from index zero to its limit
+	 * @param charset Non-null charset of the file, which has already been checked
+	 * @param position Index of the first byte of the first line
+	 * @param end Index just past the last byte of the last line
+	 * @param nextIndex Index of the first line in the file
+	 */
+	IndexedLineSpliterator(ByteBuffer buf, Charset charset, int position, int end, long nextIndex) {
+		this.buf = buf;
+		this.view = buf.duplicate();
+		this.charset = charset;
+		this.position = position;
+		this.end = end;
+		this.nextIndex = nextIndex;
+	}
+
+	private IndexedLineSpliterator(ByteBuffer buf, Charset charset, int position, int end, long nextIndex,
+			Blocks blocks) {
+		this(buf, charset, position, end, nextIndex);
+		this.blocks = blocks;
+	}
+
+	static Charset checkCharset(Charset charset) {
+		if (charset == null) {
+			throw new IllegalArgumentException("charset cannot be null");
+		}
+		if (!charset.equals(StandardCharsets.UTF_8)
+				&& !(charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1f)) {
+			throw new IllegalArgumentException("Only UTF-8 and single-byte charsets are supported: " + charset);
+		}
+		return charset;
+	}
+
+	//--------------------------------------------------------------------
+
+	@Override
+	public boolean tryAdvance(Consumer<? super IndexedLine> action) {
+		if (position >= end) {
+			return false;
+		}
+		int lf = indexOfLineFeed(buf, position, end);
+		int lineEnd = lf < 0 ? end : lf;
+		int next = lf < 0 ? end : lf + 1;
+		if (lineEnd > position && buf.get(lineEnd - 1) == CR && lf >= 0) {
+			lineEnd--;
+		}
+		String text = decode(position, lineEnd);
+		position = next;
+		action.accept(new IndexedLine(nextIndex++, text));
+		return true;
+	}
+
+	private String decode(int from, int to) {
+		int length = to - from;
+		if (lineBytes.length < length) {
+			lineBytes = new byte[Math.max(length, 2 * lineBytes.length)];
+		}
+		view.position(from);
+		view.get(lineBytes, 0, length);
+		return new String(lineBytes, 0, length, charset);
+	}
+
+	/**
+	 * Split at the start of the block nearest after the middle of the remaining bytes
+	 */
+	@Override
+	public IndexedLineSpliterator trySplit() {
+		if (end - position < 2 * MIN_SPLIT_BYTES) {
+			return null;
+		}
+		if (blocks == null) {
+			ForkJoinPool pool = ForkJoinTask.getPool();
+			blocks = new Blocks(pool == null ? ForkJoinPool.commonPool() : pool, buf, MIN_SPLIT_BYTES);
+		}
+		int b = Arrays.binarySearch(blocks.starts, position + (end - position) / 2);
+		if (b < 0) {
+			b = -b - 1;
+		}
+		if (b == blocks.starts.length || blocks.starts[b] >= end) {
+			b--;
+		}
+		if (b < 0 || blocks.starts[b] <= position) {
+			return null;
+		}
+		int split = blocks.starts[b];
+		IndexedLineSpliterator prefix = new IndexedLineSpliterator(buf, charset, position, split, nextIndex, blocks);
+		nextIndex = blocks.firstIndices[b];
+		position = split;
+		return prefix;
+	}
+
+	static int indexOfLineFeed(ByteBuffer buf, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (buf.get(i) == LF) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	static long countLineFeeds(ByteBuffer buf, int from, int to) {
+		long count = 0;
+		for (int i = from; i < to; i++) {
+			if (buf.get(i) == LF) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Cut a buffer into blocks that each start a line. Every block but the last ends just after the
+	 * first line break at or after {@code blockBytes} bytes, so only the bytes from there up to the
+	 * line break are read.
+	 * @return Index of the first byte of each block, in order, or an empty array for an empty buffer
+	 */
+	static int[] blockStarts(ByteBuffer buf, int blockBytes) {
+		final int size = buf.limit();
+		// Every block but the last is at least blockBytes long
+		int[] starts = new int[(int)((size + (long)blockBytes - 1) / blockBytes)];
+		int count = 0;
+		int from = 0;
+		while (from < size) {
+			starts[count++] = from;
+			int to = size;
+			if (blockBytes < size - from) {
+				int lf = indexOfLineFeed(buf, from + blockBytes - 1, size);
+				if (lf >= 0) {
+					to = lf + 1;
+				}
+			}
+			from = to;
+		}
+		return Arrays.copyOf(starts, count);
+	}
+
+	/**
+	 * Count the line breaks of every block in parallel
+	 * @return Index of the first line of each block, which is the number of line breaks before it
+	 */
+	static long[] firstIndices(ForkJoinPool pool, ByteBuffer buf, int[] blockStarts) {
+		long[] indices = new long[blockStarts.length];
+		pool.invoke(new CountLineFeedsTask(buf, blockStarts, indices, 0, blockStarts.length));
+		long total = 0;
+		for (int b = 0; b < indices.length; b++) {
+			long count = indices[b];
+			indices[b] = total;
+			total += count;
+		}
+		return indices;
+	}
+
+	// Where a spliterator can be split, and the index of the line that starts at each of them
+	private static final class Blocks {
+
+		final int[] starts;
+		final long[] firstIndices;
+
+		Blocks(ForkJoinPool pool, ByteBuffer buf, int blockBytes) {
+			this.starts = blockStarts(buf, blockBytes);
+			this.firstIndices = firstIndices(pool, buf, starts);
+		}
+
+	}
+
+	// Counts the line feeds of each block in [lo, hi), one block per leaf
+	private static final class CountLineFeedsTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ByteBuffer buf;
+		private final int[] blockStarts;
+		private final long[] lineFeeds;
+		private final int lo;
+		private final int hi;
+
+		CountLineFeedsTask(ByteBuffer buf, int[] blockStarts, long[] lineFeeds, int lo, int hi) {
+			this.buf = buf;
+			this.blockStarts = blockStarts;
+			this.lineFeeds = lineFeeds;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo <= 1) {
+				for (int b = lo; b < hi; b++) {
+					int to = b + 1 < blockStarts.length ? blockStarts[b + 1] : buf.limit();
+					lineFeeds[b] = countLineFeeds(buf, blockStarts[b], to);
+				}
+				return;
+			}
+			int middle = (lo + hi) >>> 1;
+			invokeAll(new CountLineFeedsTask(buf, blockStarts, lineFeeds, lo, middle),
+					new CountLineFeedsTask(buf, blockStarts, lineFeeds, middle, hi));
+		}
+
+	}
+
+	/**
+	 * @return Index of the next line that this spliterator would return
+	 */
+	long getNextIndex() {
+		return nextIndex;
+	}
+
+	/**
+	 * @return Number of bytes remaining, which is an upper bound on the number of lines
+	 */
+	@Override
+	public long estimateSize() {
+		return end - position;
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | NONNULL | IMMUTABLE;
+	}
+
+}
@@ -0,0 +1,247 @@
+package com.jimtough.ch11;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * <p>The result of {@link ParallelCollectors#toJoinedText(CharSequence)}: a sequence of character
+ * sequences that are to be joined with a separator, which have not been copied anywhere yet.</p>
+ *
+ * <p>Joining a stream with {@code reduce((a, b) -> a + separator + b)} copies every character
+ * again at each level of the reduction, and allocates a new string at each step. Here each
+ * accumulator only collects references to the elements, in chunks, and combining two accumulators
+ * links their chunks together without copying anything. The total length is known by then, so the
+ * joined text can be copied exactly once into an array of exactly the right size
+ * ({@link #toCharArray()}), or written straight to a {@code Writer} or a channel without ever being
+ * held in memory as one string. {@link #toString()} copies that array once more into the string.</p>
+ *
+ * <p>The elements are not copied when they are collected, so they must not be changed while an
+ * instance is in use. An instance is not thread-safe.</p>
+ *
+ * @author JTOUGH
+ */
+public final class JoinedText {
+
+	// Size of the buffer that encoded bytes are written from
+	static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+	private final String separator;
+	private final Chunks<CharSequence> elements = new Chunks<>();
+	// Total length of the elements, without the separators
+	private long elementChars;
+
+	JoinedText(CharSequence separator) {
+		this.separator = separator.toString();
+	}
+
+	void add(CharSequence element) {
+		if (element == null) {
+			throw new NullPointerException("Cannot join a null element");
+		}
+		elements.add(element);
+		elementChars += element.length();
+	}
+
+	/**
+	 * Append the elements of another instance to this one, by linking its chunks
+	 * @return This instance
+	 */
+	JoinedText addAll(JoinedText other) {
+		elements.addAll(other.elements);
+		elementChars += other.elementChars;
+		return this;
+	}
+
+	//--------------------------------------------------------------------
+
+	/**
+	 * @return Number of elements joined
+	 */
+	public int count() {
+		return elements.size();
+	}
+
+	/**
+	 * @return Number of characters in the joined text, including the separators
+	 */
+	public long length() {
+		final int count = elements.size();
+		return count == 0 ? 0 : elementChars + (long)separator.length() * (count - 1);
+	}
+
+	/**
+	 * @return New array of exactly {@link #length()} characters, holding the joined text
+	 * @throws IllegalStateException if the joined text is too long for an array
+	 */
+	public char[] toCharArray() {
+		char[] chars = new char[checkedLength()];
+		int position = 0;
+		boolean first = true;
+		for (Chunks.Chunk chunk = elements.head(); chunk != null; chunk = chunk.next) {
+			for (int i = 0; i < chunk.size; i++) {
+				if (!first) {
+					separator.getChars(0, separator.length(), chars, position);
+					position += separator.length();
+				}
+				first = false;
+				position = copy((CharSequence)chunk.elements[i], chars, position);
+			}
+		}
+		return chars;
+	}
+
+	private int checkedLength() {
+		long length = length();
+		// Some JVMs reserve a few words of the largest array size
+		if (length > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("Joined text is too long for an array: " + length);
+		}
+		return (int)length;
+	}
+
+	private static int copy(CharSequence cs, char[] dst, int position) {
+		final int length = cs.length();
+		if (cs instanceof String) {
+			((String)cs).getChars(0, length, dst, position);
+		} else if (cs instanceof StringBuilder) {
+			((StringBuilder)cs).getChars(0, length, dst, position);
+		} else {
+			for (int i = 0; i < length; i++) {
+				dst[position + i] = cs.charAt(i);
+			}
+		}
+		return position + length;
+	}
+
+	/**
+	 * @return The joined text
+	 * @throws IllegalStateException if the joined text is too long for a string
+	 */
+	@Override
+	public String toString() {
+		// The string constructor copies the array, so every character is copied twice: once into
+		// the array and once into the string. Joining into a StringBuilder costs the same.
+		return new String(toCharArray());
+	}
+
+	/**
+	 * Write the joined text to a {@code Writer}, one element or separator at a time. The writer is
+	 * not flushed or closed.
+	 * @param out Non-null writer
+	 * @throws IOException
+	 */
+	public void writeTo(Writer out) throws IOException {
+		boolean first = true;
+		for (Chunks.Chunk chunk = elements.head(); chunk != null; chunk = chunk.next) {
+			for (int i = 0; i < chunk.size; i++) {
+				if (!first) {
+					out.write(separator);
+				}
+				first = false;
+				CharSequence element = (CharSequence)chunk.elements[i];
+				if (element instanceof String) {
+					out.write((String)element);
+				} else {
+					out.append(element);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Encode the joined text and write it to a channel, such as a {@code FileChannel}, through a
+	 * single direct buffer. Characters that can't be encoded are replaced, as they are by
+	 * {@code String.getBytes()}. The channel is not closed.
+	 * @param out Non-null open channel
+	 * @param charset Non-null charset to encode the text with
+	 * @return Number of bytes written
+	 * @throws IOException
+	 */
+	public long writeTo(WritableByteChannel out, Charset charset) throws IOException {
+		CharsetEncoder encoder = charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		ByteBuffer buf = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+		CharBuffer separatorChars = CharBuffer.wrap(separator);
+		// A surrogate pair may be split between an element and the separator or element after it
+		CharBuffer carry = CharBuffer.allocate(2);
+		long written = 0;
+		boolean first = true;
+		for (Chunks.Chunk chunk = elements.head(); chunk != null; chunk = chunk.next) {
+			for (int i = 0; i < chunk.size; i++) {
+				if (!first) {
+					separatorChars.rewind();
+					written += encodeNext(encoder, carry, separatorChars, buf, out, false);
+				}
+				first = false;
+				written += encodeNext(encoder, carry, CharBuffer.wrap((CharSequence)chunk.elements[i]), buf, out, false);
+			}
+		}
+		written += encodeNext(encoder, carry, CharBuffer.allocate(0), buf, out, true);
+		for (CoderResult result = encoder.flush(buf); ; result = encoder.flush(buf)) {
+			written += drain(buf, out);
+			if (result.isUnderflow()) {
+				break;
+			}
+		}
+		return written;
+	}
+
+	// Encode 'in' after whatever was left over from the previous input. The encoder leaves a high
+	// surrogate at the end of an input unread until it sees the next character, so it is carried over
+	// to be encoded with the start of the next input.
+	private static long encodeNext(CharsetEncoder encoder, CharBuffer carry, CharBuffer in, ByteBuffer buf, WritableByteChannel out, boolean endOfInput) throws IOException {
+		long written = 0;
+		while (carry.position() > 0 && in.hasRemaining()) {
+			carry.put(in.get());
+			carry.flip();
+			written += encode(encoder, carry, buf, out, false);
+			carry.compact();
+		}
+		if (carry.position() > 0) {
+			// Nothing is left of 'in'
+			if (endOfInput) {
+				carry.flip();
+				written += encode(encoder, carry, buf, out, true);
+				carry.clear();
+			}
+			return written;
+		}
+		written += encode(encoder, in, buf, out, endOfInput);
+		// At most one character is left
+		carry.put(in);
+		return written;
+	}
+
+	// Encode as much of 'in' as possible, writing 'buf' to the channel whenever it fills up
+	private static long encode(CharsetEncoder encoder, CharBuffer in, ByteBuffer buf, WritableByteChannel out, boolean endOfInput) throws IOException {
+		long written = 0;
+		while (true) {
+			CoderResult result = encoder.encode(in, buf, endOfInput);
+			if (result.isOverflow()) {
+				written += drain(buf, out);
+			} else {
+				// Errors are replaced, so anything else is an underflow
+				return written;
+			}
+		}
+	}
+
+	private static long drain(ByteBuffer buf, WritableByteChannel out) throws IOException {
+		buf.flip();
+		long written = 0;
+		while (buf.hasRemaining()) {
+			written += out.write(buf);
+		}
+		buf.clear();
+		return written;
+	}
+
+}
@@ -0,0 +1,166 @@
+package com.jimtough.ch11;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * <p>Processes the lines of a text file in parallel, with every line numbered by its position in
+ * the file, and the results delivered in the same order as the lines.</p>
+ *
+ * <p>The chapter 11 {@code ParallelStreamsTest} numbers lines by incrementing an
+ * {@code AtomicInteger} inside the stream. That only works in a sequential stream, because in a
+ * parallel one the lines reach the counter in whatever order the threads get to them. Here the
+ * index of each line is worked out when the file is split (see {@link IndexedLineSpliterator}), so
+ * it is right whatever thread processes the line, and no sequential numbering pass is needed. Both
+ * {@link #lines(Path, Charset)} and {@link #process(Path, Charset, Function, Consumer)} count the
+ * line breaks of blocks of the file in parallel, and number the first line of each block with a
+ * prefix sum of the counts.</p>
+ *
+ * <p>There are two ways to use it:</p>
+ * <ul>
+ * <li>{@link #lines(Path, Charset)} returns a stream of {@link IndexedLine}, which can be made
+ * parallel like any other stream. Use {@code forEachOrdered()} or an ordered collector to get the
+ * results in file order.</li>
+ * <li>{@link #process(Path, Charset, Function, Consumer)} reads the file in batches of about
+ * {@code batchBytes} bytes, processes the batches on a fork/join pool, and passes each result to a
+ * consumer on the calling thread, in file order. At most {@code maxBatchesInFlight} batches are
+ * processed or waiting to be delivered at any time, so the results held in memory are bounded
+ * however large the file, and a slow consumer holds back the processing rather than letting
+ * results pile up.</li>
+ * </ul>
+ *
+ * <p>The file is memory-mapped, so it cannot be larger than 2GB.</p>
+ *
+ * @author JTOUGH
+ */
+public class LinePipeline {
+
+	static final int DEFAULT_BATCH_BYTES = 64 * 1024;
+
+	private final ForkJoinPool pool;
+	private final int batchBytes;
+	private final int maxBatchesInFlight;
+
+	/**
+	 * Use the common fork/join pool, batches of 64KB, and twice as many batches in flight as the
+	 * pool has threads
+	 */
+	public LinePipeline() {
+		this(ForkJoinPool.commonPool(), DEFAULT_BATCH_BYTES, 2 * ForkJoinPool.getCommonPoolParallelism());
+	}
+
+	/**
+	 * @param pool Non-null pool that the batches are processed on
+	 * @param batchBytes Approximate number of bytes of the file in each batch. Must be positive.
+	 * @param maxBatchesInFlight Largest number of batches being processed, or processed and
+	 *                           waiting for an earlier batch to be delivered. Must be positive.
+	 * @throws IllegalArgumentException
+	 */
+	public LinePipeline(ForkJoinPool pool, int batchBytes, int maxBatchesInFlight) {
+		if (pool == null) {
+			throw new IllegalArgumentException("pool cannot be null");
+		}
+		if (batchBytes <= 0 || maxBatchesInFlight <= 0) {
+			throw new IllegalArgumentException("batchBytes and maxBatchesInFlight must be positive: "
+					+ batchBytes + ", " + maxBatchesInFlight);
+		}
+		this.pool = pool;
+		this.batchBytes = batchBytes;
+		this.maxBatchesInFlight = maxBatchesInFlight;
+	}
+
+	//--------------------------------------------------------------------
+
+	// The mapping stays valid after the channel is closed
+	private static ByteBuffer map(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("File is too large to map: " + path);
+			}
+			return channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	/**
+	 * Read the lines of a text file as a stream that can be processed in parallel
+	 * @param path Non-null path to an existing file
+	 * @param charset Non-null charset of the file. Must be UTF-8 or a single-byte charset.
+	 * @return Non-null sequential, ordered stream of the lines of the file. Call
+	 *         {@code parallel()} on it to process the lines in parallel.
+	 * @throws IOException
+	 * @throws IllegalArgumentException if the charset is not supported
+	 */
+	public static Stream<IndexedLine> lines(Path path, Charset charset) throws IOException {
+		IndexedLineSpliterator.checkCharset(charset);
+		return StreamSupport.stream(new IndexedLineSpliterator(map(path), charset), false);
+	}
+
+	/**
+	 * Apply a function to every line of a text file in parallel, and pass the results to a
+	 * consumer in the order of the lines in the file. If the function throws an exception, no
+	 * more results are passed to the consumer, and the exception is rethrown.
+	 * @param path Non-null path to an existing file
+	 * @param charset Non-null charset of the file. Must be UTF-8 or a single-byte charset.
+	 * @param function Non-null function that is applied to each line, on a thread of the pool
+	 * @param sink Non-null consumer of the results, which is only called on the calling thread
+	 * @return Number of lines processed
+	 * @throws IOException
+	 * @throws IllegalArgumentException if the charset is not supported
+	 */
+	public <R> long process(Path path, Charset charset, Function<? super IndexedLine, ? extends R> function,
+			Consumer<? super R> sink) throws IOException {
+		IndexedLineSpliterator.checkCharset(charset);
+		ByteBuffer buf = map(path);
+		// The index of the first line of a batch is the number of line breaks in the batches before it
+		int[] batchStarts = IndexedLineSpliterator.blockStarts(buf, batchBytes);
+		long[] firstIndices = IndexedLineSpliterator.firstIndices(pool, buf, batchStarts);
+		ArrayDeque<ForkJoinTask<List<R>>> inFlight = new ArrayDeque<>(maxBatchesInFlight);
+		long lineCount = 0;
+		try {
+			for (int b = 0; b < batchStarts.length; b++) {
+				int to = b + 1 < batchStarts.length ? batchStarts[b + 1] : buf.limit();
+				final IndexedLineSpliterator lines = new IndexedLineSpliterator(buf, charset, batchStarts[b], to, firstIndices[b]);
+				inFlight.add(pool.submit(() -> {
+					List<R> results = new ArrayList<>();
+					lines.forEachRemaining(line -> results.add(function.apply(line)));
+					return results;
+				}));
+				if (inFlight.size() >= maxBatchesInFlight) {
+					lineCount += deliver(inFlight.poll(), sink);
+				}
+			}
+			while (!inFlight.isEmpty()) {
+				lineCount += deliver(inFlight.poll(), sink);
+			}
+		} finally {
+			// Only left over if something was thrown
+			for (ForkJoinTask<List<R>> task : inFlight) {
+				task.cancel(false);
+			}
+		}
+		return lineCount;
+	}
+
+	private static <R> int deliver(ForkJoinTask<List<R>> task, Consumer<? super R> sink) {
+		List<R> results = task.join();
+		for (R result : results) {
+			sink.accept(result);
+		}
+		return results.size();
+	}
+
+}
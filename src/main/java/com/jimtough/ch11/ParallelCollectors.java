@@ -0,0 +1,367 @@
+package com.jimtough.ch11;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collector.Characteristics;
+
+/**
+ * <p>Collectors that are designed to be used with parallel streams, where the collectors in
+ * {@link java.util.stream.Collectors} copy more than they need to.</p>
+ *
+ * <p>None of them take a lock. The ordered collectors give each thread its own container, and
+ * combine two containers by linking their chunks together (see {@link Chunks}), so nothing is
+ * copied until the finisher copies every element once into a result of exactly the right size.
+ * Where the order of the result doesn't matter, the collectors are {@code CONCURRENT} and
+ * {@code UNORDERED}, so that a parallel stream feeds every thread into a single container, and
+ * there is nothing to combine at all.</p>
+ *
+ * @author JTOUGH
+ */
+public final class ParallelCollectors {
+
+	private ParallelCollectors() {}
+
+	/**
+	 * Join character sequences with a separator. The result is the same as that of
+	 * {@code Collectors.joining(separator)}, but the characters are only copied once, into a buffer
+	 * of exactly the right size, however the stream was split. See {@link JoinedText}.
+	 * @param separator Non-null separator to put between each element
+	 * @return Non-null collector
+	 * @throws IllegalArgumentException
+	 */
+	public static Collector<CharSequence, ?, String> joining(CharSequence separator) {
+		checkSeparator(separator);
+		return Collector.of(
+				() -> new JoinedText(separator),
+				JoinedText::add,
+				JoinedText::addAll,
+				JoinedText::toString);
+	}
+
+	/**
+	 * Collect character sequences to be joined with a separator, without joining them yet. Use
+	 * this instead of {@link #joining(CharSequence)} to write the joined text to a
+	 * {@code Writer} or a channel, without ever holding it in memory as a single string.
+	 * @param separator Non-null separator to put between each element
+	 * @return Non-null collector
+	 * @throws IllegalArgumentException
+	 */
+	public static Collector<CharSequence, ?, JoinedText> toJoinedText(CharSequence separator) {
+		checkSeparator(separator);
+		return Collector.of(
+				() -> new JoinedText(separator),
+				JoinedText::add,
+				JoinedText::addAll);
+	}
+
+	//--------------------------------------------------------------------
+
+	/**
+	 * Collect the elements into a list, in encounter order. The result is equal to that of
+	 * {@code Collectors.toList()}, but the elements are copied once, into an array of exactly the
+	 * right size, instead of once at every level of the reduction.
+	 * @return Non-null collector, whose result is an unmodifiable random access list
+	 */
+	public static <T> Collector<T, ?, List<T>> toChunkedList() {
+		return Collector.<T, Chunks<T>, List<T>>of(
+				Chunks::new,
+				Chunks::add,
+				Chunks::addAll,
+				ParallelCollectors::toList);
+	}
+
+	/**
+	 * Collect the elements into a list, in no particular order. A parallel stream adds every
+	 * element to the same container, which keeps a separate chunk list for each thread, so the
+	 * threads never contend with each other after they first add an element.
+	 * @return Non-null collector, whose result is an unmodifiable random access list
+	 */
+	public static <T> Collector<T, ?, List<T>> toUnorderedList() {
+		return Collector.<T, PerThreadChunks<T>, List<T>>of(
+				PerThreadChunks::new,
+				PerThreadChunks::add,
+				PerThreadChunks::addAll,
+				PerThreadChunks::toList,
+				Characteristics.CONCURRENT, Characteristics.UNORDERED);
+	}
+
+	/**
+	 * Collect an {@code int} value of each element into an array, in encounter order, without
+	 * boxing the values
+	 * @param mapper Non-null function that gives the value of an element
+	 * @return Non-null collector
+	 * @throws IllegalArgumentException
+	 */
+	public static <T> Collector<T, ?, int[]> toIntArray(ToIntFunction<? super T> mapper) {
+		checkMapper(mapper);
+		return Collector.<T, IntChunks, int[]>of(
+				IntChunks::new,
+				(chunks, t) -> chunks.add(mapper.applyAsInt(t)),
+				IntChunks::addAll,
+				IntChunks::toArray);
+	}
+
+	/**
+	 * Collect a {@code long} value of each element into an array, in encounter order, without
+	 * boxing the values
+	 * @param mapper Non-null function that gives the value of an element
+	 * @return Non-null collector
+	 * @throws IllegalArgumentException
+	 */
+	public static <T> Collector<T, ?, long[]> toLongArray(ToLongFunction<? super T> mapper) {
+		checkMapper(mapper);
+		return Collector.<T, LongChunks, long[]>of(
+				LongChunks::new,
+				(chunks, t) -> chunks.add(mapper.applyAsLong(t)),
+				LongChunks::addAll,
+				LongChunks::toArray);
+	}
+
+	/**
+	 * Collect a {@code double} value of each element into an array, in encounter order, without
+	 * boxing the values
+	 * @param mapper Non-null function that gives the value of an element
+	 * @return Non-null collector
+	 * @throws IllegalArgumentException
+	 */
+	public static <T> Collector<T, ?, double[]> toDoubleArray(ToDoubleFunction<? super T> mapper) {
+		checkMapper(mapper);
+		return Collector.<T, DoubleChunks, double[]>of(
+				DoubleChunks::new,
+				(chunks, t) -> chunks.add(mapper.applyAsDouble(t)),
+				DoubleChunks::addAll,
+				DoubleChunks::toArray);
+	}
+
+	/**
+	 * <p>Collect the elements into an array of a known size, each at the index that the element
+	 * gives for itself, such as {@link IndexedLine#getIndex()}. The position of an element in the
+	 * stream doesn't matter, so a parallel stream has every thread write straight into the one
+	 * array, with no lock and no copying: each thread writes to different slots, and the stream
+	 * publishes the array safely to the caller when it completes.</p>
+	 *
+	 * <p>Slots that no element was collected into are left null. If two elements have the same
+	 * index, either of them may end up in the array.</p>
+	 * @param size Number of slots in the array
+	 * @param indexFunction Non-null function that gives the index of an element, which must be
+	 *        from 0 (inclusive) to {@code size} (exclusive)
+	 * @param generator Non-null function that creates an array of the given size
+	 * @return Non-null collector. An element with an index outside of the array causes an
+	 *         {@code ArrayIndexOutOfBoundsException}.
+	 * @throws IllegalArgumentException
+	 */
+	public static <T> Collector<T, ?, T[]> toArrayByIndex(
+			int size, ToIntFunction<? super T> indexFunction, IntFunction<T[]> generator) {
+		if (size < 0) {
+			throw new IllegalArgumentException("size cannot be negative");
+		}
+		if (indexFunction == null) {
+			throw new IllegalArgumentException("indexFunction cannot be null");
+		}
+		if (generator == null) {
+			throw new IllegalArgumentException("generator cannot be null");
+		}
+		return Collector.<T, T[]>of(
+				() -> {
+					T[] array = generator.apply(size);
+					if (array.length != size) {
+						throw new IllegalStateException("generator returned an array of length " + array.length + " instead of " + size);
+					}
+					return array;
+				},
+				(array, t) -> array[indexFunction.applyAsInt(t)] = t,
+				// Only needed if the stream doesn't use the array concurrently, such as a
+				// sequential stream that was split anyway
+				(left, right) -> {
+					for (int i = 0; i < right.length; i++) {
+						if (right[i] != null) {
+							left[i] = right[i];
+						}
+					}
+					return left;
+				},
+				Characteristics.CONCURRENT, Characteristics.UNORDERED, Characteristics.IDENTITY_FINISH);
+	}
+
+	//--------------------------------------------------------------------
+
+	@SuppressWarnings("unchecked")
+	private static <T> List<T> toList(Chunks<T> chunks) {
+		Object[] array = new Object[chunks.size()];
+		chunks.copyTo(array, 0);
+		return Collections.unmodifiableList(Arrays.asList((T[])array));
+	}
+
+	/**
+	 * The concurrent container of {@link #toUnorderedList()}, which gives each thread that adds to
+	 * it a chunk list of its own. Looking up the list of the current thread is a lock-free read.
+	 */
+	private static final class PerThreadChunks<T> {
+
+		private final ConcurrentHashMap<Thread, Chunks<T>> byThread = new ConcurrentHashMap<>();
+
+		void add(T element) {
+			final Thread thread = Thread.currentThread();
+			Chunks<T> chunks = byThread.get(thread);
+			if (chunks == null) {
+				// Only the current thread ever adds its own key, so there's no race here
+				chunks = new Chunks<>();
+				byThread.put(thread, chunks);
+			}
+			chunks.add(element);
+		}
+
+		PerThreadChunks<T> addAll(PerThreadChunks<T> other) {
+			for (Map.Entry<Thread, Chunks<T>> entry : other.byThread.entrySet()) {
+				Chunks<T> chunks = byThread.get(entry.getKey());
+				if (chunks == null) {
+					byThread.put(entry.getKey(), entry.getValue());
+				} else {
+					chunks.addAll(entry.getValue());
+				}
+			}
+			return this;
+		}
+
+		@SuppressWarnings("unchecked")
+		List<T> toList() {
+			int size = 0;
+			for (Chunks<T> chunks : byThread.values()) {
+				size += chunks.size();
+			}
+			Object[] array = new Object[size];
+			int offset = 0;
+			for (Chunks<T> chunks : byThread.values()) {
+				chunks.copyTo(array, offset);
+				offset += chunks.size();
+			}
+			return Collections.unmodifiableList(Arrays.asList((T[])array));
+		}
+
+	}
+
+	/**
+	 * Same as {@link Chunks}, but for primitive values. {@code A} is the primitive array type,
+	 * and the subclasses add the values to it.
+	 */
+	private abstract static class PrimitiveChunks<A> {
+
+		private static final int FIRST_CHUNK_SIZE = 16;
+		private static final int MAX_CHUNK_SIZE = 8192;
+
+		static final class Chunk<A> {
+			final A values;
+			final int capacity;
+			int size;
+			Chunk<A> next;
+			Chunk(A values, int capacity) {
+				this.values = values;
+				this.capacity = capacity;
+			}
+		}
+
+		private Chunk<A> head;
+		private Chunk<A> tail;
+		private int size;
+
+		abstract A newArray(int length);
+
+		/**
+		 * @return Chunk that has room for one more value, whose size the caller must increment
+		 */
+		final Chunk<A> chunkForNextValue() {
+			if (tail == null || tail.size == tail.capacity) {
+				final int capacity = tail == null ? FIRST_CHUNK_SIZE : Math.min(2 * tail.capacity, MAX_CHUNK_SIZE);
+				Chunk<A> chunk = new Chunk<>(newArray(capacity), capacity);
+				if (tail == null) {
+					head = chunk;
+				} else {
+					tail.next = chunk;
+				}
+				tail = chunk;
+			}
+			size++;
+			return tail;
+		}
+
+		final <C extends PrimitiveChunks<A>> C addAll(C other) {
+			PrimitiveChunks<A> o = other;
+			if (o.head != null) {
+				if (head == null) {
+					head = o.head;
+				} else {
+					tail.next = o.head;
+				}
+				tail = o.tail;
+				size += o.size;
+			}
+			@SuppressWarnings("unchecked")
+			C self = (C)this;
+			return self;
+		}
+
+		final A toArray() {
+			A array = newArray(size);
+			int offset = 0;
+			for (Chunk<A> chunk = head; chunk != null; chunk = chunk.next) {
+				System.arraycopy(chunk.values, 0, array, offset, chunk.size);
+				offset += chunk.size;
+			}
+			return array;
+		}
+
+	}
+
+	private static final class IntChunks extends PrimitiveChunks<int[]> {
+		@Override int[] newArray(int length) {
+			return new int[length];
+		}
+		void add(int value) {
+			Chunk<int[]> chunk = chunkForNextValue();
+			chunk.values[chunk.size++] = value;
+		}
+	}
+
+	private static final class LongChunks extends PrimitiveChunks<long[]> {
+		@Override long[] newArray(int length) {
+			return new long[length];
+		}
+		void add(long value) {
+			Chunk<long[]> chunk = chunkForNextValue();
+			chunk.values[chunk.size++] = value;
+		}
+	}
+
+	private static final class DoubleChunks extends PrimitiveChunks<double[]> {
+		@Override double[] newArray(int length) {
+			return new double[length];
+		}
+		void add(double value) {
+			Chunk<double[]> chunk = chunkForNextValue();
+			chunk.values[chunk.size++] = value;
+		}
+	}
+
+	//--------------------------------------------------------------------
+
+	private static void checkMapper(Object mapper) {
+		if (mapper == null) {
+			throw new IllegalArgumentException("mapper cannot be null");
+		}
+	}
+
+	private static void checkSeparator(CharSequence separator) {
+		if (separator == null) {
+			throw new IllegalArgumentException("separator cannot be null");
+		}
+	}
+
+}
@@ -0,0 +1,245 @@
+package com.jimtough.ch11;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * <p>Counts and lists prime numbers with a segmented Sieve of Eratosthenes, instead of testing each
+ * number by trial division as in the chapter 11 {@code ParallelStreamsTest}.</p>
+ *
+ * <p>Only odd numbers are sieved, one bit per number in a {@code long[]}. The range is split into
+ * segments of {@value #DEFAULT_SEGMENT_BITS} bits (32 KiB), small enough for the bits being crossed
+ * off to stay in the L1 or L2 cache. Each segment is sieved independently with the odd primes up to
+ * the square root of the end of the range, so {@link #countPrimes(long, long)} sieves the segments
+ * in parallel with a {@link RangeReducer}, one segment per grain. {@link #primes(long, long)}
+ * sieves one segment at a time as the primes are consumed, so it never holds more than one
+ * segment in memory.</p>
+ *
+ * <p>Ranges may end at up to {@value #MAX_BOUND} (2^42), for which the odd primes up to 2^21 are
+ * needed to sieve each segment.</p>
+ *
+ * @author JTOUGH
+ */
+public class PrimeSieve {
+
+	/**
+	 * Largest allowed end of a range
+	 */
+	public static final long MAX_BOUND = 1L << 42;
+
+	// Number of odd numbers in each segment
+	static final int DEFAULT_SEGMENT_BITS = 32 * 1024 * 8;
+
+	private final RangeReducer rangeReducer;
+	private final int segmentBits;
+
+	/**
+	 * Sieve the segments on the common fork/join pool
+	 */
+	public PrimeSieve() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param pool Non-null pool that the segments are sieved on
+	 * @throws IllegalArgumentException
+	 */
+	public PrimeSieve(ForkJoinPool pool) {
+		this(pool, DEFAULT_SEGMENT_BITS);
+	}
+
+	// Tests use small segments so that short ranges cross several segment boundaries
+	PrimeSieve(ForkJoinPool pool, int segmentBits) {
+		if (segmentBits <= 0 || segmentBits % 64 != 0) {
+			throw new IllegalArgumentException("segmentBits must be a positive multiple of 64: " + segmentBits);
+		}
+		this.rangeReducer = new RangeReducer(pool, 1);
+		this.segmentBits = segmentBits;
+	}
+
+	//--------------------------------------------------------------------
+
+	/**
+	 * Count the prime numbers in the range {@code [lo, hi)}, in parallel
+	 * @param lo First number of the range (inclusive). Cannot be negative.
+	 * @param hi Last number of the range (exclusive). Cannot be greater than {@link #MAX_BOUND}.
+	 * @return Number of primes {@code p} with {@code lo <= p < hi}
+	 * @throws IllegalArgumentException
+	 */
+	public long countPrimes(long lo, long hi) {
+		checkRange(lo, hi);
+		long count = (lo <= 2 && 2 < hi) ? 1 : 0;
+		// Bit i stands for the odd number 2i+1
+		final long iLo = lo >>> 1;
+		final long iHi = hi >>> 1;
+		if (iLo >= iHi) {
+			return count;
+		}
+		final int[] basePrimes = oddPrimesUpToSqrt(hi - 1);
+		final long segments = (iHi - iLo + segmentBits - 1) / segmentBits;
+		// The range function is called once per segment, so each worker thread sieves every one of
+		// its segments in the same array, as the iterator does
+		final ConcurrentHashMap<Thread, long[]> wordsByThread = new ConcurrentHashMap<>();
+		return count + rangeReducer.reduce(0, segments, 0L, (from, to) -> {
+			long[] words = wordsByThread.computeIfAbsent(Thread.currentThread(), t -> new long[segmentBits / 64]);
+			long segmentCount = 0;
+			for (long s = from; s < to; s++) {
+				long wLo = iLo + s * segmentBits;
+				long wHi = Math.min(wLo + segmentBits, iHi);
+				int nWords = sieveWindow(words, wLo, wHi, basePrimes);
+				for (int w = 0; w < nWords; w++) {
+					segmentCount += Long.bitCount(~words[w]);
+				}
+			}
+			return segmentCount;
+		}, Long::sum);
+	}
+
+	/**
+	 * Iterate over the prime numbers in the range {@code [lo, hi)} in ascending order, without
+	 * boxing them. The segments are sieved on the calling thread, as the primes are consumed.
+	 * @param lo First number of the range (inclusive). Cannot be negative.
+	 * @param hi Last number of the range (exclusive). Cannot be greater than {@link #MAX_BOUND}.
+	 * @return Non-null iterator
+	 * @throws IllegalArgumentException
+	 */
+	public PrimitiveIterator.OfLong primes(long lo, long hi) {
+		checkRange(lo, hi);
+		return new PrimeIterator(lo, hi);
+	}
+
+	private static void checkRange(long lo, long hi) {
+		if (lo < 0 || hi > MAX_BOUND || lo > hi) {
+			throw new IllegalArgumentException("Invalid range: lo: " + lo + " | hi: " + hi);
+		}
+	}
+
+	//--------------------------------------------------------------------
+
+	/**
+	 * @return Odd primes {@code p} with {@code p * p <= n}, in ascending order, found with a
+	 *         simple (unsegmented) sieve
+	 */
+	static int[] oddPrimesUpToSqrt(long n) {
+		int limit = (int)Math.sqrt((double)n);
+		while ((long)(limit + 1) * (limit + 1) <= n) {
+			limit++;
+		}
+		while ((long)limit * limit > n) {
+			limit--;
+		}
+		boolean[] composite = new boolean[limit + 1];
+		int[] primes = new int[Math.max(16, limit / 2)];
+		int count = 0;
+		for (int p = 3; p <= limit; p += 2) {
+			if (!composite[p]) {
+				primes[count++] = p;
+				for (long m = (long)p * p; m <= limit; m += 2 * p) {
+					composite[(int)m] = true;
+				}
+			}
+		}
+		return Arrays.copyOf(primes, count);
+	}
+
+	/**
+	 * Sieve the odd numbers whose bits are in {@code [wLo, wHi)}. On return, a bit of
+	 * {@code words} is clear if and only if it stands for a prime in the window.
+	 * @param words Array of at least {@code (wHi - wLo + 63) / 64} elements
+	 * @param basePrimes Every odd prime up to the square root of the largest number in the window
+	 * @return Number of words used
+	 */
+	static int sieveWindow(long[] words, long wLo, long wHi, int[] basePrimes) {
+		final int bits = (int)(wHi - wLo);
+		final int nWords = (bits + 63) >>> 6;
+		Arrays.fill(words, 0, nWords, 0L);
+		// Bits past the end of the window, and the bit for the number 1, are not primes
+		if ((bits & 63) != 0) {
+			words[nWords - 1] |= -1L << bits;
+		}
+		if (wLo == 0) {
+			words[0] |= 1L;
+		}
+		final long nLo = 2 * wLo + 1;
+		final long nHi = 2 * wHi - 1;
+		for (int p : basePrimes) {
+			long start = (long)p * p;
+			if (start > nHi) {
+				break;
+			}
+			if (start < nLo) {
+				start = ((nLo + p - 1) / p) * p;
+				if ((start & 1) == 0) {
+					// Even multiples are not in the sieve. The next odd multiple is p further on.
+					start += p;
+				}
+			}
+			// Consecutive odd multiples of p are 2p apart, which is p bits apart
+			for (long j = (start >>> 1) - wLo; j < bits; j += p) {
+				words[(int)(j >>> 6)] |= 1L << j;
+			}
+		}
+		return nWords;
+	}
+
+	private class PrimeIterator implements PrimitiveIterator.OfLong {
+
+		private final long iHi;
+		private final int[] basePrimes;
+		private final long[] words;
+		private boolean twoIsNext;
+		// Bit index of the start of the current window, and of the next window
+		private long wLo;
+		private long nextWLo;
+		private int nWords;
+		private int wordIndex;
+		// Bits of the current word that stand for primes not returned yet
+		private long remaining;
+
+		PrimeIterator(long lo, long hi) {
+			this.twoIsNext = lo <= 2 && 2 < hi;
+			this.iHi = hi >>> 1;
+			this.nextWLo = lo >>> 1;
+			this.basePrimes = nextWLo < iHi ? oddPrimesUpToSqrt(hi - 1) : new int[0];
+			this.words = new long[segmentBits / 64];
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (twoIsNext) {
+				return true;
+			}
+			while (remaining == 0) {
+				if (++wordIndex >= nWords) {
+					if (nextWLo >= iHi) {
+						return false;
+					}
+					wLo = nextWLo;
+					nextWLo = Math.min(wLo + segmentBits, iHi);
+					nWords = sieveWindow(words, wLo, nextWLo, basePrimes);
+					wordIndex = 0;
+				}
+				remaining = ~words[wordIndex];
+			}
+			return true;
+		}
+
+		@Override
+		public long nextLong() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			if (twoIsNext) {
+				twoIsNext = false;
+				return 2;
+			}
+			long i = wLo + ((long)wordIndex << 6) + Long.numberOfTrailingZeros(remaining);
+			remaining &= remaining - 1;
+			return 2 * i + 1;
+		}
+	}
+
+}
@@ -0,0 +1,211 @@
+package com.jimtough.ch11;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * <p>Reduces a range of {@code long} values on a fork/join pool. This is a reusable version of the
+ * {@code RecursiveSumOfN} task in the chapter 11 {@code ForkJoinTest}, which splits its range into
+ * one leaf per thread. With one leaf per thread, a worker that stalls (or is descheduled, or simply
+ * gets the expensive end of the range) holds up the whole reduction, because there is nothing left
+ * for the idle workers to steal.</p>
+ *
+ * <p>Instead of a fixed threshold, a task here keeps splitting off the right half of its range and
+ * forking it for as long as its own work queue holds no more than {@value #SURPLUS_LIMIT} tasks that
+ * no other worker has stolen ({@link ForkJoinTask#getSurplusQueuedTaskCount()}). When workers are
+ * idle they steal those tasks and the queue stays short, so the range keeps being split; when every
+ * worker is busy the queue fills up and the task gets on with the work itself, so the load is
+ * balanced whatever the number of cores.</p>
+ *
+ * <p>The work itself is done by a <i>range function</i>, which is passed the bounds
+ * {@code [from, to)} of a sub-range and returns the reduction of that sub-range. Partial results are
+ * always combined in left-to-right order, so the combiner must be associative, but need not be
+ * commutative. Ranges are never split into pieces smaller than the <i>grain</i>, and the range
+ * function is never given more than one grain of values at a time, so that a cancelled reduction
+ * (see {@link #submit(long, long, long, LongBinaryOperator, LongBinaryOperator)}) stops within one
+ * grain of work per thread.</p>
+ *
+ * @author JTOUGH
+ */
+public class RangeReducer {
+
+	/**
+	 * Default number of values handed to the range function at a time
+	 */
+	public static final long DEFAULT_GRAIN = 1024;
+
+	// A task stops splitting when more than this many of its forked tasks have not been stolen
+	static final int SURPLUS_LIMIT = 3;
+
+	private final ForkJoinPool pool;
+	private final long grain;
+
+	/**
+	 * Use the common fork/join pool and the default grain
+	 */
+	public RangeReducer() {
+		this(ForkJoinPool.commonPool(), DEFAULT_GRAIN);
+	}
+
+	/**
+	 * @param pool Non-null pool that the tasks are submitted to
+	 * @param grain Smallest number of values that a range is split into, and largest number of
+	 *              values handed to the range function at a time. Must be positive. Should be
+	 *              large enough that one grain of work takes a few microseconds or more.
+	 * @throws IllegalArgumentException
+	 */
+	public RangeReducer(ForkJoinPool pool, long grain) {
+		if (pool == null) {
+			throw new IllegalArgumentException("pool cannot be null");
+		}
+		if (grain <= 0) {
+			throw new IllegalArgumentException("grain must be positive: " + grain);
+		}
+		this.pool = pool;
+		this.grain = grain;
+	}
+
+	//--------------------------------------------------------------------
+
+	/**
+	 * Reduce the range {@code [from, to)} and wait for the result
+	 * @param from First value of the range (inclusive)
+	 * @param to Last value of the range (exclusive). Must not be less than {@code from}.
+	 * @param identity Result for an empty range. Must be an identity of the combiner.
+	 * @param rangeFunction Non-null function that reduces a sub-range {@code [from, to)}
+	 * @param combiner Non-null associative function that combines the results of two adjacent
+	 *                 sub-ranges, the lower one first
+	 * @return Reduction of the whole range
+	 * @throws IllegalArgumentException
+	 */
+	public long reduce(long from, long to, long identity, LongBinaryOperator rangeFunction, LongBinaryOperator combiner) {
+		return pool.invoke(newRootTask(from, to, identity, rangeFunction, combiner));
+	}
+
+	/**
+	 * Start reducing the range {@code [from, to)} without waiting for the result. Cancelling the
+	 * returned task with {@code cancel()} stops every task of the reduction before it hands its
+	 * next grain to the range function.
+	 * @return Non-null task whose result is the reduction of the whole range
+	 * @see #reduce(long, long, long, LongBinaryOperator, LongBinaryOperator)
+	 * @throws IllegalArgumentException
+	 */
+	public ForkJoinTask<Long> submit(long from, long to, long identity, LongBinaryOperator rangeFunction, LongBinaryOperator combiner) {
+		return pool.submit(newRootTask(from, to, identity, rangeFunction, combiner));
+	}
+
+	/**
+	 * Apply a function to every value in the range {@code [from, to)} and reduce the results
+	 * @return Reduction of the mapped values, or the identity if the range is empty
+	 * @see #reduce(long, long, long, LongBinaryOperator, LongBinaryOperator)
+	 * @throws IllegalArgumentException
+	 */
+	public long mapReduce(long from, long to, LongUnaryOperator mapper, long identity, LongBinaryOperator combiner) {
+		if (mapper == null) {
+			throw new IllegalArgumentException("mapper cannot be null");
+		}
+		return reduce(from, to, identity, (lo, hi) -> {
+			long result = identity;
+			for (long x = lo; x < hi; x++) {
+				result = combiner.applyAsLong(result, mapper.applyAsLong(x));
+			}
+			return result;
+		}, combiner);
+	}
+
+	/**
+	 * @return Sum of the mapped values of the range {@code [from, to)}
+	 * @throws IllegalArgumentException
+	 */
+	public long sum(long from, long to, LongUnaryOperator mapper) {
+		return mapReduce(from, to, mapper, 0L, Long::sum);
+	}
+
+	/**
+	 * @return Number of values in the range {@code [from, to)} that match the predicate
+	 * @throws IllegalArgumentException
+	 */
+	public long count(long from, long to, LongPredicate predicate) {
+		if (predicate == null) {
+			throw new IllegalArgumentException("predicate cannot be null");
+		}
+		return sum(from, to, x -> predicate.test(x) ? 1L : 0L);
+	}
+
+	//--------------------------------------------------------------------
+
+	private RangeTask newRootTask(long from, long to, long identity, LongBinaryOperator rangeFunction, LongBinaryOperator combiner) {
+		if (rangeFunction == null || combiner == null) {
+			throw new IllegalArgumentException("rangeFunction and combiner cannot be null");
+		}
+		// The second test catches ranges whose length overflows a long
+		if (to < from || to - from < 0) {
+			throw new IllegalArgumentException("Invalid range: from: " + from + " | to: " + to);
+		}
+		return new RangeTask(null, identity, rangeFunction, combiner, from, to);
+	}
+
+	private class RangeTask extends RecursiveTask<Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		// The task that was submitted to the pool, which is the one that gets cancelled
+		private final RangeTask root;
+		private final long identity;
+		private final LongBinaryOperator rangeFunction;
+		private final LongBinaryOperator combiner;
+		private final long from, to;
+		// Next task forked by the same parent, which covers the range just to the right of this one
+		private RangeTask next;
+
+		RangeTask(RangeTask root, long identity, LongBinaryOperator rangeFunction, LongBinaryOperator combiner, long from, long to) {
+			this.root = root == null ? this : root;
+			this.identity = identity;
+			this.rangeFunction = rangeFunction;
+			this.combiner = combiner;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Long compute() {
+			long lo = from, hi = to;
+			// Forked tasks, nearest first
+			RangeTask forked = null;
+			while (hi - lo > grain && getSurplusQueuedTaskCount() <= SURPLUS_LIMIT) {
+				long mid = lo + (hi - lo) / 2;
+				RangeTask right = new RangeTask(root, identity, rangeFunction, combiner, mid, hi);
+				right.next = forked;
+				forked = right;
+				right.fork();
+				hi = mid;
+			}
+			long result = reduceLeaf(lo, hi);
+			for (; forked != null; forked = forked.next) {
+				// Run the task on this thread if no other worker has stolen it yet
+				long right = forked.tryUnfork() ? forked.compute() : forked.join();
+				result = combiner.applyAsLong(result, right);
+			}
+			return result;
+		}
+
+		private long reduceLeaf(long lo, long hi) {
+			long result = identity;
+			while (lo < hi) {
+				if (root.isCancelled()) {
+					// The result of a cancelled reduction is never seen
+					return identity;
+				}
+				long end = hi - lo > grain ? lo + grain : hi;
+				result = combiner.applyAsLong(result, rangeFunction.applyAsLong(lo, end));
+				lo = end;
+			}
+			return result;
+		}
+	}
+
+}
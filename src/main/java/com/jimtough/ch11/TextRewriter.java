@@ -0,0 +1,275 @@
+package com.jimtough.ch11;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Applies a set of text replacement rules to a line in a single pass. This replaces chains of
+ * {@code String.replaceAll()} calls like {@code doBunchOfStringReplacements()} in the chapter 11
+ * {@code ParallelStreamsTest}. Each {@code replaceAll()} compiles a regular expression, scans the
+ * whole line and allocates a new {@code String}, once per rule per line. Here the rules are compiled
+ * once, when the rewriter is built, and the result is appended to a {@code StringBuilder} that the
+ * caller can reuse from one line to the next.</p>
+ *
+ * <p>There are two kinds of rule:</p>
+ * <ul>
+ * <li>A <i>literal</i> rule replaces a string wherever it appears, like
+ * {@code replaceAll("Buck", "Butt")}. All literal rules are matched together by an
+ * {@link AhoCorasick} automaton.</li>
+ * <li>A <i>word</i> rule replaces a whole word, meaning a run of characters with a space on either
+ * side, like {@code replaceAll(" he ", " she ")}. The word can be given exactly, or as a regular
+ * expression that must not match a space, like {@code replaceAll(" s[a-z]{3,} ", " shiz ")}. Exact
+ * words are looked up with a trie, and the regular expressions are combined into a single
+ * alternation, so each word is examined once whatever the number of rules.</li>
+ * </ul>
+ *
+ * <p>The result is the same as applying the rules one after the other with {@code replaceAll()},
+ * in the order they were added, provided that no rule matches text produced by another rule's
+ * replacement or overlaps another rule's match. In particular, just as with
+ * {@code replaceAll(" the ", " teh ")}, the spaces either side of a word belong to the match, so a
+ * word that directly follows a word replaced by the same rule, with a single space between them, is
+ * not replaced by that rule. Word rules take precedence over literal rules. Replacements are
+ * inserted as is, without the special meaning that {@code $} and {@code \} have in
+ * {@code replaceAll()}.</p>
+ *
+ * <p>Instances are immutable, and can be shared between threads.</p>
+ *
+ * @author JTOUGH
+ */
+public final class TextRewriter {
+
+	private static final char SPACE = ' ';
+
+	/**
+	 * Collects the rules of a {@link TextRewriter}
+	 */
+	public static class Builder {
+
+		private final List<String> literals = new ArrayList<>();
+		private final List<String> literalReplacements = new ArrayList<>();
+		// Word rules, in the order they were added. An entry of wordPatterns is null for an exact word.
+		private final List<String> words = new ArrayList<>();
+		private final List<Pattern> wordPatterns = new ArrayList<>();
+		private final List<String> wordReplacements = new ArrayList<>();
+
+		private Builder() {}
+
+		/**
+		 * Replace every occurrence of a string
+		 * @param target Non-empty string to replace
+		 * @param replacement Non-null replacement
+		 * @return This builder
+		 * @throws IllegalArgumentException
+		 */
+		public Builder replaceLiteral(String target, String replacement) {
+			if (target == null || target.isEmpty() || replacement == null) {
+				throw new IllegalArgumentException("target cannot be null or empty, and replacement cannot be null");
+			}
+			literals.add(target);
+			literalReplacements.add(replacement);
+			return this;
+		}
+
+		/**
+		 * Replace a word that has a space on either side. The spaces are kept.
+		 * @param word Non-empty word, which cannot contain a space
+		 * @param replacement Non-null replacement for the word
+		 * @return This builder
+		 * @throws IllegalArgumentException
+		 */
+		public Builder replaceWord(String word, String replacement) {
+			if (word == null || word.isEmpty() || word.indexOf(SPACE) >= 0 || replacement == null) {
+				throw new IllegalArgumentException("word cannot be null, empty or contain a space, and replacement cannot be null");
+			}
+			words.add(word);
+			wordPatterns.add(null);
+			wordReplacements.add(replacement);
+			return this;
+		}
+
+		/**
+		 * Replace a word that has a space on either side, and that matches a regular expression
+		 * in its entirety. The spaces are kept.
+		 * @param regex Non-null regular expression, which must not match any string with a space in it
+		 * @param replacement Non-null replacement for the word
+		 * @return This builder
+		 * @throws IllegalArgumentException
+		 * @throws java.util.regex.PatternSyntaxException
+		 */
+		public Builder replaceWordMatching(String regex, String replacement) {
+			if (regex == null || replacement == null) {
+				throw new IllegalArgumentException("regex and replacement cannot be null");
+			}
+			words.add(null);
+			wordPatterns.add(Pattern.compile(regex));
+			wordReplacements.add(replacement);
+			return this;
+		}
+
+		/**
+		 * @return Non-null rewriter with the rules added so far
+		 */
+		public TextRewriter build() {
+			return new TextRewriter(this);
+		}
+	}
+
+	/**
+	 * @return Non-null builder with no rules
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	//--------------------------------------------------------------------
+
+	// Null if there are no literal rules
+	private final AhoCorasick literalAutomaton;
+	private final String[] literalReplacements;
+	private final String[] wordReplacements;
+	// Null if there are no exact word rules. Maps each pattern of the trie to its word rule.
+	private final AhoCorasick wordTrie;
+	private final int[] wordTrieRules;
+	// Null if there are no regular expression word rules. Each rule is wrapped in a capturing group;
+	// maps the number of that group to its word rule.
+	private final Pattern combinedWordPattern;
+	private final int[] groupRules;
+	private final Pattern[] wordPatterns;
+
+	private TextRewriter(Builder builder) {
+		this.literalAutomaton = builder.literals.isEmpty() ? null : new AhoCorasick(builder.literals.toArray(new String[0]));
+		this.literalReplacements = builder.literalReplacements.toArray(new String[0]);
+		this.wordReplacements = builder.wordReplacements.toArray(new String[0]);
+		this.wordPatterns = builder.wordPatterns.toArray(new Pattern[0]);
+
+		List<String> exactWords = new ArrayList<>();
+		List<Integer> exactWordRules = new ArrayList<>();
+		StringBuilder combined = new StringBuilder();
+		List<Integer> groups = new ArrayList<>();
+		groups.add(-1);
+		for (int rule = 0; rule < wordReplacements.length; rule++) {
+			if (wordPatterns[rule] == null) {
+				exactWords.add(builder.words.get(rule));
+				exactWordRules.add(rule);
+				continue;
+			}
+			if (combined.length() > 0) {
+				combined.append('|');
+			}
+			combined.append('(').append(wordPatterns[rule].pattern()).append(')');
+			groups.add(rule);
+			// Groups inside the rule's own expression come next
+			int innerGroups = wordPatterns[rule].matcher("").groupCount();
+			for (int g = 0; g < innerGroups; g++) {
+				groups.add(-1);
+			}
+		}
+		this.wordTrie = exactWords.isEmpty() ? null : new AhoCorasick(exactWords.toArray(new String[0]));
+		this.wordTrieRules = exactWordRules.stream().mapToInt(Integer::intValue).toArray();
+		this.combinedWordPattern = combined.length() == 0 ? null : Pattern.compile(combined.toString());
+		this.groupRules = groups.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	//--------------------------------------------------------------------
+
+	/**
+	 * Apply every rule to a line of text
+	 * @param line Non-null text
+	 * @return Non-null rewritten text
+	 */
+	public String rewrite(CharSequence line) {
+		return rewrite(line, new StringBuilder(line.length() + 16)).toString();
+	}
+
+	/**
+	 * Apply every rule to a line of text, and append the result to a buffer. To reuse the same
+	 * buffer for each line, call {@code out.setLength(0)} between lines.
+	 * @param line Non-null text
+	 * @param out Non-null buffer
+	 * @return {@code out}
+	 */
+	public StringBuilder rewrite(CharSequence line, StringBuilder out) {
+		final int n = line.length();
+		final Matcher matcher = combinedWordPattern == null ? null : combinedWordPattern.matcher(line);
+		// Start of the text that has not been appended to 'out' yet
+		int copied = 0;
+		// Rule that replaced the previous word, and the position of the space after that word
+		int previousRule = -1;
+		int previousSpace = -1;
+		int wordStart = 0;
+		for (int i = 0; i < n; i++) {
+			if (line.charAt(i) != SPACE) {
+				continue;
+			}
+			// A word needs a space on either side
+			if (wordStart > 0 && i > wordStart) {
+				int blockedRule = previousSpace == wordStart - 1 ? previousRule : -1;
+				int rule = matchWord(line, wordStart, i, matcher, blockedRule);
+				if (rule >= 0) {
+					appendLiteralsReplaced(line, copied, wordStart, out);
+					out.append(wordReplacements[rule]);
+					copied = i;
+					previousRule = rule;
+					previousSpace = i;
+				}
+			}
+			wordStart = i + 1;
+		}
+		appendLiteralsReplaced(line, copied, n, out);
+		return out;
+	}
+
+	private void appendLiteralsReplaced(CharSequence line, int from, int to, StringBuilder out) {
+		if (literalAutomaton == null) {
+			out.append(line, from, to);
+		} else {
+			literalAutomaton.replaceAll(line, from, to, literalReplacements, out);
+		}
+	}
+
+	/**
+	 * @param blockedRule Rule that can't match this word, because it consumed the space before
+	 *                    it, or -1
+	 * @return First word rule that matches the whole of [from, to), or -1 if there is none
+	 */
+	private int matchWord(CharSequence line, int from, int to, Matcher matcher, int blockedRule) {
+		int rule = -1;
+		if (wordTrie != null) {
+			int p = wordTrie.matchWhole(line, from, to);
+			if (p >= 0 && wordTrieRules[p] != blockedRule) {
+				rule = wordTrieRules[p];
+			}
+		}
+		if (matcher == null) {
+			return rule;
+		}
+		matcher.region(from, to);
+		if (!matcher.matches()) {
+			return rule;
+		}
+		int regexRule = -1;
+		for (int g = 1; g < groupRules.length; g++) {
+			if (groupRules[g] >= 0 && matcher.start(g) >= 0) {
+				regexRule = groupRules[g];
+				break;
+			}
+		}
+		if (regexRule == blockedRule) {
+			// A later expression may still match on its own
+			regexRule = -1;
+			for (int r = blockedRule + 1; r < wordPatterns.length; r++) {
+				if (wordPatterns[r] != null && wordPatterns[r].matcher(line).region(from, to).matches()) {
+					regexRule = r;
+					break;
+				}
+			}
+		}
+		if (regexRule >= 0 && (rule < 0 || regexRule < rule)) {
+			rule = regexRule;
+		}
+		return rule;
+	}
+
+}
@@ -0,0 +1,90 @@
+package com.jimtough.ch02;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.jimtough.ch02.MySingleton.CounterMode;
+
+public class BlockIdGeneratorTest {
+
+	private static final int NUM_THREADS = 8;
+	private static final int IDS_PER_THREAD = 50_000;
+
+	@Test
+	public void testIdsAreUniqueAcrossThreadsAndIncreasingWithinAThread() throws Exception {
+		BlockIdGenerator generator = new BlockIdGenerator(new MySingleton(CounterMode.STRICT), 100);
+		ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+		List<Future<long[]>> futures = new ArrayList<>();
+		try {
+			for (int t = 0; t < NUM_THREADS; t++) {
+				futures.add(executor.submit(new Callable<long[]>() {
+					@Override public long[] call() {
+						long[] ids = new long[IDS_PER_THREAD];
+						for (int i = 0; i < IDS_PER_THREAD; i++) {
+							ids[i] = generator.nextId();
+						}
+						return ids;
+					}
+				}));
+			}
+			Set<Long> allIds = new HashSet<>();
+			for (Future<long[]> f : futures) {
+				long[] ids = f.get();
+				for (int i = 0; i < ids.length; i++) {
+					assertTrue(ids[i] > 0);
+					if (i > 0) {
+						assertTrue(ids[i] > ids[i-1]);
+					}
+					assertTrue("duplicate ID: " + ids[i], allIds.add(ids[i]));
+				}
+			}
+			assertEquals(NUM_THREADS * IDS_PER_THREAD, allIds.size());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testGeneratorsSharingASingletonNeverOverlap() {
+		MySingleton ms = new MySingleton(CounterMode.STRICT);
+		BlockIdGenerator g1 = new BlockIdGenerator(ms, 3);
+		BlockIdGenerator g2 = new BlockIdGenerator(ms, 5);
+		// g1 reserves [1,4), g2 reserves [4,9), then g1 moves on to [9,12)
+		assertEquals(1, g1.nextId());
+		assertEquals(4, g2.nextId());
+		assertEquals(2, g1.nextId());
+		assertEquals(3, g1.nextId());
+		assertEquals(9, g1.nextId());
+		assertEquals(5, g2.nextId());
+	}
+
+	@Test
+	public void testDefaultGeneratorUsesTheSingleton() {
+		BlockIdGenerator generator = new BlockIdGenerator();
+		assertEquals(BlockIdGenerator.DEFAULT_BLOCK_SIZE, generator.getBlockSize());
+		long first = generator.nextId();
+		// The rest of the block was reserved by the generator, so the singleton moves past it
+		assertEquals(first + BlockIdGenerator.DEFAULT_BLOCK_SIZE, MySingleton.getInstance().reserveIds(1));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNonPositiveBlockSize() {
+		new BlockIdGenerator(0);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testReserveNonPositiveCount() {
+		new MySingleton(CounterMode.STRICT).reserveIds(-1);
+	}
+
+}
@@ -0,0 +1,190 @@
+package com.jimtough.ch02;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.junit.runners.MethodSorters;
+
+import com.jimtough.ch02.MySingleton.CounterMode;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class DurableSequenceTest {
+
+	private static final Path TARGET_DIR = Paths.get("target");
+
+	@Rule
+	public TestName testName = new TestName();
+
+	private Path sequenceFilePath;
+
+	@Before
+	public void setUp() throws Exception {
+		assertTrue(Files.isDirectory(TARGET_DIR));
+		sequenceFilePath = TARGET_DIR.resolve("ch02-" + testName.getMethodName() + ".seq");
+		Files.deleteIfExists(sequenceFilePath);
+	}
+
+	//--------------------------------------------------------------------
+
+	@Test
+	public void testNewSequenceStartsAtOne() throws Exception {
+		try (DurableSequence seq = new DurableSequence(sequenceFilePath, 10, 0)) {
+			assertEquals(0, seq.getHighWaterMark());
+			assertEquals(1, seq.reserve(1));
+			assertEquals(2, seq.reserve(5));
+			assertEquals(7, seq.reserve(1));
+			// The first reservation moved the mark 10 past the ID that needed it
+			assertEquals(11, seq.getHighWaterMark());
+			assertEquals(8, seq.reserve(4));
+			assertEquals(11, seq.getHighWaterMark());
+			assertEquals(12, seq.reserve(5));
+			assertEquals(16 + 10, seq.getHighWaterMark());
+		}
+	}
+
+	@Test
+	public void testRestartNeverReissuesAnId() throws Exception {
+		long lastIdIssued;
+		long highWaterMark;
+		try (DurableSequence seq = new DurableSequence(sequenceFilePath, 100, 0)) {
+			for (int i = 0; i < 250; i++) {
+				seq.reserve(1);
+			}
+			lastIdIssued = seq.reserve(1);
+			highWaterMark = seq.getHighWaterMark();
+		}
+		assertEquals(251, lastIdIssued);
+		assertTrue(highWaterMark >= lastIdIssued);
+		try (DurableSequence seq = new DurableSequence(sequenceFilePath, 100, 0)) {
+			assertEquals(highWaterMark, seq.getHighWaterMark());
+			assertEquals(highWaterMark + 1, seq.reserve(1));
+		}
+	}
+
+	@Test
+	public void testTornSlotFallsBackToOtherSlot() throws Exception {
+		long previousHighWaterMark;
+		try (DurableSequence seq = new DurableSequence(sequenceFilePath, 10, 0)) {
+			seq.reserve(1);
+			previousHighWaterMark = seq.getHighWaterMark();
+			seq.reserve(20);
+		}
+		// The first move of the mark went to slot 1 and the second to slot 0.
+		// Tear slot 0 by changing the mark but not the check value.
+		try (FileChannel channel = FileChannel.open(sequenceFilePath, StandardOpenOption.WRITE)) {
+			ByteBuffer buf = ByteBuffer.allocate(8);
+			buf.putLong(0, 999_999L);
+			channel.write(buf, 8);
+		}
+		try (DurableSequence seq = new DurableSequence(sequenceFilePath, 10, 0)) {
+			assertEquals(previousHighWaterMark, seq.getHighWaterMark());
+		}
+	}
+
+	@Test
+	public void testConcurrentReservationsAreUniqueAndCoveredByHighWaterMark() throws Exception {
+		final int numThreads = 4;
+		final int reservationsPerThread = 10_000;
+		try (DurableSequence seq = new DurableSequence(sequenceFilePath, 7, 1000)) {
+			ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+			List<Future<long[]>> futures = new ArrayList<>();
+			try {
+				for (int t = 0; t < numThreads; t++) {
+					futures.add(executor.submit(() -> {
+						long[] ids = new long[reservationsPerThread];
+						for (int i = 0; i < reservationsPerThread; i++) {
+							ids[i] = seq.reserve(3);
+						}
+						return ids;
+					}));
+				}
+				boolean[] seen = new boolean[numThreads * reservationsPerThread * 3 + 1];
+				for (Future<long[]> f : futures) {
+					for (long first : f.get()) {
+						for (long id = first; id < first + 3; id++) {
+							assertFalse("duplicate ID: " + id, seen[(int)id]);
+							seen[(int)id] = true;
+							assertTrue(id <= seq.getHighWaterMark());
+						}
+					}
+				}
+			} finally {
+				executor.shutdown();
+			}
+		}
+	}
+
+	@Test
+	public void testMySingletonInDurableMode() throws Exception {
+		long firstId;
+		try (DurableSequence seq = new DurableSequence(sequenceFilePath, 1000, 0)) {
+			MySingleton ms = new MySingleton(CounterMode.STRICT, seq);
+			assertTrue(ms.isDurable());
+			firstId = new BlockIdGenerator(ms, 10).nextId();
+			assertEquals(1, firstId);
+			// The strict counter draws on the same sequence
+			assertEquals(11, ms.incrementAndGet());
+			assertEquals(12, ms.incrementAndGet());
+		}
+		try (DurableSequence seq = new DurableSequence(sequenceFilePath, 1000, 0)) {
+			MySingleton ms = new MySingleton(CounterMode.STRICT, seq);
+			assertEquals(1011, ms.incrementAndGet());
+			assertEquals(1012, new BlockIdGenerator(ms, 10).nextId());
+		}
+		assertFalse(MySingleton.getInstance().isDurable());
+	}
+
+	//--------------------------------------------------------------------
+
+	@Test(expected=IOException.class)
+	public void testSequenceFileCanOnlyBeOpenedOnce() throws Exception {
+		DurableSequence seq = new DurableSequence(sequenceFilePath, 10, 0);
+		try {
+			new DurableSequence(sequenceFilePath, 10, 0).close();
+			fail();
+		} finally {
+			seq.close();
+		}
+	}
+
+	@Test(expected=IOException.class)
+	public void testNotASequenceFile() throws Exception {
+		Files.write(sequenceFilePath, "This is not a sequence file at all".getBytes());
+		new DurableSequence(sequenceFilePath, 10, 0).close();
+		fail();
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void testReserveAfterCloseBeyondHighWaterMark() throws Exception {
+		DurableSequence seq = new DurableSequence(sequenceFilePath, 10, 0);
+		seq.close();
+		seq.reserve(1);
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void testReserveAfterCloseBelowHighWaterMark() throws Exception {
+		DurableSequence seq = new DurableSequence(sequenceFilePath, 10, 0);
+		seq.reserve(1);
+		seq.close();
+		assertTrue(seq.getHighWaterMark() > 1);
+		seq.reserve(1);
+	}
+
+}
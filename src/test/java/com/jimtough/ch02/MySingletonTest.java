@@ -2,8 +2,16 @@ package com.jimtough.ch02;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.junit.Test;
 
+import com.jimtough.ch02.MySingleton.CounterMode;
+
 public class MySingletonTest {
 
 	@Test
@@ -17,5 +25,72 @@ public class MySingletonTest {
 		ms2.incrementAndGet();
 		assertEquals(4, MySingleton.getInstance().incrementAndGet());
 	}
-	
+
+	@Test
+	public void testSingletonDefaultsToStrictCounterMode() {
+		assertNull(System.getProperty(MySingleton.COUNTER_MODE_PROPERTY));
+		assertEquals(CounterMode.STRICT, MySingleton.getInstance().getCounterMode());
+	}
+
+	@Test
+	public void testUnrecognizedCounterModeFallsBackToStrict() {
+		System.setProperty(MySingleton.COUNTER_MODE_PROPERTY, "SLOPPY");
+		try {
+			assertEquals(CounterMode.STRICT, MySingleton.newInstanceFromSystemProperties().getCounterMode());
+		} finally {
+			System.clearProperty(MySingleton.COUNTER_MODE_PROPERTY);
+		}
+		System.setProperty(MySingleton.COUNTER_MODE_PROPERTY, CounterMode.STRIPED.name());
+		try {
+			assertEquals(CounterMode.STRIPED, MySingleton.newInstanceFromSystemProperties().getCounterMode());
+		} finally {
+			System.clearProperty(MySingleton.COUNTER_MODE_PROPERTY);
+		}
+	}
+
+	//--------------------------------------------------------------------
+
+	private static final int NUM_THREADS = 8;
+	private static final int INCREMENTS_PER_THREAD = 100_000;
+
+	private void assertTallyIsExactWhenQuiescent(MySingleton ms) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < NUM_THREADS; t++) {
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < INCREMENTS_PER_THREAD; i++) {
+						ms.increment();
+					}
+				}));
+			}
+			for (Future<?> f : futures) {
+				f.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(NUM_THREADS * INCREMENTS_PER_THREAD, ms.sum());
+		assertEquals(NUM_THREADS * INCREMENTS_PER_THREAD, ms.sumThenReset());
+		assertEquals(0, ms.sum());
+		ms.increment();
+		assertEquals(1, ms.sum());
+		// The tally is separate from the strict sequence
+		assertEquals(1, ms.incrementAndGet());
+	}
+
+	@Test
+	public void testStrictCounterMode() throws Exception {
+		MySingleton ms = new MySingleton(CounterMode.STRICT);
+		assertEquals(CounterMode.STRICT, ms.getCounterMode());
+		assertTallyIsExactWhenQuiescent(ms);
+	}
+
+	@Test
+	public void testStripedCounterMode() throws Exception {
+		MySingleton ms = new MySingleton(CounterMode.STRIPED);
+		assertEquals(CounterMode.STRIPED, ms.getCounterMode());
+		assertTallyIsExactWhenQuiescent(ms);
+	}
+
 }
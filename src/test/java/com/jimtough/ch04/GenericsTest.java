@@ -2,6 +2,12 @@ package com.jimtough.ch04;
 
 import static org.junit.Assert.*;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
 import org.junit.Test;
 
 public class GenericsTest {
@@ -38,5 +44,90 @@ public class GenericsTest {
 		
 		assertEquals(Double.valueOf(99.99999), d);
 	}
+
+	//--------------------------------------------------------------------
+
+	private static float[] randomFloats(int n) {
+		Random random = new Random(42);
+		float[] a = new float[n];
+		for (int i = 0; i < n; i++) {
+			a[i] = random.nextFloat() * 1000f - 500f;
+		}
+		return a;
+	}
+
+	private static Float[] box(float[] a) {
+		Float[] boxed = new Float[a.length];
+		for (int i = 0; i < a.length; i++) {
+			boxed[i] = a[i];
+		}
+		return boxed;
+	}
+
+	@Test
+	public void testPrimitiveSumsMatchBoxedVarargsSum() {
+		GenericClass genericClass = new GenericClass();
+		float[] a = randomFloats(10_000);
+		double expected = genericClass.sum(box(a));
+
+		// The primitive sums add the values in a different order, which changes the last few bits
+		assertEquals(expected, genericClass.sum(a, 0, a.length), 0.0001D);
+		double[] d = new double[a.length];
+		for (int i = 0; i < a.length; i++) {
+			d[i] = a[i];
+		}
+		assertEquals(expected, genericClass.sum(d), 0.0001D);
+		assertEquals(expected, genericClass.sum(FloatBuffer.wrap(a)), 0.0001D);
+		FloatBuffer direct = ByteBuffer.allocateDirect(a.length * 4)
+				.order(ByteOrder.nativeOrder())
+				.asFloatBuffer();
+		direct.put(a);
+		direct.flip();
+		// Copied out a block at a time, and summed by the same kernel as the array
+		final int blockSize = GenericClass.BUFFER_BLOCK_SIZE;
+		FloatBuffer firstBlock = (FloatBuffer)direct.duplicate().limit(blockSize);
+		assertEquals(genericClass.sum(a, 0, blockSize), genericClass.sum(firstBlock), 0D);
+		assertEquals(expected, genericClass.sum(direct), 0.0001D);
+		assertEquals(0, direct.position());
+		direct.position(3).limit(a.length - 5);
+		assertEquals(genericClass.sum(a, 3, a.length - 5), genericClass.sum(direct), 0.0001D);
+		assertEquals(3, direct.position());
+		direct.clear();
+
+		assertEquals(expected, genericClass.compensatedSum(a, 0, a.length), 0.0001D);
+		assertEquals(expected, genericClass.compensatedSum(d), 0.0001D);
+		assertEquals(expected, genericClass.compensatedSum(direct), 0.0001D);
+	}
+
+	@Test
+	public void testPrimitiveSumOfSliceAndBufferPosition() {
+		GenericInterface<String, Float> genInterface = new GenericClass();
+		float[] a = { 1000f, 12.3f, 23.4f, 34.5f, 1000f };
+		assertEquals(70.2D, genInterface.sum(a, 1, 4), 0.000001D);
+		assertEquals(0D, genInterface.sum(a, 2, 2), 0D);
+		FloatBuffer buf = FloatBuffer.wrap(a);
+		buf.position(1);
+		buf.limit(4);
+		assertEquals(70.2D, genInterface.sum(buf), 0.000001D);
+		assertEquals(70.2D, genInterface.compensatedSum(buf.slice()), 0.000001D);
+		assertEquals(1, buf.position());
+	}
+
+	@Test
+	public void testCompensatedSumKeepsLowOrderBits() {
+		GenericInterface<String, Float> genInterface = new GenericClass();
+		// A 1e-16 is lost when it is added to 1.0, but not when the sum is compensated
+		double[] d = new double[1_000_001];
+		Arrays.fill(d, 1e-16);
+		d[0] = 1.0;
+		final double exact = 1.0 + 1e-10;
+		assertTrue(Math.abs(exact - genInterface.sum(d)) > 1e-12);
+		assertEquals(exact, genInterface.compensatedSum(d), 1e-15);
+	}
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testPrimitiveSumWithBadRange() {
+		new GenericClass().sum(new float[3], 2, 4);
+	}
 	
 }
@@ -0,0 +1,135 @@
+package com.jimtough.ch04;
+
+import static org.junit.Assert.*;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class NumericKernelsTest {
+
+	// Covers every remainder after unrolling, plus some longer arrays
+	private static final int[] SIZES = { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 15, 16, 17, 1000, 100_003 };
+
+	private static float[] randomFloats(Random random, int n) {
+		float[] a = new float[n];
+		for (int i = 0; i < n; i++) {
+			a[i] = random.nextFloat() * 2000f - 1000f;
+		}
+		return a;
+	}
+
+	private static double[] toDoubles(float[] a) {
+		double[] d = new double[a.length];
+		for (int i = 0; i < a.length; i++) {
+			d[i] = a[i];
+		}
+		return d;
+	}
+
+	private static Float[] box(float[] a) {
+		Float[] boxed = new Float[a.length];
+		for (int i = 0; i < a.length; i++) {
+			boxed[i] = a[i];
+		}
+		return boxed;
+	}
+
+	// Tolerance for a reordered sum of n values of magnitude up to 'scale'. The rounding error of
+	// a double sum grows with both the number of values and the size of the running total.
+	private static double tolerance(int n, double scale) {
+		return Math.max(1, n) * Math.max(1, n) * scale * 1e-15;
+	}
+
+	//--------------------------------------------------------------------
+
+	@Test
+	public void testSumMatchesBoxedVarargsSum() {
+		Random random = new Random(42);
+		GenericClass genericClass = new GenericClass();
+		for (int n : SIZES) {
+			float[] a = randomFloats(random, n);
+			double expected = genericClass.sum(box(a));
+			assertEquals("n: " + n, expected, NumericKernels.sum(a, 0, n), tolerance(n, 1000));
+			assertEquals("n: " + n, expected, NumericKernels.sum(toDoubles(a), 0, n), tolerance(n, 1000));
+		}
+	}
+
+	@Test
+	public void testSumOfSquaresAndDotMatchScalarLoops() {
+		Random random = new Random(43);
+		for (int n : SIZES) {
+			float[] a = randomFloats(random, n);
+			float[] b = randomFloats(random, n);
+			double expectedSumOfSquares = 0D;
+			double expectedDot = 0D;
+			for (int i = 0; i < n; i++) {
+				expectedSumOfSquares += (double)a[i] * a[i];
+				expectedDot += (double)a[i] * b[i];
+			}
+			double tolerance = tolerance(n, 1000 * 1000);
+			assertEquals("n: " + n, expectedSumOfSquares, NumericKernels.sumOfSquares(a, 0, n), tolerance);
+			assertEquals("n: " + n, expectedSumOfSquares, NumericKernels.sumOfSquares(toDoubles(a), 0, n), tolerance);
+			assertEquals("n: " + n, expectedDot, NumericKernels.dot(a, b, 0, n), tolerance);
+			assertEquals("n: " + n, expectedDot, NumericKernels.dot(toDoubles(a), toDoubles(b), 0, n), tolerance);
+		}
+	}
+
+	@Test
+	public void testMinAndMaxAreExact() {
+		Random random = new Random(44);
+		GenericClass genericClass = new GenericClass();
+		for (int n : SIZES) {
+			if (n == 0) {
+				continue;
+			}
+			float[] a = randomFloats(random, n);
+			float expectedMin = a[0];
+			Float expectedMax = a[0];
+			for (int i = 1; i < n; i++) {
+				expectedMin = Math.min(expectedMin, a[i]);
+				// The existing boxed max() of GenericInterface
+				expectedMax = genericClass.max(expectedMax, Float.valueOf(a[i]));
+			}
+			assertEquals("n: " + n, expectedMin, NumericKernels.min(a, 0, n), 0f);
+			assertEquals("n: " + n, expectedMax, NumericKernels.max(a, 0, n), 0f);
+			assertEquals("n: " + n, expectedMin, NumericKernels.min(toDoubles(a), 0, n), 0D);
+			assertEquals("n: " + n, expectedMax, NumericKernels.max(toDoubles(a), 0, n), 0D);
+		}
+	}
+
+	@Test
+	public void testMinAndMaxPropagateNaN() {
+		double[] d = { 1, 2, 3, 4, 5, Double.NaN, 7, 8, 9 };
+		assertTrue(Double.isNaN(NumericKernels.max(d, 0, d.length)));
+		assertTrue(Double.isNaN(NumericKernels.min(d, 0, d.length)));
+		assertEquals(5D, NumericKernels.max(d, 0, 5), 0D);
+	}
+
+	@Test
+	public void testSlices() {
+		float[] a = { 100f, 1f, 2f, 3f, 4f, 5f, -100f };
+		assertEquals(15D, NumericKernels.sum(a, 1, 6), 0D);
+		assertEquals(1f, NumericKernels.min(a, 1, 6), 0f);
+		assertEquals(5f, NumericKernels.max(a, 1, 6), 0f);
+		assertEquals(55D, NumericKernels.sumOfSquares(a, 1, 6), 0D);
+		assertEquals(0D, NumericKernels.sum(a, 3, 3), 0D);
+	}
+
+	@Test(expected=NoSuchElementException.class)
+	public void testMaxOfEmptyRange() {
+		NumericKernels.max(new double[5], 2, 2);
+	}
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testSumWithBadRange() {
+		NumericKernels.sum(new double[5], 3, 6);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testDotOfDifferentLengths() {
+		new GenericClass().dot(new double[3], new double[4]);
+	}
+
+}
@@ -0,0 +1,111 @@
+package com.jimtough.ch04;
+
+import static org.junit.Assert.*;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ParallelNumericKernelsTest {
+
+	// Large enough to be forked, and not a multiple of the block size
+	private static final int N = 1_000_003;
+
+	private static float[] floats;
+	private static double[] doubles;
+
+	@BeforeClass
+	public static void setUpClass() {
+		Random random = new Random(42);
+		floats = new float[N];
+		doubles = new double[N];
+		for (int i = 0; i < N; i++) {
+			floats[i] = random.nextFloat() * 2000f - 1000f;
+			doubles[i] = random.nextDouble() * 2000D - 1000D;
+		}
+	}
+
+	//--------------------------------------------------------------------
+
+	@Test
+	public void testForkThreshold() {
+		assertEquals(Integer.MAX_VALUE, ParallelNumericKernels.forkThreshold(N, 1));
+		assertEquals(Integer.MAX_VALUE, ParallelNumericKernels.forkThreshold(ParallelNumericKernels.MIN_FORK_SIZE, 8));
+		assertEquals(ParallelNumericKernels.MIN_FORK_SIZE, ParallelNumericKernels.forkThreshold(N, 64));
+		assertEquals(100_000_000 / 32, ParallelNumericKernels.forkThreshold(100_000_000, 8));
+	}
+
+	@Test
+	public void testSplitIsOnBlockBoundary() {
+		final int block = ParallelNumericKernels.BLOCK_SIZE;
+		assertEquals(block, ParallelNumericKernels.split(0, block + 1));
+		assertEquals(2 * block, ParallelNumericKernels.split(0, 4 * block));
+		assertEquals(10 + 2 * block, ParallelNumericKernels.split(10, 10 + 5 * block));
+	}
+
+	@Test
+	public void testSumIsIdenticalForEveryParallelism() {
+		// A single thread never forks, so this is the sequential walk of the reduction tree
+		ForkJoinPool single = new ForkJoinPool(1);
+		final double expectedFloatSum = ParallelNumericKernels.sum(single, floats);
+		final double expectedDoubleSum = ParallelNumericKernels.sum(single, doubles);
+		single.shutdown();
+		assertEquals(NumericKernels.sum(floats, 0, N), expectedFloatSum, 1e-6);
+		assertEquals(NumericKernels.sum(doubles, 0, N), expectedDoubleSum, 1e-6);
+		for (int parallelism : new int[] { 2, 3, 8, 64 }) {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				for (int run = 0; run < 3; run++) {
+					assertEquals("parallelism: " + parallelism, expectedFloatSum, ParallelNumericKernels.sum(pool, floats), 0D);
+					assertEquals("parallelism: " + parallelism, expectedDoubleSum, ParallelNumericKernels.sum(pool, doubles), 0D);
+				}
+			} finally {
+				pool.shutdown();
+			}
+		}
+	}
+
+	@Test
+	public void testMaxIsExact() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			assertEquals(NumericKernels.max(floats, 0, N), ParallelNumericKernels.max(pool, floats), 0f);
+			assertEquals(NumericKernels.max(doubles, 0, N), ParallelNumericKernels.max(pool, doubles), 0D);
+			double[] d = doubles.clone();
+			d[N - 1] = 5000D;
+			assertEquals(5000D, ParallelNumericKernels.max(pool, d), 0D);
+			d[N / 2] = Double.NaN;
+			assertTrue(Double.isNaN(ParallelNumericKernels.max(pool, d)));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testGenericClassUsesCommonPool() {
+		GenericInterface<String, Float> genInterface = new GenericClass();
+		ForkJoinPool single = new ForkJoinPool(1);
+		assertEquals(ParallelNumericKernels.sum(single, floats), genInterface.parallelSum(floats), 0D);
+		assertEquals(ParallelNumericKernels.sum(single, doubles), genInterface.parallelSum(doubles), 0D);
+		single.shutdown();
+		assertEquals(genInterface.max(floats, 0, N), genInterface.parallelMax(floats), 0f);
+		assertEquals(genInterface.max(doubles), genInterface.parallelMax(doubles), 0D);
+	}
+
+	@Test
+	public void testSmallArrays() {
+		GenericInterface<String, Float> genInterface = new GenericClass();
+		assertEquals(0D, genInterface.parallelSum(new double[0]), 0D);
+		assertEquals(6D, genInterface.parallelSum(new float[] { 1f, 2f, 3f }), 0D);
+		assertEquals(3f, genInterface.parallelMax(new float[] { 1f, 3f, 2f }), 0f);
+	}
+
+	@Test(expected=NoSuchElementException.class)
+	public void testMaxOfEmptyArray() {
+		new GenericClass().parallelMax(new float[0]);
+	}
+
+}
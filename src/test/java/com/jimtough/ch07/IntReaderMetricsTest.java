@@ -0,0 +1,154 @@
+package com.jimtough.ch07;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class IntReaderMetricsTest {
+
+	@Rule
+	public TestName testName = new TestName();
+
+	private IntReaderMetrics metrics;
+	private IntReader intReader;
+
+	@Before
+	public void setUp() {
+		metrics = new IntReaderMetrics();
+		intReader = new IntReader(metrics);
+	}
+
+	//--------------------------------------------------------------------
+
+	@Test
+	public void testNewMetricsAreZero() {
+		IntReaderMetrics.Snapshot snapshot = new IntReader().getMetrics().snapshot();
+		assertEquals(0, snapshot.getParsedCount());
+		assertEquals(0, snapshot.getMismatchCount());
+		assertEquals(0, snapshot.getEmptyInputCount());
+		assertEquals(0, snapshot.getOverflowCount());
+		assertEquals(0, snapshot.getTotalNanos());
+	}
+
+	@Test
+	public void testSingleValueReadsAreCounted() {
+		intReader.scanFirstInt("42");
+		intReader.scanFirstInt(new char[] { '4', '2' }, 0, 2);
+		intReader.parseFirstInt("-7 apples");
+		intReader.readFirstInteger("10");
+		intReader.scanFirstInt("apples");
+		intReader.readFirstIntegerWithMulticatch("apples");
+		intReader.scanFirstInt("   ");
+		intReader.readFirstInteger("");
+		intReader.readFirstIntegerWithMulticatch(null);
+		intReader.scanFirstInt("2147483648");
+
+		IntReaderMetrics.Snapshot snapshot = metrics.snapshot();
+		assertEquals(4, snapshot.getParsedCount());
+		assertEquals(2, snapshot.getMismatchCount());
+		assertEquals(3, snapshot.getEmptyInputCount());
+		assertEquals(1, snapshot.getOverflowCount());
+		// Timing was not requested
+		assertEquals(0, snapshot.getTotalNanos());
+	}
+
+	@Test
+	public void testReadFirstIntCountsBeforeThrowing() {
+		try {
+			intReader.readFirstInt("apples");
+			fail();
+		} catch (InputMismatchException ime) {
+			assertEquals(1, metrics.getMismatchCount());
+		}
+		try {
+			intReader.readFirstInt("");
+			fail();
+		} catch (NoSuchElementException nsee) {
+			assertEquals(1, metrics.getEmptyInputCount());
+		}
+		assertEquals(0, metrics.getParsedCount());
+	}
+
+	@Test
+	public void testScannerAndScanCountTheSameOutcomes() {
+		String[] inputs = { "42", "apples", "", "   ", "2147483648", "-2147483649", null };
+		IntReaderMetrics scanMetrics = new IntReaderMetrics();
+		IntReader scanReader = new IntReader(scanMetrics);
+		for (String input : inputs) {
+			intReader.readFirstInteger(input);
+			intReader.readFirstIntegerWithMulticatch(input);
+			try {
+				intReader.readFirstInt(input);
+			} catch (NoSuchElementException | NullPointerException e) {
+				// Counted before being thrown
+			}
+			if (input != null) {
+				scanReader.scanFirstInt(input);
+			}
+		}
+		// Three Scanner reads per input, one scan per non-null input
+		assertEquals(3 * scanMetrics.getParsedCount(), metrics.getParsedCount());
+		assertEquals(3 * scanMetrics.getMismatchCount(), metrics.getMismatchCount());
+		assertEquals(3 * scanMetrics.getOverflowCount(), metrics.getOverflowCount());
+		assertEquals(6, metrics.getOverflowCount());
+		assertEquals(3 * (scanMetrics.getEmptyInputCount() + 1), metrics.getEmptyInputCount());
+	}
+
+	@Test
+	public void testBulkReadsAreCountedPerToken() {
+		IntList out = new IntList();
+		intReader.readAllInts("1 2 three 4 2147483648 -2147483649 x", out);
+		assertEquals(3, out.size());
+		assertEquals(3, metrics.getParsedCount());
+		assertEquals(2, metrics.getMismatchCount());
+		assertEquals(2, metrics.getOverflowCount());
+		// Only single-value reads can have an empty input
+		intReader.readAllInts("", out);
+		assertEquals(0, metrics.getEmptyInputCount());
+	}
+
+	@Test
+	public void testTimedMetrics() {
+		IntReaderMetrics timedMetrics = new IntReaderMetrics(true);
+		assertTrue(timedMetrics.isTimed());
+		IntReader timedIntReader = new IntReader(timedMetrics);
+		for (int i = 0; i < 1000; i++) {
+			timedIntReader.readFirstInt(Integer.toString(i));
+		}
+		assertEquals(1000, timedMetrics.getParsedCount());
+		assertTrue(timedMetrics.getTotalNanos() > 0);
+	}
+
+	@Test
+	public void testRegisterMBean() throws Exception {
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = metrics.registerMBean(testName.getMethodName());
+		try {
+			intReader.scanFirstInt("1");
+			intReader.scanFirstInt("2");
+			assertEquals(2L, mbeanServer.getAttribute(objectName, "ParsedCount"));
+			assertEquals(0L, mbeanServer.getAttribute(objectName, "MismatchCount"));
+		} finally {
+			mbeanServer.unregisterMBean(objectName);
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testIntReaderWithNullMetrics() {
+		new IntReader(null);
+	}
+
+}
@@ -2,8 +2,15 @@ package com.jimtough.ch07;
 
 import static org.junit.Assert.*;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.InputMismatchException;
 import java.util.NoSuchElementException;
+import java.util.OptionalInt;
+import java.util.Scanner;
 
 import org.junit.Before;
 import org.junit.FixMethodOrder;
@@ -103,5 +110,142 @@ public class IntReaderTest {
 	}
 
 	//--------------------------------------------------------------------
-	
+
+	// Every one of these must give the same answer from the Scanner and from the hand-rolled parser
+	private static final String[] SCANNER_COMPATIBILITY_INPUTS = {
+		"", " ", "\t\r\n", "0", "-0", "+0", "42", "   42", "\t\n42\n", "42 abc", "abc 42",
+		"-17 18", "+17", "-", "+", "--1", "+-1", "1-", "12abc", "12.5", "007",
+		"2147483647", "-2147483648", "2147483648", "-2147483649", "99999999999999999999",
+		"99999999999999999999x", STRING_CONTAINING_ONLY_INTEGERS, STRING_CONTAINING_NON_NUMERIC_TEXT,
+	};
+
+	@Test
+	public void testParseFirstIntMatchesScanner() {
+		for (String s : SCANNER_COMPATIBILITY_INPUTS) {
+			Integer expected = intReader.readFirstInteger(s);
+			OptionalInt actual = intReader.parseFirstInt(s);
+			if (expected == null) {
+				assertFalse("input: [" + s + "]", actual.isPresent());
+			} else {
+				assertEquals("input: [" + s + "]", expected.intValue(), actual.getAsInt());
+			}
+		}
+	}
+
+	@Test
+	public void testScanFirstIntWithCharArrayAndByteBufferMatchesCharSequence() {
+		for (String s : SCANNER_COMPATIBILITY_INPUTS) {
+			long expected = intReader.scanFirstInt(s);
+			// Surround the input with junk that is outside the slice being scanned
+			String padded = "9 " + s + " 9";
+			char[] a = padded.toCharArray();
+			assertEquals("input: [" + s + "]", expected, intReader.scanFirstInt(a, 2, a.length - 2));
+			assertEquals("input: [" + s + "]", expected, intReader.scanFirstInt(padded, 2, padded.length() - 2));
+			ByteBuffer buf = ByteBuffer.wrap(padded.getBytes(StandardCharsets.ISO_8859_1));
+			buf.position(2);
+			buf.limit(buf.capacity() - 2);
+			assertEquals("input: [" + s + "]", expected, intReader.scanFirstInt(buf));
+			assertEquals(2, buf.position());
+		}
+	}
+
+	@Test
+	public void testScanFirstIntSentinels() {
+		assertEquals(10L, intReader.scanFirstInt(STRING_CONTAINING_ONLY_INTEGERS));
+		assertEquals(IntReader.NO_INT_EMPTY, intReader.scanFirstInt(""));
+		assertEquals(IntReader.NO_INT_EMPTY, intReader.scanFirstInt(" \t "));
+		assertEquals(IntReader.NO_INT_MISMATCH, intReader.scanFirstInt(STRING_CONTAINING_NON_NUMERIC_TEXT));
+		assertEquals(IntReader.NO_INT_MISMATCH, intReader.scanFirstInt("-"));
+		assertEquals(IntReader.NO_INT_MISMATCH, intReader.scanFirstInt("99999999999x"));
+		assertEquals(IntReader.NO_INT_OVERFLOW, intReader.scanFirstInt("2147483648"));
+		assertEquals(IntReader.NO_INT_OVERFLOW, intReader.scanFirstInt("-2147483649"));
+		assertEquals(Integer.MIN_VALUE, intReader.scanFirstInt("-2147483648"));
+		assertTrue(IntReader.isInt(intReader.scanFirstInt("-2147483648")));
+		assertFalse(IntReader.isInt(IntReader.NO_INT_EMPTY));
+		assertFalse(IntReader.isInt(IntReader.NO_INT_MISMATCH));
+		assertFalse(IntReader.isInt(IntReader.NO_INT_OVERFLOW));
+	}
+
+	@Test(expected=NullPointerException.class)
+	public void testScanFirstIntWithNullString() {
+		intReader.scanFirstInt((CharSequence)null);
+	}
+
+	//--------------------------------------------------------------------
+
+	private static final String STRING_CONTAINING_MIXED_TOKENS =
+			"  10 apples, -3\tpears\n\n+7 2147483648 x9 9x 0042 -2147483648\r\n- 5";
+	private static final int[] INTS_IN_STRING_CONTAINING_MIXED_TOKENS = { 10, -3, 7, 42, Integer.MIN_VALUE, 5 };
+
+	// The loop that the bulk methods replace
+	private IntList readAllIntsWithScanner(String s) {
+		IntList out = new IntList();
+		try (Scanner scanner = new Scanner(s)) {
+			while (scanner.hasNext()) {
+				if (scanner.hasNextInt()) {
+					out.add(scanner.nextInt());
+				} else {
+					scanner.next();
+				}
+			}
+		}
+		return out;
+	}
+
+	@Test
+	public void testReadAllIntsMatchesScannerLoop() {
+		int[] expected = readAllIntsWithScanner(STRING_CONTAINING_MIXED_TOKENS).toArray();
+		assertArrayEquals(INTS_IN_STRING_CONTAINING_MIXED_TOKENS, expected);
+
+		IntList out = new IntList(0);
+		assertEquals(expected.length, intReader.readAllInts(STRING_CONTAINING_MIXED_TOKENS, out));
+		assertArrayEquals(expected, out.toArray());
+
+		out.clear();
+		char[] a = STRING_CONTAINING_MIXED_TOKENS.toCharArray();
+		intReader.readAllInts(a, 0, a.length, out);
+		assertArrayEquals(expected, out.toArray());
+
+		out.clear();
+		ByteBuffer buf = ByteBuffer.wrap(STRING_CONTAINING_MIXED_TOKENS.getBytes(StandardCharsets.US_ASCII));
+		intReader.readAllInts(buf, out);
+		assertArrayEquals(expected, out.toArray());
+		assertEquals(0, buf.position());
+
+		assertArrayEquals(expected, intReader.readAllIntsAsStream(STRING_CONTAINING_MIXED_TOKENS).toArray());
+	}
+
+	@Test
+	public void testReadAllIntsAppendsToExistingValues() {
+		IntList out = new IntList();
+		out.add(-1);
+		assertEquals(0, intReader.readAllInts(STRING_CONTAINING_NON_NUMERIC_TEXT, out));
+		assertEquals(4, intReader.readAllInts(STRING_CONTAINING_ONLY_INTEGERS, out));
+		assertArrayEquals(new int[] { -1, 10, 999, 888, 777 }, out.toArray());
+		assertEquals(777, out.get(4));
+	}
+
+	@Test
+	public void testReadAllIntsFromMemoryMappedFile() throws Exception {
+		Path targetDir = Paths.get("target");
+		assertTrue(Files.isDirectory(targetDir));
+		Path dataFilePath = targetDir.resolve("ch07-IntReaderTest.txt");
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			sb.append(STRING_CONTAINING_MIXED_TOKENS).append(System.lineSeparator());
+		}
+		Files.write(dataFilePath, sb.toString().getBytes(StandardCharsets.US_ASCII));
+
+		int[] expected = readAllIntsWithScanner(sb.toString()).toArray();
+		assertEquals(1000 * INTS_IN_STRING_CONTAINING_MIXED_TOKENS.length, expected.length);
+		assertArrayEquals(expected, intReader.readAllInts(dataFilePath).toArray());
+
+		// Small windows force lots of window boundaries. The longest token in the file is 11 bytes.
+		for (int windowSize : new int[] { 12, 17, 64, 4096 }) {
+			IntList out = new IntList();
+			intReader.readAllInts(dataFilePath, out, windowSize);
+			assertArrayEquals("windowSize: " + windowSize, expected, out.toArray());
+		}
+	}
+
 }
@@ -0,0 +1,117 @@
+package com.jimtough.ch07;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.junit.runners.MethodSorters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ParallelIntReaderTest {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ParallelIntReaderTest.class);
+
+	private static final Path TARGET_DIR = Paths.get("target");
+	private static final Path BIG_SAMPLE_TEXT_FILE_PATH = Paths.get("src/test/resources/The Call of the Wild.txt");
+	private static final Path DATA_FILE_PATH = TARGET_DIR.resolve("ch07-ParallelIntReaderTest.txt");
+
+	@Rule
+	public TestName testName = new TestName();
+
+	private static ForkJoinPool fjPool;
+	private static IntList expectedValues;
+
+	@BeforeClass
+	public static void oneTimeSetUp() throws Exception {
+		assertTrue(Files.isDirectory(TARGET_DIR));
+		fjPool = new ForkJoinPool(4);
+
+		// Inject a few numbers into every line of the novel, including some tokens that are
+		// not valid integers and must be skipped
+		List<String> lines = Files.readAllLines(BIG_SAMPLE_TEXT_FILE_PATH, StandardCharsets.US_ASCII);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < lines.size(); i++) {
+			sb.append(i).append(' ').append(lines.get(i)).append(' ').append(-31 * i);
+			if (i % 97 == 0) {
+				sb.append('\t').append(Integer.MIN_VALUE).append(" 2147483648 +").append(i).append(" 12x");
+			}
+			sb.append(System.lineSeparator());
+		}
+		Files.write(DATA_FILE_PATH, sb.toString().getBytes(StandardCharsets.US_ASCII));
+
+		// Sequential parsing, one token at a time
+		IntReader intReader = new IntReader();
+		expectedValues = new IntList();
+		for (String token : sb.toString().split("\\s+")) {
+			long result = intReader.scanFirstInt(token);
+			if (IntReader.isInt(result)) {
+				expectedValues.add((int)result);
+			}
+		}
+		LOGGER.debug("{} integers injected into [{}]", expectedValues.size(), DATA_FILE_PATH);
+	}
+
+	@AfterClass
+	public static void oneTimeTearDown() {
+		fjPool.shutdown();
+	}
+
+	//--------------------------------------------------------------------
+
+	@Test
+	public void testReadAllIntsKeepsOriginalOrder() throws Exception {
+		for (int chunkSize : new int[] { 16, 100, 4096, 1024 * 1024 }) {
+			ParallelIntReader reader = new ParallelIntReader(fjPool, chunkSize);
+			IntList actual = reader.readAllInts(DATA_FILE_PATH);
+			assertArrayEquals("chunkSize: " + chunkSize, expectedValues.toArray(), actual.toArray());
+		}
+	}
+
+	@Test
+	public void testReadAllIntsMatchesSequentialMemoryMappedRead() throws Exception {
+		IntList sequential = new IntReader().readAllInts(DATA_FILE_PATH);
+		IntList parallel = new ParallelIntReader().readAllInts(DATA_FILE_PATH);
+		assertArrayEquals(sequential.toArray(), parallel.toArray());
+	}
+
+	@Test
+	public void testSummarizeInts() throws Exception {
+		IntSummaryStatistics expected = expectedValues.stream().summaryStatistics();
+		for (int chunkSize : new int[] { 100, 4096 }) {
+			IntSummaryStatistics actual = new ParallelIntReader(fjPool, chunkSize).summarizeInts(DATA_FILE_PATH);
+			assertEquals(expected.getCount(), actual.getCount());
+			assertEquals(expected.getSum(), actual.getSum());
+			assertEquals(expected.getMin(), actual.getMin());
+			assertEquals(expected.getMax(), actual.getMax());
+		}
+	}
+
+	@Test
+	public void testEmptyFile() throws Exception {
+		Path emptyFilePath = TARGET_DIR.resolve("ch07-ParallelIntReaderTest-empty.txt");
+		Files.write(emptyFilePath, new byte[0]);
+		ParallelIntReader reader = new ParallelIntReader(fjPool, 16);
+		assertTrue(reader.readAllInts(emptyFilePath).isEmpty());
+		assertEquals(0, reader.summarizeInts(emptyFilePath).getCount());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNonPositiveChunkSize() {
+		new ParallelIntReader(fjPool, 0);
+	}
+
+}
@@ -2,6 +2,7 @@ package com.jimtough.ch09;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 
 /**
  * Utility methods and constants used in tests for this chapter
@@ -17,4 +18,27 @@ public class Ch09Utils {
 	private static final String BIG_SAMPLE_TEXT_FILE_NAME = "The Call of the Wild.txt";
 	static final Path BIG_SAMPLE_TEXT_FILE_PATH_A = Paths.get("src/test/resources/", BIG_SAMPLE_TEXT_FILE_NAME);
 	
+	/**
+	 * Count the words of the text by ID, interning each one in the pool straight from the array
+	 * @return Number of times each token of the pool was seen, indexed by ID
+	 */
+	static long[] countWords(TokenPool pool, char[] chars) {
+		long[] counts = new long[Math.max(16, pool.size())];
+		int start = -1;
+		for (int i = 0; i <= chars.length; i++) {
+			final boolean isWordChar = i < chars.length && AsciiWords.toLowerCaseWordChar(chars[i]) != 0;
+			if (isWordChar && start < 0) {
+				start = i;
+			} else if (!isWordChar && start >= 0) {
+				final int id = pool.intern(chars, start, i);
+				if (id >= counts.length) {
+					counts = Arrays.copyOf(counts, 2 * counts.length);
+				}
+				counts[id]++;
+				start = -1;
+			}
+		}
+		return Arrays.copyOf(counts, pool.size());
+	}
+
 }
@@ -0,0 +1,221 @@
+package com.jimtough.ch09;
+
+import static com.jimtough.ch09.Ch09Utils.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ColumnarFileTest {
+
+	private static final Path DATA_PATH = TARGET_DIR.resolve("ch09-ColumnarFileTest.dat");
+
+	private static final RecordSchema SCHEMA = RecordSchema.builder()
+			.column("b", ColumnType.BYTE)
+			.column("s", ColumnType.SHORT)
+			.column("i", ColumnType.INT)
+			.column("l", ColumnType.LONG)
+			.column("f", ColumnType.FLOAT)
+			.column("d", ColumnType.DOUBLE)
+			.build();
+
+	private static void writeRecords(Path path, int records, int blockRecords) throws IOException {
+		try (ColumnarFileWriter writer = new ColumnarFileWriter(path, SCHEMA, blockRecords)) {
+			for (int r = 0; r < records; r++) {
+				writer.putByte(0, (byte)r)
+						.putShort(1, (short)r)
+						.putInt(2, r)
+						.putLong(3, 3L * r)
+						.putFloat(4, r / 2f)
+						.putDouble(5, -r);
+				writer.endRecord();
+			}
+			assertEquals(records, writer.getRecordCount());
+		}
+	}
+
+	private static void checkRecords(ColumnarFileReader reader, int records, int blockRecords) {
+		assertEquals(SCHEMA, reader.getSchema());
+		assertEquals(records, reader.getRecordCount());
+		assertEquals((records + blockRecords - 1) / blockRecords, reader.getBlockCount());
+		int r = 0;
+		for (int b = 0; b < reader.getBlockCount(); b++) {
+			final ColumnarFileReader.Block block = reader.getBlock(b);
+			final int n = block.getRecordCount();
+			assertEquals(Math.min(blockRecords, records - r), n);
+			final ByteBuffer bytes = block.getByteColumn(0);
+			final ShortBuffer shorts = block.getShortColumn(1);
+			final IntBuffer ints = block.getIntColumn(2);
+			final LongBuffer longs = block.getLongColumn(3);
+			final FloatBuffer floats = block.getFloatColumn(4);
+			final DoubleBuffer doubles = block.getDoubleColumn(5);
+			assertEquals(n, bytes.remaining());
+			assertEquals(n, shorts.remaining());
+			assertEquals(n, ints.remaining());
+			assertEquals(n, longs.remaining());
+			assertEquals(n, floats.remaining());
+			assertEquals(n, doubles.remaining());
+			for (int i = 0; i < n; i++, r++) {
+				assertEquals((byte)r, bytes.get(i));
+				assertEquals((short)r, shorts.get(i));
+				assertEquals(r, ints.get(i));
+				assertEquals(3L * r, longs.get(i));
+				assertEquals(r / 2f, floats.get(i), 0);
+				assertEquals(-r, doubles.get(i), 0);
+			}
+		}
+		assertEquals(records, r);
+	}
+
+	//--------------------------------------------------------------------
+
+	@Test
+	public void testWriteAndRead() throws Exception {
+		for (int blockRecords : new int[] { 1, 7, 1000, ColumnarFileWriter.DEFAULT_BLOCK_RECORDS }) {
+			for (int records : new int[] { 0, 1, 999, 1000, 1001, 100_000 }) {
+				if (records / blockRecords > 1000) {
+					// Too many blocks to be worth mapping
+					continue;
+				}
+				writeRecords(DATA_PATH, records, blockRecords);
+				checkRecords(new ColumnarFileReader(DATA_PATH), records, blockRecords);
+			}
+		}
+	}
+
+	@Test
+	public void testSmallSegments() throws Exception {
+		writeRecords(DATA_PATH, 10_000, 1000);
+		// One column per segment, then several columns per segment
+		for (int maxSegmentBytes : new int[] { 1, 20_000, 100_000 }) {
+			checkRecords(new ColumnarFileReader(DATA_PATH, maxSegmentBytes), 10_000, 1000);
+		}
+	}
+
+	@Test
+	public void testBulkGet() throws Exception {
+		writeRecords(DATA_PATH, 5000, 5000);
+		final IntBuffer ints = new ColumnarFileReader(DATA_PATH).getBlock(0).getIntColumn(2);
+		final int[] values = new int[ints.remaining()];
+		ints.get(values);
+		final int[] expected = new int[5000];
+		Arrays.setAll(expected, i -> i);
+		assertArrayEquals(expected, values);
+	}
+
+	@Test
+	public void testColumnsAreAligned() throws Exception {
+		// A file that ends on an odd number of bytes, if the columns weren't padded
+		writeRecords(DATA_PATH, 3, 1000);
+		assertEquals(0, Files.size(DATA_PATH) % ColumnarFileWriter.ALIGNMENT);
+	}
+
+	@Test
+	public void testSchemaRoundTrip() throws Exception {
+		final RecordSchema schema = RecordSchema.builder()
+				.column("na\u00efve \u20ac", ColumnType.LONG)
+				.column("x", ColumnType.BYTE)
+				.build();
+		try (ColumnarFileWriter writer = new ColumnarFileWriter(DATA_PATH, schema)) {
+			writer.putLong(0, Long.MIN_VALUE).putByte(1, (byte)-1).endRecord();
+		}
+		final ColumnarFileReader reader = new ColumnarFileReader(DATA_PATH);
+		assertEquals(schema, reader.getSchema());
+		assertEquals(0, reader.getSchema().indexOf("na\u00efve \u20ac"));
+		assertEquals(1, reader.getSchema().indexOf("x"));
+		assertEquals(-1, reader.getSchema().indexOf("y"));
+		assertEquals(Long.MIN_VALUE, reader.getBlock(0).getLongColumn(0).get(0));
+		assertEquals(-1, reader.getBlock(0).getByteColumn(1).get(0));
+	}
+
+	@Test(expected=ReadOnlyBufferException.class)
+	public void testColumnsAreReadOnly() throws Exception {
+		writeRecords(DATA_PATH, 10, 10);
+		new ColumnarFileReader(DATA_PATH).getBlock(0).getIntColumn(2).put(0, 1);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testPutWrongType() throws Exception {
+		try (ColumnarFileWriter writer = new ColumnarFileWriter(DATA_PATH, SCHEMA)) {
+			writer.putLong(2, 1);
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testGetWrongType() throws Exception {
+		writeRecords(DATA_PATH, 10, 10);
+		new ColumnarFileReader(DATA_PATH).getBlock(0).getLongColumn(2);
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void testPutTwice() throws Exception {
+		try (ColumnarFileWriter writer = new ColumnarFileWriter(DATA_PATH, SCHEMA)) {
+			writer.putByte(0, (byte)1).putByte(0, (byte)2);
+		}
+	}
+
+	@Test
+	public void testMissingValue() throws Exception {
+		try (ColumnarFileWriter writer = new ColumnarFileWriter(DATA_PATH, SCHEMA)) {
+			writer.putByte(0, (byte)1).putShort(1, (short)1).putInt(2, 1).putLong(3, 1).putFloat(4, 1);
+			try {
+				writer.endRecord();
+				fail("Expected IllegalStateException");
+			} catch (IllegalStateException e) {
+				assertTrue(e.getMessage(), e.getMessage().contains(" d "));
+			}
+		}
+		// The incomplete record was discarded
+		assertEquals(0, new ColumnarFileReader(DATA_PATH).getRecordCount());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testDuplicateColumnName() {
+		RecordSchema.builder().column("a", ColumnType.INT).column("a", ColumnType.LONG);
+	}
+
+	@Test
+	public void testTooManyColumns() {
+		RecordSchema.Builder builder = RecordSchema.builder();
+		for (int i = 0; i < RecordSchema.MAX_COLUMNS; i++) {
+			builder.column("c" + i, ColumnType.BYTE);
+		}
+		try {
+			builder.column("one-too-many", ColumnType.BYTE);
+			fail();
+		} catch (IllegalStateException ise) {
+			// Expected
+		}
+		assertEquals(RecordSchema.MAX_COLUMNS, builder.build().getColumnCount());
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void testEmptySchema() {
+		RecordSchema.builder().build();
+	}
+
+	@Test(expected=IOException.class)
+	public void testNotColumnarFile() throws Exception {
+		new ColumnarFileReader(BIG_SAMPLE_TEXT_FILE_PATH_A);
+	}
+
+	@Test(expected=IOException.class)
+	public void testTruncatedFile() throws Exception {
+		writeRecords(DATA_PATH, 1000, 300);
+		final byte[] bytes = Files.readAllBytes(DATA_PATH);
+		Files.write(DATA_PATH, Arrays.copyOf(bytes, bytes.length - 8));
+		new ColumnarFileReader(DATA_PATH);
+	}
+
+}
@@ -4,6 +4,7 @@ import static com.jimtough.ch09.Ch09Utils.*;
 import static org.junit.Assert.*;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.FileInputStream;
@@ -106,6 +107,98 @@ public class DataStreamTest {
 		}
 	}
 
+	@Test
+	public void testReadPrimitiveValuesByRecordIndex() throws Exception {
+		final int NUMBER_OF_TIMES_IN_LOOP = 10;
+		Path dataFilePath = TARGET_DIR.resolve("ch09-DataStreamTest-fixed.dat");
+
+		// The same file as testWritePrimitiveValuesToDataStream() writes
+		try (FileOutputStream fos = new FileOutputStream(dataFilePath.toFile());
+				DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(fos));) {
+			for (int i=0; i<NUMBER_OF_TIMES_IN_LOOP; i++) {
+				dos.writeByte(i);
+				dos.writeShort(i);
+				dos.writeInt(i);
+				dos.writeLong(i);
+				dos.writeFloat(i);
+				dos.writeDouble(i);
+			}
+		}
+
+		// Every record is 27 bytes, so any field of any record can be read without reading the
+		// ones before it
+		RecordSchema schema = RecordSchema.builder()
+				.column("byte", ColumnType.BYTE)
+				.column("short", ColumnType.SHORT)
+				.column("int", ColumnType.INT)
+				.column("long", ColumnType.LONG)
+				.column("float", ColumnType.FLOAT)
+				.column("double", ColumnType.DOUBLE)
+				.build();
+		FixedWidthRecordReader reader = new FixedWidthRecordReader(dataFilePath, schema);
+		assertEquals(NUMBER_OF_TIMES_IN_LOOP, reader.getRecordCount());
+		for (int i=NUMBER_OF_TIMES_IN_LOOP-1; i>=0; i--) {
+			assertEquals(i, reader.getInt(i, 2));
+			String s = String.format("%d %d %d %d %g %g",
+					reader.getByte(i, 0),
+					reader.getShort(i, 1),
+					reader.getInt(i, 2),
+					reader.getLong(i, 3),
+					reader.getFloat(i, 4),
+					reader.getDouble(i, 5));
+			LOGGER.debug(s);
+		}
+	}
+
+	@Test
+	public void testWritePrimitiveValuesToColumnarFile() throws Exception {
+		final int NUMBER_OF_TIMES_IN_LOOP = 10;
+		Path dataFilePath = TARGET_DIR.resolve("ch09-DataStreamTest-columnar.dat");
+		RecordSchema schema = RecordSchema.builder()
+				.column("byte", ColumnType.BYTE)
+				.column("short", ColumnType.SHORT)
+				.column("int", ColumnType.INT)
+				.column("long", ColumnType.LONG)
+				.column("float", ColumnType.FLOAT)
+				.column("double", ColumnType.DOUBLE)
+				.build();
+
+		// The same values as above, buffered per column and written a block at a time
+		try (ColumnarFileWriter writer = new ColumnarFileWriter(dataFilePath, schema)) {
+			for (int i=0; i<NUMBER_OF_TIMES_IN_LOOP; i++) {
+				writer.putByte(0, (byte)i)
+						.putShort(1, (short)i)
+						.putInt(2, i)
+						.putLong(3, i)
+						.putFloat(4, i)
+						.putDouble(5, i);
+				writer.endRecord();
+			}
+		}
+
+		// Each column is a view of the mapped file, rather than a method call per value
+		ColumnarFileReader reader = new ColumnarFileReader(dataFilePath);
+		assertEquals(schema, reader.getSchema());
+		assertEquals(NUMBER_OF_TIMES_IN_LOOP, reader.getRecordCount());
+		ColumnarFileReader.Block block = reader.getBlock(0);
+		long[] longs = new long[block.getRecordCount()];
+		block.getLongColumn(schema.indexOf("long")).get(longs);
+		double[] doubles = new double[block.getRecordCount()];
+		block.getDoubleColumn(schema.indexOf("double")).get(doubles);
+		for (int i=0; i<NUMBER_OF_TIMES_IN_LOOP; i++) {
+			assertEquals(i, longs[i]);
+			assertEquals(i, doubles[i], 0);
+			String s = String.format("%d %d %d %d %g %g",
+					block.getByteColumn(0).get(i),
+					block.getShortColumn(1).get(i),
+					block.getIntColumn(2).get(i),
+					longs[i],
+					block.getFloatColumn(4).get(i),
+					doubles[i]);
+			LOGGER.debug(s);
+		}
+	}
+
 }
 
 
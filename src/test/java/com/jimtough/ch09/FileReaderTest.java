@@ -7,6 +7,7 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
@@ -71,4 +72,19 @@ public class FileReaderTest {
 		assertEquals(Files.size(BIG_SAMPLE_TEXT_FILE_PATH_A), Files.size(fileCopyPath));
 	}
 
+	// Same copy as testFileReaderReadsTextFileAndWritesToFileWriter, a buffer at a time
+	@Test
+	public void testTextCopierCopiesTextFile() throws Exception {
+		Path fileCopyPath = TARGET_DIR.resolve("textcopier-copy-of-" + BIG_SAMPLE_TEXT_FILE_PATH_A.getFileName().toString());
+		Files.deleteIfExists(fileCopyPath);
+
+		TextCopier copier = new TextCopier();
+		copier.transcode(BIG_SAMPLE_TEXT_FILE_PATH_A, StandardCharsets.UTF_8, fileCopyPath, StandardCharsets.UTF_8);
+		assertEquals(Files.size(BIG_SAMPLE_TEXT_FILE_PATH_A), Files.size(fileCopyPath));
+
+		// Converting to UTF-16 (with a byte order mark) doubles the size of an ASCII file
+		copier.transcode(BIG_SAMPLE_TEXT_FILE_PATH_A, StandardCharsets.UTF_8, fileCopyPath, StandardCharsets.UTF_16);
+		assertEquals(2 + 2 * Files.size(BIG_SAMPLE_TEXT_FILE_PATH_A), Files.size(fileCopyPath));
+	}
+
 }
@@ -0,0 +1,176 @@
+package com.jimtough.ch09;
+
+import static com.jimtough.ch09.Ch09Utils.*;
+import static org.junit.Assert.*;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FixedWidthRecordReaderTest {
+
+	private static final Path DATA_PATH = TARGET_DIR.resolve("ch09-FixedWidthRecordReaderTest.dat");
+
+	// The records of DataStreamTest
+	private static final RecordSchema SCHEMA = RecordSchema.builder()
+			.column("byte", ColumnType.BYTE)
+			.column("short", ColumnType.SHORT)
+			.column("int", ColumnType.INT)
+			.column("long", ColumnType.LONG)
+			.column("float", ColumnType.FLOAT)
+			.column("double", ColumnType.DOUBLE)
+			.build();
+
+	private ForkJoinPool pool;
+
+	@Before
+	public void setUp() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	private static void writeRecords(Path path, int records) throws IOException {
+		try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path.toFile())))) {
+			for (int i = 0; i < records; i++) {
+				dos.writeByte(i);
+				dos.writeShort(i);
+				dos.writeInt(i);
+				dos.writeLong(3L * i);
+				dos.writeFloat(i / 2f);
+				dos.writeDouble(-i);
+			}
+		}
+	}
+
+	private static void checkRecord(FixedWidthRecordReader reader, int i) {
+		assertEquals((byte)i, reader.getByte(i, 0));
+		assertEquals((short)i, reader.getShort(i, 1));
+		assertEquals(i, reader.getInt(i, 2));
+		assertEquals(3L * i, reader.getLong(i, 3));
+		assertEquals(i / 2f, reader.getFloat(i, 4), 0);
+		assertEquals(-i, reader.getDouble(i, 5), 0);
+	}
+
+	//--------------------------------------------------------------------
+
+	@Test
+	public void testRandomAccess() throws Exception {
+		writeRecords(DATA_PATH, 10_000);
+		final FixedWidthRecordReader reader = new FixedWidthRecordReader(DATA_PATH, SCHEMA);
+		assertEquals(27, reader.getRecordWidth());
+		assertEquals(10_000, reader.getRecordCount());
+		// Backwards, since no record depends on reading the ones before it
+		for (int i = 9_999; i >= 0; i--) {
+			checkRecord(reader, i);
+		}
+	}
+
+	@Test
+	public void testSmallSegments() throws Exception {
+		writeRecords(DATA_PATH, 2_000);
+		// Less than one record, and segments that don't divide the file evenly
+		for (int maxSegmentBytes : new int[] { 1, 27 * 97, 27 * 97 + 26, 1_000_000 }) {
+			final FixedWidthRecordReader reader = new FixedWidthRecordReader(DATA_PATH, SCHEMA, ByteOrder.BIG_ENDIAN, maxSegmentBytes);
+			for (int i = 0; i < 2_000; i++) {
+				checkRecord(reader, i);
+			}
+		}
+	}
+
+	@Test
+	public void testLittleEndian() throws Exception {
+		final RecordSchema schema = RecordSchema.builder()
+				.column("a", ColumnType.INT)
+				.column("b", ColumnType.LONG)
+				.build();
+		final ByteBuffer buf = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+		buf.putInt(1).putLong(2).putInt(-3).putLong(Long.MAX_VALUE);
+		Files.write(DATA_PATH, buf.array());
+		final FixedWidthRecordReader reader = new FixedWidthRecordReader(DATA_PATH, schema, ByteOrder.LITTLE_ENDIAN);
+		assertEquals(2, reader.getRecordCount());
+		assertEquals(1, reader.getInt(0, 0));
+		assertEquals(2, reader.getLong(0, 1));
+		assertEquals(-3, reader.getInt(1, 0));
+		assertEquals(Long.MAX_VALUE, reader.getLong(1, 1));
+	}
+
+	@Test
+	public void testScan() throws Exception {
+		final int records = 100_003;
+		writeRecords(DATA_PATH, records);
+		final FixedWidthRecordReader reader = new FixedWidthRecordReader(DATA_PATH, SCHEMA, ByteOrder.BIG_ENDIAN, 27 * 1000);
+		final long[] sum = reader.scan(pool,
+				() -> new long[1],
+				(acc, r, record) -> acc[0] += r.getLong(record, 3),
+				(a, b) -> { a[0] += b[0]; return a; });
+		assertEquals(3L * records * (records - 1) / 2, sum[0]);
+
+		// The ranges are combined in order
+		final List<Integer> ints = reader.scan(pool,
+				ArrayList::new,
+				(acc, r, record) -> acc.add(r.getInt(record, 2)),
+				(a, b) -> { a.addAll(b); return a; });
+		assertEquals(records, ints.size());
+		for (int i = 0; i < records; i++) {
+			assertEquals(i, ints.get(i).intValue());
+		}
+	}
+
+	@Test
+	public void testEmptyFile() throws Exception {
+		Files.write(DATA_PATH, new byte[0]);
+		final FixedWidthRecordReader reader = new FixedWidthRecordReader(DATA_PATH, SCHEMA);
+		assertEquals(0, reader.getRecordCount());
+		assertEquals(0, reader.scan(pool, () -> new long[1], (acc, r, record) -> acc[0]++, (a, b) -> a)[0]);
+	}
+
+	@Test(expected=IOException.class)
+	public void testPartialRecord() throws Exception {
+		writeRecords(DATA_PATH, 10);
+		final byte[] bytes = Files.readAllBytes(DATA_PATH);
+		Files.write(DATA_PATH, Arrays.copyOf(bytes, bytes.length - 1));
+		new FixedWidthRecordReader(DATA_PATH, SCHEMA);
+	}
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testNoSuchRecord() throws Exception {
+		writeRecords(DATA_PATH, 10);
+		new FixedWidthRecordReader(DATA_PATH, SCHEMA).getInt(10, 2);
+	}
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testNegativeRecord() throws Exception {
+		writeRecords(DATA_PATH, 10);
+		new FixedWidthRecordReader(DATA_PATH, SCHEMA).getInt(-1, 2);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testWrongType() throws Exception {
+		writeRecords(DATA_PATH, 10);
+		new FixedWidthRecordReader(DATA_PATH, SCHEMA).getInt(0, 3);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNoSuchField() throws Exception {
+		writeRecords(DATA_PATH, 10);
+		new FixedWidthRecordReader(DATA_PATH, SCHEMA).getInt(0, 6);
+	}
+
+}
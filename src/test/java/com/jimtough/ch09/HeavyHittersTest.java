@@ -0,0 +1,160 @@
+package com.jimtough.ch09;
+
+import static com.jimtough.ch09.Ch09Utils.*;
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class HeavyHittersTest {
+
+	private static List<String> TOKENS;
+	private static Map<String,Long> EXACT_COUNTS;
+
+	@BeforeClass
+	public static void oneTimeSetUp() throws Exception {
+		TOKENS = new ArrayList<>();
+		try (
+				BufferedReader br = Files.newBufferedReader(BIG_SAMPLE_TEXT_FILE_PATH_A);
+				Scanner scanner = new Scanner(br);) {
+			scanner.useDelimiter("\\W");
+			while (scanner.hasNext()) {
+				String token = scanner.next();
+				if (!token.isEmpty()) {
+					TOKENS.add(token.toLowerCase());
+				}
+			}
+		}
+		EXACT_COUNTS = new TreeMap<>();
+		for (String token : TOKENS) {
+			EXACT_COUNTS.merge(token, 1L, Long::sum);
+		}
+	}
+
+	//--------------------------------------------------------------------
+
+	private static HeavyHitters<String> countTokens(int capacity) {
+		HeavyHitters<String> heavyHitters = new HeavyHitters<>(capacity);
+		TOKENS.forEach(heavyHitters::add);
+		return heavyHitters;
+	}
+
+	private static List<String> exactTop(int k) {
+		List<Map.Entry<String,Long>> entries = new ArrayList<>(EXACT_COUNTS.entrySet());
+		Collections.sort(entries, (a, b) -> Long.compare(b.getValue(), a.getValue()));
+		return entries.subList(0, k).stream().map(Map.Entry::getKey).collect(Collectors.toList());
+	}
+
+	@Test
+	public void testErrorBounds() {
+		for (int capacity : new int[] { 1, 10, 100, 500 }) {
+			HeavyHitters<String> heavyHitters = countTokens(capacity);
+			assertEquals(TOKENS.size(), heavyHitters.getTotal());
+			final long maxError = heavyHitters.getMaxError();
+			assertTrue(maxError > 0);
+			assertTrue(maxError <= TOKENS.size() / capacity);
+			Set<String> counted = new HashSet<>();
+			for (HeavyHitters.Estimate<String> estimate : heavyHitters.top(capacity)) {
+				final long exact = EXACT_COUNTS.get(estimate.getItem());
+				assertTrue(estimate.toString(), estimate.getGuaranteedCount() <= exact);
+				assertTrue(estimate.toString(), estimate.getCount() >= exact);
+				assertTrue(estimate.toString(), estimate.getError() <= maxError);
+				counted.add(estimate.getItem());
+			}
+			assertEquals(capacity, counted.size());
+			// Every item that occurred more than maxError times has a counter
+			for (Map.Entry<String,Long> entry : EXACT_COUNTS.entrySet()) {
+				if (entry.getValue() > maxError) {
+					assertTrue(entry.getKey(), counted.contains(entry.getKey()));
+				} else if (!counted.contains(entry.getKey())) {
+					assertEquals(maxError, heavyHitters.get(entry.getKey()).getCount());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testTopMatchesExactCounts() {
+		HeavyHitters<String> heavyHitters = countTokens(500);
+		assertTrue(heavyHitters.isTopGuaranteed(20));
+		List<String> top = heavyHitters.top(20).stream().map(HeavyHitters.Estimate::getItem).collect(Collectors.toList());
+		assertEquals(new HashSet<>(exactTop(20)), new HashSet<>(top));
+		assertEquals("the", top.get(0));
+		assertEquals(EXACT_COUNTS.get("the").longValue(), heavyHitters.get("the").getGuaranteedCount());
+	}
+
+	@Test
+	public void testExactWhileCountersAreFree() {
+		HeavyHitters<String> heavyHitters = countTokens(EXACT_COUNTS.size());
+		assertEquals(0, heavyHitters.getMaxError());
+		assertTrue(heavyHitters.isTopGuaranteed(EXACT_COUNTS.size()));
+		for (HeavyHitters.Estimate<String> estimate : heavyHitters.top(Integer.MAX_VALUE)) {
+			assertEquals(0, estimate.getError());
+			assertEquals(EXACT_COUNTS.get(estimate.getItem()).longValue(), estimate.getCount());
+		}
+		assertEquals(0, heavyHitters.get("no such word").getCount());
+	}
+
+	@Test
+	public void testRandomStream() {
+		// A few items that are each 1% of a long stream of distinct ones, which needs more than
+		// 100 counters for maxError to fall below their counts
+		Random random = new Random(42);
+		HeavyHitters<Integer> heavyHitters = new HeavyHitters<>(500);
+		long[] frequent = new long[5];
+		for (int i = 0; i < 1_000_000; i++) {
+			final int r = random.nextInt(100);
+			if (r < frequent.length) {
+				frequent[r]++;
+				heavyHitters.add(r);
+			} else {
+				heavyHitters.add(1000 + i);
+			}
+		}
+		assertTrue(heavyHitters.isTopGuaranteed(frequent.length));
+		for (HeavyHitters.Estimate<Integer> estimate : heavyHitters.top(frequent.length)) {
+			assertTrue(estimate.getItem() < frequent.length);
+			assertTrue(estimate.getGuaranteedCount() <= frequent[estimate.getItem()]);
+			assertTrue(estimate.getCount() >= frequent[estimate.getItem()]);
+		}
+	}
+
+	@Test
+	public void testTopOfEmpty() {
+		HeavyHitters<String> heavyHitters = new HeavyHitters<>(10);
+		assertTrue(heavyHitters.top(5).isEmpty());
+		assertTrue(heavyHitters.isTopGuaranteed(5));
+		assertEquals(0, heavyHitters.getMaxError());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testZeroCapacity() {
+		new HeavyHitters<String>(0);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNegativeTopGuaranteed() {
+		HeavyHitters<String> heavyHitters = new HeavyHitters<>(10);
+		heavyHitters.add("a");
+		heavyHitters.isTopGuaranteed(-1);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNullItem() {
+		new HeavyHitters<String>(10).add(null);
+	}
+
+}
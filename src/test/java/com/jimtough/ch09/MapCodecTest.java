@@ -0,0 +1,246 @@
+package com.jimtough.ch09;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class MapCodecTest {
+
+	private static byte[] encode(Map<String, String> map) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (MapEncoder encoder = new MapEncoder(bytes, MapEntryType.STRING, MapEntryType.STRING)) {
+			encoder.putAll(map);
+			assertEquals(map.size(), encoder.getEntryCount());
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Map<String, String> decode(byte[] bytes) throws IOException {
+		try (MapDecoder decoder = new MapDecoder(new ByteArrayInputStream(bytes))) {
+			return decoder.readStringMap();
+		}
+	}
+
+	//--------------------------------------------------------------------
+
+	@Test
+	public void testStringMap() throws Exception {
+		Map<String, String> map = new LinkedHashMap<>();
+		map.put("banana", "yellow");
+		map.put("apple", "red");
+		map.put("orange", "orange");
+		map.put("grape", "purple");
+		map.put("cherry", "red");
+		map.put("", "");
+		map.put(null, "none");
+		map.put("none", null);
+		map.put("cr\u00e8me br\u00fbl\u00e9e", "\u20ac\ud83d\udc15");
+		final Map<String, String> decoded = decode(encode(map));
+		assertEquals(map, decoded);
+		// In the same order
+		assertEquals(Arrays.asList(map.keySet().toArray()), Arrays.asList(decoded.keySet().toArray()));
+	}
+
+	@Test
+	public void testEmptyMap() throws Exception {
+		assertEquals(new LinkedHashMap<>(), decode(encode(new LinkedHashMap<>())));
+	}
+
+	@Test
+	public void testLargeMap() throws Exception {
+		// Many blocks, and more distinct values than fit in the dictionary
+		Map<String, String> map = new LinkedHashMap<>();
+		for (int i = 0; i < 200_000; i++) {
+			map.put("key" + i, "value" + (i % 100_000));
+		}
+		assertEquals(map, decode(encode(map)));
+	}
+
+	@Test
+	public void testFullDictionary() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (MapEncoder encoder = new MapEncoder(bytes, MapEntryType.INT, MapEntryType.STRING, 2)) {
+			for (int i = 0; i < 100; i++) {
+				encoder.key(i).value("v" + (i % 5));
+			}
+		}
+		try (MapDecoder decoder = new MapDecoder(new ByteArrayInputStream(bytes.toByteArray()))) {
+			for (int i = 0; i < 100; i++) {
+				assertTrue(decoder.next());
+				assertEquals(i, decoder.getIntKey());
+				assertEquals("v" + (i % 5), decoder.getStringValue());
+			}
+			assertFalse(decoder.next());
+		}
+	}
+
+	@Test
+	public void testPrimitiveKeysAndValues() throws Exception {
+		final int[] ints = { 0, 1, -1, 63, -64, 64, 1000, Integer.MAX_VALUE, Integer.MIN_VALUE };
+		final long[] longs = { 0, 1, -1, Integer.MAX_VALUE + 1L, Long.MAX_VALUE, Long.MIN_VALUE };
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (MapEncoder encoder = new MapEncoder(bytes, MapEntryType.INT, MapEntryType.LONG)) {
+			for (int i = 0; i < ints.length; i++) {
+				encoder.key(ints[i]).value(longs[i % longs.length]);
+			}
+		}
+		try (MapDecoder decoder = new MapDecoder(new ByteArrayInputStream(bytes.toByteArray()))) {
+			assertEquals(MapEntryType.INT, decoder.getKeyType());
+			assertEquals(MapEntryType.LONG, decoder.getValueType());
+			for (int i = 0; i < ints.length; i++) {
+				assertTrue(decoder.next());
+				assertEquals(ints[i], decoder.getIntKey());
+				assertEquals(ints[i], decoder.getLongKey());
+				assertEquals(longs[i % longs.length], decoder.getLongValue());
+			}
+			assertFalse(decoder.next());
+			assertFalse(decoder.next());
+		}
+
+		bytes = new ByteArrayOutputStream();
+		try (MapEncoder encoder = new MapEncoder(bytes, MapEntryType.LONG, MapEntryType.INT)) {
+			for (int i = 0; i < ints.length; i++) {
+				encoder.key(longs[i % longs.length] + i).value(ints[i]);
+			}
+			// An int is widened to a long key
+			encoder.key(7).value(8);
+		}
+		try (MapDecoder decoder = new MapDecoder(new ByteArrayInputStream(bytes.toByteArray()))) {
+			for (int i = 0; i < ints.length; i++) {
+				assertTrue(decoder.next());
+				assertEquals(longs[i % longs.length] + i, decoder.getLongKey());
+				assertEquals(ints[i], decoder.getIntValue());
+			}
+			assertTrue(decoder.next());
+			assertEquals(7, decoder.getLongKey());
+			assertEquals(8, decoder.getIntValue());
+			assertFalse(decoder.next());
+		}
+	}
+
+	@Test
+	public void testStreaming() throws Exception {
+		// The entries written before a flush can be read before the map ends
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		MapEncoder encoder = new MapEncoder(bytes, MapEntryType.STRING, MapEntryType.INT);
+		encoder.key("a").value(1).key("b").value(2).key("c");
+		encoder.flush();
+		try (MapDecoder decoder = new MapDecoder(new ByteArrayInputStream(bytes.toByteArray()))) {
+			assertTrue(decoder.next());
+			assertEquals("a", decoder.getStringKey());
+			assertTrue(decoder.next());
+			assertEquals("b", decoder.getStringKey());
+			try {
+				decoder.next();
+				fail("Expected EOFException");
+			} catch (EOFException e) {
+				// Expected
+			}
+		}
+		encoder.value(3);
+		// A key without a value is discarded
+		encoder.key("d");
+		encoder.close();
+		assertEquals(3, encoder.getEntryCount());
+		final Map<String, String> decoded = new LinkedHashMap<>();
+		try (MapDecoder decoder = new MapDecoder(new ByteArrayInputStream(bytes.toByteArray()))) {
+			while (decoder.next()) {
+				decoded.put(decoder.getStringKey(), Integer.toString(decoder.getIntValue()));
+			}
+		}
+		assertEquals("{a=1, b=2, c=3}", decoded.toString());
+	}
+
+	@Test
+	public void testSmallerThanObjectOutputStream() throws Exception {
+		Map<String, String> map = new LinkedHashMap<>();
+		for (int i = 0; i < 10_000; i++) {
+			map.put("key" + i, "colour" + (i % 10));
+		}
+		ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(serialized)) {
+			oos.writeObject(map);
+		}
+		final byte[] encoded = encode(map);
+		assertTrue(encoded.length + " vs " + serialized.size(), 2 * encoded.length < serialized.size());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testWrongKeyType() throws Exception {
+		try (MapEncoder encoder = new MapEncoder(new ByteArrayOutputStream(), MapEntryType.INT, MapEntryType.STRING)) {
+			encoder.key("a");
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testWrongGetterType() throws Exception {
+		Map<String, String> map = new LinkedHashMap<>();
+		map.put("a", "b");
+		try (MapDecoder decoder = new MapDecoder(new ByteArrayInputStream(encode(map)))) {
+			decoder.next();
+			decoder.getIntValue();
+		}
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void testNoCurrentEntry() throws Exception {
+		try (MapDecoder decoder = new MapDecoder(new ByteArrayInputStream(encode(new LinkedHashMap<>())))) {
+			decoder.getStringKey();
+		}
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void testValueWithoutKey() throws Exception {
+		try (MapEncoder encoder = new MapEncoder(new ByteArrayOutputStream(), MapEntryType.INT, MapEntryType.INT)) {
+			encoder.value(1);
+		}
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void testTwoKeys() throws Exception {
+		try (MapEncoder encoder = new MapEncoder(new ByteArrayOutputStream(), MapEntryType.INT, MapEntryType.INT)) {
+			encoder.key(1).key(2);
+		}
+	}
+
+	@Test(expected=IOException.class)
+	public void testNotAnEncodedMap() throws Exception {
+		new MapDecoder(new ByteArrayInputStream("Not a map".getBytes("US-ASCII")));
+	}
+
+	@Test(expected=IOException.class)
+	public void testNegativeDictionaryIndex() throws Exception {
+		// An empty map ends with a block of no entries. Put a block of one entry in its place,
+		// whose value is a 64-bit tag with the top bit set.
+		final byte[] empty = encode(new LinkedHashMap<>());
+		assertEquals(0, empty[empty.length - 1]);
+		final byte[] bytes = Arrays.copyOf(empty, empty.length + 12);
+		int i = empty.length - 1;
+		bytes[i++] = 1;
+		bytes[i++] = 1;
+		for (int b = 0; b < 9; b++) {
+			bytes[i++] = (byte)0xff;
+		}
+		bytes[i++] = 1;
+		bytes[i] = 0;
+		decode(bytes);
+	}
+
+	@Test(expected=EOFException.class)
+	public void testTruncated() throws Exception {
+		Map<String, String> map = new LinkedHashMap<>();
+		map.put("banana", "yellow");
+		final byte[] bytes = encode(map);
+		decode(Arrays.copyOf(bytes, bytes.length - 3));
+	}
+
+}
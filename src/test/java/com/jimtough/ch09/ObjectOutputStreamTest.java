@@ -7,6 +7,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -61,4 +62,35 @@ public class ObjectOutputStreamTest {
 		}
 	}
 
+	@Test
+	public void testWriteMapToMapEncoderThenReadItBack() throws Exception {
+		Path dataFilePath = TARGET_DIR.resolve("ch09-ObjectOutputStreamTest.map");
+		Map<String,String> fruitToColourMap = new LinkedHashMap<>();
+		fruitToColourMap.put("banana", "yellow");
+		fruitToColourMap.put("apple", "red");
+		fruitToColourMap.put("orange", "orange");
+		fruitToColourMap.put("grape", "purple");
+
+		// No class descriptors, just the strings
+		try (FileOutputStream fos = new FileOutputStream(dataFilePath.toFile());
+				MapEncoder encoder = new MapEncoder(fos, MapEntryType.STRING, MapEntryType.STRING);) {
+			encoder.putAll(fruitToColourMap);
+		}
+		LOGGER.debug("size of encoded map: [{}] bytes", Files.size(dataFilePath));
+
+		// The entries can be read one at a time, without creating a map
+		try (FileInputStream fis = new FileInputStream(dataFilePath.toFile());
+				MapDecoder decoder = new MapDecoder(fis);) {
+			while (decoder.next()) {
+				LOGGER.debug("fruit: {} | colour: {}", decoder.getStringKey(), decoder.getStringValue());
+				assertEquals(fruitToColourMap.get(decoder.getStringKey()), decoder.getStringValue());
+			}
+		}
+
+		try (FileInputStream fis = new FileInputStream(dataFilePath.toFile());
+				MapDecoder decoder = new MapDecoder(fis);) {
+			assertEquals(fruitToColourMap, decoder.readStringMap());
+		}
+	}
+
 }
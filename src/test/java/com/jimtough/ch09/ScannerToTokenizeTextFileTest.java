@@ -131,4 +131,31 @@ public class ScannerToTokenizeTextFileTest {
 			LOGGER.debug(String.format("%04d|%s",entry.getValue(),entry.getKey()));
 		}
 	}
+	
+	// Same output as testScannerTokenizesTextFile_B for the most frequent tokens, but counted as
+	// they are read, with a fixed number of counters instead of a list of every token and a map of
+	// every distinct one
+	@Test
+	public void testScannerTokenizesTextFile_C() throws Exception {
+		HeavyHitters<String> heavyHitters = new HeavyHitters<>(500);
+		try (
+			FileReader fr = new FileReader(BIG_SAMPLE_TEXT_FILE_PATH_A.toString());
+			BufferedReader br = new BufferedReader(fr);
+			Scanner scanner = new Scanner(br);
+		) {
+			// This delimiter regex will match 'non-words'
+			scanner.useDelimiter("\\W");
+			while (scanner.hasNext()) {
+				String token = scanner.next();
+				if (!token.isEmpty()) {
+					heavyHitters.add(token);
+				}
+			}
+		}
+		LOGGER.debug("{}", heavyHitters);
+		assertTrue(heavyHitters.isTopGuaranteed(25));
+		for (HeavyHitters.Estimate<String> estimate : heavyHitters.top(25)) {
+			LOGGER.debug(String.format("%04d|%s (error: %d)", estimate.getCount(), estimate.getItem(), estimate.getError()));
+		}
+	}
 }
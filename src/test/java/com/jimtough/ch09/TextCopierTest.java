@@ -0,0 +1,121 @@
+package com.jimtough.ch09;
+
+import static com.jimtough.ch09.Ch09Utils.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnmappableCharacterException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TextCopierTest {
+
+	private static final Path SOURCE_PATH = TARGET_DIR.resolve("ch09-TextCopierTest-source.txt");
+	private static final Path TARGET_PATH = TARGET_DIR.resolve("ch09-TextCopierTest-target.txt");
+
+	private static String TEXT;
+
+	@BeforeClass
+	public static void oneTimeSetUp() throws Exception {
+		// The novel, with some characters that take several bytes in UTF-8, and some that take
+		// two chars in UTF-16
+		TEXT = new String(Files.readAllBytes(BIG_SAMPLE_TEXT_FILE_PATH_A), StandardCharsets.UTF_8)
+				.replace("e ", "\u00e9 ")
+				.replace("Buck", "B\u20acck")
+				.replace("dog", "d\ud83d\udc15g");
+	}
+
+	//--------------------------------------------------------------------
+
+	@Test
+	public void testCopy() throws Exception {
+		final long bytesCopied = new TextCopier().copy(BIG_SAMPLE_TEXT_FILE_PATH_A, TARGET_PATH);
+		assertEquals(Files.size(BIG_SAMPLE_TEXT_FILE_PATH_A), bytesCopied);
+		assertArrayEquals(Files.readAllBytes(BIG_SAMPLE_TEXT_FILE_PATH_A), Files.readAllBytes(TARGET_PATH));
+	}
+
+	@Test
+	public void testTranscode() throws Exception {
+		final Charset[] charsets = { StandardCharsets.UTF_8, StandardCharsets.UTF_16, StandardCharsets.UTF_16LE, Charset.forName("UTF-32") };
+		// Small buffers put many characters across buffer boundaries
+		for (int bufferSize : new int[] { TextCopier.MIN_BUFFER_SIZE, 17, 1000, TextCopier.DEFAULT_BUFFER_SIZE }) {
+			TextCopier copier = new TextCopier(bufferSize);
+			for (Charset sourceCharset : charsets) {
+				Files.write(SOURCE_PATH, TEXT.getBytes(sourceCharset));
+				for (Charset targetCharset : charsets) {
+					final long written = copier.transcode(SOURCE_PATH, sourceCharset, TARGET_PATH, targetCharset);
+					final byte[] expected = TEXT.getBytes(targetCharset);
+					final String message = bufferSize + ": " + sourceCharset + " to " + targetCharset;
+					assertEquals(message, expected.length, written);
+					assertArrayEquals(message, expected, Files.readAllBytes(TARGET_PATH));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testTranscodeToSingleByteCharset() throws Exception {
+		final String text = TEXT.replace("\u20ac", "E").replace("\ud83d\udc15", "o");
+		Files.write(SOURCE_PATH, text.getBytes(StandardCharsets.UTF_8));
+		new TextCopier(100).transcode(SOURCE_PATH, StandardCharsets.UTF_8, TARGET_PATH, StandardCharsets.ISO_8859_1);
+		assertArrayEquals(text.getBytes(StandardCharsets.ISO_8859_1), Files.readAllBytes(TARGET_PATH));
+	}
+
+	@Test
+	public void testEmptyFile() throws Exception {
+		Files.write(SOURCE_PATH, new byte[0]);
+		assertEquals(0, new TextCopier().transcode(SOURCE_PATH, StandardCharsets.UTF_8, TARGET_PATH, StandardCharsets.UTF_16LE));
+		assertEquals(0, Files.size(TARGET_PATH));
+	}
+
+	@Test(expected=MalformedInputException.class)
+	public void testMalformedInput() throws Exception {
+		// Ends in the middle of a character
+		Files.write(SOURCE_PATH, new byte[] { 'a', (byte)0xe2, (byte)0x82 });
+		new TextCopier().transcode(SOURCE_PATH, StandardCharsets.UTF_8, TARGET_PATH, StandardCharsets.UTF_16);
+	}
+
+	@Test(expected=UnmappableCharacterException.class)
+	public void testUnmappableCharacter() throws Exception {
+		Files.write(SOURCE_PATH, "10\u20ac".getBytes(StandardCharsets.UTF_8));
+		new TextCopier().transcode(SOURCE_PATH, StandardCharsets.UTF_8, TARGET_PATH, StandardCharsets.ISO_8859_1);
+	}
+
+	@Test
+	public void testSameCharsetCopiesBytesAsTheyAre() throws Exception {
+		final byte[] malformed = { 'a', (byte)0xe2, (byte)0x82 };
+		Files.write(SOURCE_PATH, malformed);
+		assertEquals(3, new TextCopier().transcode(SOURCE_PATH, StandardCharsets.UTF_8, TARGET_PATH, StandardCharsets.UTF_8));
+		assertArrayEquals(malformed, Files.readAllBytes(TARGET_PATH));
+	}
+
+	@Test
+	public void testCopyOntoItselfLeavesFileAsItIs() throws Exception {
+		final byte[] bytes = TEXT.getBytes(StandardCharsets.UTF_8);
+		Files.write(SOURCE_PATH, bytes);
+		TextCopier copier = new TextCopier();
+		assertEquals(0, copier.copy(SOURCE_PATH, SOURCE_PATH));
+		// The same file by another path
+		Path samePath = SOURCE_PATH.getParent().resolve(".").resolve(SOURCE_PATH.getFileName());
+		assertEquals(0, copier.transcode(SOURCE_PATH, StandardCharsets.UTF_8, samePath, StandardCharsets.UTF_8));
+		try {
+			copier.transcode(SOURCE_PATH, StandardCharsets.UTF_8, samePath, StandardCharsets.UTF_16);
+			fail();
+		} catch (IOException ioe) {
+			// Expected
+		}
+		assertArrayEquals(bytes, Files.readAllBytes(SOURCE_PATH));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testBufferTooSmall() {
+		new TextCopier(TextCopier.MIN_BUFFER_SIZE - 1);
+	}
+
+}
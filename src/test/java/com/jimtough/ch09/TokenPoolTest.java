@@ -0,0 +1,106 @@
+package com.jimtough.ch09;
+
+import static com.jimtough.ch09.Ch09Utils.*;
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TokenPoolTest {
+
+	private static byte[] TEXT_FILE_BYTES;
+	private static char[] TEXT_FILE_CHARS;
+
+	@BeforeClass
+	public static void oneTimeSetUp() throws Exception {
+		TEXT_FILE_BYTES = Files.readAllBytes(BIG_SAMPLE_TEXT_FILE_PATH_A);
+		TEXT_FILE_CHARS = new String(TEXT_FILE_BYTES, StandardCharsets.UTF_8).toCharArray();
+	}
+
+	//--------------------------------------------------------------------
+
+	@Test
+	public void testSameCountsAsWordFrequencyEngine() throws Exception {
+		TokenPool pool = new TokenPool();
+		long[] counts = countWords(pool, TEXT_FILE_CHARS);
+		SortedMap<String,Long> map = new TreeMap<>();
+		for (int id = 0; id < counts.length; id++) {
+			assertNull(map.put(pool.get(id), counts[id]));
+		}
+		assertEquals(new WordFrequencyEngine().count(BIG_SAMPLE_TEXT_FILE_PATH_A).toSortedMap(), map);
+	}
+
+	@Test
+	public void testSameIdsFromBytesAndChars() {
+		TokenPool pool = new TokenPool();
+		countWords(pool, TEXT_FILE_CHARS);
+		final int size = pool.size();
+		// The file is ASCII, so the words are at the same indexes in both arrays
+		assertEquals(TEXT_FILE_CHARS.length, TEXT_FILE_BYTES.length);
+		int start = -1;
+		for (int i = 0; i <= TEXT_FILE_BYTES.length; i++) {
+			final boolean isWordByte = i < TEXT_FILE_BYTES.length && AsciiWords.toLowerCaseWordByte(TEXT_FILE_BYTES[i]) != 0;
+			if (isWordByte && start < 0) {
+				start = i;
+			} else if (!isWordByte && start >= 0) {
+				assertEquals(pool.intern(TEXT_FILE_CHARS, start, i), pool.intern(TEXT_FILE_BYTES, start, i));
+				start = -1;
+			}
+		}
+		assertEquals(size, pool.size());
+	}
+
+	@Test
+	public void testCanonicalLowerCaseToken() {
+		TokenPool pool = new TokenPool();
+		final int id = pool.intern("Buck");
+		assertEquals(0, id);
+		assertEquals(id, pool.intern("BUCK"));
+		assertEquals(id, pool.intern("xbuckx".toCharArray(), 1, 5));
+		assertEquals(id, pool.intern("..bUcK".getBytes(StandardCharsets.ISO_8859_1), 2, 6));
+		assertEquals("buck", pool.get(id));
+		assertSame(pool.get(id), pool.get(id));
+		assertEquals(1, pool.intern("buckle"));
+		assertEquals(2, pool.intern(""));
+		assertEquals("", pool.get(2));
+		assertEquals(3, pool.size());
+	}
+
+	@Test
+	public void testNonAsciiCharacters() {
+		TokenPool pool = new TokenPool();
+		final int id = pool.intern("\u00c9T\u00c9");
+		assertEquals("\u00e9t\u00e9", pool.get(id));
+		assertEquals(id, pool.intern("\u00e9t\u00e9".getBytes(StandardCharsets.ISO_8859_1), 0, 3));
+		assertEquals(id, pool.intern("\u00c9t\u00e9"));
+	}
+
+	@Test
+	public void testManyTokens() {
+		TokenPool pool = new TokenPool();
+		for (int i = 0; i < 100_000; i++) {
+			assertEquals(i, pool.intern("Token" + i));
+		}
+		for (int i = 0; i < 100_000; i++) {
+			assertEquals(i, pool.intern("TOKEN" + i));
+			assertEquals("token" + i, pool.get(i));
+		}
+		assertEquals(100_000, pool.size());
+	}
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testGetUnknownId() {
+		new TokenPool().get(0);
+	}
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testInvalidRange() {
+		new TokenPool().intern(new char[3], 2, 4);
+	}
+
+}
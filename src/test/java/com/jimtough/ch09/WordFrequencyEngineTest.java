@@ -0,0 +1,140 @@
+package com.jimtough.ch09;
+
+import static com.jimtough.ch09.Ch09Utils.*;
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WordFrequencyEngineTest {
+
+	private ForkJoinPool pool;
+
+	@Before
+	public void setUp() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		pool.shutdownNow();
+	}
+
+	//--------------------------------------------------------------------
+
+	// The word count of ScannerToTokenizeTextFileTest.testScannerTokenizesTextFile_A
+	private static SortedMap<String,Long> countWithScanner(Path path) throws Exception {
+		TreeMap<String,Long> tokenToCountMap = new TreeMap<>();
+		try (
+				BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+				Scanner scanner = new Scanner(br);) {
+			scanner.useDelimiter("\\W");
+			while (scanner.hasNext()) {
+				String token = scanner.next();
+				if (!token.isEmpty()) {
+					tokenToCountMap.merge(token.toLowerCase(), 1L, Long::sum);
+				}
+			}
+		}
+		return tokenToCountMap;
+	}
+
+	private Path writeFile(String text) throws Exception {
+		Path path = TARGET_DIR.resolve("ch09-WordFrequencyEngineTest.txt");
+		Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+		return path;
+	}
+
+	@Test
+	public void testSameCountsAsScanner() throws Exception {
+		final SortedMap<String,Long> expected = countWithScanner(BIG_SAMPLE_TEXT_FILE_PATH_A);
+		WordCounts counts = new WordFrequencyEngine(pool).count(BIG_SAMPLE_TEXT_FILE_PATH_A);
+		assertEquals(expected, counts.toSortedMap());
+		assertEquals(expected.size(), counts.size());
+		assertEquals(expected.values().stream().mapToLong(Long::longValue).sum(), counts.total());
+		assertEquals(expected.get("buck").longValue(), counts.get("buck"));
+		assertEquals(0, counts.get("Buck"));
+		assertEquals(0, counts.get("no such word"));
+		assertEquals(expected, new WordFrequencyEngine().count(BIG_SAMPLE_TEXT_FILE_PATH_A).toSortedMap());
+	}
+
+	@Test
+	public void testSameCountsWithSmallChunks() throws Exception {
+		final SortedMap<String,Long> expected = countWithScanner(BIG_SAMPLE_TEXT_FILE_PATH_A);
+		// Each chunk is mapped separately, so these are kept large enough not to need hundreds of
+		// thousands of mappings
+		for (int chunkBytes : new int[] { 97, 100, 1000, 4099 }) {
+			WordCounts counts = new WordFrequencyEngine(pool, 1, chunkBytes).count(BIG_SAMPLE_TEXT_FILE_PATH_A);
+			assertEquals("chunkBytes: " + chunkBytes, expected, counts.toSortedMap());
+		}
+	}
+
+	@Test
+	public void testWordsCrossingManyChunks() throws Exception {
+		StringBuilder sb = new StringBuilder("start ");
+		for (int i = 0; i < 3 * WordFrequencyEngine.OVERHANG_BYTES; i++) {
+			sb.append((char)('A' + i % 26));
+		}
+		sb.append(" end end");
+		Path path = writeFile(sb.toString());
+		final SortedMap<String,Long> expected = countWithScanner(path);
+		for (int chunkBytes : new int[] { 100, 1000, 1 << 20 }) {
+			assertEquals(expected, new WordFrequencyEngine(pool, 1, chunkBytes).count(path).toSortedMap());
+		}
+	}
+
+	@Test
+	public void testDelimitersAndNonAsciiCharacters() throws Exception {
+		final String[] texts = {
+			"",
+			" ",
+			"word",
+			"  two  Words\r\nTWO_words\t2 words, 2words! ",
+			"caf\u00e9 na\u00efve \u00fcber \u20ac100 stra\u00dfe \u65e5\u672c\u8a9e x\u65e5y",
+		};
+		for (String text : texts) {
+			Path path = writeFile(text);
+			final SortedMap<String,Long> expected = countWithScanner(path);
+			for (int chunkBytes : new int[] { 1, 2, 5, 1 << 20 }) {
+				assertEquals("[" + text + "]", expected, new WordFrequencyEngine(pool, 1, chunkBytes).count(path).toSortedMap());
+			}
+		}
+	}
+
+	@Test
+	public void testTop() throws Exception {
+		WordCounts counts = new WordFrequencyEngine(pool).count(BIG_SAMPLE_TEXT_FILE_PATH_A);
+		List<Map.Entry<String,Long>> expected = new ArrayList<>(counts.toSortedMap().entrySet());
+		// Stable sort, so words with the same count stay in alphabetical order
+		Collections.sort(expected, (a, b) -> Long.compare(b.getValue(), a.getValue()));
+		assertEquals(expected.subList(0, 25), counts.top(25));
+		assertEquals("the", counts.top(1).get(0).getKey());
+		assertEquals(expected, counts.top(Integer.MAX_VALUE));
+		assertTrue(counts.top(0).isEmpty());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNullPool() {
+		new WordFrequencyEngine(null);
+	}
+
+	@Test(expected=java.nio.file.NoSuchFileException.class)
+	public void testNoSuchFile() throws Exception {
+		new WordFrequencyEngine(pool).count(TARGET_DIR.resolve("ch09-no-such-file.txt"));
+	}
+
+}
@@ -0,0 +1,202 @@
+package com.jimtough.ch10;
+
+import static com.jimtough.ch10.Ch10Utils.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class BulkFileCopierTest {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BulkFileCopierTest.class);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final Path SOURCE_DIR = TARGET_DIR.resolve("ch10-BulkFileCopierTest-source");
+	private static final Path TARGET_COPY_DIR = TARGET_DIR.resolve("ch10-BulkFileCopierTest-target");
+
+	private BulkFileCopier copier;
+	private long sourceFiles;
+	private long sourceDirectories;
+	private long sourceBytes;
+
+	@Before
+	public void setUp() throws Exception {
+		deleteTree(SOURCE_DIR);
+		deleteTree(TARGET_COPY_DIR);
+		// Lots of small files, some larger than the buffer, a few of them empty, and an empty
+		// directory
+		Random random = new Random(42);
+		for (int d = 0; d < 10; d++) {
+			Path dir = Files.createDirectories(SOURCE_DIR.resolve("dir" + d).resolve("sub" + d % 3));
+			sourceDirectories += 2;
+			for (int f = 0; f < 50; f++) {
+				final int size = f % 25 == 0 ? BUFFER_SIZE + random.nextInt(3 * BUFFER_SIZE) : random.nextInt(2000) * (f % 7);
+				byte[] bytes = new byte[size];
+				random.nextBytes(bytes);
+				Files.write(dir.resolve("file" + f + ".bin"), bytes);
+				sourceFiles++;
+				sourceBytes += size;
+			}
+		}
+		Files.createDirectories(SOURCE_DIR.resolve("empty"));
+		Files.copy(BIG_SAMPLE_TEXT_FILE_PATH, SOURCE_DIR.resolve(BIG_SAMPLE_TEXT_FILE_NAME));
+		sourceDirectories++;
+		sourceFiles++;
+		sourceBytes += Files.size(BIG_SAMPLE_TEXT_FILE_PATH);
+		copier = new BulkFileCopier(4, BUFFER_SIZE);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		copier.close();
+	}
+
+	private static void deleteTree(Path root) throws IOException {
+		if (!Files.exists(root)) {
+			return;
+		}
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private static void assertSameTree(Path expectedRoot, Path actualRoot) throws IOException {
+		List<Path> expected;
+		try (Stream<Path> paths = Files.walk(expectedRoot)) {
+			expected = paths.map(expectedRoot::relativize).sorted().collect(Collectors.toList());
+		}
+		List<Path> actual;
+		try (Stream<Path> paths = Files.walk(actualRoot)) {
+			actual = paths.map(actualRoot::relativize).sorted().collect(Collectors.toList());
+		}
+		assertEquals(expected, actual);
+		for (Path path : expected) {
+			if (Files.isRegularFile(expectedRoot.resolve(path))) {
+				assertArrayEquals(path.toString(), Files.readAllBytes(expectedRoot.resolve(path)), Files.readAllBytes(actualRoot.resolve(path)));
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------
+
+	@Test
+	public void testCopyTree() throws Exception {
+		CopyStats stats = copier.copyTree(SOURCE_DIR, TARGET_COPY_DIR);
+		LOGGER.debug("{}", stats);
+		assertSameTree(SOURCE_DIR, TARGET_COPY_DIR);
+		assertEquals(sourceFiles, stats.getFiles());
+		// Plus the root
+		assertEquals(sourceDirectories + 1, stats.getDirectories());
+		assertEquals(sourceBytes, stats.getBytes());
+		assertTrue(stats.getBytesPerSecond() > 0);
+		assertTrue(stats.getFilesPerSecond() > 0);
+	}
+
+	@Test
+	public void testCopyTreeReplacesExistingFiles() throws Exception {
+		copier.copyTree(SOURCE_DIR, TARGET_COPY_DIR);
+		// Shorter than before, so the old contents must be truncated
+		Path small = SOURCE_DIR.resolve("dir1").resolve("sub1").resolve("file1.bin");
+		Path large = SOURCE_DIR.resolve("dir1").resolve("sub1").resolve("file0.bin");
+		Files.write(small, new byte[] { 1, 2, 3 });
+		Files.write(large, new byte[BUFFER_SIZE + 1]);
+		CopyStats stats = copier.copyTree(SOURCE_DIR, TARGET_COPY_DIR);
+		assertSameTree(SOURCE_DIR, TARGET_COPY_DIR);
+		assertEquals(sourceFiles, stats.getFiles());
+	}
+
+	@Test
+	public void testCopyListOfFiles() throws Exception {
+		// Only the files, so the target directories must be created from their paths
+		List<Path> files;
+		try (Stream<Path> paths = Files.walk(SOURCE_DIR)) {
+			files = paths.filter(Files::isRegularFile).collect(Collectors.toList());
+		}
+		CopyStats stats = copier.copy(files, SOURCE_DIR, TARGET_COPY_DIR);
+		assertEquals(sourceFiles, stats.getFiles());
+		assertEquals(0, stats.getDirectories());
+		assertEquals(sourceBytes, stats.getBytes());
+		for (Path file : files) {
+			assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(TARGET_COPY_DIR.resolve(SOURCE_DIR.relativize(file))));
+		}
+		assertFalse(Files.exists(TARGET_COPY_DIR.resolve("empty")));
+	}
+
+	@Test
+	public void testSingleThread() throws Exception {
+		try (BulkFileCopier singleThreadCopier = new BulkFileCopier(1, BUFFER_SIZE)) {
+			CopyStats stats = singleThreadCopier.copyTree(SOURCE_DIR, TARGET_COPY_DIR);
+			assertEquals(sourceBytes, stats.getBytes());
+		}
+		assertSameTree(SOURCE_DIR, TARGET_COPY_DIR);
+	}
+
+	@Test
+	public void testCopyTreeOntoItselfDoesNothing() throws Exception {
+		copier.copyTree(SOURCE_DIR, TARGET_COPY_DIR);
+		CopyStats stats = copier.copyTree(SOURCE_DIR, SOURCE_DIR);
+		assertEquals(0, stats.getFiles());
+		// The same directory by another path
+		stats = copier.copyTree(SOURCE_DIR, SOURCE_DIR.resolve("empty").resolve(".."));
+		assertEquals(0, stats.getFiles());
+		assertSameTree(TARGET_COPY_DIR, SOURCE_DIR);
+	}
+
+	@Test
+	public void testThreadsSuitTheFileStore() throws Exception {
+		assertEquals(BulkFileCopier.MIN_LOCAL_THREADS, BulkFileCopier.threadsFor("ext4", 1));
+		assertEquals(6, BulkFileCopier.threadsFor("NTFS", 6));
+		assertEquals(BulkFileCopier.MAX_LOCAL_THREADS, BulkFileCopier.threadsFor("apfs", 64));
+		assertEquals(BulkFileCopier.NETWORK_THREADS_PER_PROCESSOR * 2, BulkFileCopier.threadsFor("nfs4", 2));
+		// The target doesn't exist yet, but its parent does
+		try (BulkFileCopier storageCopier = new BulkFileCopier(TARGET_COPY_DIR.resolve("not-yet"))) {
+			assertTrue(storageCopier.getThreads() >= BulkFileCopier.MIN_LOCAL_THREADS);
+			CopyStats stats = storageCopier.copyTree(SOURCE_DIR, TARGET_COPY_DIR);
+			assertEquals(sourceBytes, stats.getBytes());
+		}
+		assertSameTree(SOURCE_DIR, TARGET_COPY_DIR);
+	}
+
+	@Test(expected=NoSuchFileException.class)
+	public void testMissingSourceFile() throws Exception {
+		copier.copy(Arrays.asList(SOURCE_DIR.resolve("dir0").resolve("sub0").resolve("file1.bin"), SOURCE_DIR.resolve("no-such-file")),
+				SOURCE_DIR, TARGET_COPY_DIR);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testSourceOutsideRoot() throws Exception {
+		copier.copy(Arrays.asList(BIG_SAMPLE_TEXT_FILE_PATH), SOURCE_DIR, TARGET_COPY_DIR);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNoThreads() {
+		new BulkFileCopier(0);
+	}
+
+}
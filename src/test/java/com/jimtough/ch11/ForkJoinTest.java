@@ -84,5 +84,20 @@ public class ForkJoinTest {
 		LOGGER.debug("Sum of first {} integers is: {}", N, sum);
 		assertEquals(calculateSumOfNUsingFormula(N), sum);
 	}
+
+	// Same sum, using the main-source version of RecursiveSumOfN, which splits adaptively instead
+	// of into one leaf per thread
+	@Test
+	public void testSumOfNWithRangeReducer() throws Exception {
+		long sum = new RangeReducer(ForkJoinPool.commonPool(), 1_000_000).reduce(0, N + 1, 0L, (from, to) -> {
+			long localSum = 0;
+			for (long x=from; x<to; x++) {
+				localSum += x;
+			}
+			return localSum;
+		}, Long::sum);
+		LOGGER.debug("Sum of first {} integers is: {}", N, sum);
+		assertEquals(calculateSumOfNUsingFormula(N), sum);
+	}
 	
 }
@@ -0,0 +1,194 @@
+package com.jimtough.ch11;
+
+import static com.jimtough.ch11.Ch11Utils.*;
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class LinePipelineTest {
+
+	private static List<String> TEXT_FILE_LINES;
+
+	private ForkJoinPool pool;
+
+	@BeforeClass
+	public static void oneTimeSetUp() throws Exception {
+		TEXT_FILE_LINES = Files.readAllLines(BIG_SAMPLE_TEXT_FILE_PATH);
+	}
+
+	@Before
+	public void setUp() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	private static Path writeTempFile(String name, byte[] contents) throws Exception {
+		Path path = TARGET_DIR.resolve("ch11-LinePipelineTest-" + name + ".txt");
+		Files.write(path, contents);
+		return path;
+	}
+
+	//--------------------------------------------------------------------
+
+	@Test
+	public void testParallelStreamNumbersLinesCorrectly() throws Exception {
+		// Unlike the AtomicInteger in ParallelStreamsTest, the numbers are right in a parallel stream
+		List<String> numbered = LinePipeline.lines(BIG_SAMPLE_TEXT_FILE_PATH, StandardCharsets.UTF_8)
+				.parallel()
+				.map(line -> String.format("%04d => [%s]", line.getLineNumber(), line.getText()))
+				.collect(Collectors.toList());
+		assertEquals(TEXT_FILE_LINES.size(), numbered.size());
+		for (int i = 0; i < TEXT_FILE_LINES.size(); i++) {
+			assertEquals(String.format("%04d => [%s]", i + 1, TEXT_FILE_LINES.get(i)), numbered.get(i));
+		}
+	}
+
+	@Test
+	public void testParallelStreamNumbersLinesOfLargeFile() throws Exception {
+		// About 2MB, so the stream is split into hundreds of pieces
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 200_000; i++) {
+			sb.append(i).append(i % 7 == 0 ? "\r\n" : "\n");
+		}
+		byte[] bytes = sb.toString().getBytes(StandardCharsets.US_ASCII);
+		assertNotNull(new IndexedLineSpliterator(ByteBuffer.wrap(bytes), StandardCharsets.US_ASCII).trySplit());
+		Path path = writeTempFile("large", bytes);
+		List<IndexedLine> lines = pool.submit(() -> LinePipeline.lines(path, StandardCharsets.US_ASCII)
+				.parallel()
+				.collect(Collectors.toList())).get();
+		assertEquals(200_000, lines.size());
+		for (int i = 0; i < lines.size(); i++) {
+			assertEquals(i, lines.get(i).getIndex());
+			assertEquals(Integer.toString(i), lines.get(i).getText());
+		}
+	}
+
+	// Split all the way down, then check that the pieces cover every line exactly once, in order
+	private static void splitAndCollect(IndexedLineSpliterator spliterator, List<IndexedLine> out) {
+		IndexedLineSpliterator prefix = spliterator.trySplit();
+		if (prefix != null) {
+			assertTrue(prefix.getNextIndex() <= spliterator.getNextIndex());
+			splitAndCollect(prefix, out);
+			assertEquals(out.size(), spliterator.getNextIndex());
+			splitAndCollect(spliterator, out);
+		} else {
+			spliterator.forEachRemaining(out::add);
+		}
+	}
+
+	@Test
+	public void testSplitting() throws Exception {
+		byte[] bytes = Files.readAllBytes(BIG_SAMPLE_TEXT_FILE_PATH);
+		List<IndexedLine> lines = new ArrayList<>();
+		splitAndCollect(new IndexedLineSpliterator(ByteBuffer.wrap(bytes), StandardCharsets.UTF_8), lines);
+		assertEquals(TEXT_FILE_LINES.size(), lines.size());
+		for (int i = 0; i < lines.size(); i++) {
+			assertEquals(i, lines.get(i).getIndex());
+			assertEquals(TEXT_FILE_LINES.get(i), lines.get(i).getText());
+		}
+	}
+
+	@Test
+	public void testLineTerminators() throws Exception {
+		String contents = "first\r\nsecond\n\nfourth \u00e9\u20ac\r\n\nlast";
+		Path path = writeTempFile("terminators", contents.getBytes(StandardCharsets.UTF_8));
+		List<String> expected = Files.readAllLines(path, StandardCharsets.UTF_8);
+		assertEquals(6, expected.size());
+		assertEquals(expected, LinePipeline.lines(path, StandardCharsets.UTF_8).map(IndexedLine::getText).collect(Collectors.toList()));
+		// Batches of every size, down to one line each
+		for (int batchBytes = 1; batchBytes <= 16; batchBytes++) {
+			List<String> numbered = new ArrayList<>();
+			new LinePipeline(pool, batchBytes, 2).process(path, StandardCharsets.UTF_8,
+					line -> line.getLineNumber() + ": " + line.getText(), numbered::add);
+			assertEquals(expected.size(), numbered.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals((i + 1) + ": " + expected.get(i), numbered.get(i));
+			}
+		}
+
+		path = writeTempFile("trailing", "one\ntwo\n".getBytes(StandardCharsets.ISO_8859_1));
+		assertEquals(Arrays.asList("one", "two"), LinePipeline.lines(path, StandardCharsets.ISO_8859_1).map(IndexedLine::getText).collect(Collectors.toList()));
+
+		path = writeTempFile("empty", new byte[0]);
+		assertEquals(0, LinePipeline.lines(path, StandardCharsets.UTF_8).count());
+	}
+
+	//--------------------------------------------------------------------
+
+	@Test
+	public void testProcessDeliversResultsInOrder() throws Exception {
+		final int maxBatchesInFlight = 3;
+		final int batchBytes = 4096;
+		LinePipeline pipeline = new LinePipeline(pool, batchBytes, maxBatchesInFlight);
+		final AtomicLong processed = new AtomicLong();
+		final List<String> results = new ArrayList<>();
+		long lineCount = pipeline.process(BIG_SAMPLE_TEXT_FILE_PATH, StandardCharsets.UTF_8, line -> {
+			// Make the batches finish out of order
+			if (ThreadLocalRandom.current().nextInt(100) == 0) {
+				try {
+					Thread.sleep(2);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			processed.incrementAndGet();
+			return line.getLineNumber() + ": " + ParallelStreamsTest.doBunchOfStringReplacements(line.getText());
+		}, result -> {
+			// Each line is at least one byte, so a batch holds at most batchBytes lines, plus the
+			// rest of the line the batch ends in
+			assertTrue(processed.get() - results.size() <= maxBatchesInFlight * 2L * batchBytes);
+			results.add(result);
+		});
+		assertEquals(TEXT_FILE_LINES.size(), lineCount);
+		assertEquals(TEXT_FILE_LINES.size(), results.size());
+		for (int i = 0; i < TEXT_FILE_LINES.size(); i++) {
+			assertEquals((i + 1) + ": " + ParallelStreamsTest.doBunchOfStringReplacements(TEXT_FILE_LINES.get(i)), results.get(i));
+		}
+	}
+
+	@Test
+	public void testProcessRethrowsException() throws Exception {
+		final List<Long> delivered = new ArrayList<>();
+		try {
+			new LinePipeline(pool, 1024, 2).process(BIG_SAMPLE_TEXT_FILE_PATH, StandardCharsets.UTF_8, line -> {
+				if (line.getIndex() == 2000) {
+					throw new IllegalStateException("boom");
+				}
+				return line.getIndex();
+			}, delivered::add);
+			fail();
+		} catch (IllegalStateException ise) {
+			assertTrue(ise.getMessage().endsWith("boom"));
+		}
+		// Everything before the failed batch was delivered in order, and nothing after it
+		assertTrue(delivered.size() < 2000);
+		for (int i = 0; i < delivered.size(); i++) {
+			assertEquals(i, delivered.get(i).longValue());
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testUnsupportedCharset() throws Exception {
+		LinePipeline.lines(BIG_SAMPLE_TEXT_FILE_PATH, StandardCharsets.UTF_16);
+	}
+
+}
@@ -0,0 +1,218 @@
+package com.jimtough.ch11;
+
+import static com.jimtough.ch11.Ch11Utils.*;
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ParallelCollectorsTest {
+
+	private static List<String> TEXT_FILE_LINES;
+
+	@BeforeClass
+	public static void oneTimeSetUp() throws Exception {
+		TEXT_FILE_LINES = Files.readAllLines(BIG_SAMPLE_TEXT_FILE_PATH);
+	}
+
+	//--------------------------------------------------------------------
+
+	@Test
+	public void testJoiningMatchesCollectorsJoining() {
+		final String separator = System.lineSeparator();
+		final String expected = TEXT_FILE_LINES.stream().collect(Collectors.joining(separator));
+		assertEquals(expected, TEXT_FILE_LINES.stream().collect(ParallelCollectors.joining(separator)));
+		for (int run = 0; run < 5; run++) {
+			assertEquals(expected, TEXT_FILE_LINES.parallelStream().collect(ParallelCollectors.joining(separator)));
+		}
+		// Same result as the reduce() in ParallelStreamsTest.testReduce_A
+		assertEquals(
+				TEXT_FILE_LINES.parallelStream().limit(500).reduce((s1,s2) -> s1 + separator + s2).get(),
+				TEXT_FILE_LINES.parallelStream().limit(500).collect(ParallelCollectors.joining(separator)));
+	}
+
+	@Test
+	public void testJoiningEdgeCases() {
+		assertEquals("", Stream.<CharSequence>empty().collect(ParallelCollectors.joining(", ")));
+		assertEquals("one", Stream.of("one").collect(ParallelCollectors.joining(", ")));
+		assertEquals("onetwo", Stream.of("one", "two").collect(ParallelCollectors.joining("")));
+		assertEquals("a, bc, , d", Stream.of("a", new StringBuilder("bc"), "", new StringBuffer("d"))
+				.collect(ParallelCollectors.joining(", ")));
+	}
+
+	@Test
+	public void testJoinedTextLength() {
+		JoinedText joined = TEXT_FILE_LINES.parallelStream().collect(ParallelCollectors.toJoinedText("\n"));
+		assertEquals(TEXT_FILE_LINES.size(), joined.count());
+		assertEquals(String.join("\n", TEXT_FILE_LINES).length(), joined.length());
+		assertEquals(joined.length(), joined.toCharArray().length);
+		assertEquals(0, Stream.<CharSequence>empty().collect(ParallelCollectors.toJoinedText("\n")).length());
+	}
+
+	@Test
+	public void testWriteToWriter() throws Exception {
+		JoinedText joined = TEXT_FILE_LINES.parallelStream().collect(ParallelCollectors.toJoinedText("\n"));
+		StringWriter sw = new StringWriter();
+		joined.writeTo(sw);
+		assertEquals(String.join("\n", TEXT_FILE_LINES), sw.toString());
+	}
+
+	@Test
+	public void testWriteToFileChannel() throws Exception {
+		// Larger than the write buffer, with some characters that take several bytes
+		List<String> lines = TEXT_FILE_LINES.stream().map(s -> s.replace('e', '\u00e9').replace('a', '\u20ac')).collect(Collectors.toList());
+		final String expected = String.join("\r\n", lines);
+		assertTrue(expected.length() > JoinedText.WRITE_BUFFER_SIZE);
+		JoinedText joined = lines.parallelStream().collect(ParallelCollectors.toJoinedText("\r\n"));
+		Path path = TARGET_DIR.resolve("ch11-ParallelCollectorsTest.txt");
+		long written;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			written = joined.writeTo(channel, StandardCharsets.UTF_8);
+		}
+		byte[] expectedBytes = expected.getBytes(StandardCharsets.UTF_8);
+		assertEquals(expectedBytes.length, written);
+		assertArrayEquals(expectedBytes, Files.readAllBytes(path));
+	}
+
+	@Test
+	public void testWriteToFileChannelWithSplitSurrogatePairs() throws Exception {
+		// U+1F600 is the pair D83D DE00. Split it between elements, and between an element and a
+		// separator, and leave an unpaired surrogate at the very end.
+		List<String> elements = Arrays.asList("a\ud83d", "\ude00b", "\ud83d", "", "\ude00", "c\ud83d");
+		for (String separator : Arrays.asList("", "\ude00-")) {
+			JoinedText joined = elements.stream().collect(ParallelCollectors.toJoinedText(separator));
+			byte[] expectedBytes = String.join(separator, elements).getBytes(StandardCharsets.UTF_8);
+			Path path = TARGET_DIR.resolve("ch11-ParallelCollectorsTest-surrogates.txt");
+			long written;
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				written = joined.writeTo(channel, StandardCharsets.UTF_8);
+			}
+			assertEquals(expectedBytes.length, written);
+			assertArrayEquals(expectedBytes, Files.readAllBytes(path));
+			assertEquals(String.join(separator, elements), joined.toString());
+		}
+	}
+
+	@Test(expected=NullPointerException.class)
+	public void testJoiningNullElement() {
+		Stream.of("a", null, "b").collect(ParallelCollectors.joining(","));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testJoiningNullSeparator() {
+		ParallelCollectors.joining(null);
+	}
+
+	//--------------------------------------------------------------------
+
+	private static final int N = 1_000_000;
+
+	@Test
+	public void testToChunkedList() {
+		List<Integer> expected = IntStream.range(0, N).boxed().collect(Collectors.toList());
+		assertEquals(expected, IntStream.range(0, N).boxed().collect(ParallelCollectors.toChunkedList()));
+		for (int run = 0; run < 3; run++) {
+			assertEquals(expected, IntStream.range(0, N).parallel().boxed().collect(ParallelCollectors.toChunkedList()));
+		}
+		assertEquals(TEXT_FILE_LINES, TEXT_FILE_LINES.parallelStream().collect(ParallelCollectors.toChunkedList()));
+		assertTrue(Stream.empty().collect(ParallelCollectors.toChunkedList()).isEmpty());
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void testToChunkedListIsUnmodifiable() {
+		Stream.of("a", "b").collect(ParallelCollectors.toChunkedList()).add("c");
+	}
+
+	@Test
+	public void testToUnorderedList() {
+		for (int run = 0; run < 3; run++) {
+			List<Integer> list = IntStream.range(0, N).parallel().boxed().collect(ParallelCollectors.toUnorderedList());
+			assertEquals(N, list.size());
+			// Every element exactly once
+			Integer[] sorted = list.toArray(new Integer[0]);
+			Arrays.sort(sorted);
+			for (int i = 0; i < N; i++) {
+				assertEquals(i, sorted[i].intValue());
+			}
+		}
+		List<String> sequential = TEXT_FILE_LINES.stream().collect(ParallelCollectors.toUnorderedList());
+		assertEquals(TEXT_FILE_LINES, sequential);
+	}
+
+	@Test
+	public void testToPrimitiveArrays() {
+		int[] expectedInts = IntStream.range(0, N).map(i -> i * 3).toArray();
+		for (int run = 0; run < 3; run++) {
+			assertArrayEquals(expectedInts, IntStream.range(0, N).parallel().boxed()
+					.collect(ParallelCollectors.toIntArray(i -> i * 3)));
+			assertArrayEquals(Arrays.stream(expectedInts).asLongStream().map(l -> l << 32).toArray(),
+					IntStream.range(0, N).parallel().boxed().collect(ParallelCollectors.toLongArray(i -> (long)i * 3 << 32)));
+			assertArrayEquals(Arrays.stream(expectedInts).asDoubleStream().map(d -> d / 2).toArray(),
+					IntStream.range(0, N).parallel().boxed().collect(ParallelCollectors.toDoubleArray(i -> i * 3 / 2.0)), 0.0);
+		}
+		assertArrayEquals(TEXT_FILE_LINES.stream().mapToInt(String::length).toArray(),
+				TEXT_FILE_LINES.parallelStream().collect(ParallelCollectors.toIntArray(String::length)));
+		assertEquals(0, Stream.<String>empty().collect(ParallelCollectors.toIntArray(String::length)).length);
+	}
+
+	@Test
+	public void testToArrayByIndex() throws Exception {
+		String[] expected = TEXT_FILE_LINES.toArray(new String[0]);
+		List<IndexedLine> indexedLines;
+		try (Stream<IndexedLine> lines = LinePipeline.lines(BIG_SAMPLE_TEXT_FILE_PATH, StandardCharsets.UTF_8)) {
+			indexedLines = lines.collect(Collectors.toList());
+		}
+		for (int run = 0; run < 3; run++) {
+			IndexedLine[] byIndex = indexedLines.parallelStream()
+					.collect(ParallelCollectors.toArrayByIndex(indexedLines.size(), line -> (int)line.getIndex(), IndexedLine[]::new));
+			assertEquals(expected.length, byIndex.length);
+			for (int i = 0; i < expected.length; i++) {
+				assertEquals(i, byIndex[i].getIndex());
+				assertEquals(expected[i], byIndex[i].getText());
+			}
+		}
+		// In reverse, and sequentially
+		List<IndexedLine> reversed = new ArrayList<>(indexedLines);
+		Collections.reverse(reversed);
+		IndexedLine[] byIndex = reversed.stream()
+				.collect(ParallelCollectors.toArrayByIndex(reversed.size(), line -> (int)line.getIndex(), IndexedLine[]::new));
+		assertEquals(expected[0], byIndex[0].getText());
+		assertEquals(expected[expected.length - 1], byIndex[expected.length - 1].getText());
+	}
+
+	@Test
+	public void testToArrayByIndexLeavesGapsNull() {
+		Integer[] array = Stream.of(1, 3).collect(ParallelCollectors.toArrayByIndex(5, i -> i, Integer[]::new));
+		assertArrayEquals(new Integer[] { null, 1, null, 3, null }, array);
+	}
+
+	@Test(expected=ArrayIndexOutOfBoundsException.class)
+	public void testToArrayByIndexOutOfRange() {
+		Stream.of(1, 5).collect(ParallelCollectors.toArrayByIndex(5, i -> i, Integer[]::new));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testToArrayByIndexNegativeSize() {
+		ParallelCollectors.toArrayByIndex(-1, (Integer i) -> i, Integer[]::new);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testToIntArrayNullMapper() {
+		ParallelCollectors.toIntArray(null);
+	}
+
+}
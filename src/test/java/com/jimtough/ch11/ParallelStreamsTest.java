@@ -64,7 +64,7 @@ public class ParallelStreamsTest {
 		});
 	}
 
-	private static String doBunchOfStringReplacements(String s) {
+	static String doBunchOfStringReplacements(String s) {
 		// I am very immature  :)
 		return s.replaceAll(" s[a-z]{3,} ", " shiz ")
 				.replaceAll("Buck", "Butt")
@@ -126,6 +126,13 @@ public class ParallelStreamsTest {
 		LOGGER.debug("Count of prime numbers below {}: {}", 100_000, numberOfPrimes);
 	}
 
+	@Test
+	public void testCountPrimesWithSieve() throws Exception {
+		long numberOfPrimes = new PrimeSieve().countPrimes(2, 100_001);
+		LOGGER.debug("Count of prime numbers below {}: {}", 100_000, numberOfPrimes);
+		assertEquals(LongStream.rangeClosed(2, 100_000).filter(ParallelStreamsTest::isPrimeNumber).count(), numberOfPrimes);
+	}
+
 	//--------------------------------------------------------------------
 	
 	@Test
@@ -246,6 +253,9 @@ public class ParallelStreamsTest {
 
 	//--------------------------------------------------------------------
 
+	// NOTE: The 'synchronized' below makes every thread wait for the same lock to add each
+	//       element, and isn't needed anyway, because each thread gets its own list from the
+	//       supplier. See testCollect_D for a collector that doesn't need any lock.
 	Supplier<List<String>> supplier = new Supplier<List<String>>() {
 		@Override public List<String> get() {
 			return new ArrayList<String>();
@@ -298,5 +308,20 @@ public class ParallelStreamsTest {
 		assertTrue(stringList.get(0).contains("Call"));
 		assertTrue(stringList.get(249).contains("ferocity"));
 	}
+
+	@Test
+	public void testCollect_D() throws Exception {
+		List<String> stringList;
+		try (Stream<String> ss = TEXT_FILE_LINES.parallelStream()) {
+			stringList = ss.collect(ParallelCollectors.toChunkedList());
+		}
+		assertEquals(TEXT_FILE_LINES, stringList);
+		try (Stream<String> ss = Stream.of(A,B,C,D,E,F,G).parallel()) {
+			stringList = ss.collect(ParallelCollectors.toChunkedList());
+		}
+		assertEquals(7, stringList.size());
+		assertEquals(A, stringList.get(0));
+		assertEquals(G, stringList.get(6));
+	}
 	
 }
@@ -0,0 +1,123 @@
+package com.jimtough.ch11;
+
+import static org.junit.Assert.*;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PrimeSieveTest {
+
+	private ForkJoinPool pool;
+	private PrimeSieve primeSieve;
+	// Segments of 128 odd numbers, so that short ranges cross many segment boundaries
+	private PrimeSieve smallSegmentPrimeSieve;
+
+	@Before
+	public void setUp() {
+		pool = new ForkJoinPool(4);
+		primeSieve = new PrimeSieve(pool);
+		smallSegmentPrimeSieve = new PrimeSieve(pool, 128);
+	}
+
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	//--------------------------------------------------------------------
+
+	private static boolean isPrimeNumber(long n) {
+		for (long x=2; x*x <= n; x++) {
+			if (n % x == 0) {
+				return false;
+			}
+		}
+		return n >= 2;
+	}
+
+	@Test
+	public void testCountPrimesBelowPowersOfTen() {
+		final long[] expected = { 0, 4, 25, 168, 1229, 9592, 78498, 664579, 5761455, 50847534 };
+		for (int e = 0; e < expected.length; e++) {
+			long hi = LongStream.range(0, e).reduce(1, (a, b) -> a * 10);
+			assertEquals("10^" + e, expected[e], primeSieve.countPrimes(0, hi));
+		}
+	}
+
+	@Test
+	public void testCountPrimesMatchesTrialDivision() {
+		Random random = new Random(42);
+		for (PrimeSieve sieve : new PrimeSieve[] { primeSieve, smallSegmentPrimeSieve }) {
+			for (int lo = 0; lo < 10; lo++) {
+				for (int hi = lo; hi < 40; hi++) {
+					long expected = LongStream.range(lo, hi).filter(PrimeSieveTest::isPrimeNumber).count();
+					assertEquals(lo + " to " + hi, expected, sieve.countPrimes(lo, hi));
+				}
+			}
+			for (int i = 0; i < 50; i++) {
+				long lo = random.nextInt(1_000_000);
+				long hi = lo + random.nextInt(5000);
+				long expected = LongStream.range(lo, hi).filter(PrimeSieveTest::isPrimeNumber).count();
+				assertEquals(lo + " to " + hi, expected, sieve.countPrimes(lo, hi));
+			}
+		}
+	}
+
+	@Test
+	public void testCountPrimesInLargeRange() {
+		// Primes between 10^12 and 10^12 + 10^4, counted by trial division
+		final long lo = 1_000_000_000_000L;
+		long expected = LongStream.range(lo, lo + 10_000).filter(PrimeSieveTest::isPrimeNumber).count();
+		assertEquals(expected, primeSieve.countPrimes(lo, lo + 10_000));
+		assertEquals(expected, smallSegmentPrimeSieve.countPrimes(lo, lo + 10_000));
+	}
+
+	@Test
+	public void testIteratorMatchesTrialDivision() {
+		for (PrimeSieve sieve : new PrimeSieve[] { primeSieve, smallSegmentPrimeSieve }) {
+			for (long[] range : new long[][] { { 0, 100_000 }, { 1, 2 }, { 2, 3 }, { 3, 1000 }, { 99_991, 100_003 }, { 500, 500 } }) {
+				PrimitiveIterator.OfLong expected = LongStream.range(range[0], range[1]).filter(PrimeSieveTest::isPrimeNumber).iterator();
+				PrimitiveIterator.OfLong actual = sieve.primes(range[0], range[1]);
+				while (expected.hasNext()) {
+					assertTrue(actual.hasNext());
+					assertEquals(expected.nextLong(), actual.nextLong());
+				}
+				assertFalse(actual.hasNext());
+			}
+		}
+	}
+
+	@Test(expected=NoSuchElementException.class)
+	public void testIteratorPastEnd() {
+		PrimitiveIterator.OfLong primes = primeSieve.primes(0, 3);
+		assertEquals(2, primes.nextLong());
+		primes.nextLong();
+	}
+
+	@Test
+	public void testOddPrimesUpToSqrt() {
+		assertArrayEquals(new int[0], PrimeSieve.oddPrimesUpToSqrt(8));
+		assertArrayEquals(new int[] { 3 }, PrimeSieve.oddPrimesUpToSqrt(9));
+		assertArrayEquals(new int[] { 3, 5, 7 }, PrimeSieve.oddPrimesUpToSqrt(120));
+		assertArrayEquals(new int[] { 3, 5, 7, 11 }, PrimeSieve.oddPrimesUpToSqrt(121));
+		assertEquals(155_610, PrimeSieve.oddPrimesUpToSqrt(PrimeSieve.MAX_BOUND).length);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNegativeLo() {
+		primeSieve.countPrimes(-1, 10);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testHiTooLarge() {
+		primeSieve.primes(0, PrimeSieve.MAX_BOUND + 1);
+	}
+
+}
@@ -0,0 +1,157 @@
+package com.jimtough.ch11;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongBinaryOperator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RangeReducerTest {
+
+	private ForkJoinPool pool;
+
+	@Before
+	public void setUp() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		pool.shutdownNow();
+	}
+
+	//--------------------------------------------------------------------
+
+	private static boolean isPrimeNumber(long n) {
+		for (long x=2; x*x <= n; x++) {
+			if (n % x == 0) {
+				return false;
+			}
+		}
+		return n >= 2;
+	}
+
+	@Test
+	public void testSumWithRangeFunction() {
+		final long n = 10_000_000;
+		long sum = new RangeReducer(pool, 10_000).reduce(1, n + 1, 0L, (from, to) -> {
+			long localSum = 0;
+			for (long x = from; x < to; x++) {
+				localSum += x;
+			}
+			return localSum;
+		}, Long::sum);
+		assertEquals((n * (n+1)) / 2, sum);
+	}
+
+	@Test
+	public void testSumAndCount() {
+		RangeReducer rangeReducer = new RangeReducer(pool, 64);
+		assertEquals(5050, rangeReducer.sum(1, 101, x -> x));
+		assertEquals(338350, rangeReducer.sum(1, 101, x -> x * x));
+		assertEquals(9592, rangeReducer.count(0, 100_000, RangeReducerTest::isPrimeNumber));
+		assertEquals(9592, new RangeReducer().count(0, 100_000, RangeReducerTest::isPrimeNumber));
+	}
+
+	@Test
+	public void testEmptyAndTinyRanges() {
+		RangeReducer rangeReducer = new RangeReducer(pool, 1);
+		assertEquals(0, rangeReducer.sum(5, 5, x -> x));
+		assertEquals(-1, rangeReducer.mapReduce(5, 5, x -> x, -1, Math::max));
+		assertEquals(5, rangeReducer.sum(5, 6, x -> x));
+		assertEquals(Long.MAX_VALUE - 1, rangeReducer.mapReduce(Long.MAX_VALUE - 10, Long.MAX_VALUE, x -> x, Long.MIN_VALUE, Math::max));
+	}
+
+	// Each partial result is a range packed as (from << 32 | to). Combining two ranges that are not
+	// adjacent, or in the wrong order, gives -1.
+	private static final long NO_RANGE = -2;
+	private static final LongBinaryOperator CONCATENATE_RANGES = (left, right) -> {
+		if (left == NO_RANGE) {
+			return right;
+		}
+		if (right == NO_RANGE) {
+			return left;
+		}
+		if (left < 0 || right < 0 || (left & 0xFFFFFFFFL) != (right >>> 32)) {
+			return -1;
+		}
+		return (left & 0xFFFFFFFF00000000L) | (right & 0xFFFFFFFFL);
+	};
+
+	@Test
+	public void testResultsAreCombinedInOrder() {
+		final long n = 1_000_000;
+		for (long grain : new long[] { 1, 7, 1000, n }) {
+			long result = new RangeReducer(pool, grain).reduce(0, n, NO_RANGE, (from, to) -> (from << 32) | to, CONCATENATE_RANGES);
+			assertEquals("grain: " + grain, n, result);
+		}
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		final AtomicLong grainsReduced = new AtomicLong();
+		ForkJoinTask<Long> task = new RangeReducer(pool, 1).submit(0, 1_000_000, 0L, (from, to) -> {
+			grainsReduced.incrementAndGet();
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+			return to - from;
+		}, Long::sum);
+		while (grainsReduced.get() < 10) {
+			Thread.sleep(1);
+		}
+		assertTrue(task.cancel(true));
+		try {
+			task.get();
+			fail();
+		} catch (CancellationException ce) {
+			// expected
+		}
+		// Tasks that were in the middle of a grain finish it, then stop
+		Thread.sleep(50);
+		long grainsAfterCancel = grainsReduced.get();
+		Thread.sleep(100);
+		assertEquals(grainsAfterCancel, grainsReduced.get());
+		assertTrue(grainsAfterCancel < 1_000_000);
+	}
+
+	@Test
+	public void testExceptionFromRangeFunctionIsRethrown() {
+		try {
+			new RangeReducer(pool, 10).sum(0, 10_000, x -> {
+				if (x == 5_000) {
+					throw new IllegalStateException("boom");
+				}
+				return x;
+			});
+			fail();
+		} catch (IllegalStateException ise) {
+			// An exception thrown on another worker is rethrown as a copy, with the original as its cause
+			assertTrue(ise.getMessage().endsWith("boom"));
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidRange() {
+		new RangeReducer(pool, 10).sum(10, 9, x -> x);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testRangeTooLarge() {
+		new RangeReducer(pool, 10).sum(Long.MIN_VALUE, Long.MAX_VALUE, x -> x);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidGrain() {
+		new RangeReducer(pool, 0);
+	}
+
+}
@@ -0,0 +1,158 @@
+package com.jimtough.ch11;
+
+import static com.jimtough.ch11.Ch11Utils.*;
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TextRewriterTest {
+
+	private static List<String> TEXT_FILE_LINES;
+
+	@BeforeClass
+	public static void oneTimeSetUp() throws Exception {
+		TEXT_FILE_LINES = Files.readAllLines(BIG_SAMPLE_TEXT_FILE_PATH);
+	}
+
+	// The rules of ParallelStreamsTest.doBunchOfStringReplacements(), in the same order
+	static TextRewriter newBunchOfStringReplacementsRewriter() {
+		return TextRewriter.builder()
+				.replaceWordMatching("s[a-z]{3,}", "shiz")
+				.replaceLiteral("Buck", "Butt")
+				.replaceWord("the", "teh")
+				.replaceWord("he", "she")
+				.replaceWord("his", "her")
+				.replaceWord("him", "her")
+				.replaceWord("himself", "herself")
+				.replaceWord("man", "woman")
+				.replaceWord("men", "women")
+				.build();
+	}
+
+	//--------------------------------------------------------------------
+
+	@Test
+	public void testSameResultAsChainedReplaceAllOnNovel() {
+		TextRewriter rewriter = newBunchOfStringReplacementsRewriter();
+		StringBuilder sb = new StringBuilder();
+		int changedLines = 0;
+		for (int i = 0; i < TEXT_FILE_LINES.size(); i++) {
+			String line = TEXT_FILE_LINES.get(i);
+			// The tests rewrite numbered lines
+			String numberedLine = String.format("%04d => [%s]", i + 1, line);
+			for (String s : new String[] { line, numberedLine }) {
+				String expected = ParallelStreamsTest.doBunchOfStringReplacements(s);
+				sb.setLength(0);
+				assertEquals("line " + (i + 1), expected, rewriter.rewrite(s, sb).toString());
+				if (!expected.equals(s)) {
+					changedLines++;
+				}
+			}
+		}
+		// Make sure the rules actually did something
+		assertTrue(changedLines > 1000);
+	}
+
+	@Test
+	public void testWordRulesConsumeTheSpacesAroundAMatch() {
+		TextRewriter rewriter = newBunchOfStringReplacementsRewriter();
+		for (String s : new String[] {
+				" the the the ",
+				" the  the ",
+				" the he the his him ",
+				" said some sled ",
+				"the he ",
+				" he",
+				"  ",
+				"",
+				" Buck, the Buckeye man, and himself men " }) {
+			assertEquals("[" + s + "]", ParallelStreamsTest.doBunchOfStringReplacements(s), rewriter.rewrite(s));
+		}
+	}
+
+	@Test
+	public void testBlockedExpressionFallsBackToLaterExpression() {
+		TextRewriter rewriter = TextRewriter.builder()
+				.replaceWordMatching("(a)+", "X")
+				.replaceWord("bb", "Z")
+				.replaceWordMatching("a+(b)?", "Y")
+				.build();
+		for (String s : new String[] { " aa aa aa ", " aab aa bb bb ", " a ab a " }) {
+			String expected = s.replaceAll(" (a)+ ", " X ").replaceAll(" bb ", " Z ").replaceAll(" a+(b)? ", " Y ");
+			assertEquals("[" + s + "]", expected, rewriter.rewrite(s));
+		}
+	}
+
+	//--------------------------------------------------------------------
+
+	// Leftmost match first, and the longest of those that start at the same place
+	private static String replaceLeftmostLongest(String s, String[] targets, String[] replacements) {
+		StringBuilder sb = new StringBuilder();
+		int i = 0;
+		while (i < s.length()) {
+			int best = -1;
+			for (int t = 0; t < targets.length; t++) {
+				if (s.startsWith(targets[t], i) && (best < 0 || targets[t].length() > targets[best].length())) {
+					best = t;
+				}
+			}
+			if (best < 0) {
+				sb.append(s.charAt(i++));
+			} else {
+				sb.append(replacements[best]);
+				i += targets[best].length();
+			}
+		}
+		return sb.toString();
+	}
+
+	@Test
+	public void testLiteralsAreReplacedLeftmostLongest() {
+		final String[] targets = { "a", "ab", "bab", "bb", "\u00e9b", "abba" };
+		final String[] replacements = { "1", "2", "3", "4", "5", "6" };
+		TextRewriter.Builder builder = TextRewriter.builder();
+		for (int t = 0; t < targets.length; t++) {
+			builder.replaceLiteral(targets[t], replacements[t]);
+		}
+		TextRewriter rewriter = builder.build();
+		assertEquals("u3rs", TextRewriter.builder().replaceLiteral("he", "1").replaceLiteral("she", "3")
+				.replaceLiteral("hers", "2").build().rewrite("ushers"));
+		Random random = new Random(42);
+		final String alphabet = "ab\u00e9c ";
+		for (int n = 0; n < 2000; n++) {
+			char[] chars = new char[random.nextInt(20)];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+			}
+			String s = new String(chars);
+			assertEquals("[" + s + "]", replaceLeftmostLongest(s, targets, replacements), rewriter.rewrite(s));
+		}
+	}
+
+	@Test
+	public void testReplacementIsLiteral() {
+		TextRewriter rewriter = TextRewriter.builder().replaceLiteral("x", "$1\\").replaceWord("y", "$0").build();
+		assertEquals("a$1\\ $0 b", rewriter.rewrite("ax y b"));
+	}
+
+	@Test
+	public void testNoRules() {
+		assertEquals("unchanged text", TextRewriter.builder().build().rewrite("unchanged text"));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testWordWithSpace() {
+		TextRewriter.builder().replaceWord("two words", "x");
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testEmptyLiteral() {
+		TextRewriter.builder().replaceLiteral("", "x");
+	}
+
+}